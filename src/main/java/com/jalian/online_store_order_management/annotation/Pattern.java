@@ -1,5 +1,10 @@
 package com.jalian.online_store_order_management.annotation;
 
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
 /**
  * The Pattern annotation is used to validate that a given method parameter matches a specified regular expression.
  * <p>
@@ -11,6 +16,8 @@ package com.jalian.online_store_order_management.annotation;
  *
  * @author amirhosein jalian
  */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
 public @interface Pattern {
 
     /**
@@ -9,6 +9,10 @@ import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.stereotype.Component;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The ValidatorAspect class intercepts methods annotated with {@code @Valid} and performs parameter validations.
@@ -17,8 +21,12 @@ import java.lang.annotation.Annotation;
  * custom annotations such as {@code @Full}, {@code @NotNull}, {@code @NotEmpty}, {@code @NotBlank}, and {@code @Pattern}.
  * If a validation fails, a {@link ValidationException} is thrown with an appropriate message.
  * </p>
- *
- * <p><b>Note:</b> Cleaner code refactoring is needed.</p>
+ * <p>
+ * The annotations of a method are read only once: the first call compiles them into a validation plan, a flat
+ * array of checks holding the parameter index, the resolved messages and, for {@code @Pattern}, the compiled
+ * regular expression. Plans are cached per {@link Method}, so later calls do no reflection and no regex
+ * compilation.
+ * </p>
  *
  * @author amirhosein jalian
  */
@@ -26,10 +34,15 @@ import java.lang.annotation.Annotation;
 @Component
 public class ValidatorAspect {
 
+    private static final ParameterCheck[] NO_CHECKS = new ParameterCheck[0];
+
+    private final Map<Method, ParameterCheck[]> plans = new ConcurrentHashMap<>();
+
     /**
      * Intercepts the execution of any method annotated with {@code @Valid} to validate its parameters.
      * <p>
-     * For each method parameter, it retrieves the associated annotations and performs validations based on:
+     * The validation plan of the method is looked up (or compiled on the first call) and every check in it is
+     * applied to the corresponding argument, in the order the annotations are declared:
      * <ul>
      *     <li>{@code @Full}: Ensures the argument is not null, empty, or blank.</li>
      *     <li>{@code @NotNull}: Ensures the argument is not null.</li>
@@ -43,138 +56,155 @@ public class ValidatorAspect {
      */
     @Before("@annotation(com.jalian.online_store_order_management.annotation.Valid)")
     public void validateMethodParameters(JoinPoint joinPoint) {
-        Object[] args = joinPoint.getArgs();
-        MethodSignature methodSignature = (MethodSignature) joinPoint.getSignature();
-        Annotation[][] parameterAnnotations = methodSignature.getMethod().getParameterAnnotations();
-        for (int i = 0; i < args.length; i++) {
+        var plan = planFor((MethodSignature) joinPoint.getSignature());
+        if (plan.length == 0) {
+            return;
+        }
+        var args = joinPoint.getArgs();
+        for (var check : plan) {
+            check.validate(args);
+        }
+    }
+
+    private ParameterCheck[] planFor(MethodSignature signature) {
+        var method = signature.getMethod();
+        var plan = plans.get(method);
+        if (plan == null) {
+            plan = plans.computeIfAbsent(method, m -> compile(m, signature.getParameterNames()));
+        }
+        return plan;
+    }
+
+    /**
+     * Compiles the parameter annotations of a method into a validation plan.
+     *
+     * @param method         the validated method.
+     * @param parameterNames the parameter names used in the default messages, or {@code null} if unavailable.
+     * @return the checks to apply on every call, in declaration order; empty if the method has none.
+     */
+    static ParameterCheck[] compile(Method method, String[] parameterNames) {
+        var parameterAnnotations = method.getParameterAnnotations();
+        var checks = new ArrayList<ParameterCheck>();
+        for (int i = 0; i < parameterAnnotations.length; i++) {
+            var param = parameterNames != null ? parameterNames[i] : "arg" + i;
             for (Annotation annotation : parameterAnnotations[i]) {
-                handleFull(annotation, args[i], methodSignature.getParameterNames()[i]);
-                if (annotation instanceof NotNull notNull) {
-                    handleNotNull(notNull, args[i], methodSignature.getParameterNames()[i]);
-                }
-                if (annotation instanceof NotEmpty notEmpty) {
-                    handleNotEmpty(notEmpty, args[i], methodSignature.getParameterNames()[i]);
-                }
-                if (annotation instanceof NotBlank notBlank) {
-                    handleNotBlank(notBlank, args[i], methodSignature.getParameterNames()[i]);
-                }
-                if (annotation instanceof Pattern pattern) {
-                    handlePattern(pattern, args[i], methodSignature.getParameterNames()[i]);
+                var check = compile(annotation, i, param);
+                if (check != null) {
+                    checks.add(check);
                 }
             }
         }
+        return checks.isEmpty() ? NO_CHECKS : checks.toArray(ParameterCheck[]::new);
+    }
+
+    private static ParameterCheck compile(Annotation annotation, int index, String param) {
+        return switch (annotation) {
+            case Full ignored -> new FullCheck(index,
+                    param + " cannot be null", param + " cannot be empty", param + " cannot be blank");
+            case NotNull notNull -> new NotNullCheck(index, message(notNull.message(), param + " cannot be null"));
+            case NotEmpty notEmpty -> new NotEmptyCheck(index, message(notEmpty.message(), param + " cannot be empty"));
+            case NotBlank notBlank -> new NotBlankCheck(index, message(notBlank.message(), param + " cannot be blank"));
+            case Pattern pattern -> new PatternCheck(index, java.util.regex.Pattern.compile(pattern.regex()),
+                    message(pattern.message(), param + " does not have valid pattern"), param + " cannot be null");
+            default -> null;
+        };
+    }
+
+    private static String message(String custom, String fallback) {
+        return custom.isEmpty() ? fallback : custom;
     }
 
     /**
-     * Validates the parameter annotated with {@code @Full}.
-     * <p>
-     * This method checks that the argument is not {@code null}, not empty, and not a single blank space.
-     * If any of these conditions fail, a {@link ValidationException} is thrown with a message indicating the problem.
-     * </p>
-     *
-     * @param annotation the annotation instance (expected to be {@code @Full}).
-     * @param arg the method argument to validate.
-     * @param param the name of the parameter.
+     * A single precompiled validation applied to one argument of a method call.
      */
-    private void handleFull(Annotation annotation, Object arg, String param) {
-        if (annotation instanceof Full) {
+    sealed interface ParameterCheck permits FullCheck, NotNullCheck, NotEmptyCheck, NotBlankCheck, PatternCheck {
+
+        /**
+         * Validates the argument this check is bound to.
+         *
+         * @param args the arguments of the method call.
+         * @throws ValidationException if the argument violates the constraint.
+         */
+        void validate(Object[] args);
+    }
+
+    /**
+     * Checks that the argument is not {@code null}, not empty, and not a single blank space ({@code @Full}).
+     */
+    private record FullCheck(int index, String nullMessage, String emptyMessage, String blankMessage)
+            implements ParameterCheck {
+
+        @Override
+        public void validate(Object[] args) {
+            var arg = args[index];
             if (arg == null) {
-                throw new ValidationException(param + " cannot be null");
+                throw new ValidationException(nullMessage);
             }
-            if ("".equals(String.valueOf(arg))) {
-                throw new ValidationException(param + " cannot be empty");
+            var value = String.valueOf(arg);
+            if (value.isEmpty()) {
+                throw new ValidationException(emptyMessage);
             }
-            if (" ".equals(String.valueOf(arg))) {
-                throw new ValidationException(param + " cannot be blank");
+            if (" ".equals(value)) {
+                throw new ValidationException(blankMessage);
             }
         }
     }
 
     /**
-     * Validates the parameter annotated with {@code @NotNull}.
-     * <p>
-     * Checks if the argument is {@code null}. If it is, throws a {@link ValidationException} with either the default
-     * message or the message provided in the annotation.
-     * </p>
-     *
-     * @param notNull the {@code @NotNull} annotation instance.
-     * @param arg the method argument to validate.
-     * @param param the name of the parameter.
+     * Checks that the argument is not {@code null} ({@code @NotNull}).
      */
-    private void handleNotNull(NotNull notNull, Object arg, String param) {
-        if (arg == null) {
-            if (notNull.message().isEmpty()) {
-                throw new ValidationException(param + " cannot be null");
-            } else {
-                throw new ValidationException(notNull.message());
+    private record NotNullCheck(int index, String message) implements ParameterCheck {
+
+        @Override
+        public void validate(Object[] args) {
+            if (args[index] == null) {
+                throw new ValidationException(message);
             }
         }
     }
 
     /**
-     * Validates the parameter annotated with {@code @NotEmpty}.
-     * <p>
-     * Checks if the argument is empty. If it is, throws a {@link ValidationException} with either the default
-     * message or the message provided in the annotation.
-     * </p>
-     *
-     * @param notEmpty the {@code @NotEmpty} annotation instance.
-     * @param arg the method argument to validate.
-     * @param param the name of the parameter.
+     * Checks that the string representation of the argument is not empty ({@code @NotEmpty}).
      */
-    private void handleNotEmpty(NotEmpty notEmpty, Object arg, String param) {
-        if ("".equals(String.valueOf(arg))) {
-            if (notEmpty.message().isEmpty()) {
-                throw new ValidationException(param + " cannot be empty");
-            } else {
-                throw new ValidationException(notEmpty.message());
+    private record NotEmptyCheck(int index, String message) implements ParameterCheck {
+
+        @Override
+        public void validate(Object[] args) {
+            if (String.valueOf(args[index]).isEmpty()) {
+                throw new ValidationException(message);
             }
         }
     }
 
     /**
-     * Validates the parameter annotated with {@code @NotBlank}.
-     * <p>
-     * Checks if the argument is a single blank space. If it is, throws a {@link ValidationException} with either the default
-     * message or the message provided in the annotation.
-     * </p>
-     *
-     * @param notBlank the {@code @NotBlank} annotation instance.
-     * @param arg the method argument to validate.
-     * @param param the name of the parameter.
+     * Checks that the string representation of the argument is not a single blank space ({@code @NotBlank}).
      */
-    private void handleNotBlank(NotBlank notBlank, Object arg, String param) {
-        if (" ".equals(String.valueOf(arg))) {
-            if (notBlank.message().isEmpty()) {
-                throw new ValidationException(param + " cannot be blank");
-            } else {
-                throw new ValidationException(notBlank.message());
+    private record NotBlankCheck(int index, String message) implements ParameterCheck {
+
+        @Override
+        public void validate(Object[] args) {
+            if (" ".equals(String.valueOf(args[index]))) {
+                throw new ValidationException(message);
             }
         }
     }
 
     /**
-     * Validates the parameter annotated with {@code @Pattern}.
-     * <p>
-     * Checks if the argument is not {@code null} and matches the regular expression specified by the annotation.
-     * If the argument is {@code null} or does not match the pattern, a {@link ValidationException} is thrown with
-     * an appropriate message.
-     * </p>
-     *
-     * @param pattern the {@code @Pattern} annotation instance.
-     * @param arg the method argument to validate.
-     * @param param the name of the parameter.
+     * Checks that the argument is not {@code null} and that its string representation matches the precompiled
+     * regular expression ({@code @Pattern}).
      */
-    private void handlePattern(Pattern pattern, Object arg, String param) {
-        if (arg != null && !String.valueOf(arg).matches(pattern.regex())) {
-            if (pattern.message().isEmpty()) {
-                throw new ValidationException(param + " does not have valid pattern");
-            } else {
-                throw new ValidationException(pattern.message());
+    private record PatternCheck(int index, java.util.regex.Pattern regex, String mismatchMessage, String nullMessage)
+            implements ParameterCheck {
+
+        @Override
+        public void validate(Object[] args) {
+            var arg = args[index];
+            if (arg == null) {
+                throw new ValidationException(nullMessage);
+            }
+            if (!regex.matcher(String.valueOf(arg)).matches()) {
+                throw new ValidationException(mismatchMessage);
             }
-        }
-        if (arg == null) {
-            throw new ValidationException(param + " cannot be null");
         }
     }
-}
\ No newline at end of file
+}
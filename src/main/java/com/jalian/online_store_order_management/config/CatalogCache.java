@@ -0,0 +1,171 @@
+package com.jalian.online_store_order_management.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * The CatalogCache class is a bounded, expiring, in-memory cache for catalog reads such as products and stores.
+ * <p>
+ * Values are loaded on a miss and kept for {@code ttl}; a loader returning {@code null} means the key does not
+ * exist, and nothing is cached for it. When the cache reaches its maximum size it is simply dropped, like the
+ * membership cache of the store service. Writers invalidate the keys they changed once their transaction has
+ * committed, so readers never cache a value that is about to be rolled back.
+ * </p>
+ * <p>
+ * A reader may load the old value of a key just before a writer commits. To keep such a load from being cached
+ * after the invalidation, every invalidation bumps a generation counter of the key's stripe, and a load whose
+ * stripe generation changed while it ran is returned but not cached.
+ * </p>
+ * <p>
+ * The cache publishes the same meters as the Micrometer binding of Caffeine, tagged by {@code cache}:
+ * {@code cache.gets} with a {@code result} of {@code hit} or {@code miss}, {@code cache.puts},
+ * {@code cache.evictions} for entries dropped because they expired or the cache was full,
+ * {@code cache.invalidations} for entries removed by writers, and the {@code cache.size} gauge.
+ * </p>
+ *
+ * @param <K> the type of the keys.
+ * @param <V> the type of the cached values.
+ * @author amirhosein jalian
+ */
+public class CatalogCache<K, V> {
+
+    private static final int STRIPES = 64;
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter puts;
+    private final Counter evictions;
+    private final Counter invalidations;
+
+    /**
+     * Constructs a CatalogCache and registers its meters.
+     *
+     * @param name          the name of the cache, used as the {@code cache} tag of its meters.
+     * @param maxSize       the number of entries at which the cache is dropped.
+     * @param ttl           how long an entry is served after it was loaded.
+     * @param meterRegistry the registry the meters are published to.
+     */
+    public CatalogCache(String name, int maxSize, Duration ttl, MeterRegistry meterRegistry) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.hits = Counter.builder("cache.gets").tag("cache", name).tag("result", "hit")
+                .description("Cache lookups served from the cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", name).tag("result", "miss")
+                .description("Cache lookups that had to load the value")
+                .register(meterRegistry);
+        this.puts = Counter.builder("cache.puts").tag("cache", name)
+                .description("Values stored in the cache")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("cache.evictions").tag("cache", name)
+                .description("Entries dropped because they expired or the cache was full")
+                .register(meterRegistry);
+        this.invalidations = Counter.builder("cache.invalidations").tag("cache", name)
+                .description("Entries removed because their value changed")
+                .register(meterRegistry);
+        Gauge.builder("cache.size", entries, Map::size).tag("cache", name)
+                .description("Entries currently cached")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached value of a key, loading and caching it on a miss.
+     *
+     * @param key    the key.
+     * @param loader loads the value of the key, or returns {@code null} if the key does not exist.
+     * @return the value, or {@code null} if the key does not exist.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        var now = System.nanoTime();
+        var entry = entries.get(key);
+        if (entry != null) {
+            if (now - entry.expiresAt() < 0) {
+                hits.increment();
+                return entry.value();
+            }
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+        }
+        misses.increment();
+        var stripe = stripe(key);
+        var generation = generations.get(stripe);
+        V value = loader.apply(key);
+        if (value == null || generations.get(stripe) != generation) {
+            return value;
+        }
+        if (entries.size() >= maxSize) {
+            evictions.increment(entries.size());
+            entries.clear();
+        }
+        var loaded = new Entry<V>(value, now + ttlNanos);
+        entries.put(key, loaded);
+        puts.increment();
+        // An invalidation may have run between the check above and the put; it must win.
+        if (generations.get(stripe) != generation) {
+            entries.remove(key, loaded);
+        }
+        return value;
+    }
+
+    /**
+     * Removes a key from the cache right away.
+     *
+     * @param key the key whose value changed.
+     */
+    public void invalidate(K key) {
+        generations.incrementAndGet(stripe(key));
+        if (entries.remove(key) != null) {
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * Removes a key from the cache once the current transaction has committed, or right away if there is none.
+     *
+     * @param key the key whose value is changed by the current transaction.
+     */
+    public void invalidateAfterCommit(K key) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(key);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(key);
+            }
+        });
+    }
+
+    /**
+     * Returns the number of entries currently cached, including expired ones that were not read since.
+     *
+     * @return the number of cached entries.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private static int stripe(Object key) {
+        var hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
@@ -0,0 +1,68 @@
+package com.jalian.online_store_order_management.config;
+
+import com.jalian.online_store_order_management.domain.Store;
+import com.jalian.online_store_order_management.dto.ProductFetchDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * The CatalogCacheConfig class defines the caches that serve catalog reads without going to the database.
+ * <p>
+ * Catalog reads far outnumber catalog writes: every product page reads a product, and every order and every new
+ * product reads its store. The product cache holds the {@link ProductFetchDto} returned by the product API and is
+ * invalidated whenever the inventory of a product is charged or discharged. The store cache only holds the ids of
+ * existing stores; callers that need a {@link Store} get a reference bound to their own persistence context, so
+ * no entity is ever shared between threads. Stores are never deleted, so the store cache is never invalidated.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@Configuration
+public class CatalogCacheConfig {
+
+    /**
+     * The bean name of the product cache, which is also the {@code cache} tag of its meters.
+     */
+    public static final String PRODUCT_CACHE = "products";
+
+    /**
+     * The bean name of the store cache, which is also the {@code cache} tag of its meters.
+     */
+    public static final String STORE_CACHE = "stores";
+
+    /**
+     * Creates the cache of products, keyed by product id.
+     *
+     * @param maxSize       the number of products at which the cache is dropped.
+     * @param ttl           how long a cached product is served.
+     * @param meterRegistry the registry the cache meters are published to.
+     * @return the product cache.
+     */
+    @Bean(name = PRODUCT_CACHE)
+    public CatalogCache<Long, ProductFetchDto> productCache(
+            @Value("${catalog.cache.products.max-size:100000}") int maxSize,
+            @Value("${catalog.cache.products.ttl:30s}") Duration ttl,
+            MeterRegistry meterRegistry) {
+        return new CatalogCache<>(PRODUCT_CACHE, maxSize, ttl, meterRegistry);
+    }
+
+    /**
+     * Creates the cache of existing store ids, keyed by store id.
+     *
+     * @param maxSize       the number of stores at which the cache is dropped.
+     * @param ttl           how long a cached store id is served.
+     * @param meterRegistry the registry the cache meters are published to.
+     * @return the store cache.
+     */
+    @Bean(name = STORE_CACHE)
+    public CatalogCache<Long, Long> storeCache(
+            @Value("${catalog.cache.stores.max-size:10000}") int maxSize,
+            @Value("${catalog.cache.stores.ttl:10m}") Duration ttl,
+            MeterRegistry meterRegistry) {
+        return new CatalogCache<>(STORE_CACHE, maxSize, ttl, meterRegistry);
+    }
+}
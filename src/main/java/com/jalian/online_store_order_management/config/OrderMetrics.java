@@ -0,0 +1,180 @@
+package com.jalian.online_store_order_management.config;
+
+import com.jalian.online_store_order_management.constant.OrderStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+import org.hibernate.StaleObjectStateException;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The OrderMetrics class publishes the meters that show where the latency and the failures of orders come from.
+ * <p>
+ * It registers the following meters:
+ * <ul>
+ *     <li>{@code lock.exceptions}: lock failures, tagged by the {@code entity} that was locked and the
+ *     {@code source} that observed them ({@code api} or {@code payment}).</li>
+ *     <li>{@code pay.attempts}: the number of attempts each asynchronous payment took, tagged by its final
+ *     {@code status}.</li>
+ *     <li>{@code orders}: orders that reached a final {@link OrderStatus}, tagged by that {@code status}.</li>
+ *     <li>{@code order.add}: the time spent placing an order, tagged by {@code phase}: {@code validation},
+ *     {@code items} and {@code payment}.</li>
+ * </ul>
+ * The wait for a database connection is published by Spring Boot as {@code hikaricp.connections.acquire}.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@Component
+public class OrderMetrics {
+
+    /**
+     * The entity tag used when a lock failure does not name the locked entity.
+     */
+    public static final String UNKNOWN_ENTITY = "unknown";
+
+    /**
+     * The phases of placing an order, timed separately by the {@code order.add} timer.
+     */
+    public enum Phase {
+        VALIDATION, ITEMS, PAYMENT
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<OrderStatus, Counter> orders = new EnumMap<>(OrderStatus.class);
+    private final Map<Phase, Timer> phases = new EnumMap<>(Phase.class);
+
+    /**
+     * Constructs an OrderMetrics instance registering its meters in the given registry.
+     *
+     * @param meterRegistry the registry the meters are published to.
+     */
+    public OrderMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (var status : OrderStatus.values()) {
+            orders.put(status, Counter.builder("orders")
+                    .description("Orders that reached a final status")
+                    .tag("status", status.name())
+                    .register(meterRegistry));
+        }
+        for (var phase : Phase.values()) {
+            phases.put(phase, Timer.builder("order.add")
+                    .description("Time spent placing an order, per phase")
+                    .tag("phase", phase.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Counts an order that reached its final status.
+     *
+     * @param status the final status of the order.
+     */
+    public void orderCompleted(OrderStatus status) {
+        orders.get(status).increment();
+    }
+
+    /**
+     * Records the number of attempts an asynchronous payment took.
+     *
+     * @param attempts the number of attempts, including the first one.
+     * @param status   the final status of the order.
+     */
+    public void paymentAttempts(int attempts, OrderStatus status) {
+        DistributionSummary.builder("pay.attempts")
+                .description("Attempts taken by each asynchronous payment")
+                .tag("status", status.name())
+                .serviceLevelObjectives(1, 2, 3, 5, 8)
+                .register(meterRegistry)
+                .record(attempts);
+    }
+
+    /**
+     * Counts a lock failure if the given throwable, or one of its causes, is one.
+     *
+     * @param throwable the failure.
+     * @param source    where the failure was observed, for example {@code api} or {@code payment}.
+     */
+    public void lockFailure(Throwable throwable, String source) {
+        var entity = lockedEntity(throwable);
+        if (entity != null) {
+            Counter.builder("lock.exceptions")
+                    .description("Lock failures, per locked entity")
+                    .tag("entity", entity)
+                    .tag("source", source)
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    /**
+     * Starts timing a phase of placing an order.
+     *
+     * @return the started sample.
+     */
+    public Timer.Sample startPhase() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * Stops timing a phase of placing an order.
+     *
+     * @param sample the sample returned by {@link #startPhase()}.
+     * @param phase  the phase that ended.
+     */
+    public void stopPhase(Timer.Sample sample, Phase phase) {
+        sample.stop(phases.get(phase));
+    }
+
+    /**
+     * Resolves the simple name of the entity a lock failure happened on.
+     *
+     * @param throwable the failure.
+     * @return the entity name, {@link #UNKNOWN_ENTITY} if it is a lock failure on an unnamed entity,
+     *         or {@code null} if it is not a lock failure.
+     */
+    static String lockedEntity(Throwable throwable) {
+        String entity = null;
+        for (var cause = throwable; cause != null; cause = cause.getCause()) {
+            var name = switch (cause) {
+                case ObjectOptimisticLockingFailureException e -> simpleName(e.getPersistentClassName());
+                case StaleObjectStateException e -> simpleName(e.getEntityName());
+                case OptimisticLockException e -> entityName(e.getEntity());
+                case PessimisticLockException e -> entityName(e.getEntity());
+                case ConcurrencyFailureException e -> UNKNOWN_ENTITY;
+                case org.hibernate.PessimisticLockException e -> UNKNOWN_ENTITY;
+                default -> null;
+            };
+            if (name != null && (entity == null || UNKNOWN_ENTITY.equals(entity))) {
+                entity = name;
+            }
+        }
+        return entity;
+    }
+
+    private static String entityName(Object entity) {
+        if (entity == null) {
+            return UNKNOWN_ENTITY;
+        }
+        if (entity instanceof HibernateProxy proxy) {
+            return proxy.getHibernateLazyInitializer().getPersistentClass().getSimpleName();
+        }
+        return entity.getClass().getSimpleName();
+    }
+
+    private static String simpleName(String className) {
+        if (className == null) {
+            return UNKNOWN_ENTITY;
+        }
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+}
@@ -0,0 +1,80 @@
+package com.jalian.online_store_order_management.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The PayExecutorConfig class defines the executor that runs asynchronous payments.
+ * <p>
+ * Payments run on a dedicated pool with a bounded number of workers and a bounded queue, so a burst of
+ * orders cannot pile up unbounded work in memory. When both are full the submission is rejected with a
+ * {@link org.springframework.core.task.TaskRejectedException}; the payment outbox poller then leaves the task
+ * pending in the database and claims it again later. Workers are platform threads by default, or virtual threads when
+ * {@code pay.executor.virtual-threads} is enabled; the pool size still bounds how many payments hold a
+ * database connection at the same time.
+ * </p>
+ * <p>
+ * The queue depth, the number of active workers and the number of rejected payments are published as the
+ * {@code pay.executor.queue.depth}, {@code pay.executor.active} and {@code pay.executor.rejected} meters.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@Configuration
+public class PayExecutorConfig {
+
+    /**
+     * The bean name of the payment executor, which runs the payments claimed from the payment outbox.
+     */
+    public static final String PAY_EXECUTOR = "payExecutor";
+
+    /**
+     * Creates the bounded executor used for asynchronous payments.
+     *
+     * @param coreSize       the number of workers kept alive.
+     * @param maxSize        the maximum number of workers, used once the queue is full.
+     * @param queueCapacity  the maximum number of payments waiting for a worker.
+     * @param virtualThreads whether workers are virtual threads.
+     * @param meterRegistry  the registry the executor meters are published to.
+     * @return the payment executor.
+     */
+    @Bean(name = PAY_EXECUTOR)
+    public ThreadPoolTaskExecutor payExecutor(
+            @Value("${pay.executor.core-size:8}") int coreSize,
+            @Value("${pay.executor.max-size:16}") int maxSize,
+            @Value("${pay.executor.queue-capacity:500}") int queueCapacity,
+            @Value("${pay.executor.virtual-threads:false}") boolean virtualThreads,
+            MeterRegistry meterRegistry) {
+        var rejected = Counter.builder("pay.executor.rejected")
+                .description("Payments rejected because the payment executor is saturated")
+                .register(meterRegistry);
+        var executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("pay-");
+        if (virtualThreads) {
+            executor.setThreadFactory(Thread.ofVirtual().name("pay-", 0).factory());
+        }
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected.increment();
+            throw new RejectedExecutionException("Payment executor is saturated");
+        });
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        Gauge.builder("pay.executor.queue.depth", executor, ThreadPoolTaskExecutor::getQueueSize)
+                .description("Payments waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("pay.executor.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Workers currently processing a payment")
+                .register(meterRegistry);
+        return executor;
+    }
+}
@@ -0,0 +1,61 @@
+package com.jalian.online_store_order_management.config;
+
+import jakarta.persistence.LockTimeoutException;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.util.List;
+
+/**
+ * The PayRetryConfig class defines the retry policy of asynchronous payments.
+ * <p>
+ * The policy is bound from {@code pay-retry.properties}. Only lock and concurrency failures are retried,
+ * since they are the ones that may succeed on a later attempt; any other failure, such as an
+ * {@link com.jalian.online_store_order_management.exception.IllegalBalanceException}, fails fast and goes
+ * straight to recovery. Attempts are spaced by an exponential backoff with random jitter, so payments that
+ * collided on the same row do not retry in lockstep and collide again.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@Configuration
+public class PayRetryConfig {
+
+    /**
+     * The bean name of the payment retry template.
+     */
+    public static final String PAY_RETRY_TEMPLATE = "payRetryTemplate";
+
+    /**
+     * Creates the retry template used for asynchronous payments.
+     *
+     * @param maxAttempts  the maximum number of attempts, including the first one.
+     * @param initialDelay the delay before the first retry, in milliseconds.
+     * @param multiplier   the factor the delay grows by after each retry.
+     * @param maxDelay     the upper bound of the delay between two attempts, in milliseconds.
+     * @return the payment retry template.
+     */
+    @Bean(name = PAY_RETRY_TEMPLATE)
+    public RetryTemplate payRetryTemplate(
+            @Value("${pay.retry.maxAttempts:5}") int maxAttempts,
+            @Value("${pay.retry.initialDelay:50}") long initialDelay,
+            @Value("${pay.retry.multiplier:2.0}") double multiplier,
+            @Value("${pay.retry.maxDelay:1000}") long maxDelay) {
+        return RetryTemplate.builder()
+                .maxAttempts(maxAttempts)
+                .exponentialBackoff(initialDelay, multiplier, maxDelay, true)
+                .retryOn(List.of(
+                        ConcurrencyFailureException.class,
+                        PessimisticLockException.class,
+                        OptimisticLockException.class,
+                        LockTimeoutException.class
+                ))
+                .traversingCauses()
+                .build();
+    }
+}
@@ -9,6 +9,7 @@ package com.jalian.online_store_order_management.constant;
  * <ul>
  *   <li>{@code INITIALIZED} - The order has been created but not yet processed.</li>
  *   <li>{@code AWAITING_PAYMENT} - The order is pending payment confirmation.</li>
+ *   <li>{@code PAID} - The user has been debited but the inventory of the order is not discharged yet.</li>
  *   <li>{@code FINISHED} - The order has been successfully completed.</li>
  *   <li>{@code CANCELLED} - The order has been cancelled.</li>
  *   <li>{@code FAILED} - The order processing has failed.</li>
@@ -20,7 +21,17 @@ public enum OrderStatus {
 
     INITIALIZED,
     AWAITING_PAYMENT,
+    PAID,
     FINISHED,
     CANCELLED,
-    FAILED
+    FAILED;
+
+    /**
+     * Tells whether an order in this status will not change status any more.
+     *
+     * @return {@code true} for {@code FINISHED}, {@code CANCELLED} and {@code FAILED}.
+     */
+    public boolean isFinal() {
+        return this == FINISHED || this == CANCELLED || this == FAILED;
+    }
 }
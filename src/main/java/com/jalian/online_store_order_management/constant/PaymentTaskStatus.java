@@ -0,0 +1,19 @@
+package com.jalian.online_store_order_management.constant;
+
+/**
+ * The PaymentTaskStatus enum represents the state of a payment task in the payment outbox.
+ * <ul>
+ *   <li>{@code PENDING} - The task waits to be claimed by the outbox poller.</li>
+ *   <li>{@code CLAIMED} - The task has been claimed and handed to the payment executor.</li>
+ * </ul>
+ * <p>
+ * A task is deleted once its payment has finished or failed, so no terminal state is stored.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+public enum PaymentTaskStatus {
+
+    PENDING,
+    CLAIMED
+}
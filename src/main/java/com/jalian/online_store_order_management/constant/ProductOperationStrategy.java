@@ -3,10 +3,12 @@ package com.jalian.online_store_order_management.constant;
 /**
  * The ProductOperationStrategy enum defines the operations that can be performed on a product's inventory.
  * <p>
- * It specifies two strategies:
+ * It specifies three strategies:
  * <ul>
  *   <li>{@code PLUS} - Indicates an addition to the product inventory.</li>
  *   <li>{@code MINUS} - Indicates a subtraction from the product inventory.</li>
+ *   <li>{@code CONDITIONAL_MINUS} - Indicates a subtraction applied by a single conditional update statement,
+ *   without loading and locking the product first.</li>
  * </ul>
  * </p>
  *
@@ -15,5 +17,6 @@ package com.jalian.online_store_order_management.constant;
 public enum ProductOperationStrategy {
 
     PLUS,
-    MINUS
+    MINUS,
+    CONDITIONAL_MINUS
 }
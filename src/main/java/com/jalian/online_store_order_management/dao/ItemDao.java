@@ -2,11 +2,14 @@ package com.jalian.online_store_order_management.dao;
 
 import com.jalian.online_store_order_management.domain.Item;
 import com.jalian.online_store_order_management.domain.key.ItemKey;
+import com.jalian.online_store_order_management.dto.ItemDto;
+import com.jalian.online_store_order_management.dto.ItemFetchDto;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -32,4 +35,43 @@ public interface ItemDao extends JpaRepository<Item, ItemKey> {
      */
     @Query("select i from Item i where i.order.id = :id")
     List<Item> findAllByOrder(@Param("id") Long id);
+
+    /**
+     * Retrieves the details of the items of an order in a single statement, without loading the items or their
+     * products.
+     *
+     * @param id the ID of the order for which to fetch the items.
+     * @return one {@link ItemFetchDto} per item of the order, in ascending order of the product identifiers.
+     */
+    @Query("select new com.jalian.online_store_order_management.dto.ItemFetchDto(" +
+            "p.id, p.name, p.description, i.count, i.price) " +
+            "from Item i join i.product p where i.order.id = :id order by p.id")
+    List<ItemFetchDto> findFetchDtosByOrder(@Param("id") Long id);
+
+    /**
+     * Retrieves the product and count of every item of the given orders, without loading the items.
+     *
+     * @param orderIds the unique identifiers of the orders.
+     * @return one {@link ItemDto} per item of the orders.
+     */
+    @Query("select new com.jalian.online_store_order_management.dto.ItemDto(i.product.id, i.count) " +
+            "from Item i where i.order.id in :orderIds")
+    List<ItemDto> findQuantitiesByOrderIds(@Param("orderIds") Collection<Long> orderIds);
+
+    /**
+     * Sums the counts of the items of all orders awaiting their payment or paid but not completed yet, per
+     * product.
+     * <p>
+     * These items are the inventory reservations that have been persisted with their orders but neither
+     * committed nor released yet.
+     * </p>
+     *
+     * @return one {@link ItemDto} per product holding the reserved count.
+     */
+    @Query("select new com.jalian.online_store_order_management.dto.ItemDto(i.product.id, sum(i.count)) " +
+            "from Item i where i.order.orderStatus in (" +
+            "com.jalian.online_store_order_management.constant.OrderStatus.AWAITING_PAYMENT, " +
+            "com.jalian.online_store_order_management.constant.OrderStatus.PAID) " +
+            "group by i.product.id")
+    List<ItemDto> sumReservedQuantities();
 }
@@ -1,17 +1,128 @@
 package com.jalian.online_store_order_management.dao;
 
+import com.jalian.online_store_order_management.constant.OrderStatus;
 import com.jalian.online_store_order_management.domain.Order;
+import com.jalian.online_store_order_management.dto.OrderFetchDto;
+import com.jalian.online_store_order_management.dto.OrderSummaryDto;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 /**
  * The OrderDao interface provides database access operations for {@link Order} entities.
  * <p>
- * It extends {@link JpaRepository} to inherit standard CRUD operations for orders.
+ * It extends {@link JpaRepository} to inherit standard CRUD operations for orders, and lists the orders of a user
+ * or a store with keyset pagination over the {@code (user_id, id)} and {@code (store_id, id)} indexes.
  * </p>
  *
  * @author amirhosein jalian
  */
 @Repository
 public interface OrderDao extends JpaRepository<Order, Long> {
+
+    /**
+     * Finds the status of an order without loading the order, its owner, its store or its items.
+     *
+     * @param id the unique identifier of the order.
+     * @return an {@link Optional} containing the status of the order, or empty if the order does not exist.
+     */
+    @Query("select o.orderStatus from Order o where o.id = :id")
+    Optional<OrderStatus> findStatusById(@Param("id") Long id);
+
+    /**
+     * Finds the details of an order, without its items, in a single statement.
+     * <p>
+     * The owner and the store are joined in the same statement and only the columns of the {@link OrderFetchDto}
+     * are read, so neither the order nor its owner, its store or the members of the store are loaded as entities.
+     * </p>
+     *
+     * @param id the unique identifier of the order.
+     * @return an {@link Optional} containing the order details with no items, or empty if the order does not exist.
+     */
+    @Query("select new com.jalian.online_store_order_management.dto.OrderFetchDto(" +
+            "o.id, u.firstName, u.lastName, u.email, u.id, u.username, u.balance, s.name, o.orderStatus) " +
+            "from Order o join o.owner u join o.store s where o.id = :id")
+    Optional<OrderFetchDto> findFetchDtoById(@Param("id") Long id);
+
+    /**
+     * Finds which of the given orders are still awaiting their payment.
+     *
+     * @param ids the unique identifiers of the orders.
+     * @return the identifiers of the orders whose status is {@link OrderStatus#AWAITING_PAYMENT}.
+     */
+    @Query("select o.id from Order o where o.id in :ids " +
+            "and o.orderStatus = com.jalian.online_store_order_management.constant.OrderStatus.AWAITING_PAYMENT")
+    List<Long> findAwaitingPaymentIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Cancels the given orders if they are still awaiting their payment.
+     *
+     * @param ids the unique identifiers of the orders.
+     * @return the number of cancelled orders.
+     */
+    @Modifying
+    @Query("update Order o " +
+            "set o.orderStatus = com.jalian.online_store_order_management.constant.OrderStatus.CANCELLED, " +
+            "o.version = o.version + 1 where o.id in :ids " +
+            "and o.orderStatus = com.jalian.online_store_order_management.constant.OrderStatus.AWAITING_PAYMENT")
+    int cancelAwaitingPayment(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Moves an order from one status to another if, and only if, it is still in the expected status.
+     * <p>
+     * The check and the change are done by the database in a single {@code UPDATE} statement, which also locks the
+     * order row until the transaction ends, so concurrent payments, completions and sweeps of the same order never
+     * both succeed. The version attribute is incremented.
+     * </p>
+     *
+     * @param id   the unique identifier of the order.
+     * @param from the status the order is expected to be in.
+     * @param to   the new status of the order.
+     * @return the number of updated rows; {@code 0} if the order does not exist or is not in the expected status.
+     */
+    @Modifying
+    @Query("update Order o set o.orderStatus = :to, o.version = o.version + 1 where o.id = :id and o.orderStatus = :from")
+    int changeStatus(@Param("id") Long id, @Param("from") OrderStatus from, @Param("to") OrderStatus to);
+
+    /**
+     * Lists the orders of a user placed before a given order, newest first.
+     * <p>
+     * The query seeks into the {@code (user_id, id)} index at {@code before} and reads only the rows it returns,
+     * so its cost does not depend on how many newer orders the user has. Only the order row is read.
+     * </p>
+     *
+     * @param userId the unique identifier of the user.
+     * @param before the identifier every returned order is below.
+     * @param limit  the maximum number of orders to return.
+     * @return the orders, in descending order of their identifiers.
+     */
+    @Query("select new com.jalian.online_store_order_management.dto.OrderSummaryDto(" +
+            "o.id, o.owner.id, o.store.id, o.orderStatus, o.createdAt) " +
+            "from Order o where o.owner.id = :userId and o.id < :before order by o.id desc")
+    List<OrderSummaryDto> findUserOrdersBefore(@Param("userId") Long userId, @Param("before") Long before, Limit limit);
+
+    /**
+     * Lists the orders of a store placed before a given order, newest first.
+     * <p>
+     * The query seeks into the {@code (store_id, id)} index at {@code before} and reads only the rows it returns,
+     * so its cost does not depend on how many newer orders the store has. Only the order row is read.
+     * </p>
+     *
+     * @param storeId the unique identifier of the store.
+     * @param before  the identifier every returned order is below.
+     * @param limit   the maximum number of orders to return.
+     * @return the orders, in descending order of their identifiers.
+     */
+    @Query("select new com.jalian.online_store_order_management.dto.OrderSummaryDto(" +
+            "o.id, o.owner.id, o.store.id, o.orderStatus, o.createdAt) " +
+            "from Order o where o.store.id = :storeId and o.id < :before order by o.id desc")
+    List<OrderSummaryDto> findStoreOrdersBefore(@Param("storeId") Long storeId, @Param("before") Long before,
+                                                Limit limit);
 }
@@ -0,0 +1,133 @@
+package com.jalian.online_store_order_management.dao;
+
+import com.jalian.online_store_order_management.domain.PaymentTask;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The PaymentTaskDao interface provides database access operations for {@link PaymentTask} entities.
+ * <p>
+ * It extends {@link JpaRepository} to inherit standard CRUD operations and adds the queries used by the payment
+ * outbox to claim tasks and to release stale claims.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@Repository
+public interface PaymentTaskDao extends JpaRepository<PaymentTask, Long> {
+
+    /**
+     * Locks the oldest pending tasks, skipping the tasks already locked by another transaction.
+     * <p>
+     * The query is native because Hibernate does not render {@code SKIP LOCKED} for every database that supports
+     * it. Concurrent pollers therefore never wait for each other and never claim the same task; each one locks
+     * the next free rows until its transaction ends.
+     * </p>
+     *
+     * @param limit the maximum number of tasks to lock.
+     * @return the identifiers of the locked tasks, oldest first.
+     */
+    @Query(value = "select id from payment_tasks where status = 'PENDING' order by id " +
+            "fetch first :limit rows only for update skip locked", nativeQuery = true)
+    List<Long> lockPendingIds(@Param("limit") int limit);
+
+    /**
+     * Locks the oldest pending tasks created before the given time, skipping the tasks already locked by another
+     * transaction.
+     * <p>
+     * A pending task is not being paid, so once it is locked here neither the poller nor another sweeper can
+     * start its payment until the transaction ends. The task of an order that is already
+     * {@link com.jalian.online_store_order_management.constant.OrderStatus#PAID} is left out: the user has been
+     * debited, so the order must be completed by the poller rather than expire.
+     * </p>
+     *
+     * @param createdBefore the time before which a pending task is considered expired.
+     * @param limit         the maximum number of tasks to lock.
+     * @return the identifiers of the locked tasks, oldest first.
+     */
+    @Query(value = "select id from payment_tasks where status = 'PENDING' and created_at < :createdBefore " +
+            "and order_id not in (select id from orders where order_status = 'PAID') " +
+            "order by id fetch first :limit rows only for update skip locked", nativeQuery = true)
+    List<Long> lockExpiredPendingIds(@Param("createdBefore") LocalDateTime createdBefore, @Param("limit") int limit);
+
+    /**
+     * Retrieves the tasks with the given identifiers.
+     *
+     * @param ids the unique identifiers of the tasks.
+     * @return the found tasks ordered by ID.
+     */
+    @Query("select t from PaymentTask t where t.id in :ids order by t.id")
+    List<PaymentTask> findAllByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Puts claimed tasks back to pending if their claim is older than the given time.
+     * <p>
+     * A claim that old belongs to a payment that was interrupted, for example by a restart, so the task is made
+     * available to the poller again.
+     * </p>
+     *
+     * @param claimedBefore the time before which a claim is considered stale.
+     * @return the number of released tasks.
+     */
+    @Modifying
+    @Query("update PaymentTask t " +
+            "set t.status = com.jalian.online_store_order_management.constant.PaymentTaskStatus.PENDING, " +
+            "t.claimedAt = null, t.version = t.version + 1 " +
+            "where t.status = com.jalian.online_store_order_management.constant.PaymentTaskStatus.CLAIMED " +
+            "and t.claimedAt < :claimedBefore")
+    int releaseClaimedBefore(@Param("claimedBefore") LocalDateTime claimedBefore);
+
+    /**
+     * Puts the task with the given identifier back to pending.
+     *
+     * @param id the unique identifier of the task.
+     * @return the number of released tasks.
+     */
+    @Modifying
+    @Query("update PaymentTask t " +
+            "set t.status = com.jalian.online_store_order_management.constant.PaymentTaskStatus.PENDING, " +
+            "t.claimedAt = null, t.version = t.version + 1 where t.id = :id")
+    int release(@Param("id") Long id);
+
+    /**
+     * Locks the task with the given identifier until the transaction ends, if it still exists.
+     * <p>
+     * The lock is taken by an update that only increments the version. Since the sweeper locks the tasks it
+     * cancels too, a payment holding this lock is never swept, and a payment waiting for it sees the task gone
+     * once the sweeper has cancelled the order.
+     * </p>
+     *
+     * @param id the unique identifier of the task.
+     * @return the number of locked tasks; {@code 0} if the task has been deleted.
+     */
+    @Modifying
+    @Query("update PaymentTask t set t.version = t.version + 1 where t.id = :id")
+    int lockTask(@Param("id") Long id);
+
+    /**
+     * Deletes the task with the given identifier, if it still exists.
+     *
+     * @param id the unique identifier of the task.
+     * @return the number of deleted tasks.
+     */
+    @Modifying
+    @Query("delete from PaymentTask t where t.id = :id")
+    int deleteTask(@Param("id") Long id);
+
+    /**
+     * Deletes the tasks with the given identifiers.
+     *
+     * @param ids the unique identifiers of the tasks.
+     * @return the number of deleted tasks.
+     */
+    @Modifying
+    @Query("delete from PaymentTask t where t.id in :ids")
+    int deleteTasks(@Param("ids") Collection<Long> ids);
+}
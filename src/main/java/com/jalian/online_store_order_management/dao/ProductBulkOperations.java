@@ -0,0 +1,28 @@
+package com.jalian.online_store_order_management.dao;
+
+import com.jalian.online_store_order_management.dto.ProductOperationDto;
+
+import java.util.List;
+
+/**
+ * The ProductBulkOperations interface declares the bulk inventory operations of {@link ProductDao} that are
+ * implemented with plain JDBC rather than JPA.
+ *
+ * @author amirhosein jalian
+ */
+public interface ProductBulkOperations {
+
+    /**
+     * Increases the inventory of many products with a single JDBC batch of {@code UPDATE} statements.
+     * <p>
+     * Each operation becomes one {@code inventory = inventory + ?} statement, applied by the database without
+     * loading the product, and increments the version as well, so optimistic locking and the hot product counters
+     * notice the change. The statements are applied in the given order, in the current transaction.
+     * </p>
+     *
+     * @param operations the products to charge and the amounts to add to their inventory.
+     * @return the number of rows updated by each operation, in the same order; {@code 0} means the product does
+     * not exist.
+     */
+    int[] addInventories(List<ProductOperationDto> operations);
+}
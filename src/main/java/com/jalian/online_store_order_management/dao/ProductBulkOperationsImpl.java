@@ -0,0 +1,44 @@
+package com.jalian.online_store_order_management.dao;
+
+import com.jalian.online_store_order_management.dto.ProductOperationDto;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * The ProductBulkOperationsImpl class implements {@link ProductBulkOperations} with a {@link JdbcTemplate}.
+ * <p>
+ * Spring Data picks it up as the implementation of the {@link ProductBulkOperations} fragment of
+ * {@link ProductDao}.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+public class ProductBulkOperationsImpl implements ProductBulkOperations {
+
+    private static final String ADD_INVENTORY =
+            "update product set inventory = inventory + ?, version = version + 1 where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Constructs a ProductBulkOperationsImpl.
+     *
+     * @param jdbcTemplate the template the batches are executed with.
+     */
+    public ProductBulkOperationsImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int[] addInventories(List<ProductOperationDto> operations) {
+        if (operations.isEmpty()) {
+            return new int[0];
+        }
+        var counts = jdbcTemplate.batchUpdate(ADD_INVENTORY, operations, operations.size(), (statement, operation) -> {
+            statement.setLong(1, operation.amount());
+            statement.setLong(2, operation.productId());
+        });
+        return counts[0];
+    }
+}
@@ -1,13 +1,18 @@
 package com.jalian.online_store_order_management.dao;
 
 import com.jalian.online_store_order_management.domain.Product;
+import com.jalian.online_store_order_management.dto.ProductFetchDto;
+import com.jalian.online_store_order_management.dto.ProductInventoryDto;
 import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -15,13 +20,14 @@ import java.util.Optional;
  * <p>
  * It extends {@link JpaRepository} to inherit standard CRUD operations and includes a custom method
  * that applies a pessimistic read lock when retrieving a product by its ID to ensure data consistency
- * during concurrent access.
+ * during concurrent access. It also provides a conditional inventory update that is applied by the database
+ * in a single statement, and the JDBC batched charges of {@link ProductBulkOperations}.
  * </p>
  *
  * @author amirhosein jalian
  */
 @Repository
-public interface ProductDao extends JpaRepository<Product, Long> {
+public interface ProductDao extends JpaRepository<Product, Long>, ProductBulkOperations {
 
     /**
      * Retrieves a {@link Product} entity by its ID using a pessimistic read lock.
@@ -38,4 +44,107 @@ public interface ProductDao extends JpaRepository<Product, Long> {
     @Lock(LockModeType.PESSIMISTIC_READ)
     @Query("select p from Product p where p.id = :id")
     Optional<Product> findByIdSafe(@Param("id") Long id);
+
+    /**
+     * Decreases the inventory of a product by the given amount if, and only if, enough inventory is available.
+     * <p>
+     * The check and the subtraction are done by the database in a single {@code UPDATE} statement, so no lock is
+     * held across a read-modify-write round trip. The version attribute is incremented as well, which keeps
+     * optimistic locking working for entities that were loaded before the update.
+     * </p>
+     *
+     * @param id     the unique identifier of the product.
+     * @param amount the amount by which the inventory is to be decreased.
+     * @return the number of updated rows; {@code 0} if the product does not exist or has not enough inventory.
+     */
+    @Modifying
+    @Query("update Product p set p.inventory = p.inventory - :amount, p.version = p.version + 1 " +
+            "where p.id = :id and p.inventory >= :amount")
+    int dischargeInventory(@Param("id") Long id, @Param("amount") long amount);
+
+    /**
+     * Retrieves the fetch view of a product directly from the database.
+     * <p>
+     * The {@link ProductFetchDto} is built by a constructor expression, so the result always reflects the current
+     * row even if a stale {@link Product} instance is present in the persistence context. No entity is hydrated and
+     * no lock is taken, so the read never waits for a transaction that is changing the inventory of the product;
+     * it sees the last committed inventory instead.
+     * </p>
+     *
+     * @param id the unique identifier of the product.
+     * @return an {@link Optional} containing the product view, or an empty {@link Optional} if no product with the
+     * specified ID exists.
+     */
+    @Query("select new com.jalian.online_store_order_management.dto.ProductFetchDto(" +
+            "p.id, p.name, p.description, p.price, p.inventory, s.name) " +
+            "from Product p join p.store s where p.id = :id")
+    Optional<ProductFetchDto> findFetchDtoById(@Param("id") Long id);
+
+    /**
+     * Retrieves the identifier of the store a product belongs to, without loading or locking the product.
+     *
+     * @param id the unique identifier of the product.
+     * @return an {@link Optional} containing the store identifier, or an empty {@link Optional} if no product with
+     * the specified ID exists.
+     */
+    @Query("select p.store.id from Product p where p.id = :id")
+    Optional<Long> findStoreIdById(@Param("id") Long id);
+
+    /**
+     * Retrieves the committed inventory of the products with the given IDs, without loading or locking them.
+     *
+     * @param ids the unique identifiers of the products.
+     * @return one {@link ProductInventoryDto} per existing product; products that do not exist are missing.
+     */
+    @Query("select new com.jalian.online_store_order_management.dto.ProductInventoryDto(p.id, p.inventory, p.version) " +
+            "from Product p where p.id in :ids")
+    List<ProductInventoryDto> findInventoriesByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Retrieves the committed inventory of every product flagged as hot.
+     *
+     * @return one {@link ProductInventoryDto} per hot product.
+     */
+    @Query("select new com.jalian.online_store_order_management.dto.ProductInventoryDto(p.id, p.inventory, p.version) " +
+            "from Product p where p.hot = true")
+    List<ProductInventoryDto> findHotInventories();
+
+    /**
+     * Increases the inventory of a product by the given amount.
+     *
+     * @param id     the unique identifier of the product.
+     * @param amount the amount by which the inventory is to be increased.
+     * @return the number of updated rows; {@code 0} if the product does not exist.
+     */
+    @Modifying
+    @Query("update Product p set p.inventory = p.inventory + :amount, p.version = p.version + 1 where p.id = :id")
+    int addInventory(@Param("id") Long id, @Param("amount") long amount);
+
+    /**
+     * Sets the inventory of a product if its row is still at the given version.
+     * <p>
+     * This is how the hot product counters write their aggregate back: a row changed by anyone else since it was
+     * last read is not overwritten, and its change is reconciled into the counters first.
+     * </p>
+     *
+     * @param id        the unique identifier of the product.
+     * @param inventory the inventory to set.
+     * @param version   the version the row is expected to be at.
+     * @return the number of updated rows; {@code 0} if the product does not exist or its version changed.
+     */
+    @Modifying
+    @Query("update Product p set p.inventory = :inventory, p.version = p.version + 1 " +
+            "where p.id = :id and p.version = :version")
+    int writeInventory(@Param("id") Long id, @Param("inventory") long inventory, @Param("version") Long version);
+
+    /**
+     * Flags a product as hot, or clears the flag.
+     *
+     * @param id  the unique identifier of the product.
+     * @param hot whether the product is hot.
+     * @return the number of updated rows; {@code 0} if the product does not exist.
+     */
+    @Modifying
+    @Query("update Product p set p.hot = :hot, p.version = p.version + 1 where p.id = :id")
+    int updateHot(@Param("id") Long id, @Param("hot") boolean hot);
 }
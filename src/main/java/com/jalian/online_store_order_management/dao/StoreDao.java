@@ -15,7 +15,9 @@ import java.util.Optional;
  * <p>
  * It extends {@link JpaRepository} to inherit standard CRUD operations and includes custom methods
  * that apply optimistic locking with a force increment strategy when retrieving stores by their ID or name.
- * This ensures data integrity during concurrent modifications.
+ * This ensures data integrity during concurrent modifications. Read paths that only need the store, such as
+ * placing orders or adding products, use {@link #existsById(Object)} and {@link #getReferenceById(Object)} instead
+ * so that they do not bump the store version and conflict with each other.
  * </p>
  *
  * @author amirhosein jalian
@@ -28,7 +30,7 @@ public interface StoreDao extends JpaRepository<Store, Long> {
      * <p>
      * The {@code @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)} annotation applies an optimistic locking
      * strategy that forces an increment of the version attribute, ensuring data consistency when concurrent
-     * modifications occur.
+     * modifications occur. It is reserved for membership mutations.
      * </p>
      *
      * @param id the unique identifier of the store to retrieve.
@@ -54,4 +56,19 @@ public interface StoreDao extends JpaRepository<Store, Long> {
     @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
     @Query("select s from Store s where s.name = :name")
     Optional<Store> findByNameSafe(@Param("name") String name);
+
+    /**
+     * Checks whether a user is a member of a store.
+     * <p>
+     * The check is answered from the unique {@code (store_id, user_id)} index of the {@code store_user} join
+     * table, without loading the store or its members.
+     * </p>
+     *
+     * @param storeId the unique identifier of the store.
+     * @param userId  the unique identifier of the user.
+     * @return {@code true} if the user is a member of the store; {@code false} otherwise.
+     */
+    @Query(value = "select exists(select 1 from store_user su where su.store_id = :storeId and su.user_id = :userId)",
+            nativeQuery = true)
+    boolean existsMember(@Param("storeId") Long storeId, @Param("userId") Long userId);
 }
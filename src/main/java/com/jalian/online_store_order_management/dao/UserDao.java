@@ -1,9 +1,11 @@
 package com.jalian.online_store_order_management.dao;
 
 import com.jalian.online_store_order_management.domain.User;
+import com.jalian.online_store_order_management.dto.UserFetchDto;
 import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -54,18 +56,71 @@ public interface UserDao extends JpaRepository<User, Long> {
     Optional<User> findUserById(@Param("id") Long id);
 
     /**
-     * Retrieves a {@link User} entity by its ID using a pessimistic write lock.
+     * Retrieves a {@link User} entity by its ID without taking any lock.
      * <p>
-     * The {@code @Lock(LockModeType.PESSIMISTIC_WRITE)} annotation is used to acquire a database-level
-     * write lock on the retrieved entity, preventing other transactions from modifying it until the current
-     * transaction completes.
+     * The order path only needs the user as the owner of an order, while the balance is changed by
+     * {@link #debitBalance(Long, long)}, which increments the version. An optimistic lock taken here would then fail
+     * at commit, so this lookup leaves the version unchecked. It must not be used to load a user that is about to
+     * be modified.
      * </p>
      *
-     * @param idt the unique identifier of the user to retrieve.
+     * @param id the unique identifier of the user to retrieve.
      * @return an {@link Optional} containing the found user, or an empty {@link Optional} if no user with
      * the specified ID exists.
      */
     @Query("select u from User u where u.id = :id")
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    Optional<User> findUserByIdForUpdate(@Param("id") Long idt);
+    Optional<User> findByIdReadOnly(@Param("id") Long id);
+
+    /**
+     * Reads the balance of a user directly from the database, without loading the user.
+     *
+     * @param id the unique identifier of the user.
+     * @return an {@link Optional} containing the balance, or empty if the user does not exist.
+     */
+    @Query("select u.balance from User u where u.id = :id")
+    Optional<Long> findBalanceById(@Param("id") Long id);
+
+    /**
+     * Decreases the balance of a user by the given amount if, and only if, the balance covers it.
+     * <p>
+     * The check and the subtraction are done by the database in a single {@code UPDATE} statement, so no lock is
+     * held across application code and only the balance and version columns are written. The version attribute
+     * is incremented, which keeps optimistic locking working for entities that were loaded before the update.
+     * </p>
+     *
+     * @param id     the unique identifier of the user.
+     * @param amount the amount to deduct, in minor units.
+     * @return the number of updated rows; {@code 0} if the user does not exist or the balance is not enough.
+     */
+    @Modifying
+    @Query("update User u set u.balance = u.balance - :amount, u.version = u.version + 1 " +
+            "where u.id = :id and u.balance >= :amount")
+    int debitBalance(@Param("id") Long id, @Param("amount") long amount);
+
+    /**
+     * Increases the balance of a user by the given amount in a single {@code UPDATE} statement.
+     *
+     * @param id     the unique identifier of the user.
+     * @param amount the amount to add, in minor units.
+     * @return the number of updated rows; {@code 0} if the user does not exist.
+     */
+    @Modifying
+    @Query("update User u set u.balance = u.balance + :amount, u.version = u.version + 1 where u.id = :id")
+    int creditBalance(@Param("id") Long id, @Param("amount") long amount);
+
+    /**
+     * Retrieves the fetch view of a user directly from the database.
+     * <p>
+     * The {@link UserFetchDto} is built by a constructor expression, so the result always reflects the current
+     * row even if a stale {@link User} instance is present in the persistence context.
+     * </p>
+     *
+     * @param id the unique identifier of the user.
+     * @return an {@link Optional} containing the fetch view, or an empty {@link Optional} if no user with
+     * the specified ID exists.
+     */
+    @Query("select new com.jalian.online_store_order_management.dto.UserFetchDto(" +
+            "u.firstName, u.lastName, u.email, cast(u.id as String), u.username, u.balance) " +
+            "from User u where u.id = :id")
+    Optional<UserFetchDto> findFetchDtoById(@Param("id") Long id);
 }
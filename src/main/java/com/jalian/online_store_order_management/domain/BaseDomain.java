@@ -22,9 +22,14 @@ public abstract class BaseDomain extends Auditable {
 
     /**
      * The primary key identifier for the entity.
+     * <p>
+     * Identifiers are drawn from a per-entity database sequence. Together with the {@code pooled-lo} optimizer
+     * configured in {@code application.properties}, a block of identifiers is reserved per sequence call, so
+     * Hibernate does not need to insert a row to learn its identifier and can group inserts into JDBC batches.
+     * </p>
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
 
     /**
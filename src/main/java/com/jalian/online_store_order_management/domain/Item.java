@@ -51,9 +51,9 @@ public class Item extends Auditable {
     private long count;
 
     /**
-     * The price of the product at the time of ordering.
+     * The price of the product at the time of ordering, in minor units (e.g. cents).
      */
-    private double price;
+    private long price;
 
     /**
      * The inventory count of the product at the time the order was placed.
@@ -80,7 +80,7 @@ public class Item extends Auditable {
      * @param presentInventory the product's inventory at the time of ordering.
      * @param price            the price of the product.
      */
-    public Item(ItemKey primaryKey, Product product, Order order, long count, long presentInventory, double price) {
+    public Item(ItemKey primaryKey, Product product, Order order, long count, long presentInventory, long price) {
         this.id = primaryKey;
         this.product = product;
         this.order = order;
@@ -166,7 +166,7 @@ public class Item extends Auditable {
      *
      * @return the price of the product.
      */
-    public double getPrice() {
+    public long getPrice() {
         return price;
     }
 
@@ -175,7 +175,7 @@ public class Item extends Auditable {
      *
      * @param price the price to set.
      */
-    public void setPrice(double price) {
+    public void setPrice(long price) {
         this.price = price;
     }
 
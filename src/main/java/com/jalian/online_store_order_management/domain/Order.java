@@ -12,11 +12,18 @@ import java.util.Objects;
  * An order is associated with a {@link User} as its owner and a {@link Store} where the order is placed.
  * It also maintains the current status of the order using the {@link OrderStatus} enum.
  * </p>
+ * <p>
+ * The {@code (user_id, id)} and {@code (store_id, id)} indexes serve the order histories of users and stores,
+ * which are paginated by seeking on the order identifier.
+ * </p>
  *
  * @author amirhosein jalian
  */
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_user_id", columnList = "user_id, id"),
+        @Index(name = "idx_orders_store_id", columnList = "store_id, id")
+})
 public class Order extends BaseDomain {
 
     /**
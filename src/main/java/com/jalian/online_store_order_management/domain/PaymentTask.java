@@ -0,0 +1,146 @@
+package com.jalian.online_store_order_management.domain;
+
+import com.jalian.online_store_order_management.constant.PaymentTaskStatus;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * The PaymentTask class represents a pending asynchronous payment in the payment outbox.
+ * <p>
+ * It extends {@link BaseDomain} to inherit common identifier and auditing properties. A task is written in the
+ * same transaction as its order, so an order committed with an asynchronous payment always has a task, even if
+ * the application stops before the payment runs. Tasks are claimed in batches by the outbox poller and deleted
+ * once the payment has finished or failed.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@Entity
+@Table(name = "payment_tasks", indexes = @Index(name = "idx_payment_tasks_status", columnList = "status, id"))
+public class PaymentTask extends BaseDomain {
+
+    /**
+     * The order whose payment this task runs.
+     */
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "order_id", nullable = false, unique = true)
+    private Order order;
+
+    /**
+     * The state of the task.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PaymentTaskStatus status;
+
+    /**
+     * The time the task was last claimed, or {@code null} if it is pending.
+     */
+    private LocalDateTime claimedAt;
+
+    /**
+     * Default constructor required by JPA.
+     */
+    public PaymentTask() {
+    }
+
+    /**
+     * Constructs a pending task for the payment of the given order.
+     *
+     * @param order the order to pay.
+     */
+    public PaymentTask(Order order) {
+        this.order = order;
+        this.status = PaymentTaskStatus.PENDING;
+    }
+
+    /**
+     * Marks the task as claimed at the given time.
+     *
+     * @param now the time of the claim.
+     */
+    public void claim(LocalDateTime now) {
+        this.status = PaymentTaskStatus.CLAIMED;
+        this.claimedAt = now;
+    }
+
+    /**
+     * Determines whether another object is equal to this PaymentTask.
+     * <p>
+     * Two tasks are considered equal if they have the same base properties (from {@link BaseDomain})
+     * and the same {@code status}.
+     * </p>
+     *
+     * @param o the object to compare with.
+     * @return {@code true} if the objects are equal; {@code false} otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof PaymentTask that)) return false;
+        if (!super.equals(o)) return false;
+        return status == that.status;
+    }
+
+    /**
+     * Returns the hash code value for this PaymentTask.
+     *
+     * @return the hash code based on the base properties and the {@code status}.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), status);
+    }
+
+    /**
+     * Returns a string representation of the PaymentTask.
+     *
+     * @return a string that includes the task's fields, such as status and claim time.
+     */
+    @Override
+    public String toString() {
+        final var sb = new StringBuffer("PaymentTask{");
+        appendFields(sb);
+        sb.append(", status=").append(status);
+        sb.append(", claimedAt=").append(claimedAt);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    /**
+     * Gets the order whose payment this task runs.
+     *
+     * @return the order.
+     */
+    public Order getOrder() {
+        return order;
+    }
+
+    /**
+     * Gets the state of the task.
+     *
+     * @return the task status.
+     */
+    public PaymentTaskStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the time the task was last claimed.
+     *
+     * @return the claim time, or {@code null} if the task is pending.
+     */
+    public LocalDateTime getClaimedAt() {
+        return claimedAt;
+    }
+
+    /**
+     * Sets the time the task was last claimed.
+     *
+     * @param claimedAt the claim time to set.
+     */
+    public void setClaimedAt(LocalDateTime claimedAt) {
+        this.claimedAt = claimedAt;
+    }
+}
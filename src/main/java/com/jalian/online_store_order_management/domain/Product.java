@@ -32,13 +32,14 @@ public class Product extends BaseDomain {
     private String description;
 
     /**
-     * The price of the product.
+     * The price of the product, in minor units (e.g. cents).
      * <p>
-     * This field is mandatory.
+     * This field is mandatory. Keeping money as an integral number of minor units makes sums and
+     * comparisons exact and lets the database use integer arithmetic.
      * </p>
      */
     @Column(nullable = false)
-    private double price;
+    private long price;
 
     /**
      * The available inventory count of the product.
@@ -49,6 +50,16 @@ public class Product extends BaseDomain {
     @Column(nullable = false)
     private long inventory;
 
+    /**
+     * Whether the product is a best-seller whose inventory is discharged through striped in-memory counters
+     * instead of its row.
+     * <p>
+     * The counters are written back to {@link #inventory} every few milliseconds.
+     * </p>
+     */
+    @Column(nullable = false)
+    private boolean hot;
+
     /**
      * The store that offers this product.
      * <p>
@@ -70,11 +81,11 @@ public class Product extends BaseDomain {
      * Constructs a new Product with the specified details.
      *
      * @param store       the store associated with the product.
-     * @param price       the price of the product.
+     * @param price       the price of the product, in minor units (e.g. cents).
      * @param description a description of the product.
      * @param name        the name of the product.
      */
-    public Product(Store store, double price, String description, String name) {
+    public Product(Store store, long price, String description, String name) {
         this.store = store;
         this.price = price;
         this.description = description;
@@ -110,6 +121,7 @@ public class Product extends BaseDomain {
         sb.append(", description='").append(description).append('\'');
         sb.append(", price=").append(price);
         sb.append(", inventory=").append(inventory);
+        sb.append(", hot=").append(hot);
         if (store != null)
             sb.append(", store=").append(store.getId());
         sb.append('}');
@@ -157,7 +169,7 @@ public class Product extends BaseDomain {
      *
      * @return the product price.
      */
-    public double getPrice() {
+    public long getPrice() {
         return price;
     }
 
@@ -166,7 +178,7 @@ public class Product extends BaseDomain {
      *
      * @param price the product price to set.
      */
-    public void setPrice(double price) {
+    public void setPrice(long price) {
         this.price = price;
     }
 
@@ -205,4 +217,22 @@ public class Product extends BaseDomain {
     public void setInventory(long inventory) {
         this.inventory = inventory;
     }
+
+    /**
+     * Tells whether the product is hot, in which case its inventory is discharged through in-memory counters.
+     *
+     * @return {@code true} if the product is hot.
+     */
+    public boolean isHot() {
+        return hot;
+    }
+
+    /**
+     * Sets whether the product is hot.
+     *
+     * @param hot {@code true} to discharge the inventory of the product through in-memory counters.
+     */
+    public void setHot(boolean hot) {
+        this.hot = hot;
+    }
 }
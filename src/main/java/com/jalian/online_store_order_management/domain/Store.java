@@ -28,14 +28,17 @@ public class Store extends BaseDomain {
     /**
      * The list of users associated with the store.
      * <p>
-     * This is a many-to-many relationship, where the association is eagerly fetched.
+     * This is a many-to-many relationship, where the association is lazily fetched: loading a store does not
+     * load its members. Membership checks go through the unique {@code (store_id, user_id)} index of the join
+     * table instead of this list.
      * </p>
      */
-    @ManyToMany(targetEntity = User.class, fetch = FetchType.EAGER)
+    @ManyToMany(targetEntity = User.class, fetch = FetchType.LAZY)
     @JoinTable(
             name = "store_user",
             joinColumns = @JoinColumn(name = "store_id"),
-            inverseJoinColumns = @JoinColumn(name = "user_id")
+            inverseJoinColumns = @JoinColumn(name = "user_id"),
+            uniqueConstraints = @UniqueConstraint(name = "uk_store_user", columnNames = {"store_id", "user_id"})
     )
     private List<User> users;
 
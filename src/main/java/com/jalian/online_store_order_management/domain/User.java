@@ -46,9 +46,9 @@ public class User extends BaseDomain {
     private String lastName;
 
     /**
-     * The balance associated with the user's account.
+     * The balance associated with the user's account, in minor units (e.g. cents).
      */
-    private double balance;
+    private long balance;
 
     /**
      * The email address of the user.
@@ -92,7 +92,7 @@ public class User extends BaseDomain {
         this.firstName = firstName;
         this.email = email;
         this.lastName = lastName;
-        balance = 0.0;
+        balance = 0L;
     }
 
     /**
@@ -111,7 +111,7 @@ public class User extends BaseDomain {
         user.setLastName(userRegisterDto.lastName());
         user.setUsername(userRegisterDto.username());
         user.setPassword(userRegisterDto.password());
-        user.setBalance(0.0);
+        user.setBalance(0L);
         return user;
     }
 
@@ -255,7 +255,7 @@ public class User extends BaseDomain {
      *
      * @return the account balance.
      */
-    public double getBalance() {
+    public long getBalance() {
         return balance;
     }
 
@@ -264,7 +264,7 @@ public class User extends BaseDomain {
      *
      * @param balance the balance to set.
      */
-    public void setBalance(double balance) {
+    public void setBalance(long balance) {
         this.balance = balance;
     }
 }
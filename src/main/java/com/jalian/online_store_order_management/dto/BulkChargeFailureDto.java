@@ -0,0 +1,13 @@
+package com.jalian.online_store_order_management.dto;
+
+/**
+ * The BulkChargeFailureDto record describes a row of a bulk charge that has not been applied.
+ *
+ * @param row       the position of the row in the submitted feed, starting at 1.
+ * @param productId the unique identifier of the product of the row, or {@code null} if the row could not be read.
+ * @param error     the reason the row has not been applied.
+ *
+ * @author amirhosein jalian
+ */
+public record BulkChargeFailureDto(long row, Long productId, String error) {
+}
@@ -0,0 +1,20 @@
+package com.jalian.online_store_order_management.dto;
+
+import java.util.List;
+
+/**
+ * The BulkChargeResultDto record summarizes the outcome of a bulk charge.
+ * <p>
+ * At most {@code product.charge.bulk-max-failures} failures are listed, so that a feed failing as a whole does
+ * not produce a response as large as the feed itself; {@code failed} counts all of them.
+ * </p>
+ *
+ * @param rows     the number of rows read from the feed.
+ * @param charged  the number of rows applied.
+ * @param failed   the number of rows not applied.
+ * @param failures the listed rows not applied, ordered by their position in the feed.
+ *
+ * @author amirhosein jalian
+ */
+public record BulkChargeResultDto(long rows, long charged, long failed, List<BulkChargeFailureDto> failures) {
+}
@@ -0,0 +1,15 @@
+package com.jalian.online_store_order_management.dto;
+
+/**
+ * The HotProductDto record is a data transfer object used to flag a product as hot or to clear the flag.
+ * <p>
+ * The inventory of a hot product is discharged through striped in-memory counters instead of its row.
+ * </p>
+ *
+ * @param productId the unique identifier of the product.
+ * @param hot       whether the product is hot.
+ *
+ * @author amirhosein jalian
+ */
+public record HotProductDto(Long productId, boolean hot) {
+}
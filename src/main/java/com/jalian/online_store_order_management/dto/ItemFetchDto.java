@@ -17,11 +17,11 @@ import java.util.List;
  * @param productName        the name of the product.
  * @param productDescription the description of the product.
  * @param count              the quantity of the product ordered.
- * @param price              the price of the product at the time of ordering.
+ * @param price              the price of the product at the time of ordering, in minor units (e.g. cents).
  *
  * @author amirhosein jalian
  */
-public record ItemFetchDto(Long productId, String productName, String productDescription, long count, double price) {
+public record ItemFetchDto(Long productId, String productName, String productDescription, long count, long price) {
 
     /**
      * Creates an instance of {@code ItemFetchDto} from an {@link Item} entity.
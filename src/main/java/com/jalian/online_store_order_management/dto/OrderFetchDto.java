@@ -29,6 +29,40 @@ public record OrderFetchDto(
         List<ItemFetchDto> items
 ) {
 
+    /**
+     * Constructs an {@code OrderFetchDto} without items from the flat columns of a projection query.
+     *
+     * @param orderId   the unique identifier of the order.
+     * @param firstName the first name of the owner.
+     * @param lastName  the last name of the owner.
+     * @param email     the email address of the owner.
+     * @param userId    the unique identifier of the owner.
+     * @param username  the username of the owner.
+     * @param balance   the balance of the owner, in minor units (e.g. cents).
+     * @param storeName the name of the store.
+     * @param status    the current status of the order.
+     */
+    public OrderFetchDto(Long orderId, String firstName, String lastName, String email, Long userId, String username,
+                         long balance, String storeName, OrderStatus status) {
+        this(
+                orderId,
+                new UserFetchDto(firstName, lastName, email, userId.toString(), username, balance),
+                new StoreFetchDto(storeName),
+                status,
+                List.of()
+        );
+    }
+
+    /**
+     * Returns a copy of this {@code OrderFetchDto} holding the given items.
+     *
+     * @param items the list of items included in the order.
+     * @return the order details with the given items.
+     */
+    public OrderFetchDto withItems(List<ItemFetchDto> items) {
+        return new OrderFetchDto(orderId, owner, store, status, items);
+    }
+
     /**
      * Creates an instance of {@code OrderFetchDto} from an {@link Order} entity and its associated items.
      *
@@ -0,0 +1,18 @@
+package com.jalian.online_store_order_management.dto;
+
+import java.util.List;
+
+/**
+ * The OrderPageDto record is one page of an order history, newest orders first.
+ * <p>
+ * The next page is requested by passing {@code nextBefore} as the {@code before} cursor, which seeks past the
+ * orders already returned instead of skipping them, so every page costs the same however deep it is.
+ * </p>
+ *
+ * @param orders     the orders of the page, in descending order of their identifiers.
+ * @param nextBefore the cursor of the next page, or {@code null} if this is the last page.
+ *
+ * @author amirhosein jalian
+ */
+public record OrderPageDto(List<OrderSummaryDto> orders, Long nextBefore) {
+}
@@ -0,0 +1,37 @@
+package com.jalian.online_store_order_management.dto;
+
+/**
+ * The OrderResultDto record is a data transfer object that describes the outcome of a single order
+ * submitted as part of a batch.
+ * <p>
+ * Exactly one of its components is set: the identifier of the created order when the order has been placed,
+ * or an error message explaining why it has been rejected.
+ * </p>
+ *
+ * @param orderId the unique identifier of the created order, or {@code null} if the order failed.
+ * @param error   the reason the order failed, or {@code null} if it has been placed.
+ *
+ * @author amirhosein jalian
+ */
+public record OrderResultDto(Long orderId, String error) {
+
+    /**
+     * Creates the outcome of an order that has been placed successfully.
+     *
+     * @param orderId the unique identifier of the created order.
+     * @return a new {@code OrderResultDto} holding the order identifier.
+     */
+    public static OrderResultDto success(Long orderId) {
+        return new OrderResultDto(orderId, null);
+    }
+
+    /**
+     * Creates the outcome of an order that has been rejected.
+     *
+     * @param error the reason the order failed.
+     * @return a new {@code OrderResultDto} holding the error message.
+     */
+    public static OrderResultDto failure(String error) {
+        return new OrderResultDto(null, error);
+    }
+}
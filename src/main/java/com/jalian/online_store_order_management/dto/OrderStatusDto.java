@@ -0,0 +1,18 @@
+package com.jalian.online_store_order_management.dto;
+
+import com.jalian.online_store_order_management.constant.OrderStatus;
+
+/**
+ * The OrderStatusDto record is a data transfer object that holds only the status of an order.
+ * <p>
+ * It is returned by the status endpoint and pushed to the subscribers of the order events, so that clients can
+ * follow an asynchronous order without fetching its owner, store and items.
+ * </p>
+ *
+ * @param orderId the unique identifier of the order.
+ * @param status  the current status of the order.
+ *
+ * @author amirhosein jalian
+ */
+public record OrderStatusDto(Long orderId, OrderStatus status) {
+}
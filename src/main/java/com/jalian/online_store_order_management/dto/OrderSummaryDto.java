@@ -0,0 +1,23 @@
+package com.jalian.online_store_order_management.dto;
+
+import com.jalian.online_store_order_management.constant.OrderStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * The OrderSummaryDto record is a compact view of an order listed in an order history.
+ * <p>
+ * It is built by a constructor expression from the columns of the order row only, so listing orders never loads
+ * their owners, stores or items.
+ * </p>
+ *
+ * @param orderId   the unique identifier of the order.
+ * @param userId    the unique identifier of the user who placed the order.
+ * @param storeId   the unique identifier of the store the order was placed in.
+ * @param status    the current status of the order.
+ * @param createdAt the time the order was placed.
+ *
+ * @author amirhosein jalian
+ */
+public record OrderSummaryDto(Long orderId, Long userId, Long storeId, OrderStatus status, LocalDateTime createdAt) {
+}
@@ -9,10 +9,10 @@ package com.jalian.online_store_order_management.dto;
  *
  * @param name        the name of the product.
  * @param description the description of the product.
- * @param price       the price of the product.
+ * @param price       the price of the product, in minor units (e.g. cents).
  * @param storeId     the unique identifier of the store associated with the product.
  *
  * @author amirhosein jalian
  */
-public record ProductDto(String name, String description, double price, long storeId) {
+public record ProductDto(String name, String description, long price, long storeId) {
 }
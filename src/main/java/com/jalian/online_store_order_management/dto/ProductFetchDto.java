@@ -13,13 +13,23 @@ import com.jalian.online_store_order_management.domain.Product;
  * @param id          the unique identifier of the product.
  * @param name        the name of the product.
  * @param description the description of the product.
- * @param price       the price of the product.
+ * @param price       the price of the product, in minor units (e.g. cents).
  * @param inventory   the current inventory count of the product.
  * @param storeName   the name of the store associated with the product.
  *
  * @author amirhosein jalian
  */
-public record ProductFetchDto(Long id, String name, String description, double price, long inventory, String storeName) {
+public record ProductFetchDto(Long id, String name, String description, long price, long inventory, String storeName) {
+
+    /**
+     * Returns a copy of this {@code ProductFetchDto} with another inventory.
+     *
+     * @param inventory the inventory of the copy.
+     * @return a new {@code ProductFetchDto} instance that differs from this one in its inventory only.
+     */
+    public ProductFetchDto withInventory(long inventory) {
+        return new ProductFetchDto(id, name, description, price, inventory, storeName);
+    }
 
     /**
      * Creates an instance of {@code ProductFetchDto} from a {@link Product} entity.
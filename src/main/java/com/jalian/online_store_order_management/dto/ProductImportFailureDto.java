@@ -0,0 +1,13 @@
+package com.jalian.online_store_order_management.dto;
+
+/**
+ * The ProductImportFailureDto record describes a row of a product import that has not been imported.
+ *
+ * @param row   the position of the row in the submitted feed, starting at 1.
+ * @param name  the name of the product of the row, or {@code null} if the row could not be read.
+ * @param error the reason the row has not been imported.
+ *
+ * @author amirhosein jalian
+ */
+public record ProductImportFailureDto(long row, String name, String error) {
+}
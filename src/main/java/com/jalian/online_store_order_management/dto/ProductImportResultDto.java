@@ -0,0 +1,20 @@
+package com.jalian.online_store_order_management.dto;
+
+import java.util.List;
+
+/**
+ * The ProductImportResultDto record summarizes the outcome of a product import.
+ * <p>
+ * At most {@code product.import.max-failures} failures are listed, so that a feed failing as a whole does not
+ * produce a response as large as the feed itself; {@code failed} counts all of them.
+ * </p>
+ *
+ * @param rows     the number of rows read from the feed.
+ * @param imported the number of products imported.
+ * @param failed   the number of rows not imported.
+ * @param failures the listed rows not imported, ordered by their position in the feed.
+ *
+ * @author amirhosein jalian
+ */
+public record ProductImportResultDto(long rows, long imported, long failed, List<ProductImportFailureDto> failures) {
+}
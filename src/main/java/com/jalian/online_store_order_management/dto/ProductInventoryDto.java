@@ -0,0 +1,18 @@
+package com.jalian.online_store_order_management.dto;
+
+/**
+ * The ProductInventoryDto record is a data transfer object that holds the committed inventory of a product.
+ * <p>
+ * It is read by the inventory reservations to check a reservation against the stock of a product without
+ * loading, or locking, the product itself, and by the hot product counters to tell whether the inventory was
+ * changed by anyone else since they last wrote it.
+ * </p>
+ *
+ * @param productId the unique identifier of the product.
+ * @param inventory the committed inventory count of the product.
+ * @param version   the version of the product row the inventory was read from.
+ *
+ * @author amirhosein jalian
+ */
+public record ProductInventoryDto(Long productId, long inventory, Long version) {
+}
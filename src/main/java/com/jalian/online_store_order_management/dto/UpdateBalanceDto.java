@@ -11,10 +11,10 @@ import com.jalian.online_store_order_management.constant.BalanceOperation;
  * </p>
  *
  * @param userId    the unique identifier of the user whose balance is to be updated.
- * @param amount    the amount by which the user's balance will be adjusted.
+ * @param amount    the amount by which the user's balance will be adjusted, in minor units (e.g. cents).
  * @param operation the type of balance operation to perform, represented by {@link BalanceOperation}.
  *
  * @author amirhosein jalian
  */
-public record UpdateBalanceDto(Long userId, double amount, BalanceOperation operation) {
+public record UpdateBalanceDto(Long userId, long amount, BalanceOperation operation) {
 }
@@ -17,11 +17,11 @@ import java.util.List;
  * @param email     the email address of the user.
  * @param id        the unique identifier of the user as a string.
  * @param username  the username of the user.
- * @param balance   the current balance of the user.
+ * @param balance   the current balance of the user, in minor units (e.g. cents).
  *
  * @author amirhosein jalian
  */
-public record UserFetchDto(String firstName, String lastName, String email, String id, String username, double balance) {
+public record UserFetchDto(String firstName, String lastName, String email, String id, String username, long balance) {
 
     /**
      * Creates an instance of {@code UserFetchDto} from a {@link User} entity.
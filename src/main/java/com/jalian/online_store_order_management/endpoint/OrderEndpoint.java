@@ -2,18 +2,28 @@ package com.jalian.online_store_order_management.endpoint;
 
 import com.jalian.online_store_order_management.dto.AddOrderDto;
 import com.jalian.online_store_order_management.dto.OrderFetchDto;
+import com.jalian.online_store_order_management.dto.OrderPageDto;
+import com.jalian.online_store_order_management.dto.OrderResultDto;
+import com.jalian.online_store_order_management.dto.OrderStatusDto;
 import com.jalian.online_store_order_management.service.OrderService;
 import com.jalian.online_store_order_management.service.PayService;
 import com.jalian.online_store_order_management.service.impl.ASyncPayServiceImpl;
 import com.jalian.online_store_order_management.service.impl.SyncPayServiceImpl;
 import com.jalian.online_store_order_management.web.BaseResponse;
+import com.jalian.online_store_order_management.web.OrderEventStream;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
 
 /**
  * The OrderEndpoint class provides REST endpoints for managing orders in the online store order management system.
  * <p>
- * It supports order creation using both synchronous and asynchronous payment services and retrieving order details by ID.
+ * It supports order creation using both synchronous and asynchronous payment services, bulk order submission,
+ * retrieving order details or only the order status by ID, listing the order history of a user or a store, and
+ * streaming the final status of an order as a server-sent event.
  * </p>
  *
  * @author amirhosein jalian
@@ -25,18 +35,24 @@ public class OrderEndpoint {
     private final OrderService orderService;
     private final SyncPayServiceImpl syncPayService;
     private final ASyncPayServiceImpl asyncPayService;
+    private final OrderEventStream orderEventStream;
 
     /**
      * Constructs an OrderEndpoint with the specified services.
      *
-     * @param orderService   the service used for order management.
-     * @param syncPayService the synchronous payment service implementation.
-     * @param asyncPayService the asynchronous payment service implementation.
+     * @param orderService     the service used for order management.
+     * @param syncPayService   the synchronous payment service implementation.
+     * @param asyncPayService  the asynchronous payment service implementation.
+     * @param orderEventStream the stream pushing the final status of orders to subscribers.
      */
-    public OrderEndpoint(OrderService orderService, SyncPayServiceImpl syncPayService, ASyncPayServiceImpl asyncPayService) {
+    public OrderEndpoint(OrderService orderService,
+                         SyncPayServiceImpl syncPayService,
+                         ASyncPayServiceImpl asyncPayService,
+                         OrderEventStream orderEventStream) {
         this.orderService = orderService;
         this.syncPayService = syncPayService;
         this.asyncPayService = asyncPayService;
+        this.orderEventStream = orderEventStream;
     }
 
     /**
@@ -76,6 +92,26 @@ public class OrderEndpoint {
         return addOrder(dto, asyncPayService);
     }
 
+    /**
+     * Creates a batch of orders using the synchronous payment service.
+     * <p>
+     * Every order succeeds or fails on its own; the response lists the outcome of each submitted order in the
+     * order of submission.
+     * </p>
+     *
+     * @param dtos the data transfer objects containing the details of the orders.
+     * @return a ResponseEntity containing a BaseResponse with the outcome of every order.
+     */
+    @PostMapping("/add/batch")
+    public ResponseEntity<BaseResponse<List<OrderResultDto>>> addOrders(@RequestBody List<AddOrderDto> dtos) {
+        return ResponseEntity.ok(
+                new BaseResponse<>(
+                        orderService.addOrders(dtos, syncPayService),
+                        "Order batch processed"
+                )
+        );
+    }
+
     /**
      * Retrieves an order by its unique identifier.
      *
@@ -91,4 +127,83 @@ public class OrderEndpoint {
                 )
         );
     }
+
+    /**
+     * Retrieves only the status of an order by its unique identifier.
+     *
+     * @param id the unique identifier of the order.
+     * @return a ResponseEntity containing a BaseResponse with the order status.
+     */
+    @GetMapping("/status/{id}")
+    public ResponseEntity<BaseResponse<OrderStatusDto>> findOrderStatus(@PathVariable Long id) {
+        return ResponseEntity.ok(
+                new BaseResponse<>(
+                        orderService.findOrderStatus(id),
+                        "Order status fetched successfully"
+                )
+        );
+    }
+
+    /**
+     * Lists the orders of a user, newest first.
+     * <p>
+     * The first page is requested without {@code before}; each following page with the {@code nextBefore}
+     * cursor of the previous one.
+     * </p>
+     *
+     * @param userId the unique identifier of the user.
+     * @param before the cursor of the page, if it is not the first one.
+     * @param size   the number of orders per page, if not the default one.
+     * @return a ResponseEntity containing a BaseResponse with the page of orders.
+     */
+    @GetMapping("/user/{userId}")
+    public ResponseEntity<BaseResponse<OrderPageDto>> findUserOrders(@PathVariable Long userId,
+                                                                     @RequestParam(required = false) Long before,
+                                                                     @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(
+                new BaseResponse<>(
+                        orderService.findUserOrders(userId, before, size),
+                        "Orders fetched successfully"
+                )
+        );
+    }
+
+    /**
+     * Lists the orders of a store, newest first.
+     * <p>
+     * The first page is requested without {@code before}; each following page with the {@code nextBefore}
+     * cursor of the previous one.
+     * </p>
+     *
+     * @param storeId the unique identifier of the store.
+     * @param before  the cursor of the page, if it is not the first one.
+     * @param size    the number of orders per page, if not the default one.
+     * @return a ResponseEntity containing a BaseResponse with the page of orders.
+     */
+    @GetMapping("/store/{storeId}")
+    public ResponseEntity<BaseResponse<OrderPageDto>> findStoreOrders(@PathVariable Long storeId,
+                                                                      @RequestParam(required = false) Long before,
+                                                                      @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(
+                new BaseResponse<>(
+                        orderService.findStoreOrders(storeId, before, size),
+                        "Orders fetched successfully"
+                )
+        );
+    }
+
+    /**
+     * Streams the final status of an order as a server-sent event.
+     * <p>
+     * A single {@code status} event holding an {@link OrderStatusDto} is sent once the order is final, right
+     * away if it already is, and the stream is then completed.
+     * </p>
+     *
+     * @param id the unique identifier of the order.
+     * @return the emitter streaming the final status of the order.
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOrderEvents(@PathVariable Long id) {
+        return orderEventStream.subscribe(id, () -> orderService.findOrderStatus(id).status());
+    }
 }
@@ -1,19 +1,30 @@
 package com.jalian.online_store_order_management.endpoint;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalian.online_store_order_management.dto.BulkChargeResultDto;
+import com.jalian.online_store_order_management.dto.HotProductDto;
 import com.jalian.online_store_order_management.dto.ProductDto;
 import com.jalian.online_store_order_management.dto.ProductFetchDto;
+import com.jalian.online_store_order_management.dto.ProductImportResultDto;
 import com.jalian.online_store_order_management.dto.ProductOperationDto;
 import com.jalian.online_store_order_management.service.ProductService;
 import com.jalian.online_store_order_management.web.BaseResponse;
+import com.jalian.online_store_order_management.web.Feed;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 /**
  * The ProductEndpoint class provides REST endpoints for managing products in the system.
  * <p>
- * It supports adding a new product, fetching product details by ID, and performing operations
- * on a product's inventory.
+ * It supports adding a new product, importing a catalog of products from a streamed feed, fetching product details
+ * by ID, performing operations on a product's inventory, charging many products from a streamed feed, and flagging
+ * best-sellers as hot.
  * </p>
  *
  * @author amirhosein jalian
@@ -22,15 +33,23 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/products")
 public class ProductEndpoint {
 
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType(TEXT_CSV_VALUE);
+
     private final ProductService productService;
 
+    private final ObjectMapper objectMapper;
+
     /**
      * Constructs a new ProductEndpoint with the specified ProductService.
      *
      * @param productService the service used for product operations.
+     * @param objectMapper   the mapper the rows of bulk charge feeds are read with.
      */
-    public ProductEndpoint(ProductService productService) {
+    public ProductEndpoint(ProductService productService, ObjectMapper objectMapper) {
         this.productService = productService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -48,6 +67,31 @@ public class ProductEndpoint {
         );
     }
 
+    /**
+     * Imports a catalog of products from a feed of {@link ProductDto} rows.
+     * <p>
+     * The feed is either CSV ({@code text/csv}), a JSON array, or newline-delimited JSON, one row per line. It is
+     * read from the request body while it is being imported, so it is never held in memory as a whole.
+     * </p>
+     *
+     * @param contentType the content type of the feed.
+     * @param body        the request body holding the feed.
+     * @return a ResponseEntity containing a BaseResponse with a summary of the imported and failed rows.
+     * @throws IOException if the request body cannot be read.
+     */
+    @PostMapping(value = "/import",
+            consumes = {TEXT_CSV_VALUE, MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BaseResponse<ProductImportResultDto>> importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, InputStream body) throws IOException {
+        try (var rows = TEXT_CSV.isCompatibleWith(contentType)
+                ? Feed.productCsv(body)
+                : Feed.json(objectMapper, ProductDto.class, body)) {
+            return ResponseEntity.ok(
+                    new BaseResponse<>(productService.importProducts(rows), "Product import processed")
+            );
+        }
+    }
+
     /**
      * Fetches a product by its unique identifier.
      *
@@ -81,4 +125,43 @@ public class ProductEndpoint {
                 HttpStatus.OK
         );
     }
+
+    /**
+     * Charges the inventory of many products from a feed of {@link ProductOperationDto} rows.
+     * <p>
+     * The feed is either a JSON array or newline-delimited JSON, one row per line. It is read from the request
+     * body while it is being applied, so it is never held in memory as a whole.
+     * </p>
+     *
+     * @param body the request body holding the feed.
+     * @return a ResponseEntity containing a BaseResponse with a summary of the applied and failed rows.
+     * @throws IOException if the request body cannot be read.
+     */
+    @PutMapping(value = "/charge/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BaseResponse<BulkChargeResultDto>> chargeProducts(InputStream body) throws IOException {
+        try (var rows = Feed.json(objectMapper, ProductOperationDto.class, body)) {
+            return ResponseEntity.ok(
+                    new BaseResponse<>(productService.chargeProducts(rows), "Bulk charge processed")
+            );
+        }
+    }
+
+    /**
+     * Flags a product as hot, or clears the flag.
+     * <p>
+     * The inventory of a hot product is discharged through striped in-memory counters instead of its row.
+     * </p>
+     *
+     * @param hotProductDto the data transfer object containing the product ID and whether the product is hot.
+     * @return a ResponseEntity containing a BaseResponse confirming the change.
+     */
+    @PutMapping("/hot")
+    public ResponseEntity<BaseResponse<Void>> setHot(@RequestBody HotProductDto hotProductDto) {
+        productService.setHot(hotProductDto);
+        return new ResponseEntity<>(
+                new BaseResponse<>(null, "Product updated successfully"),
+                HttpStatus.OK
+        );
+    }
 }
@@ -0,0 +1,15 @@
+package com.jalian.online_store_order_management.event;
+
+import com.jalian.online_store_order_management.constant.OrderStatus;
+
+/**
+ * The OrderCompletedEvent record is published once the payment of an order has been committed or recovered
+ * and the order has reached its final status.
+ *
+ * @param orderId the unique identifier of the order.
+ * @param status  the final status of the order.
+ *
+ * @author amirhosein jalian
+ */
+public record OrderCompletedEvent(Long orderId, OrderStatus status) {
+}
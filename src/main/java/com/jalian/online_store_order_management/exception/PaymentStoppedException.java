@@ -0,0 +1,22 @@
+package com.jalian.online_store_order_management.exception;
+
+import org.springframework.dao.ConcurrencyFailureException;
+
+/**
+ * The PaymentStoppedException is thrown when a payment cannot be applied because the application is shutting down.
+ * <p>
+ * The payment has not been applied, and its payment task is meant to be released so that it is paid again later,
+ * by this node once it is restarted or by another one.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+public class PaymentStoppedException extends ConcurrencyFailureException {
+
+    /**
+     * Constructs a new PaymentStoppedException with a default detail message.
+     */
+    public PaymentStoppedException() {
+        super("payments are stopped because the application is shutting down");
+    }
+}
@@ -1,11 +1,13 @@
 package com.jalian.online_store_order_management.exception.handler;
 
+import com.jalian.online_store_order_management.config.OrderMetrics;
 import com.jalian.online_store_order_management.exception.*;
 import com.jalian.online_store_order_management.web.ErrorResponse;
 import jakarta.persistence.OptimisticLockException;
 import jakarta.persistence.PessimisticLockException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
@@ -26,6 +28,17 @@ public class GlobalExceptionHandler {
 
     private static final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
+    private final OrderMetrics orderMetrics;
+
+    /**
+     * Constructs a GlobalExceptionHandler with the specified {@link OrderMetrics}.
+     *
+     * @param orderMetrics the metrics the handled lock failures are counted in.
+     */
+    public GlobalExceptionHandler(OrderMetrics orderMetrics) {
+        this.orderMetrics = orderMetrics;
+    }
+
     /**
      * Handles exceptions related to duplicate username, validation, constraint violations, and illegal balance.
      *
@@ -80,13 +93,18 @@ public class GlobalExceptionHandler {
     }
 
     /**
-     * Handles pessimistic and optimistic locking exceptions.
+     * Handles pessimistic and optimistic locking exceptions, including the ones translated by Spring.
+     * <p>
+     * Every handled failure is counted in the {@code lock.exceptions} meter, tagged by the locked entity.
+     * </p>
      *
+     * @param ex the locking exception that was thrown.
      * @return a ResponseEntity containing an ErrorResponse with a message indicating that the data is locked,
      *         and an HTTP status code of INTERNAL_SERVER_ERROR.
      */
-    @ExceptionHandler({PessimisticLockException.class, OptimisticLockException.class})
-    public ResponseEntity<ErrorResponse> handleLockException() {
+    @ExceptionHandler({PessimisticLockException.class, OptimisticLockException.class, ConcurrencyFailureException.class})
+    public ResponseEntity<ErrorResponse> handleLockException(Exception ex) {
+        orderMetrics.lockFailure(ex, "api");
         var errorResponse = new ErrorResponse("Data is locked");
         return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
     }
@@ -2,6 +2,7 @@ package com.jalian.online_store_order_management.factory;
 
 import com.jalian.online_store_order_management.constant.ProductOperationStrategy;
 import com.jalian.online_store_order_management.service.ProductInventoryOperator;
+import com.jalian.online_store_order_management.service.impl.ConditionalMinusProductInventory;
 import com.jalian.online_store_order_management.service.impl.MinusProductInventory;
 import com.jalian.online_store_order_management.service.impl.PlusProductInventory;
 
@@ -13,6 +14,8 @@ import com.jalian.online_store_order_management.service.impl.PlusProductInventor
  * <ul>
  *   <li>{@code PLUS} - Returns an instance of {@link PlusProductInventory} for adding to inventory.</li>
  *   <li>{@code MINUS} - Returns an instance of {@link MinusProductInventory} for subtracting from inventory.</li>
+ *   <li>{@code CONDITIONAL_MINUS} - Returns an instance of {@link ConditionalMinusProductInventory} for subtracting
+ *   from inventory with a single conditional update statement.</li>
  * </ul>
  * The class is not intended to be instantiated.
  * </p>
@@ -41,6 +44,7 @@ public final class ProductInventoryOperatorFactory {
         return switch (strategy) {
             case PLUS -> PlusProductInventory.getInstance();
             case MINUS -> MinusProductInventory.getInstance();
+            case CONDITIONAL_MINUS -> ConditionalMinusProductInventory.getInstance();
         };
     }
 }
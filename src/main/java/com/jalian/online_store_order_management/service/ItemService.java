@@ -2,9 +2,12 @@ package com.jalian.online_store_order_management.service;
 
 import com.jalian.online_store_order_management.domain.Item;
 import com.jalian.online_store_order_management.domain.Order;
+import com.jalian.online_store_order_management.domain.Product;
 import com.jalian.online_store_order_management.dto.ItemDto;
+import com.jalian.online_store_order_management.dto.ItemFetchDto;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * The ItemService interface defines the operations for managing items within an order.
@@ -18,6 +21,10 @@ public interface ItemService {
 
     /**
      * Saves a list of items for a given order.
+     * <p>
+     * The inventory of the items is not discharged but reserved, until the payment of the order commits or
+     * releases the reservation.
+     * </p>
      *
      * @param items the list of item data transfer objects to be saved.
      * @param order the order entity to which the items belong.
@@ -25,6 +32,19 @@ public interface ItemService {
      */
     List<Item> saveItems(List<ItemDto> items, Order order);
 
+    /**
+     * Saves a list of items for a given order using products that have already been loaded.
+     * <p>
+     * This avoids loading every product again when the caller has fetched the whole basket beforehand.
+     * </p>
+     *
+     * @param items    the list of item data transfer objects to be saved.
+     * @param order    the order entity to which the items belong.
+     * @param products the products of the items, keyed by their identifiers.
+     * @return a list of {@link Item} entities that have been persisted.
+     */
+    List<Item> saveItems(List<ItemDto> items, Order order, Map<Long, Product> products);
+
     /**
      * Retrieves all items associated with a specific order.
      *
@@ -32,4 +52,15 @@ public interface ItemService {
      * @return a list of {@link Item} entities associated with the given order ID.
      */
     List<Item> getProductsByOrderId(Long orderId);
+
+    /**
+     * Retrieves the details of all items associated with a specific order.
+     * <p>
+     * The details are read with a single projection query, without loading the items or their products.
+     * </p>
+     *
+     * @param orderId the unique identifier of the order.
+     * @return a list of {@link ItemFetchDto} records for the items of the given order.
+     */
+    List<ItemFetchDto> getItemFetchDtosByOrderId(Long orderId);
 }
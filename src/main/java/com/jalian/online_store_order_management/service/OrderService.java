@@ -2,11 +2,17 @@ package com.jalian.online_store_order_management.service;
 
 import com.jalian.online_store_order_management.dto.AddOrderDto;
 import com.jalian.online_store_order_management.dto.OrderFetchDto;
+import com.jalian.online_store_order_management.dto.OrderPageDto;
+import com.jalian.online_store_order_management.dto.OrderResultDto;
+import com.jalian.online_store_order_management.dto.OrderStatusDto;
+
+import java.util.List;
 
 /**
  * The OrderService interface defines the operations for managing orders within the system.
  * <p>
- * It provides methods for adding a new order and fetching order details by its unique identifier.
+ * It provides methods for adding a new order, adding a batch of orders, fetching order details or only the
+ * order status by its unique identifier, and listing the order history of a user or a store.
  * </p>
  *
  * @author amirhosein jalian
@@ -26,15 +32,75 @@ public interface OrderService {
      */
     Long addOrder(AddOrderDto dto, PayService payService);
 
+    /**
+     * Adds a batch of orders to the system.
+     * <p>
+     * The orders are written in chunks, each chunk in its own transaction, and user, store and product lookups
+     * are shared by the orders of a chunk. A failing order does not affect the others: if a chunk cannot be
+     * committed, its orders are placed again one transaction at a time. The returned list holds one
+     * {@link OrderResultDto} per submitted order, in the order of submission.
+     * </p>
+     *
+     * @param dtos       the data transfer objects containing the details of the orders to create.
+     * @param payService the payment service to be used for processing the order payments.
+     * @return the outcome of every submitted order.
+     */
+    List<OrderResultDto> addOrders(List<AddOrderDto> dtos, PayService payService);
+
     /**
      * Retrieves the details of an order by its unique identifier.
      * <p>
      * This method returns an {@link OrderFetchDto} containing the complete details of the specified order,
-     * including its associated items, owner, and store.
+     * including its associated items, owner, and store. The details are read with two projection queries, one for
+     * the order with its owner and store and one for its items, whatever the number of items; no entity is loaded.
      * </p>
      *
      * @param orderId the unique identifier of the order to fetch.
      * @return an {@link OrderFetchDto} representing the order details.
      */
     OrderFetchDto findOrderById(Long orderId);
+
+    /**
+     * Retrieves the status of an order by its unique identifier.
+     * <p>
+     * Only the status column is read, so this method is cheap enough to be polled while an asynchronous payment
+     * is in progress.
+     * </p>
+     *
+     * @param orderId the unique identifier of the order.
+     * @return an {@link OrderStatusDto} holding the current status of the order.
+     */
+    OrderStatusDto findOrderStatus(Long orderId);
+
+    /**
+     * Lists the orders of a user, newest first, one page at a time.
+     * <p>
+     * Pages are cut with keyset pagination: a page holds the orders below the {@code before} cursor, and its
+     * {@link OrderPageDto#nextBefore()} is the cursor of the following page. Each page is a single index seek
+     * reading only the order rows it returns, so deep pages cost the same as the first one.
+     * </p>
+     *
+     * @param userId the unique identifier of the user.
+     * @param before the cursor returned with the previous page, or {@code null} for the newest orders.
+     * @param size   the number of orders per page, or {@code null} for {@code order.history.default-page-size}.
+     * @return the page of orders.
+     * @throws com.jalian.online_store_order_management.exception.ValidationException if the size is not between
+     *                                                                                1 and the maximum page size.
+     */
+    OrderPageDto findUserOrders(Long userId, Long before, Integer size);
+
+    /**
+     * Lists the orders of a store, newest first, one page at a time.
+     * <p>
+     * Pages are cut the same way as by {@link #findUserOrders(Long, Long, Integer)}.
+     * </p>
+     *
+     * @param storeId the unique identifier of the store.
+     * @param before  the cursor returned with the previous page, or {@code null} for the newest orders.
+     * @param size    the number of orders per page, or {@code null} for {@code order.history.default-page-size}.
+     * @return the page of orders.
+     * @throws com.jalian.online_store_order_management.exception.ValidationException if the size is not between
+     *                                                                                1 and the maximum page size.
+     */
+    OrderPageDto findStoreOrders(Long storeId, Long before, Integer size);
 }
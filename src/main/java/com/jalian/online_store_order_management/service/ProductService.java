@@ -1,10 +1,17 @@
 package com.jalian.online_store_order_management.service;
 
 import com.jalian.online_store_order_management.domain.Product;
+import com.jalian.online_store_order_management.dto.BulkChargeResultDto;
+import com.jalian.online_store_order_management.dto.HotProductDto;
 import com.jalian.online_store_order_management.dto.ProductDto;
 import com.jalian.online_store_order_management.dto.ProductFetchDto;
+import com.jalian.online_store_order_management.dto.ProductImportResultDto;
 import com.jalian.online_store_order_management.dto.ProductOperationDto;
 
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
 /**
  * The ProductService interface defines operations for managing products in the system.
  * <p>
@@ -28,10 +35,34 @@ public interface ProductService {
      */
     Long addProduct(ProductDto productDto);
 
+    /**
+     * Imports a catalog of products from a feed that is read while it is being imported.
+     * <p>
+     * The rows are imported in chunks of {@code product.import.chunk-size}, each in its own transaction, with the
+     * inserts grouped into JDBC batches; only the current chunk is held in memory. Each store of a chunk is resolved
+     * once for the whole chunk. A row with an empty name, a negative price or a store that does not exist is
+     * reported as failed without failing its chunk, and every row of a chunk whose transaction fails is reported as
+     * failed. The progress is logged after every chunk, and the chunks imported before a failure stay imported.
+     * </p>
+     * <p>
+     * A feed whose next row cannot be read throws a
+     * {@link com.jalian.online_store_order_management.exception.ValidationException} from its iterator. The rows
+     * read before it are still imported, and the unreadable row is reported as the last failure.
+     * </p>
+     *
+     * @param products the rows of the feed, each holding the details of a product.
+     * @return a summary of the imported rows and the failed ones.
+     */
+    ProductImportResultDto importProducts(Iterator<ProductDto> products);
+
     /**
      * Retrieves a product by its unique identifier.
      * <p>
-     * This method returns a {@link ProductFetchDto} that contains detailed information about the product.
+     * This method returns a {@link ProductFetchDto} that contains detailed information about the product. Products
+     * are served from the product cache; a miss reads the product with a projection query that takes no lock, so
+     * product reads never wait for the orders discharging the product. Charging or discharging a product
+     * invalidates its cached entry once the change has committed. The inventory of a hot product is discharged
+     * through in-memory counters without touching its row, so it is always read from the counters instead.
      * </p>
      *
      * @param productId the unique identifier of the product.
@@ -51,6 +82,27 @@ public interface ProductService {
      */
     ProductFetchDto chargeProduct(ProductOperationDto dto);
 
+    /**
+     * Charges (increases) the inventory of many products from a feed that is read while it is being applied.
+     * <p>
+     * The rows are applied in chunks of {@code product.charge.bulk-chunk-size}. Each chunk is sorted by product ID,
+     * so concurrent chunks lock their products in the same order, and applied in its own transaction with one JDBC
+     * batch of {@code inventory = inventory + ?} updates; only the current chunk is held in memory. A row whose
+     * amount is not positive or whose product does not exist is reported as failed without failing its chunk, and
+     * every row of a chunk whose transaction fails is reported as failed. The chunks applied before a failure stay
+     * applied.
+     * </p>
+     * <p>
+     * A feed whose next row cannot be read throws a
+     * {@link com.jalian.online_store_order_management.exception.ValidationException} from its iterator. The rows
+     * read before it are still applied, and the unreadable row is reported as the last failure.
+     * </p>
+     *
+     * @param operations the rows of the feed, each holding a product ID and the amount to charge.
+     * @return a summary of the applied rows and the failed ones.
+     */
+    BulkChargeResultDto chargeProducts(Iterator<ProductOperationDto> operations);
+
     /**
      * Discharges (decreases) a product's inventory.
      * <p>
@@ -63,11 +115,26 @@ public interface ProductService {
      */
     ProductFetchDto dischargeProduct(ProductOperationDto dto);
 
+    /**
+     * Flags a product as hot, or clears the flag.
+     * <p>
+     * The inventory of a hot product is discharged through striped in-memory counters, which are written back to
+     * the product every few milliseconds, instead of through its row. This lets orders on a best-seller proceed in
+     * parallel instead of queueing on its row lock. The counters are switched once the flag is committed.
+     * </p>
+     *
+     * @param dto the data transfer object containing the product ID and whether the product is hot.
+     * @throws com.jalian.online_store_order_management.exception.EntityNotFoundException if the product does not
+     *                                                                                    exist.
+     */
+    void setHot(HotProductDto dto);
+
     /**
      * Verifies whether a product belongs to a specific store.
      * <p>
      * This method checks if the product identified by the given productId is associated with the store
-     * identified by the given storeId.
+     * identified by the given storeId. Only the store identifier of the product is read, without locking the
+     * product.
      * </p>
      *
      * @param productId the unique identifier of the product.
@@ -79,11 +146,28 @@ public interface ProductService {
     /**
      * Finds and returns a product by its unique identifier.
      * <p>
-     * This method is used internally to retrieve a {@link Product} entity from the database.
+     * This method is used internally to retrieve a {@link Product} entity from the database. The product is read
+     * with a pessimistic read lock, so this lookup is reserved for callers that go on to change the product; reads
+     * go through {@link #getProductById(Long)} instead.
      * </p>
      *
      * @param productId the unique identifier of the product.
      * @return the {@link Product} entity corresponding to the given productId.
      */
     Product findProductById(Long productId);
+
+    /**
+     * Finds and returns the products with the given unique identifiers using a single query.
+     * <p>
+     * The products are read without any lock: an order only reserves their inventory in
+     * {@link com.jalian.online_store_order_management.service.impl.InventoryReservations}, which checks it against
+     * the committed inventory itself, so concurrent orders on the same products do not wait for each other.
+     * </p>
+     *
+     * @param productIds the unique identifiers of the products.
+     * @return the {@link Product} entities keyed by their identifiers.
+     * @throws com.jalian.online_store_order_management.exception.EntityNotFoundException if any of the products
+     *                                                                                    does not exist.
+     */
+    Map<Long, Product> findProductsByIds(Collection<Long> productIds);
 }
@@ -4,6 +4,7 @@ import com.jalian.online_store_order_management.domain.Store;
 import com.jalian.online_store_order_management.dto.AddStoreDto;
 import com.jalian.online_store_order_management.dto.AddUserToStoreDto;
 import com.jalian.online_store_order_management.dto.UserFetchDto;
+import com.jalian.online_store_order_management.exception.EntityNotFoundException;
 
 import java.util.List;
 
@@ -33,7 +34,8 @@ public interface StoreService {
     /**
      * Checks if a store exists in the system.
      * <p>
-     * This method verifies the existence of a store by its unique identifier.
+     * This method verifies the existence of a store by its unique identifier. Existing stores are answered from
+     * the store cache.
      * </p>
      *
      * @param storeId the unique identifier of the store.
@@ -44,7 +46,11 @@ public interface StoreService {
     /**
      * Retrieves a store by its unique identifier.
      * <p>
-     * This method returns the {@link Store} entity corresponding to the given storeId.
+     * This method returns a reference to the {@link Store} entity corresponding to the given storeId, bound to the
+     * persistence context of the current transaction. The existence of the store is answered from the store cache,
+     * and the reference takes no lock and does not change the store version, so it is safe to use from concurrent
+     * order and product transactions to build the entities that point at the store. The returned entity must not
+     * be modified; use {@link #addUserToStore(AddUserToStoreDto)} for membership changes.
      * </p>
      *
      * @param storeId the unique identifier of the store.
@@ -56,11 +62,13 @@ public interface StoreService {
      * Verifies whether a given user is associated with the specified store.
      * <p>
      * This method checks if the user identified by {@code userId} belongs to the store identified by {@code storeId}.
+     * The check is an indexed existence query, fronted by an in-memory cache of known memberships.
      * </p>
      *
      * @param storeId the unique identifier of the store.
      * @param userId  the unique identifier of the user.
      * @return {@code true} if the user belongs to the store; {@code false} otherwise.
+     * @throws EntityNotFoundException if the user is not a member and the store does not exist.
      */
     boolean belongToStore(Long storeId, Long userId);
 
@@ -70,6 +78,8 @@ public interface StoreService {
      * This method accepts an {@link com.jalian.online_store_order_management.dto.AddUserToStoreDto} which contains
      * the unique identifiers of the user and the store. The service will add the specified user to the store and
      * return an updated list of users associated with that store as {@link com.jalian.online_store_order_management.dto.UserFetchDto} objects.
+     * The store is loaded with an optimistic force-increment lock, so concurrent membership changes to the same store
+     * are detected.
      * </p>
      *
      * @param addUserToStoreDto the data transfer object containing the user ID and store ID.
@@ -7,6 +7,9 @@ import com.jalian.online_store_order_management.dto.UserRegisterDto;
 import com.jalian.online_store_order_management.exception.DuplicateUsername;
 import com.jalian.online_store_order_management.exception.EntityNotFoundException;
 import com.jalian.online_store_order_management.exception.IllegalBalanceException;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import java.util.List;
 
 /**
  * The UserService interface defines operations for managing users in the system.
@@ -71,6 +74,19 @@ public interface UserService {
      */
     User findUserEntityById(Long id) throws EntityNotFoundException;
 
+    /**
+     * Retrieves the {@link User} entity by its unique identifier without locking it.
+     * <p>
+     * Intended for callers that only reference the user, such as placing an order, and must not fail when the
+     * balance is changed concurrently or later in the same transaction. The returned entity must not be modified.
+     * </p>
+     *
+     * @param id the unique identifier of the user.
+     * @return the {@link User} entity.
+     * @throws EntityNotFoundException if no user is found with the specified ID.
+     */
+    User findUserEntityReadOnly(Long id) throws EntityNotFoundException;
+
     /**
      * Updates the balance of a user's account.
      * <p>
@@ -84,4 +100,45 @@ public interface UserService {
      * @throws IllegalBalanceException if the balance update is not permitted.
      */
     UserFetchDto updateBalance(UpdateBalanceDto updateBalanceDto) throws IllegalBalanceException;
+
+    /**
+     * Deducts an amount from a user's balance with a single conditional update.
+     * <p>
+     * The balance is checked and decreased by the database in one statement, so no lock is held across
+     * application code.
+     * </p>
+     *
+     * @param userId the unique identifier of the user to debit.
+     * @param amount the amount to deduct, in minor units.
+     * @throws IllegalBalanceException if the balance does not cover the amount.
+     * @throws EntityNotFoundException if no user is found with the specified ID.
+     */
+    void debitBalance(Long userId, long amount) throws IllegalBalanceException, EntityNotFoundException;
+
+    /**
+     * Adds an amount to a user's balance with a single update.
+     *
+     * @param userId the unique identifier of the user to credit.
+     * @param amount the amount to add, in minor units.
+     * @throws EntityNotFoundException if no user is found with the specified ID.
+     */
+    void creditBalance(Long userId, long amount) throws EntityNotFoundException;
+
+    /**
+     * Applies a sequence of debits to a user's balance in a single update.
+     * <p>
+     * The balance is read once and the debits are checked in the given order against it. The sum of the accepted
+     * debits is then subtracted with one conditional update, as {@link #debitBalance(Long, long)} does, so the row
+     * is neither locked while the debits are checked nor written back as a whole. A debit that would make the
+     * balance negative is skipped without affecting the others.
+     * </p>
+     *
+     * @param userId  the unique identifier of the user to debit.
+     * @param amounts the amounts to debit, in the order they were requested.
+     * @return for every amount, in the same order, whether it has been debited.
+     * @throws EntityNotFoundException     if no user is found with the specified ID.
+     * @throws ConcurrencyFailureException if the balance dropped below the accepted debits after it was read; no
+     *                                     debit is applied then, and the call may be retried.
+     */
+    List<Boolean> debitAll(Long userId, List<Long> amounts) throws EntityNotFoundException;
 }
@@ -1,23 +1,30 @@
 package com.jalian.online_store_order_management.service.impl;
 
+import com.jalian.online_store_order_management.config.OrderMetrics;
+import com.jalian.online_store_order_management.config.PayRetryConfig;
 import com.jalian.online_store_order_management.constant.OrderStatus;
 import com.jalian.online_store_order_management.dao.OrderDao;
+import com.jalian.online_store_order_management.dao.PaymentTaskDao;
 import com.jalian.online_store_order_management.domain.Item;
 import com.jalian.online_store_order_management.domain.Order;
+import com.jalian.online_store_order_management.domain.PaymentTask;
 import com.jalian.online_store_order_management.domain.User;
-import com.jalian.online_store_order_management.dto.ProductOperationDto;
-import com.jalian.online_store_order_management.service.ProductService;
+import com.jalian.online_store_order_management.event.OrderCompletedEvent;
+import com.jalian.online_store_order_management.exception.LackOfProductException;
+import com.jalian.online_store_order_management.exception.PaymentStoppedException;
+import com.jalian.online_store_order_management.service.ItemService;
 import com.jalian.online_store_order_management.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
 import org.springframework.retry.support.RetryTemplate;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 
@@ -25,23 +32,41 @@ import java.util.List;
  * The ASyncPayServiceImpl class provides an asynchronous implementation of the payment service.
  * <p>
  * It extends the {@link AbstractPayService} to process payments asynchronously with retry capabilities.
- * This class updates the order status to {@link OrderStatus#FINISHED} upon successful payment and sets it
- * to {@link OrderStatus#FAILED} if all retry attempts are exhausted.
+ * Placing an order only writes a {@link PaymentTask} to the payment outbox, in the same transaction as the order,
+ * and sets the order to {@link OrderStatus#AWAITING_PAYMENT}. The {@link PaymentOutboxPoller} later claims the
+ * task and runs {@link #processTask(Long, Long)} on the payment executor, which updates the order status to
+ * {@link OrderStatus#FINISHED} upon successful payment and sets it to {@link OrderStatus#FAILED} if all retry
+ * attempts are exhausted. Because the task is committed with the order, a payment is not lost if the
+ * application stops before it runs; because the debit commits together with the {@link OrderStatus#PAID} status,
+ * a payment that is run again after the application stopped never debits the user twice.
  * </p>
  * <p>
- * Note: The retry template is currently instantiated within the constructor and should be injected
- * for improved testability and configuration.
+ * The inventory of the order stays reserved in {@link InventoryReservations} while the payment is awaited. A
+ * successful payment commits the reservation, discharging the inventory together with the final status; a
+ * failed payment only releases it, and so does the {@link ReservationSweeper} for a payment that did not start
+ * in time.
+ * </p>
+ * <p>
+ * The retry policy is the one defined by {@link PayRetryConfig}: lock failures are retried with a jittered
+ * exponential backoff, while any other failure goes to recovery right away. The number of attempts of every
+ * payment, its final status and the lock failures it retried are published through {@link OrderMetrics}, and an
+ * {@link OrderCompletedEvent} is published once the final status has been saved.
  * </p>
  *
  * @author amirhosein jalian
  */
 @Service
-@EnableAsync
 @EnableAspectJAutoProxy(exposeProxy = true)
 public non-sealed class ASyncPayServiceImpl extends AbstractPayService {
 
     private final OrderDao orderDao;
-    private final ProductService productService;
+    private final PaymentTaskDao paymentTaskDao;
+    private final ItemService itemService;
+    private final InventoryReservations reservations;
+    private final BalanceDebitSerializer balanceDebitSerializer;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderMetrics orderMetrics;
+    private final ApplicationEventPublisher eventPublisher;
     private RecoveryPay recoveryPay;
 
     @Autowired
@@ -51,9 +76,6 @@ public non-sealed class ASyncPayServiceImpl extends AbstractPayService {
 
     /**
      * The RetryTemplate used for retrying the payment operation.
-     * <p>
-     * TODO: This should be injected rather than instantiated directly.
-     * </p>
      */
     private final RetryTemplate retryTemplate;
 
@@ -62,25 +84,47 @@ public non-sealed class ASyncPayServiceImpl extends AbstractPayService {
     /**
      * Constructs an ASyncPayServiceImpl instance with the specified {@link UserService} and {@link OrderDao}.
      *
-     * @param userService the service used for user operations.
-     * @param orderDao    the data access object for order entities.
+     * @param userService            the service used for user operations.
+     * @param orderDao               the data access object for order entities.
+     * @param paymentTaskDao         the data access object for the tasks of the payment outbox.
+     * @param itemService            the service used to load the items of a claimed order.
+     * @param reservations           the ledger whose reservations are committed or released by the payment.
+     * @param retryTemplate          the template defining how failed payments are retried.
+     * @param balanceDebitSerializer the serializer applying the debits of each user one after another.
+     * @param transactionTemplate    the template saving the final status of an order together with its task removal
+     *                               and the discharge of its inventory.
+     * @param orderMetrics           the metrics the payment attempts and outcomes are recorded in.
+     * @param eventPublisher         the publisher of the {@link OrderCompletedEvent} of every payment.
      */
-    public ASyncPayServiceImpl(UserService userService, OrderDao orderDao, ProductService productService) {
+    public ASyncPayServiceImpl(UserService userService,
+                               OrderDao orderDao,
+                               PaymentTaskDao paymentTaskDao,
+                               ItemService itemService,
+                               InventoryReservations reservations,
+                               @Qualifier(PayRetryConfig.PAY_RETRY_TEMPLATE) RetryTemplate retryTemplate,
+                               BalanceDebitSerializer balanceDebitSerializer,
+                               TransactionTemplate transactionTemplate,
+                               OrderMetrics orderMetrics,
+                               ApplicationEventPublisher eventPublisher) {
         super(userService);
         this.orderDao = orderDao;
-        this.productService = productService;
-        this.retryTemplate = RetryTemplate.builder()
-                .maxAttempts(7)
-                .fixedBackoff(150)
-                .build();
+        this.paymentTaskDao = paymentTaskDao;
+        this.itemService = itemService;
+        this.reservations = reservations;
+        this.retryTemplate = retryTemplate;
+        this.balanceDebitSerializer = balanceDebitSerializer;
+        this.transactionTemplate = transactionTemplate;
+        this.orderMetrics = orderMetrics;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
-     * Processes the payment asynchronously for a given order.
+     * Schedules the payment of a given order.
      * <p>
-     * The payment is processed in a new transaction and retried up to a maximum number of attempts.
-     * If the payment is successful, the order status is set to {@link OrderStatus#FINISHED}.
-     * In case of failure after all retries, the order status is set to {@link OrderStatus#FAILED}.
+     * The payment is not run here: a {@link PaymentTask} is written in the caller's transaction, which is
+     * mandatory, and the order is set to {@link OrderStatus#AWAITING_PAYMENT}. The task becomes visible to the
+     * {@link PaymentOutboxPoller} only once the order is committed, so a payment never runs for an order that
+     * was rolled back.
      * </p>
      *
      * @param user  the user making the payment.
@@ -88,19 +132,148 @@ public non-sealed class ASyncPayServiceImpl extends AbstractPayService {
      * @param items the list of items included in the order.
      */
     @Override
-    @Async
+    @Transactional(propagation = Propagation.MANDATORY)
     public void pay(User user, Order order, List<Item> items) {
-        retryTemplate.execute(context -> {
+        order.setOrderStatus(OrderStatus.AWAITING_PAYMENT);
+        paymentTaskDao.save(new PaymentTask(order));
+    }
+
+    /**
+     * Runs the payment of a claimed task.
+     * <p>
+     * The debit is retried on lock failures up to a maximum number of attempts. It is applied through the
+     * {@link BalanceDebitSerializer}, which marks the order {@link OrderStatus#PAID} in the transaction of the debit.
+     * The reservation of the order is then committed, the order status is set to {@link OrderStatus#FINISHED} and
+     * the task is deleted in one transaction, which is retried on its own. A task is delivered at least once, so
+     * a task whose order is already paid, for example because the application stopped between the debit and the
+     * completion, is only completed, and the user is never debited twice.
+     * </p>
+     * <p>
+     * In case of failure after all retries, the order status is set to {@link OrderStatus#FAILED}, the
+     * reservation is released and the task is deleted. A task whose order is already final, or is no longer
+     * awaiting its payment when the debit runs, is only deleted. A task whose debit is refused because the
+     * application is shutting down is released back to the outbox, so it is paid once the application is back. If the inventory of a paid order can no longer be
+     * discharged, the price is credited back to the user in the transaction that fails the order.
+     * </p>
+     *
+     * @param taskId  the unique identifier of the claimed task.
+     * @param orderId the unique identifier of the order to pay.
+     */
+    public void processTask(Long taskId, Long orderId) {
+        var order = orderDao.findById(orderId).orElse(null);
+        if (order == null || order.getOrderStatus().isFinal()) {
+            log.info("Dropping payment task {} of order {} which is already completed", taskId, orderId);
+            deleteTask(taskId);
+            return;
+        }
+        var items = itemService.getProductsByOrderId(orderId);
+        if (order.getOrderStatus() == OrderStatus.PAID) {
+            log.info("Completing payment task {} of order {} which has already been paid", taskId, orderId);
+        } else if (!charge(taskId, order, items)) {
+            return;
+        }
+        complete(taskId, order, items);
+    }
+
+    private boolean charge(Long taskId, Order order, List<Item> items) {
+        var userId = order.getOwner().getId();
+        var amount = calculatePrice(items);
+        boolean paid = retryTemplate.execute(context -> {
             log.info("Retry number: {}", context.getRetryCount());
-            super.pay(user, order, items);
-            order.setOrderStatus(OrderStatus.FINISHED);
-            orderDao.save(order);
-            log.info("Payment done for order {}", order.getId());
-            return null;
+            if (context.getRetryCount() > 0) {
+                orderMetrics.lockFailure(context.getLastThrowable(), "payment");
+            }
+            boolean debited;
+            try {
+                debited = balanceDebitSerializer.debit(userId, order.getId(), taskId, amount);
+            } catch (PaymentStoppedException e) {
+                log.info("Releasing payment task {} of order {} since payments are stopped", taskId, order.getId());
+                transactionTemplate.executeWithoutResult(status -> paymentTaskDao.release(taskId));
+                return false;
+            }
+            if (!debited) {
+                log.info("Dropping payment task {} of order {} which is no longer awaiting payment",
+                        taskId, order.getId());
+                deleteTask(taskId);
+                return false;
+            }
+            orderMetrics.paymentAttempts(context.getRetryCount() + 1, OrderStatus.FINISHED);
+            return true;
         }, context -> {
-            recoveryPay.recoverPayment(order, items, orderDao, productService);
+            orderMetrics.lockFailure(context.getLastThrowable(), "payment");
+            var failed = recoveryPay.recoverPayment(order, items, orderDao, reservations);
+            deleteTask(taskId);
+            if (failed) {
+                orderMetrics.paymentAttempts(context.getRetryCount(), OrderStatus.FAILED);
+                orderMetrics.orderCompleted(OrderStatus.FAILED);
+                eventPublisher.publishEvent(new OrderCompletedEvent(order.getId(), OrderStatus.FAILED));
+            }
             log.warn("Retry for payment for order {} failed", order.getId(), context.getLastThrowable());
-            return null;
+            return false;
+        });
+        return paid;
+    }
+
+    private void complete(Long taskId, Order order, List<Item> items) {
+        Boolean completed;
+        try {
+            completed = retryTemplate.execute(context -> {
+                if (context.getRetryCount() > 0) {
+                    orderMetrics.lockFailure(context.getLastThrowable(), "payment");
+                }
+                return transactionTemplate.execute(status -> {
+                    if (paymentTaskDao.lockTask(taskId) == 0
+                            || orderDao.changeStatus(order.getId(), OrderStatus.PAID, OrderStatus.FINISHED) == 0) {
+                        return false;
+                    }
+                    reservations.commit(items);
+                    paymentTaskDao.deleteTask(taskId);
+                    return true;
+                });
+            });
+        } catch (LackOfProductException e) {
+            refund(taskId, order, items, e);
+            return;
+        }
+        if (!Boolean.TRUE.equals(completed)) {
+            log.info("Payment task {} of order {} has been completed already", taskId, order.getId());
+            return;
+        }
+        orderMetrics.orderCompleted(OrderStatus.FINISHED);
+        eventPublisher.publishEvent(new OrderCompletedEvent(order.getId(), OrderStatus.FINISHED));
+        log.info("Payment done for order {}", order.getId());
+    }
+
+    /**
+     * Gives the price of a paid order back to its owner and fails the order, when its inventory can no longer be
+     * discharged. The refund commits together with the {@link OrderStatus#FAILED} status, so it is applied once.
+     */
+    private void refund(Long taskId, Order order, List<Item> items, LackOfProductException cause) {
+        Boolean refunded = retryTemplate.execute(context -> {
+            if (context.getRetryCount() > 0) {
+                orderMetrics.lockFailure(context.getLastThrowable(), "payment");
+            }
+            return transactionTemplate.execute(status -> {
+                if (paymentTaskDao.lockTask(taskId) == 0
+                        || orderDao.changeStatus(order.getId(), OrderStatus.PAID, OrderStatus.FAILED) == 0) {
+                    return false;
+                }
+                credit(order.getOwner().getId(), calculatePrice(items));
+                reservations.release(items);
+                paymentTaskDao.deleteTask(taskId);
+                return true;
+            });
         });
+        if (!Boolean.TRUE.equals(refunded)) {
+            log.info("Payment task {} of order {} has been completed already", taskId, order.getId());
+            return;
+        }
+        orderMetrics.orderCompleted(OrderStatus.FAILED);
+        eventPublisher.publishEvent(new OrderCompletedEvent(order.getId(), OrderStatus.FAILED));
+        log.warn("Inventory of paid order {} ran out, the payment was refunded", order.getId(), cause);
+    }
+
+    private void deleteTask(Long taskId) {
+        transactionTemplate.executeWithoutResult(status -> paymentTaskDao.deleteTask(taskId));
     }
 }
@@ -1,10 +1,8 @@
 package com.jalian.online_store_order_management.service.impl;
 
-import com.jalian.online_store_order_management.constant.BalanceOperation;
 import com.jalian.online_store_order_management.domain.Item;
 import com.jalian.online_store_order_management.domain.Order;
 import com.jalian.online_store_order_management.domain.User;
-import com.jalian.online_store_order_management.dto.UpdateBalanceDto;
 import com.jalian.online_store_order_management.service.PayService;
 import com.jalian.online_store_order_management.service.UserService;
 
@@ -19,7 +17,7 @@ import java.util.List;
  * </p>
  * <p>
  * The payment process involves deducting the total cost (calculated as the sum of the product of each item's count
- * and price) from the user's balance using the {@link UserService#updateBalance(UpdateBalanceDto)} method.
+ * and price) from the user's balance using the {@link UserService#debitBalance(Long, long)} method.
  * </p>
  *
  * @author amirhosein jalian
@@ -42,7 +40,7 @@ public sealed abstract class AbstractPayService implements PayService
      * Processes the payment for an order.
      * <p>
      * This method calculates the final price of the order by summing up the product of the count and price for each item,
-     * then updates the user's balance by deducting the total amount using the {@link BalanceOperation#MINUS} operation.
+     * then deducts the total amount from the user's balance.
      * </p>
      *
      * @param user  the user who is making the payment.
@@ -52,21 +50,55 @@ public sealed abstract class AbstractPayService implements PayService
     @Override
     public void pay(User user, Order order, List<Item> items) {
         var finalPrice = calculatePrice(items);
-        userService.updateBalance(new UpdateBalanceDto(user.getId(), finalPrice, BalanceOperation.MINUS));
+        debit(user.getId(), finalPrice);
+    }
+
+    /**
+     * Deducts an amount from a user's balance.
+     * <p>
+     * By default the balance is decreased through {@link UserService#debitBalance(Long, long)}, a single
+     * conditional update run in the caller's transaction, so the payment holds no lock across application code.
+     * </p>
+     *
+     * @param userId the unique identifier of the user to debit.
+     * @param amount the amount to deduct.
+     */
+    protected void debit(Long userId, long amount) {
+        userService.debitBalance(userId, amount);
+    }
+
+    /**
+     * Gives an amount back to a user's balance, such as the price of an order that could not be completed after
+     * it was paid.
+     * <p>
+     * The balance is increased through {@link UserService#creditBalance(Long, long)}, a single update run in the
+     * caller's transaction.
+     * </p>
+     *
+     * @param userId the unique identifier of the user to credit.
+     * @param amount the amount to give back.
+     */
+    protected void credit(Long userId, long amount) {
+        userService.creditBalance(userId, amount);
     }
 
     /**
      * Calculates the total price of a list of items.
      * <p>
-     * The price is computed as the sum of the product of each item's count and the price of its associated product.
+     * The price is computed as the sum of the product of each item's count and the price of its associated product,
+     * in minor units. The loop does no boxing and no allocation, and fails with an {@link ArithmeticException}
+     * rather than silently overflowing.
      * </p>
      *
      * @param items the list of items to calculate the total price for.
      * @return the total calculated price.
      */
-    protected double calculatePrice(List<Item> items) {
-        double[] sum = {0.0};
-        items.forEach(item -> sum[0] += item.getCount() * item.getProduct().getPrice());
-        return sum[0];
+    protected long calculatePrice(List<Item> items) {
+        long sum = 0L;
+        for (int i = 0, size = items.size(); i < size; i++) {
+            var item = items.get(i);
+            sum = Math.addExact(sum, Math.multiplyExact(item.getCount(), item.getProduct().getPrice()));
+        }
+        return sum;
     }
 }
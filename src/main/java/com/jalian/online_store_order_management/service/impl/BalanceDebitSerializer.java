@@ -0,0 +1,274 @@
+package com.jalian.online_store_order_management.service.impl;
+
+import com.jalian.online_store_order_management.constant.OrderStatus;
+import com.jalian.online_store_order_management.dao.OrderDao;
+import com.jalian.online_store_order_management.dao.PaymentTaskDao;
+import com.jalian.online_store_order_management.exception.IllegalBalanceException;
+import com.jalian.online_store_order_management.exception.PaymentStoppedException;
+import com.jalian.online_store_order_management.service.UserService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The BalanceDebitSerializer class serializes the balance debits of asynchronous payments per user inside the
+ * application.
+ * <p>
+ * Debits are posted to a mailbox chosen by the user id and a fixed set of workers, one per mailbox, apply
+ * them. Debits of the same user are therefore never applied concurrently: instead of many transactions each
+ * holding a connection while waiting on the same user row lock, a single worker applies all the debits that
+ * piled up for that user in one conditional update through {@link UserService#debitAll(Long, List)}. The
+ * condition of that update is kept as the safety net against other application nodes.
+ * </p>
+ * <p>
+ * Every debit pays one order, and paying it is idempotent. In the transaction of the debit, the payment task of
+ * the order is locked and the order is moved from {@link OrderStatus#AWAITING_PAYMENT} to {@link OrderStatus#PAID},
+ * so a task delivered again after the debit has committed finds the order paid and is not debited a second time,
+ * and the {@link ReservationSweeper} never cancels an order once it is paid. An order that is paid already, or that
+ * is no longer awaiting its payment, is not debited at all.
+ * </p>
+ * <p>
+ * The mailboxes are not bounded themselves: every debit is posted by a payment thread waiting for its
+ * outcome, so their size is bounded by the payment executor. A payment thread waits at most
+ * {@code pay.balance.debit-timeout-ms} milliseconds for its debit. Once the serializer is stopped, new debits are
+ * refused and the debits still in the mailboxes are failed, both with a {@link PaymentStoppedException}, so no
+ * payment thread is left waiting for a worker that is gone.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@Service
+public class BalanceDebitSerializer {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceDebitSerializer.class);
+
+    private final UserService userService;
+    private final OrderDao orderDao;
+    private final PaymentTaskDao paymentTaskDao;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxCoalesced;
+    private final List<BlockingQueue<Debit>> mailboxes;
+    private final List<Thread> workers;
+    private volatile boolean stopped;
+
+    private long debitTimeoutMillis = 30_000;
+
+    /**
+     * Constructs a BalanceDebitSerializer.
+     *
+     * @param userService         the service used to apply the debits.
+     * @param orderDao            the data access object used to mark the orders as paid.
+     * @param paymentTaskDao      the data access object used to lock the payment tasks of the orders.
+     * @param transactionTemplate the template running the debits of each user, and their orders, in one transaction.
+     * @param shards              the number of mailboxes, and of workers.
+     * @param maxCoalesced        the maximum number of debits a worker takes from its mailbox at once.
+     */
+    public BalanceDebitSerializer(UserService userService,
+                                  OrderDao orderDao,
+                                  PaymentTaskDao paymentTaskDao,
+                                  TransactionTemplate transactionTemplate,
+                                  @Value("${pay.balance.shards:8}") int shards,
+                                  @Value("${pay.balance.max-coalesced:64}") int maxCoalesced) {
+        this.userService = userService;
+        this.orderDao = orderDao;
+        this.paymentTaskDao = paymentTaskDao;
+        this.transactionTemplate = transactionTemplate;
+        this.maxCoalesced = maxCoalesced;
+        this.mailboxes = new ArrayList<>(shards);
+        this.workers = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            var mailbox = new LinkedBlockingQueue<Debit>();
+            mailboxes.add(mailbox);
+            workers.add(Thread.ofPlatform()
+                    .name("balance-debit-" + i)
+                    .daemon()
+                    .unstarted(() -> work(mailbox)));
+        }
+    }
+
+    @Value("${pay.balance.debit-timeout-ms:30000}")
+    public void setDebitTimeoutMillis(long debitTimeoutMillis) {
+        this.debitTimeoutMillis = debitTimeoutMillis;
+    }
+
+    /**
+     * Starts the workers.
+     */
+    @PostConstruct
+    public void start() {
+        workers.forEach(Thread::start);
+    }
+
+    /**
+     * Stops the workers, refuses the debits posted from now on and fails the debits still in the mailboxes.
+     */
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        workers.forEach(Thread::interrupt);
+        var pending = new ArrayList<Debit>();
+        mailboxes.forEach(mailbox -> mailbox.drainTo(pending));
+        pending.forEach(debit -> debit.result().completeExceptionally(new PaymentStoppedException()));
+        if (!pending.isEmpty()) {
+            log.warn("Failed {} pending debits on shutdown", pending.size());
+        }
+    }
+
+    /**
+     * Debits a user's balance for the payment of an order and waits until the debit has been applied.
+     *
+     * @param userId  the unique identifier of the user to debit.
+     * @param orderId the unique identifier of the order the debit pays.
+     * @param taskId  the unique identifier of the payment task of the order.
+     * @param amount  the amount to debit.
+     * @return {@code true} if the order is paid, by this debit or by an earlier one; {@code false} if the order is no
+     * longer awaiting its payment, in which case the user has not been debited.
+     * @throws IllegalBalanceException     if the balance is not enough for the debit.
+     * @throws PaymentStoppedException     if the serializer is stopped before the debit is applied.
+     * @throws ConcurrencyFailureException if the debit is not applied in time; it may still be applied later, which
+     *                                     a new attempt finds out from the status of the order.
+     */
+    public boolean debit(Long userId, Long orderId, Long taskId, long amount) {
+        if (stopped) {
+            throw new PaymentStoppedException();
+        }
+        var debit = new Debit(userId, orderId, taskId, amount, new CompletableFuture<>());
+        var mailbox = mailboxes.get(Math.floorMod(userId.hashCode(), mailboxes.size()));
+        mailbox.add(debit);
+        if (stopped && mailbox.remove(debit)) {
+            // Posted after stop() drained the mailboxes.
+            throw new PaymentStoppedException();
+        }
+        try {
+            return debit.result().get(debitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new ConcurrencyFailureException("Debit of order " + orderId + " failed", e.getCause());
+        } catch (TimeoutException e) {
+            mailbox.remove(debit);
+            throw new ConcurrencyFailureException("Debit of order " + orderId + " was not applied in time", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            mailbox.remove(debit);
+            throw new PaymentStoppedException();
+        }
+    }
+
+    /**
+     * Returns the number of debits waiting in the mailboxes.
+     *
+     * @return the number of debits not yet taken by a worker.
+     */
+    public int pendingDebits() {
+        return mailboxes.stream().mapToInt(BlockingQueue::size).sum();
+    }
+
+    private void work(BlockingQueue<Debit> mailbox) {
+        var batch = new ArrayList<Debit>(maxCoalesced);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(mailbox.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            mailbox.drainTo(batch, maxCoalesced - 1);
+            var debitsByUser = new LinkedHashMap<Long, List<Debit>>();
+            batch.forEach(debit -> debitsByUser.computeIfAbsent(debit.userId(), id -> new ArrayList<>()).add(debit));
+            debitsByUser.forEach(this::apply);
+            batch.clear();
+        }
+    }
+
+    private void apply(Long userId, List<Debit> debits) {
+        try {
+            var outcomes = transactionTemplate.execute(status -> pay(userId, debits));
+            for (int i = 0; i < debits.size(); i++) {
+                var result = debits.get(i).result();
+                switch (outcomes[i]) {
+                    case PAID -> result.complete(true);
+                    case SETTLED -> result.complete(false);
+                    default -> result.completeExceptionally(new IllegalBalanceException());
+                }
+            }
+        } catch (Throwable e) {
+            // Any failure, even an error, only fails this batch; the worker keeps serving its mailbox.
+            log.warn("Applying {} debits for user {} failed: {}", debits.size(), userId, e.getMessage());
+            debits.forEach(debit -> debit.result().completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Debits the orders that are still awaiting their payment and marks them as paid. A debit of an order that
+     * appears twice in the batch shares the outcome of the first one.
+     */
+    private Outcome[] pay(Long userId, List<Debit> debits) {
+        var outcomes = new Outcome[debits.size()];
+        var firstOfOrder = new HashMap<Long, Integer>();
+        var payable = new ArrayList<Integer>();
+        for (int i = 0; i < debits.size(); i++) {
+            var debit = debits.get(i);
+            if (firstOfOrder.putIfAbsent(debit.orderId(), i) == null) {
+                outcomes[i] = claim(debit);
+                if (outcomes[i] == Outcome.PAYABLE) {
+                    payable.add(i);
+                }
+            }
+        }
+        if (!payable.isEmpty()) {
+            var debited = userService.debitAll(userId, payable.stream().map(i -> debits.get(i).amount()).toList());
+            for (int j = 0; j < payable.size(); j++) {
+                var i = payable.get(j);
+                if (debited.get(j)) {
+                    orderDao.changeStatus(debits.get(i).orderId(), OrderStatus.AWAITING_PAYMENT, OrderStatus.PAID);
+                    outcomes[i] = Outcome.PAID;
+                } else {
+                    outcomes[i] = Outcome.NOT_COVERED;
+                }
+            }
+        }
+        for (int i = 0; i < debits.size(); i++) {
+            outcomes[i] = outcomes[firstOfOrder.get(debits.get(i).orderId())];
+        }
+        return outcomes;
+    }
+
+    /**
+     * Locks the payment task of a debit and tells whether its order still has to be paid. The task is locked
+     * before the order is read, in the same order as the {@link ReservationSweeper} locks them.
+     */
+    private Outcome claim(Debit debit) {
+        if (paymentTaskDao.lockTask(debit.taskId()) == 0) {
+            return Outcome.SETTLED;
+        }
+        return switch (orderDao.findStatusById(debit.orderId()).orElse(null)) {
+            case AWAITING_PAYMENT -> Outcome.PAYABLE;
+            case PAID -> Outcome.PAID;
+            case null, default -> Outcome.SETTLED;
+        };
+    }
+
+    private enum Outcome {
+        PAYABLE, PAID, NOT_COVERED, SETTLED
+    }
+
+    private record Debit(Long userId, Long orderId, Long taskId, long amount, CompletableFuture<Boolean> result) {
+    }
+}
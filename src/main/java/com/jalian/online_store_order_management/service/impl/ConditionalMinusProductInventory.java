@@ -0,0 +1,52 @@
+package com.jalian.online_store_order_management.service.impl;
+
+import com.jalian.online_store_order_management.domain.Product;
+import com.jalian.online_store_order_management.exception.LackOfProductException;
+import com.jalian.online_store_order_management.service.ProductInventoryOperator;
+
+/**
+ * The ConditionalMinusProductInventory class implements the {@link ProductInventoryOperator} interface
+ * to perform a subtraction operation on a product's inventory.
+ * <p>
+ * It stands for the {@code CONDITIONAL_MINUS} strategy, which the product service applies with a single conditional
+ * update statement instead of loading the product under a lock. On an already loaded product it behaves exactly
+ * like {@link MinusProductInventory}.
+ * The class follows the singleton pattern, providing a single instance via {@link #getInstance()}.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+public final class ConditionalMinusProductInventory implements ProductInventoryOperator {
+
+    /**
+     * A singleton instance of {@code ConditionalMinusProductInventory}.
+     */
+    private static final ProductInventoryOperator INSTANCE = new ConditionalMinusProductInventory();
+
+    /**
+     * Private constructor to enforce the singleton pattern.
+     */
+    private ConditionalMinusProductInventory() {}
+
+    /**
+     * Returns the singleton instance of {@code ConditionalMinusProductInventory}.
+     *
+     * @return the singleton instance of {@link ProductInventoryOperator}.
+     */
+    public static ProductInventoryOperator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Decreases the inventory of an already loaded product by the given amount.
+     *
+     * @param product the product whose inventory is to be decreased.
+     * @param amount  the amount by which to decrease the inventory.
+     * @return the updated {@link Product} with the new inventory value.
+     * @throws LackOfProductException if the resulting inventory is less than zero.
+     */
+    @Override
+    public Product doOperation(Product product, long amount) {
+        return MinusProductInventory.getInstance().doOperation(product, amount);
+    }
+}
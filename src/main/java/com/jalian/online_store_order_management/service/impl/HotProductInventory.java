@@ -0,0 +1,399 @@
+package com.jalian.online_store_order_management.service.impl;
+
+import com.jalian.online_store_order_management.dao.ProductDao;
+import com.jalian.online_store_order_management.domain.Product;
+import com.jalian.online_store_order_management.dto.ProductInventoryDto;
+import com.jalian.online_store_order_management.exception.LackOfProductException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The HotProductInventory class discharges the inventory of hot products through striped in-memory counters.
+ * <p>
+ * The row of a best-seller is the serialization point of every order on it: each discharge waits for the row lock
+ * taken by the previous one. The inventory of a product flagged as {@link Product#isHot() hot} is instead split
+ * across {@code product.hot.stripes} counters, one per core by default. A discharge takes the amount from the
+ * counter of its thread's stripe with a single compare-and-set, moving on to the other stripes when that one is
+ * short; no stripe ever goes below zero. Only when no single stripe can cover the amount are the stripes
+ * rebalanced under the product's monitor, and only if their total cannot cover it either is the discharge refused
+ * with a {@link LackOfProductException}.
+ * </p>
+ * <p>
+ * Every {@code product.hot.flush-interval-ms} milliseconds the total of the stripes is written back to the
+ * inventory of the product, if the row is still at the version last written. A row changed by anyone else, such
+ * as a charge, is reconciled instead: the change is applied to the counters before the next write. A discharge
+ * is applied to the counters right away and restored if its transaction rolls back, so the written inventory may
+ * briefly include discharges that are rolled back later; the next write corrects it.
+ * </p>
+ * <p>
+ * The counters belong to one application node. A graceful shutdown writes their totals back one last time, so only
+ * a node that stops abruptly loses the discharges not written back yet.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@Service
+public class HotProductInventory {
+
+    private static final Logger log = LoggerFactory.getLogger(HotProductInventory.class);
+
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+    private final ProductDao productDao;
+    private final TransactionTemplate transactionTemplate;
+    private final int stripes;
+
+    /**
+     * Constructs a HotProductInventory.
+     *
+     * @param productDao         the data access object used to read and write back the inventory of hot products.
+     * @param transactionManager the transaction manager of the write backs, which run in their own transactions.
+     * @param stripes            the number of counters per hot product; {@code 0} means one per available core.
+     */
+    public HotProductInventory(ProductDao productDao,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${product.hot.stripes:0}") int stripes) {
+        this.productDao = productDao;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.stripes = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Creates the counters of the products flagged as hot.
+     */
+    @PostConstruct
+    public void load() {
+        productDao.findHotInventories().forEach(this::register);
+        if (!counters.isEmpty()) {
+            log.info("Discharging {} hot products through {} counters each", counters.size(), stripes);
+        }
+    }
+
+    /**
+     * Tells whether a product is discharged through the counters.
+     *
+     * @param productId the unique identifier of the product.
+     * @return {@code true} if the product is hot.
+     */
+    public boolean isHot(Long productId) {
+        return counters.containsKey(productId);
+    }
+
+    /**
+     * Returns the inventory of a hot product as seen by the counters, which includes the discharges not written
+     * back yet.
+     *
+     * @param productId the unique identifier of the product.
+     * @return the inventory of the product, or an empty {@link OptionalLong} if it is not hot.
+     */
+    public OptionalLong available(Long productId) {
+        var counter = counters.get(productId);
+        return counter == null ? OptionalLong.empty() : OptionalLong.of(counter.available());
+    }
+
+    /**
+     * Discharges a hot product through its counters.
+     * <p>
+     * Inside a transaction, the amount is given back to the counters if the transaction rolls back.
+     * </p>
+     *
+     * @param productId the unique identifier of the product.
+     * @param amount    the amount to discharge.
+     * @return {@code true} if the product was discharged, or {@code false} if it is not hot and must be discharged
+     * through its row.
+     * @throws LackOfProductException if the inventory of the hot product does not cover the amount.
+     */
+    public boolean discharge(Long productId, long amount) {
+        var counter = counters.get(productId);
+        if (counter == null) {
+            return false;
+        }
+        if (!counter.discharge(amount)) {
+            // The product is being switched off; wait until its last total is written back.
+            synchronized (counter) {
+                return false;
+            }
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        restore(productId, counter, amount);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Switches the counters of a product on or off once the current transaction, which flags the product, has
+     * committed, or right away if there is none.
+     *
+     * @param productId the unique identifier of the product.
+     * @param hot       whether the product is hot.
+     */
+    public void setHotAfterCommit(Long productId, boolean hot) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            setHot(productId, hot);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                setHot(productId, hot);
+            }
+        });
+    }
+
+    /**
+     * Writes the total of the counters of every hot product back to its inventory.
+     */
+    @Scheduled(fixedDelayString = "${product.hot.flush-interval-ms:5}")
+    public void flush() {
+        if (counters.isEmpty()) {
+            return;
+        }
+        for (var row : productDao.findInventoriesByIds(List.copyOf(counters.keySet()))) {
+            var counter = counters.get(row.productId());
+            if (counter != null) {
+                flush(counter, row);
+            }
+        }
+    }
+
+    /**
+     * Writes the total of the counters of every hot product back to its inventory when the application shuts down
+     * gracefully, so the discharges made since the last scheduled write are not lost.
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+        if (!counters.isEmpty()) {
+            log.info("Wrote back the counters of {} hot products on shutdown", counters.size());
+        }
+    }
+
+    private void setHot(Long productId, boolean hot) {
+        if (hot) {
+            productDao.findInventoriesByIds(List.of(productId)).forEach(this::register);
+            return;
+        }
+        var counter = counters.get(productId);
+        if (counter == null) {
+            return;
+        }
+        synchronized (counter) {
+            var total = counter.close();
+            while (true) {
+                var row = productDao.findInventoriesByIds(List.of(productId)).stream().findFirst().orElse(null);
+                if (row == null) {
+                    break;
+                }
+                total = Math.max(0, total + counter.reconcile(row));
+                var inventory = total;
+                Integer written = transactionTemplate.execute(status ->
+                        productDao.writeInventory(productId, inventory, counter.version));
+                if (written != null && written == 1) {
+                    break;
+                }
+            }
+            counters.remove(productId, counter);
+        }
+    }
+
+    private void register(ProductInventoryDto row) {
+        counters.computeIfAbsent(row.productId(), id -> new Counter(stripes, row.inventory(), row.version()));
+    }
+
+    private void flush(Counter counter, ProductInventoryDto row) {
+        synchronized (counter) {
+            if (counter.closed) {
+                return;
+            }
+            var delta = counter.reconcile(row);
+            if (delta != 0) {
+                counter.adjust(delta);
+            }
+            var inventory = counter.available();
+            if (inventory == counter.flushedInventory) {
+                return;
+            }
+            Integer written = transactionTemplate.execute(status ->
+                    productDao.writeInventory(row.productId(), inventory, counter.version));
+            if (written != null && written == 1) {
+                counter.flushedInventory = inventory;
+                counter.version++;
+            }
+        }
+    }
+
+    private void restore(Long productId, Counter counter, long amount) {
+        if (counter.add(amount)) {
+            return;
+        }
+        // The product was switched off in the meantime and its total already written back.
+        synchronized (counter) {
+            transactionTemplate.executeWithoutResult(status -> productDao.addInventory(productId, amount));
+        }
+    }
+
+    /**
+     * The striped counters of one hot product.
+     * <p>
+     * The stripes are spread {@link #PAD} slots apart so that they do not share a cache line. The fields below
+     * them, and every operation that touches all stripes, are guarded by the counter's monitor.
+     * </p>
+     */
+    private static final class Counter {
+
+        private static final int PAD = 8;
+        private static final long CLOSED = Long.MIN_VALUE;
+
+        private final AtomicLongArray cells;
+        private final int stripes;
+
+        private boolean closed;
+        private long flushedInventory;
+        private Long version;
+
+        Counter(int stripes, long inventory, Long version) {
+            this.cells = new AtomicLongArray(stripes * PAD);
+            this.stripes = stripes;
+            this.flushedInventory = inventory;
+            this.version = version;
+            spread(inventory);
+        }
+
+        /**
+         * Takes an amount from the stripes, or returns {@code false} if the counter is closed.
+         */
+        boolean discharge(long amount) {
+            var start = (int) (Thread.currentThread().threadId() % stripes);
+            for (int i = 0; i < stripes; i++) {
+                var cell = ((start + i) % stripes) * PAD;
+                var value = cells.get(cell);
+                while (value >= amount) {
+                    if (cells.compareAndSet(cell, value, value - amount)) {
+                        return true;
+                    }
+                    value = cells.get(cell);
+                }
+                if (value == CLOSED) {
+                    return false;
+                }
+            }
+            return rebalanceAndDischarge(amount);
+        }
+
+        private synchronized boolean rebalanceAndDischarge(long amount) {
+            if (closed) {
+                return false;
+            }
+            var total = drain();
+            if (total < amount) {
+                spread(total);
+                throw new LackOfProductException();
+            }
+            spread(total - amount);
+            return true;
+        }
+
+        /**
+         * Adds an amount to the thread's stripe, or returns {@code false} if the counter is closed.
+         */
+        boolean add(long amount) {
+            var cell = (int) (Thread.currentThread().threadId() % stripes) * PAD;
+            while (true) {
+                var value = cells.get(cell);
+                if (value == CLOSED) {
+                    return false;
+                }
+                if (cells.compareAndSet(cell, value, value + amount)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Applies a change of the inventory made by anyone else, never going below zero.
+         */
+        synchronized void adjust(long delta) {
+            var total = drain() + delta;
+            if (total < 0) {
+                log.warn("Hot product inventory was discharged by another writer beyond its counters by {}", -total);
+            }
+            spread(Math.max(0, total));
+        }
+
+        /**
+         * Returns the change of the row since it was last written by the counter, and remembers the row. A row read
+         * before the last one seen, such as one read by a flush that waited for the monitor, is ignored.
+         */
+        synchronized long reconcile(ProductInventoryDto row) {
+            if (row.version() <= version) {
+                return 0;
+            }
+            var delta = row.inventory() - flushedInventory;
+            flushedInventory = row.inventory();
+            version = row.version();
+            return delta;
+        }
+
+        long available() {
+            long total = 0;
+            for (int i = 0; i < stripes; i++) {
+                var value = cells.get(i * PAD);
+                if (value != CLOSED) {
+                    total += value;
+                }
+            }
+            return total;
+        }
+
+        /**
+         * Closes every stripe so that no more amounts are taken from or added to it, and returns their total.
+         */
+        synchronized long close() {
+            closed = true;
+            long total = 0;
+            for (int i = 0; i < stripes; i++) {
+                total += cells.getAndSet(i * PAD, CLOSED);
+            }
+            return total;
+        }
+
+        private long drain() {
+            long total = 0;
+            for (int i = 0; i < stripes; i++) {
+                total += cells.getAndSet(i * PAD, 0);
+            }
+            return total;
+        }
+
+        private void spread(long total) {
+            var share = total / stripes;
+            cells.getAndAdd(0, total - share * stripes);
+            for (int i = 0; i < stripes; i++) {
+                cells.getAndAdd(i * PAD, share);
+            }
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.jalian.online_store_order_management.service.impl;
+
+import com.jalian.online_store_order_management.constant.OrderStatus;
+import com.jalian.online_store_order_management.dao.ItemDao;
+import com.jalian.online_store_order_management.dao.ProductDao;
+import com.jalian.online_store_order_management.domain.Item;
+import com.jalian.online_store_order_management.dto.ItemDto;
+import com.jalian.online_store_order_management.dto.ProductInventoryDto;
+import com.jalian.online_store_order_management.dto.ProductOperationDto;
+import com.jalian.online_store_order_management.exception.EntityNotFoundException;
+import com.jalian.online_store_order_management.exception.LackOfProductException;
+import com.jalian.online_store_order_management.service.ProductService;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * The InventoryReservations class keeps the in-memory ledger of the inventory reserved by unpaid orders.
+ * <p>
+ * Placing an order no longer discharges its products: it only reserves their quantities in this ledger, after
+ * checking them against the committed inventory read without any lock. The inventory is discharged once, when
+ * the payment succeeds, and a failed or expired payment only releases its reservation, so it does not write the
+ * inventory at all. A reservation is refused with a {@link LackOfProductException} when the committed inventory
+ * minus the quantities already reserved does not cover it, so products are never oversold.
+ * </p>
+ * <p>
+ * The reservations are not written anywhere else: the items of an order awaiting its payment, or paid but not
+ * completed yet, are its reservation, and the ledger is rebuilt from them when the application starts. Each
+ * product has its own ledger entry, guarded by its own monitor, so reservations of different products never wait
+ * for each other.
+ * </p>
+ * <p>
+ * Committing a reservation discharges the inventory in the caller's transaction and releases the reservation
+ * only after that transaction has committed. A reservation made while a release of the same product is in
+ * flight may therefore read the inventory from before the discharge and the reserved quantity from after the
+ * release; every entry counts its releases so that such a reservation notices it and reads the inventory again.
+ * A reservation that still loses the race after a few reads makes its last read under the monitor of the entry,
+ * which holds off the releases of that product for the time of one read, so a steady flow of releases can never
+ * keep it spinning.
+ * </p>
+ * <p>
+ * The inventory of a hot product is read from, and committed to, its {@link HotProductInventory} counters
+ * instead of its row, since the row lags behind the discharges not written back yet.
+ * </p>
+ * <p>
+ * The ledger belongs to one application node; all orders must be placed and paid on the node that owns it.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@Service
+public class InventoryReservations {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryReservations.class);
+
+    /**
+     * The number of times a reservation reads the inventory again after a concurrent release before it reads it
+     * under the monitor of the product's ledger instead.
+     */
+    private static final int MAX_OPTIMISTIC_ATTEMPTS = 3;
+
+    private final Map<Long, Ledger> ledgers = new ConcurrentHashMap<>();
+    private final ProductDao productDao;
+    private final ItemDao itemDao;
+    private final ProductService productService;
+    private final HotProductInventory hotInventory;
+
+    /**
+     * Constructs an InventoryReservations ledger.
+     *
+     * @param productDao     the data access object used to read the committed inventory of products.
+     * @param itemDao        the data access object used to rebuild the ledger from unpaid orders.
+     * @param productService the service discharging the inventory of committed reservations.
+     * @param hotInventory   the counters discharging the inventory of hot products.
+     */
+    public InventoryReservations(ProductDao productDao, ItemDao itemDao, ProductService productService,
+                                 HotProductInventory hotInventory) {
+        this.productDao = productDao;
+        this.itemDao = itemDao;
+        this.productService = productService;
+        this.hotInventory = hotInventory;
+    }
+
+    /**
+     * Rebuilds the ledger from the items of the orders that are {@link OrderStatus#AWAITING_PAYMENT} or
+     * {@link OrderStatus#PAID}.
+     */
+    @PostConstruct
+    public void load() {
+        var reservations = itemDao.sumReservedQuantities();
+        reservations.forEach(item -> ledger(item.productId()).add(item.count()));
+        if (!reservations.isEmpty()) {
+            log.info("Restored inventory reservations of {} products", reservations.size());
+        }
+    }
+
+    /**
+     * Reserves the quantities of the given items.
+     * <p>
+     * Either every quantity is reserved or none is. Inside a transaction, the reservations are released again
+     * if the transaction rolls back.
+     * </p>
+     *
+     * @param items the items to reserve; items of the same product are added up.
+     * @throws LackOfProductException  if the available inventory of a product does not cover its quantity.
+     * @throws EntityNotFoundException if a product does not exist.
+     */
+    public void reserve(List<ItemDto> items) {
+        var quantities = new HashMap<Long, Long>();
+        items.forEach(item -> quantities.merge(item.productId(), item.count(), Long::sum));
+        if (quantities.isEmpty()) {
+            return;
+        }
+        var seenReleases = new HashMap<Long, Long>();
+        quantities.keySet().forEach(productId -> seenReleases.put(productId, ledger(productId).releases()));
+        var inventories = readInventories(quantities.keySet());
+        var reserved = new LinkedHashMap<Long, Long>();
+        try {
+            quantities.forEach((productId, count) -> {
+                var ledger = ledger(productId);
+                var seen = seenReleases.get(productId);
+                var inventory = inventoryOf(inventories, productId);
+                var attempts = 1;
+                while (!ledger.tryReserve(count, inventory, seen)) {
+                    if (++attempts > MAX_OPTIMISTIC_ATTEMPTS) {
+                        ledger.reserveExclusively(count, () -> inventoryOf(readInventories(List.of(productId)),
+                                productId));
+                        break;
+                    }
+                    seen = ledger.releases();
+                    inventory = inventoryOf(readInventories(List.of(productId)), productId);
+                }
+                reserved.put(productId, count);
+            });
+        } catch (RuntimeException e) {
+            releaseNow(reserved);
+            throw e;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        releaseNow(reserved);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Commits the reservations of the given items by discharging their inventory in the current transaction,
+     * which is mandatory.
+     * <p>
+     * The products are discharged in ascending ID order, so concurrent commits lock them in the same order.
+     * The reservations are released once the transaction has committed.
+     * </p>
+     *
+     * @param items the items whose reservations are committed.
+     * @throws LackOfProductException if the inventory of a product no longer covers its quantity.
+     */
+    public void commit(List<Item> items) {
+        var quantities = quantitiesOf(items);
+        quantities.forEach((productId, count) -> {
+            if (!hotInventory.discharge(productId, count)) {
+                productService.dischargeProduct(new ProductOperationDto(productId, count));
+            }
+        });
+        releaseAfterCommit(quantities);
+    }
+
+    /**
+     * Releases the reservations of the given items without touching the inventory.
+     *
+     * @param items the items whose reservations are released.
+     */
+    public void release(List<Item> items) {
+        releaseAfterCommit(quantitiesOf(items));
+    }
+
+    /**
+     * Releases reserved quantities without touching the inventory, once the current transaction has committed,
+     * or right away if there is none.
+     *
+     * @param quantities the quantities to release, keyed by product ID.
+     */
+    public void release(Map<Long, Long> quantities) {
+        releaseAfterCommit(quantities);
+    }
+
+    /**
+     * Returns the quantity of a product that is currently reserved.
+     *
+     * @param productId the unique identifier of the product.
+     * @return the reserved quantity.
+     */
+    public long reserved(Long productId) {
+        var ledger = ledgers.get(productId);
+        return ledger == null ? 0 : ledger.reserved();
+    }
+
+    private void releaseAfterCommit(Map<Long, Long> quantities) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            releaseNow(quantities);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                releaseNow(quantities);
+            }
+        });
+    }
+
+    private void releaseNow(Map<Long, Long> quantities) {
+        quantities.forEach((productId, count) -> ledger(productId).release(count));
+    }
+
+    private Map<Long, Long> readInventories(Collection<Long> productIds) {
+        var inventories = new HashMap<Long, Long>();
+        for (var product : productDao.findInventoriesByIds(productIds)) {
+            inventories.put(product.productId(),
+                    hotInventory.available(product.productId()).orElse(product.inventory()));
+        }
+        return inventories;
+    }
+
+    private static long inventoryOf(Map<Long, Long> inventories, Long productId) {
+        var inventory = inventories.get(productId);
+        if (inventory == null) {
+            throw new EntityNotFoundException("Product with id " + productId + " does not exist");
+        }
+        return inventory;
+    }
+
+    private static Map<Long, Long> quantitiesOf(List<Item> items) {
+        var quantities = new TreeMap<Long, Long>();
+        items.forEach(item -> quantities.merge(item.getProduct().getId(), item.getCount(), Long::sum));
+        return quantities;
+    }
+
+    private Ledger ledger(Long productId) {
+        return ledgers.computeIfAbsent(productId, id -> new Ledger());
+    }
+
+    /**
+     * The reserved quantity of one product. Entries are never removed, so that their release count keeps
+     * growing for as long as the application runs.
+     */
+    private static final class Ledger {
+
+        private long reserved;
+        private long releases;
+
+        synchronized long reserved() {
+            return reserved;
+        }
+
+        synchronized long releases() {
+            return releases;
+        }
+
+        synchronized void add(long count) {
+            reserved += count;
+        }
+
+        /**
+         * Reserves a quantity against an inventory read after {@code seenReleases} was taken, or returns
+         * {@code false} if a release happened since, in which case the inventory must be read again.
+         */
+        synchronized boolean tryReserve(long count, long inventory, long seenReleases) {
+            if (releases != seenReleases) {
+                return false;
+            }
+            if (inventory - reserved < count) {
+                throw new LackOfProductException();
+            }
+            reserved += count;
+            return true;
+        }
+
+        /**
+         * Reserves a quantity against an inventory read while holding the monitor, so that no release can happen
+         * between the read and the reservation. Used by a reservation that kept losing the race to releases.
+         */
+        synchronized void reserveExclusively(long count, LongSupplier inventory) {
+            if (inventory.getAsLong() - reserved < count) {
+                throw new LackOfProductException();
+            }
+            reserved += count;
+        }
+
+        synchronized void release(long count) {
+            reserved = Math.max(0, reserved - count);
+            releases++;
+        }
+    }
+}
@@ -3,9 +3,10 @@ package com.jalian.online_store_order_management.service.impl;
 import com.jalian.online_store_order_management.dao.ItemDao;
 import com.jalian.online_store_order_management.domain.Item;
 import com.jalian.online_store_order_management.domain.Order;
+import com.jalian.online_store_order_management.domain.Product;
 import com.jalian.online_store_order_management.domain.key.ItemKey;
 import com.jalian.online_store_order_management.dto.ItemDto;
-import com.jalian.online_store_order_management.dto.ProductOperationDto;
+import com.jalian.online_store_order_management.dto.ItemFetchDto;
 import com.jalian.online_store_order_management.service.ItemService;
 import com.jalian.online_store_order_management.service.ProductService;
 import org.springframework.stereotype.Service;
@@ -14,41 +15,48 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class ItemServiceImpl implements ItemService {
 
     private final ItemDao itemDao;
     private final ProductService productService;
+    private final InventoryReservations reservations;
 
-    public ItemServiceImpl(ItemDao itemDao, ProductService productService) {
+    public ItemServiceImpl(ItemDao itemDao, ProductService productService, InventoryReservations reservations) {
         this.itemDao = itemDao;
         this.productService = productService;
+        this.reservations = reservations;
     }
 
     @Override
     @Transactional(propagation = Propagation.MANDATORY)
     public List<Item> saveItems(List<ItemDto> items, Order savedOrder) {
-        var savedItems = new ArrayList<Item>();
+        if (items.isEmpty()) {
+            return new ArrayList<>();
+        }
+        var productIds = items.stream().map(ItemDto::productId).toList();
+        return saveItems(items, savedOrder, productService.findProductsByIds(productIds));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Item> saveItems(List<ItemDto> items, Order savedOrder, Map<Long, Product> products) {
+        var itemsToSave = new ArrayList<Item>(items.size());
         items.forEach(itemDto -> {
-            var product = productService.findProductById(itemDto.productId());
-            var item = new Item(
+            var product = products.get(itemDto.productId());
+            itemsToSave.add(new Item(
                     new ItemKey(savedOrder.getId(), product.getId()),
                     product,
                     savedOrder,
                     itemDto.count(),
                     product.getInventory(),
                     product.getPrice()
-            );
-            productService.dischargeProduct(
-                    new ProductOperationDto(
-                            itemDto.productId(),
-                            itemDto.count()
-                    )
-            );
-            savedItems.add(itemDao.save(item));
+            ));
         });
-        return savedItems;
+        reservations.reserve(items);
+        return itemDao.saveAll(itemsToSave);
     }
 
     @Override
@@ -56,4 +64,10 @@ public class ItemServiceImpl implements ItemService {
     public List<Item> getProductsByOrderId(Long orderId) {
         return itemDao.findAllByOrder(orderId);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ItemFetchDto> getItemFetchDtosByOrderId(Long orderId) {
+        return itemDao.findFetchDtosByOrder(orderId);
+    }
 }
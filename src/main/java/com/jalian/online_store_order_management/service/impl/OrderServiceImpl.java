@@ -2,26 +2,47 @@ package com.jalian.online_store_order_management.service.impl;
 
 import com.jalian.online_store_order_management.annotation.NotNull;
 import com.jalian.online_store_order_management.annotation.Valid;
+import com.jalian.online_store_order_management.config.OrderMetrics;
+import com.jalian.online_store_order_management.config.OrderMetrics.Phase;
 import com.jalian.online_store_order_management.constant.OrderStatus;
 import com.jalian.online_store_order_management.dao.OrderDao;
 import com.jalian.online_store_order_management.domain.Order;
+import com.jalian.online_store_order_management.domain.Product;
+import com.jalian.online_store_order_management.domain.Store;
+import com.jalian.online_store_order_management.domain.User;
 import com.jalian.online_store_order_management.dto.*;
-import com.jalian.online_store_order_management.exception.EntityNotFoundException;
-import com.jalian.online_store_order_management.exception.ValidationException;
+import com.jalian.online_store_order_management.exception.*;
 import com.jalian.online_store_order_management.service.*;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.List;
+import java.util.*;
 
 @Service
 public class OrderServiceImpl implements OrderService {
 
+    private static final Logger log = LoggerFactory.getLogger(OrderServiceImpl.class);
+
     private final OrderDao orderDao;
     private final ProductService productService;
     private final UserService userService;
     private final StoreService storeService;
     private final ItemService itemService;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderMetrics orderMetrics;
+
+    private int batchChunkSize = 50;
+    private int batchMaxSize = 1000;
+    private int historyDefaultPageSize = 20;
+    private int historyMaxPageSize = 100;
 
     public OrderServiceImpl(
             OrderDao orderDao,
@@ -30,60 +51,251 @@ public class OrderServiceImpl implements OrderService {
             StoreService storeService,
             ItemService itemService,
             SyncPayServiceImpl syncPayServiceImpl,
-            ASyncPayServiceImpl asyncPayServiceImpl) {
+            ASyncPayServiceImpl asyncPayServiceImpl,
+            TransactionTemplate transactionTemplate,
+            OrderMetrics orderMetrics) {
         this.orderDao = orderDao;
         this.productService = productService;
         this.userService = userService;
         this.storeService = storeService;
         this.itemService = itemService;
+        this.transactionTemplate = transactionTemplate;
+        this.orderMetrics = orderMetrics;
+    }
+
+    @Value("${order.batch.chunk-size:50}")
+    public void setBatchChunkSize(int batchChunkSize) {
+        this.batchChunkSize = batchChunkSize;
+    }
+
+    @Value("${order.batch.max-size:1000}")
+    public void setBatchMaxSize(int batchMaxSize) {
+        this.batchMaxSize = batchMaxSize;
+    }
+
+    @Value("${order.history.default-page-size:20}")
+    public void setHistoryDefaultPageSize(int historyDefaultPageSize) {
+        this.historyDefaultPageSize = historyDefaultPageSize;
+    }
+
+    @Value("${order.history.max-page-size:100}")
+    public void setHistoryMaxPageSize(int historyMaxPageSize) {
+        this.historyMaxPageSize = historyMaxPageSize;
     }
 
     @Override
     @Transactional(rollbackFor = Throwable.class)
     public Long addOrder(AddOrderDto dto, PayService payService) {
-        final var storeId = dto.storeId();
-        checkUserBelongsToStore(dto.userId(), storeId);
-        checkAllProductsBelongToStore(dto.items(), storeId);
-        var order = createNewOrder(dto.userId(), storeId);
-        var savedOrder = orderDao.save(order);
-        var itemsToPay = itemService.saveItems(dto.items(), savedOrder);
-        var user = userService.findUserEntityById(dto.userId());
-        payService.pay(user, savedOrder, itemsToPay);
-        orderDao.save(savedOrder);
-        return savedOrder.getId();
+        return placeOrder(dto, payService, new Lookups());
+    }
+
+    @Override
+    public List<OrderResultDto> addOrders(List<AddOrderDto> dtos, PayService payService) {
+        if (dtos.size() > batchMaxSize) {
+            throw new ValidationException("A batch cannot contain more than " + batchMaxSize + " orders");
+        }
+        var results = new ArrayList<OrderResultDto>(dtos.size());
+        for (int from = 0; from < dtos.size(); from += batchChunkSize) {
+            var chunk = dtos.subList(from, Math.min(from + batchChunkSize, dtos.size()));
+            results.addAll(addChunk(chunk, payService));
+        }
+        return results;
     }
 
     @Override
     @Transactional(readOnly = true)
     @Valid
     public OrderFetchDto findOrderById(@NotNull Long orderId) {
-        var order = orderDao.findById(orderId)
+        var order = orderDao.findFetchDtoById(orderId)
                 .orElseThrow(
                         () -> new EntityNotFoundException(Order.class.getSimpleName(), "id", orderId.toString())
                 );
-        var items = itemService.getProductsByOrderId(orderId);
-        return OrderFetchDto.of(order, items);
+        return order.withItems(itemService.getItemFetchDtosByOrderId(orderId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Valid
+    public OrderStatusDto findOrderStatus(@NotNull Long orderId) {
+        return orderDao.findStatusById(orderId)
+                .map(status -> new OrderStatusDto(orderId, status))
+                .orElseThrow(
+                        () -> new EntityNotFoundException(Order.class.getSimpleName(), "id", orderId.toString())
+                );
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Valid
+    public OrderPageDto findUserOrders(@NotNull Long userId, Long before, Integer size) {
+        var pageSize = pageSize(size);
+        return page(orderDao.findUserOrdersBefore(userId, cursor(before), Limit.of(pageSize + 1)), pageSize);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Valid
+    public OrderPageDto findStoreOrders(@NotNull Long storeId, Long before, Integer size) {
+        var pageSize = pageSize(size);
+        return page(orderDao.findStoreOrdersBefore(storeId, cursor(before), Limit.of(pageSize + 1)), pageSize);
+    }
+
+    private int pageSize(Integer size) {
+        if (size == null) {
+            return historyDefaultPageSize;
+        }
+        if (size < 1 || size > historyMaxPageSize) {
+            throw new ValidationException("Page size must be between 1 and " + historyMaxPageSize);
+        }
+        return size;
+    }
+
+    private static long cursor(Long before) {
+        return before == null ? Long.MAX_VALUE : before;
+    }
+
+    private static OrderPageDto page(List<OrderSummaryDto> orders, int pageSize) {
+        if (orders.size() <= pageSize) {
+            return new OrderPageDto(orders, null);
+        }
+        var page = orders.subList(0, pageSize);
+        return new OrderPageDto(List.copyOf(page), page.getLast().orderId());
+    }
+
+    private Long placeOrder(AddOrderDto dto, PayService payService, Lookups lookups) {
+        final var storeId = dto.storeId();
+        var phase = orderMetrics.startPhase();
+        checkUserBelongsToStore(dto.userId(), storeId, lookups);
+        var products = lookups.products(dto.items());
+        checkAllProductsBelongToStore(dto.items(), products, storeId);
+        orderMetrics.stopPhase(phase, Phase.VALIDATION);
+        phase = orderMetrics.startPhase();
+        var order = createNewOrder(dto.userId(), storeId, lookups);
+        var savedOrder = orderDao.save(order);
+        var itemsToPay = itemService.saveItems(dto.items(), savedOrder, products);
+        orderMetrics.stopPhase(phase, Phase.ITEMS);
+        phase = orderMetrics.startPhase();
+        var user = lookups.user(dto.userId());
+        payService.pay(user, savedOrder, itemsToPay);
+        orderDao.save(savedOrder);
+        orderMetrics.stopPhase(phase, Phase.PAYMENT);
+        return savedOrder.getId();
+    }
+
+    private List<OrderResultDto> addChunk(List<AddOrderDto> chunk, PayService payService) {
+        if (chunk.size() == 1) {
+            return List.of(addIsolated(chunk.getFirst(), payService));
+        }
+        try {
+            return transactionTemplate.execute(status -> {
+                var lookups = new Lookups();
+                lookups.products(chunk.stream().flatMap(dto -> dto.items().stream()).toList());
+                var results = new ArrayList<OrderResultDto>(chunk.size());
+                for (var dto : chunk) {
+                    results.add(OrderResultDto.success(placeOrder(dto, payService, lookups)));
+                }
+                return results;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Batch chunk of {} orders failed, placing them one by one: {}", chunk.size(), e.getMessage());
+            var results = new ArrayList<OrderResultDto>(chunk.size());
+            for (var dto : chunk) {
+                results.add(addIsolated(dto, payService));
+            }
+            return results;
+        }
+    }
+
+    private OrderResultDto addIsolated(AddOrderDto dto, PayService payService) {
+        try {
+            return OrderResultDto.success(
+                    transactionTemplate.execute(status -> placeOrder(dto, payService, new Lookups()))
+            );
+        } catch (RuntimeException e) {
+            return OrderResultDto.failure(describeFailure(e));
+        }
+    }
+
+    private String describeFailure(RuntimeException e) {
+        if (e instanceof ValidationException
+                || e instanceof EntityNotFoundException
+                || e instanceof ConstraintViolationException
+                || e instanceof LackOfProductException
+                || e instanceof IllegalBalanceException) {
+            return e.getMessage();
+        }
+        if (e instanceof ConcurrencyFailureException
+                || e instanceof PessimisticLockException
+                || e instanceof OptimisticLockException) {
+            return "Data is locked";
+        }
+        log.error(e.getMessage(), e);
+        return "Internal Server Error";
     }
 
-    private Order createNewOrder(Long userId, Long storeId) {
+    private Order createNewOrder(Long userId, Long storeId, Lookups lookups) {
         return new Order(
                 OrderStatus.INITIALIZED,
-                userService.findUserEntityById(userId),
-                storeService.findStore(storeId)
+                lookups.user(userId),
+                lookups.store(storeId)
         );
     }
 
-    private void checkAllProductsBelongToStore(List<ItemDto> items, Long storeId) {
+    private void checkAllProductsBelongToStore(List<ItemDto> items, Map<Long, Product> products, Long storeId) {
         items.forEach(itemDto -> {
-            if (!productService.belongsToStore(itemDto.productId(), storeId)) {
+            if (!storeId.equals(products.get(itemDto.productId()).getStore().getId())) {
                 throw new ValidationException("Product does not belong to store: " + itemDto.productId());
             }
         });
     }
 
-    private void checkUserBelongsToStore(Long userId, Long storeId) {
-        if (!storeService.belongToStore(storeId, userId)) {
+    private void checkUserBelongsToStore(Long userId, Long storeId, Lookups lookups) {
+        if (!lookups.belongsToStore(userId, storeId)) {
             throw new ValidationException("User does not belong to store: " + storeId);
         }
     }
+
+    /**
+     * Caches the users, stores, memberships and products looked up while placing orders in one transaction,
+     * so orders of the same batch chunk do not repeat the same queries.
+     */
+    private final class Lookups {
+
+        private final Map<Long, User> users = new HashMap<>();
+        private final Map<Long, Store> stores = new HashMap<>();
+        private final Set<List<Long>> memberships = new HashSet<>();
+        private final Map<Long, Product> products = new HashMap<>();
+
+        User user(Long userId) {
+            return users.computeIfAbsent(userId, userService::findUserEntityReadOnly);
+        }
+
+        Store store(Long storeId) {
+            return stores.computeIfAbsent(storeId, storeService::findStore);
+        }
+
+        boolean belongsToStore(Long userId, Long storeId) {
+            var membership = List.of(storeId, userId);
+            if (memberships.contains(membership)) {
+                return true;
+            }
+            if (storeService.belongToStore(storeId, userId)) {
+                memberships.add(membership);
+                return true;
+            }
+            return false;
+        }
+
+        Map<Long, Product> products(List<ItemDto> items) {
+            var missing = items.stream()
+                    .map(ItemDto::productId)
+                    .filter(productId -> !products.containsKey(productId))
+                    .distinct()
+                    .toList();
+            if (!missing.isEmpty()) {
+                products.putAll(productService.findProductsByIds(missing));
+            }
+            return products;
+        }
+    }
 }
@@ -0,0 +1,162 @@
+package com.jalian.online_store_order_management.service.impl;
+
+import com.jalian.online_store_order_management.config.PayExecutorConfig;
+import com.jalian.online_store_order_management.dao.PaymentTaskDao;
+import com.jalian.online_store_order_management.domain.PaymentTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The PaymentOutboxPoller class moves the tasks of the payment outbox to the payment executor.
+ * <p>
+ * Every {@code pay.outbox.poll-interval-ms} milliseconds it claims up to {@code pay.outbox.batch-size} pending
+ * {@link PaymentTask}s in one short transaction, locking them with {@code FOR UPDATE SKIP LOCKED} so that several
+ * pollers never claim the same task, and submits each one to the payment executor. It never claims more tasks
+ * than the executor has free workers and queue slots; a task the executor still rejects is released back to
+ * pending. As long as full batches are claimed, the poller keeps claiming without waiting for the next poll.
+ * </p>
+ * <p>
+ * A claim made before the application started belongs to a payment interrupted by the restart. Like the
+ * reservations of {@link InventoryReservations}, the payment tasks belong to the single node that owns them, so all
+ * such claims are released back to pending as soon as the application is ready, however recent they are. Every
+ * {@code pay.outbox.recover-interval-ms} milliseconds afterwards, a claim older than {@code pay.outbox.lease-ms}
+ * milliseconds is taken for a payment that got stuck, and is released as well.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@Component
+public class PaymentOutboxPoller {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentOutboxPoller.class);
+
+    private final PaymentTaskDao paymentTaskDao;
+    private final ASyncPayServiceImpl asyncPayService;
+    private final ThreadPoolTaskExecutor payExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+
+    private int batchSize = 100;
+    private long leaseMillis = 300_000;
+
+    /**
+     * Constructs a PaymentOutboxPoller.
+     *
+     * @param paymentTaskDao      the data access object for the tasks of the payment outbox.
+     * @param asyncPayService     the service running the payment of a claimed task.
+     * @param payExecutor         the executor the claimed tasks are submitted to.
+     * @param transactionTemplate the template running each claim in its own transaction.
+     */
+    public PaymentOutboxPoller(PaymentTaskDao paymentTaskDao,
+                               ASyncPayServiceImpl asyncPayService,
+                               @Qualifier(PayExecutorConfig.PAY_EXECUTOR) ThreadPoolTaskExecutor payExecutor,
+                               TransactionTemplate transactionTemplate) {
+        this.paymentTaskDao = paymentTaskDao;
+        this.asyncPayService = asyncPayService;
+        this.payExecutor = payExecutor;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Value("${pay.outbox.batch-size:100}")
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Value("${pay.outbox.lease-ms:300000}")
+    public void setLeaseMillis(long leaseMillis) {
+        this.leaseMillis = leaseMillis;
+    }
+
+    /**
+     * Claims pending tasks and submits them to the payment executor, as long as it has room for them.
+     */
+    @Scheduled(fixedDelayString = "${pay.outbox.poll-interval-ms:100}")
+    public void poll() {
+        while (true) {
+            var limit = Math.min(batchSize, freeExecutorCapacity());
+            if (limit <= 0) {
+                return;
+            }
+            var tasks = claim(limit);
+            var rejected = false;
+            for (var task : tasks) {
+                rejected |= !submit(task);
+            }
+            if (rejected || tasks.size() < limit) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Releases every claim made before this node started, so the tasks of the payments interrupted by the restart
+     * are claimed again right away instead of once their lease has run out.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverInterruptedTasks() {
+        releaseClaimedBefore(startedAt);
+    }
+
+    /**
+     * Releases the claims that are older than the lease, so their tasks are claimed again.
+     */
+    @Scheduled(initialDelayString = "${pay.outbox.recover-interval-ms:60000}",
+            fixedDelayString = "${pay.outbox.recover-interval-ms:60000}")
+    public void recoverStaleTasks() {
+        releaseClaimedBefore(LocalDateTime.now().minusNanos(leaseMillis * 1_000_000));
+    }
+
+    private void releaseClaimedBefore(LocalDateTime claimedBefore) {
+        Integer released = transactionTemplate.execute(status -> paymentTaskDao.releaseClaimedBefore(claimedBefore));
+        if (released != null && released > 0) {
+            log.warn("Released {} payment tasks claimed before {}", released, claimedBefore);
+        }
+    }
+
+    private List<ClaimedTask> claim(int limit) {
+        return transactionTemplate.execute(status -> {
+            var ids = paymentTaskDao.lockPendingIds(limit);
+            if (ids.isEmpty()) {
+                return List.of();
+            }
+            var now = LocalDateTime.now();
+            return paymentTaskDao.findAllByIds(ids).stream()
+                    .map(task -> {
+                        task.claim(now);
+                        return new ClaimedTask(task.getId(), task.getOrder().getId());
+                    })
+                    .toList();
+        });
+    }
+
+    private boolean submit(ClaimedTask task) {
+        try {
+            payExecutor.execute(() -> asyncPayService.processTask(task.taskId(), task.orderId()));
+            return true;
+        } catch (TaskRejectedException e) {
+            log.debug("Payment executor is saturated, releasing payment task {}", task.taskId());
+            transactionTemplate.executeWithoutResult(status -> paymentTaskDao.release(task.taskId()));
+            return false;
+        }
+    }
+
+    private int freeExecutorCapacity() {
+        return payExecutor.getQueueCapacity() - payExecutor.getQueueSize()
+                + payExecutor.getMaxPoolSize() - payExecutor.getActiveCount();
+    }
+
+    private record ClaimedTask(Long taskId, Long orderId) {
+    }
+}
@@ -0,0 +1,75 @@
+package com.jalian.online_store_order_management.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalian.online_store_order_management.dto.ProductDto;
+import com.jalian.online_store_order_management.service.ProductService;
+import com.jalian.online_store_order_management.web.Feed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The ProductImportRunner class imports a product catalog file when the application starts.
+ * <p>
+ * It is the command-line counterpart of {@code POST /products/import}, enabled by the
+ * {@code product.import.file} property:
+ * </p>
+ * <pre>
+ * java -jar online-store-order-management.jar --product.import.file=catalog.csv
+ * </pre>
+ * <p>
+ * A file whose name ends with {@code .csv} is read as CSV, any other file as a JSON array or newline-delimited
+ * JSON. The file is streamed through {@link ProductService#importProducts}, which logs the progress after every
+ * chunk, and the application keeps running afterwards.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@Component
+@ConditionalOnProperty("product.import.file")
+public class ProductImportRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImportRunner.class);
+
+    private final ProductService productService;
+    private final ObjectMapper objectMapper;
+    private final Path file;
+
+    /**
+     * Constructs a ProductImportRunner.
+     *
+     * @param productService the service the products are imported with.
+     * @param objectMapper   the mapper JSON files are read with.
+     * @param file           the path of the catalog file to import.
+     */
+    public ProductImportRunner(ProductService productService,
+                               ObjectMapper objectMapper,
+                               @Value("${product.import.file}") Path file) {
+        this.productService = productService;
+        this.objectMapper = objectMapper;
+        this.file = file;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        log.info("Importing products from {}", file);
+        try (var in = Files.newInputStream(file);
+             var rows = file.getFileName().toString().endsWith(".csv")
+                     ? Feed.productCsv(in)
+                     : Feed.json(objectMapper, ProductDto.class, in)) {
+            var result = productService.importProducts(rows);
+            log.info("Imported {} of {} products from {}, {} failed",
+                    result.imported(), result.rows(), file, result.failed());
+            result.failures().forEach(failure ->
+                    log.warn("Row {} ({}) not imported: {}", failure.row(), failure.name(), failure.error()));
+        }
+    }
+}
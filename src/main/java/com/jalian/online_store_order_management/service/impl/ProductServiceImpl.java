@@ -2,31 +2,106 @@ package com.jalian.online_store_order_management.service.impl;
 
 import com.jalian.online_store_order_management.annotation.NotNull;
 import com.jalian.online_store_order_management.annotation.Valid;
+import com.jalian.online_store_order_management.config.CatalogCache;
+import com.jalian.online_store_order_management.config.CatalogCacheConfig;
 import com.jalian.online_store_order_management.constant.ProductOperationStrategy;
 import com.jalian.online_store_order_management.dao.ProductDao;
 import com.jalian.online_store_order_management.domain.Product;
+import com.jalian.online_store_order_management.domain.Store;
+import com.jalian.online_store_order_management.dto.BulkChargeFailureDto;
+import com.jalian.online_store_order_management.dto.BulkChargeResultDto;
+import com.jalian.online_store_order_management.dto.HotProductDto;
 import com.jalian.online_store_order_management.dto.ProductDto;
 import com.jalian.online_store_order_management.dto.ProductFetchDto;
+import com.jalian.online_store_order_management.dto.ProductImportFailureDto;
+import com.jalian.online_store_order_management.dto.ProductImportResultDto;
 import com.jalian.online_store_order_management.dto.ProductOperationDto;
 import com.jalian.online_store_order_management.exception.EntityNotFoundException;
+import com.jalian.online_store_order_management.exception.LackOfProductException;
 import com.jalian.online_store_order_management.exception.ValidationException;
 import com.jalian.online_store_order_management.factory.ProductInventoryOperatorFactory;
 import com.jalian.online_store_order_management.service.ProductService;
 import com.jalian.online_store_order_management.service.StoreService;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
 
 @Service
 public class ProductServiceImpl implements ProductService {
 
+    private static final Logger log = LoggerFactory.getLogger(ProductServiceImpl.class);
+
     private final ProductDao productDao;
 
     private final StoreService storeService;
 
-    public ProductServiceImpl(StoreService storeService, ProductDao productDao) {
+    private final CatalogCache<Long, ProductFetchDto> productCache;
+
+    private final HotProductInventory hotInventory;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private ProductOperationStrategy dischargeStrategy = ProductOperationStrategy.CONDITIONAL_MINUS;
+
+    private int importChunkSize = 1000;
+
+    private int importMaxFailures = 1000;
+
+    private int bulkChunkSize = 1000;
+
+    private int bulkMaxFailures = 1000;
+
+    public ProductServiceImpl(StoreService storeService, ProductDao productDao,
+                              @Qualifier(CatalogCacheConfig.PRODUCT_CACHE) CatalogCache<Long, ProductFetchDto> productCache,
+                              HotProductInventory hotInventory,
+                              TransactionTemplate transactionTemplate) {
         this.storeService = storeService;
         this.productDao = productDao;
+        this.productCache = productCache;
+        this.hotInventory = hotInventory;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Value("${product.inventory.discharge-strategy:CONDITIONAL_MINUS}")
+    public void setDischargeStrategy(ProductOperationStrategy dischargeStrategy) {
+        this.dischargeStrategy = dischargeStrategy;
+    }
+
+    @Value("${product.import.chunk-size:1000}")
+    public void setImportChunkSize(int importChunkSize) {
+        this.importChunkSize = importChunkSize;
+    }
+
+    @Value("${product.import.max-failures:1000}")
+    public void setImportMaxFailures(int importMaxFailures) {
+        this.importMaxFailures = importMaxFailures;
+    }
+
+    @Value("${product.charge.bulk-chunk-size:1000}")
+    public void setBulkChunkSize(int bulkChunkSize) {
+        this.bulkChunkSize = bulkChunkSize;
+    }
+
+    @Value("${product.charge.bulk-max-failures:1000}")
+    public void setBulkMaxFailures(int bulkMaxFailures) {
+        this.bulkMaxFailures = bulkMaxFailures;
     }
 
     @Override
@@ -48,52 +123,292 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
-    @Transactional(readOnly = true)
     @Valid
     public ProductFetchDto getProductById(@NotNull Long productId) {
-        var product = findEntityById(productId);
-        return ProductFetchDto.of(product);
+        var product = productCache.get(productId, id -> productDao.findFetchDtoById(id).orElse(null));
+        if (product == null) {
+            throw productNotFound(productId);
+        }
+        var hot = hotInventory.available(productId);
+        return hot.isPresent() ? product.withInventory(hot.getAsLong()) : product;
     }
 
-    private Product findEntityById(Long productId) {
-        var product = productDao.findByIdSafe(productId);
-        if (product.isEmpty()) {
-            throw new EntityNotFoundException("Product with id " + productId + " does not exist");
-        }
-        return product.get();
+    private Product lockEntityById(Long productId) {
+        return productDao.findByIdSafe(productId)
+                .orElseThrow(() -> productNotFound(productId));
+    }
+
+    private EntityNotFoundException productNotFound(Long productId) {
+        return new EntityNotFoundException("Product with id " + productId + " does not exist");
     }
 
     @Transactional(readOnly = true)
     public Product findProductById(@NotNull Long productId) {
-        return findEntityById(productId);
+        return lockEntityById(productId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, Product> findProductsByIds(Collection<Long> productIds) {
+        var products = new HashMap<Long, Product>();
+        if (productIds.isEmpty()) {
+            return products;
+        }
+        for (var product : productDao.findAllById(productIds)) {
+            products.put(product.getId(), product);
+        }
+        for (var productId : productIds) {
+            if (!products.containsKey(productId)) {
+                throw productNotFound(productId);
+            }
+        }
+        return products;
     }
 
     private ProductFetchDto doOperation(@NotNull ProductOperationDto dto, ProductOperationStrategy strategy) {
-        var product = findEntityById(dto.productId());
-        var operator = ProductInventoryOperatorFactory.getInstance(strategy);
-        product = operator.doOperation(product, dto.amount());
+        if (strategy == ProductOperationStrategy.CONDITIONAL_MINUS) {
+            return dischargeConditionally(dto.productId(), dto.amount());
+        }
+        var product = lockEntityById(dto.productId());
+        product = ProductInventoryOperatorFactory.getInstance(strategy).doOperation(product, dto.amount());
         product = productDao.save(product);
         return ProductFetchDto.of(product);
     }
 
+    private ProductFetchDto dischargeConditionally(Long productId, long amount) {
+        if (productDao.dischargeInventory(productId, amount) == 0) {
+            if (!productDao.existsById(productId)) {
+                throw productNotFound(productId);
+            }
+            throw new LackOfProductException();
+        }
+        return productDao.findFetchDtoById(productId)
+                .orElseThrow(() -> productNotFound(productId));
+    }
+
     @Override
     @Transactional(propagation = Propagation.MANDATORY)
     @Valid
     public ProductFetchDto dischargeProduct(@NotNull ProductOperationDto dto) {
-        return doOperation(dto, ProductOperationStrategy.MINUS);
+        var product = doOperation(dto, dischargeStrategy);
+        productCache.invalidateAfterCommit(dto.productId());
+        return product;
     }
 
     @Override
     @Transactional
     public ProductFetchDto chargeProduct(ProductOperationDto dto) {
-        return doOperation(dto, ProductOperationStrategy.PLUS);
+        var product = doOperation(dto, ProductOperationStrategy.PLUS);
+        productCache.invalidateAfterCommit(dto.productId());
+        return product;
+    }
+
+    @Override
+    public ProductImportResultDto importProducts(Iterator<ProductDto> products) {
+        var summary = new BulkSummary<>(importMaxFailures, ProductImportFailureDto::row);
+        var chunk = new ArrayList<BulkRow<ProductDto>>(importChunkSize);
+        try {
+            while (products.hasNext()) {
+                var row = new BulkRow<>(summary.rows + 1, products.next());
+                summary.rows++;
+                var error = validateImport(row.value());
+                if (error != null) {
+                    summary.fail(new ProductImportFailureDto(row.row(), row.value().name(), error));
+                } else {
+                    chunk.add(row);
+                }
+                if (chunk.size() == importChunkSize) {
+                    importChunk(chunk, summary);
+                    chunk.clear();
+                }
+            }
+        } catch (ValidationException e) {
+            importChunk(chunk, summary);
+            summary.fail(new ProductImportFailureDto(summary.rows + 1, null, e.getMessage()));
+            return importResult(summary);
+        }
+        importChunk(chunk, summary);
+        return importResult(summary);
+    }
+
+    private static ProductImportResultDto importResult(BulkSummary<ProductImportFailureDto> summary) {
+        return new ProductImportResultDto(summary.rows, summary.succeeded, summary.failed, summary.failures());
+    }
+
+    private String validateImport(ProductDto productDto) {
+        if (productDto.name() == null || productDto.name().isEmpty()) {
+            return "Product name cannot be empty";
+        }
+        if (productDto.price() < 0) {
+            return "Product price cannot be a negative number";
+        }
+        return null;
+    }
+
+    /**
+     * Returns a reference to a store, or {@code null} if it does not exist. The existence is checked first, so that
+     * a missing store does not mark the transaction of the chunk as rollback-only.
+     */
+    private Store findStoreOrNull(Long storeId) {
+        return storeService.existStore(storeId) ? storeService.findStore(storeId) : null;
+    }
+
+    private void importChunk(List<BulkRow<ProductDto>> chunk, BulkSummary<ProductImportFailureDto> summary) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        var rows = new ArrayList<BulkRow<ProductDto>>(chunk.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                var stores = new HashMap<Long, Store>();
+                var products = new ArrayList<Product>(chunk.size());
+                for (var row : chunk) {
+                    var dto = row.value();
+                    if (!stores.containsKey(dto.storeId())) {
+                        stores.put(dto.storeId(), findStoreOrNull(dto.storeId()));
+                    }
+                    var store = stores.get(dto.storeId());
+                    if (store != null) {
+                        rows.add(row);
+                        products.add(new Product(store, dto.price(), dto.description(), dto.name()));
+                    } else {
+                        summary.fail(new ProductImportFailureDto(row.row(), dto.name(), "Store does not exist"));
+                    }
+                }
+                if (!products.isEmpty()) {
+                    productDao.saveAll(products);
+                }
+            });
+            summary.succeeded += rows.size();
+        } catch (RuntimeException e) {
+            var error = describeChunkFailure(e);
+            rows.forEach(row -> summary.fail(new ProductImportFailureDto(row.row(), row.value().name(), error)));
+        }
+        log.info("Product import: {} rows read, {} imported, {} failed",
+                summary.rows, summary.succeeded, summary.failed);
+    }
+
+    @Override
+    public BulkChargeResultDto chargeProducts(Iterator<ProductOperationDto> operations) {
+        var summary = new BulkSummary<>(bulkMaxFailures, BulkChargeFailureDto::row);
+        var chunk = new ArrayList<BulkRow<ProductOperationDto>>(bulkChunkSize);
+        try {
+            while (operations.hasNext()) {
+                var row = new BulkRow<>(summary.rows + 1, operations.next());
+                summary.rows++;
+                if (row.value().productId() == null) {
+                    failCharge(summary, row, "Product id cannot be empty");
+                } else if (row.value().amount() <= 0) {
+                    failCharge(summary, row, "Charge amount must be a positive number");
+                } else {
+                    chunk.add(row);
+                }
+                if (chunk.size() == bulkChunkSize) {
+                    chargeChunk(chunk, summary);
+                    chunk.clear();
+                }
+            }
+        } catch (ValidationException e) {
+            chargeChunk(chunk, summary);
+            summary.fail(new BulkChargeFailureDto(summary.rows + 1, null, e.getMessage()));
+            return chargeResult(summary);
+        }
+        chargeChunk(chunk, summary);
+        return chargeResult(summary);
+    }
+
+    private void chargeChunk(List<BulkRow<ProductOperationDto>> chunk, BulkSummary<BulkChargeFailureDto> summary) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        chunk.sort(Comparator.comparing(row -> row.value().productId()));
+        var operations = chunk.stream().map(BulkRow::value).toList();
+        try {
+            var counts = transactionTemplate.execute(status -> {
+                var updated = productDao.addInventories(operations);
+                operations.forEach(operation -> productCache.invalidateAfterCommit(operation.productId()));
+                return updated;
+            });
+            for (int i = 0; i < chunk.size(); i++) {
+                if (counts[i] == 0) {
+                    failCharge(summary, chunk.get(i), "Product with id " + operations.get(i).productId()
+                            + " does not exist");
+                } else {
+                    summary.succeeded++;
+                }
+            }
+        } catch (RuntimeException e) {
+            var error = describeChunkFailure(e);
+            chunk.forEach(row -> failCharge(summary, row, error));
+        }
+    }
+
+    private static BulkChargeResultDto chargeResult(BulkSummary<BulkChargeFailureDto> summary) {
+        return new BulkChargeResultDto(summary.rows, summary.succeeded, summary.failed, summary.failures());
+    }
+
+    private static void failCharge(BulkSummary<BulkChargeFailureDto> summary, BulkRow<ProductOperationDto> row,
+                                   String error) {
+        summary.fail(new BulkChargeFailureDto(row.row(), row.value().productId(), error));
+    }
+
+    private String describeChunkFailure(RuntimeException e) {
+        if (e instanceof ConcurrencyFailureException
+                || e instanceof PessimisticLockException
+                || e instanceof OptimisticLockException) {
+            return "Data is locked";
+        }
+        log.error(e.getMessage(), e);
+        return "Internal Server Error";
+    }
+
+    @Override
+    @Transactional
+    @Valid
+    public void setHot(@NotNull HotProductDto dto) {
+        if (productDao.updateHot(dto.productId(), dto.hot()) == 0) {
+            throw productNotFound(dto.productId());
+        }
+        hotInventory.setHotAfterCommit(dto.productId(), dto.hot());
+        productCache.invalidateAfterCommit(dto.productId());
     }
 
     @Override
     @Transactional(readOnly = true)
     public boolean belongsToStore(Long productId, Long storeId) {
-        var product = findEntityById(productId);
+        var productStoreId = productDao.findStoreIdById(productId)
+                .orElseThrow(() -> productNotFound(productId));
         var store = storeService.findStore(storeId);
-        return product.getStore().equals(store);
+        return productStoreId.equals(store.getId());
+    }
+
+    private record BulkRow<T>(long row, T value) {
+    }
+
+    private static final class BulkSummary<F> {
+
+        private final int maxFailures;
+        private final ToLongFunction<F> rowOf;
+        private final List<F> failures = new ArrayList<>();
+        private long rows;
+        private long succeeded;
+        private long failed;
+
+        BulkSummary(int maxFailures, ToLongFunction<F> rowOf) {
+            this.maxFailures = maxFailures;
+            this.rowOf = rowOf;
+        }
+
+        void fail(F failure) {
+            failed++;
+            if (failures.size() < maxFailures) {
+                failures.add(failure);
+            }
+        }
+
+        List<F> failures() {
+            failures.sort(Comparator.comparingLong(rowOf));
+            return failures;
+        }
     }
 }
@@ -4,8 +4,6 @@ import com.jalian.online_store_order_management.constant.OrderStatus;
 import com.jalian.online_store_order_management.dao.OrderDao;
 import com.jalian.online_store_order_management.domain.Item;
 import com.jalian.online_store_order_management.domain.Order;
-import com.jalian.online_store_order_management.dto.ProductOperationDto;
-import com.jalian.online_store_order_management.service.ProductService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -20,12 +18,13 @@ public class RecoveryPay {
     private static final Logger log = LoggerFactory.getLogger(RecoveryPay.class);
 
     @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void recoverPayment(Order order, List<Item> items, OrderDao orderDao, ProductService productService) {
-        order.setOrderStatus(OrderStatus.FAILED);
-        orderDao.save(order);
-        items.forEach(item -> productService.chargeProduct(
-                new ProductOperationDto(item.getProduct().getId(), item.getCount())
-        ));
+    public boolean recoverPayment(Order order, List<Item> items, OrderDao orderDao, InventoryReservations reservations) {
+        if (orderDao.changeStatus(order.getId(), OrderStatus.AWAITING_PAYMENT, OrderStatus.FAILED) == 0) {
+            log.info("Order {} is no longer awaiting payment, nothing to recover", order.getId());
+            return false;
+        }
+        reservations.release(items);
         log.warn("Recovery logic executed for order {}", order.getId());
+        return true;
     }
 }
@@ -0,0 +1,140 @@
+package com.jalian.online_store_order_management.service.impl;
+
+import com.jalian.online_store_order_management.config.OrderMetrics;
+import com.jalian.online_store_order_management.constant.OrderStatus;
+import com.jalian.online_store_order_management.dao.ItemDao;
+import com.jalian.online_store_order_management.dao.OrderDao;
+import com.jalian.online_store_order_management.dao.PaymentTaskDao;
+import com.jalian.online_store_order_management.domain.PaymentTask;
+import com.jalian.online_store_order_management.event.OrderCompletedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The ReservationSweeper class cancels the orders whose payment did not start in time and releases their
+ * inventory reservations.
+ * <p>
+ * Every {@code inventory.reservation.sweep-interval-ms} milliseconds it locks up to
+ * {@code inventory.reservation.sweep-batch-size} {@link PaymentTask}s that have been pending for longer than
+ * {@code inventory.reservation.ttl-ms} milliseconds, skipping the tasks locked by the {@link PaymentOutboxPoller}.
+ * In the same transaction it sets their orders to {@link OrderStatus#CANCELLED} and deletes the tasks, and the
+ * reservations of the orders are released in {@link InventoryReservations} once it has committed. As long as
+ * full batches are locked, the sweeper keeps sweeping without waiting for the next interval.
+ * </p>
+ * <p>
+ * A claimed task is never swept: its payment is running, and it ends by committing or releasing the reservation.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@Component
+public class ReservationSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationSweeper.class);
+
+    private final PaymentTaskDao paymentTaskDao;
+    private final OrderDao orderDao;
+    private final ItemDao itemDao;
+    private final InventoryReservations reservations;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderMetrics orderMetrics;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private int batchSize = 100;
+    private long ttlMillis = 900_000;
+
+    /**
+     * Constructs a ReservationSweeper.
+     *
+     * @param paymentTaskDao      the data access object for the tasks of the payment outbox.
+     * @param orderDao            the data access object used to cancel the expired orders.
+     * @param itemDao             the data access object used to read the reserved quantities of the orders.
+     * @param reservations        the ledger the reservations are released from.
+     * @param transactionTemplate the template running each batch in its own transaction.
+     * @param orderMetrics        the metrics the cancelled orders are counted in.
+     * @param eventPublisher      the publisher of the {@link OrderCompletedEvent} of every cancelled order.
+     */
+    public ReservationSweeper(PaymentTaskDao paymentTaskDao,
+                              OrderDao orderDao,
+                              ItemDao itemDao,
+                              InventoryReservations reservations,
+                              TransactionTemplate transactionTemplate,
+                              OrderMetrics orderMetrics,
+                              ApplicationEventPublisher eventPublisher) {
+        this.paymentTaskDao = paymentTaskDao;
+        this.orderDao = orderDao;
+        this.itemDao = itemDao;
+        this.reservations = reservations;
+        this.transactionTemplate = transactionTemplate;
+        this.orderMetrics = orderMetrics;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Value("${inventory.reservation.sweep-batch-size:100}")
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Value("${inventory.reservation.ttl-ms:900000}")
+    public void setTtlMillis(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Cancels the orders whose payment task has been pending for longer than the reservation TTL.
+     */
+    @Scheduled(initialDelayString = "${inventory.reservation.sweep-interval-ms:30000}",
+            fixedDelayString = "${inventory.reservation.sweep-interval-ms:30000}")
+    public void sweep() {
+        var createdBefore = LocalDateTime.now().minusNanos(ttlMillis * 1_000_000);
+        while (true) {
+            var batch = transactionTemplate.execute(status -> sweepBatch(createdBefore));
+            if (batch == null) {
+                return;
+            }
+            batch.cancelledOrderIds().forEach(orderId -> {
+                orderMetrics.orderCompleted(OrderStatus.CANCELLED);
+                eventPublisher.publishEvent(new OrderCompletedEvent(orderId, OrderStatus.CANCELLED));
+            });
+            if (!batch.cancelledOrderIds().isEmpty()) {
+                log.warn("Cancelled {} orders whose payment did not start before {}",
+                        batch.cancelledOrderIds().size(), createdBefore);
+            }
+            if (batch.tasks() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    private Batch sweepBatch(LocalDateTime createdBefore) {
+        var taskIds = paymentTaskDao.lockExpiredPendingIds(createdBefore, batchSize);
+        if (taskIds.isEmpty()) {
+            return new Batch(0, List.of());
+        }
+        var orderIds = paymentTaskDao.findAllByIds(taskIds).stream()
+                .map(task -> task.getOrder().getId())
+                .toList();
+        var cancelled = orderDao.findAwaitingPaymentIds(orderIds);
+        if (!cancelled.isEmpty()) {
+            orderDao.cancelAwaitingPayment(cancelled);
+            var quantities = new HashMap<Long, Long>();
+            itemDao.findQuantitiesByOrderIds(cancelled)
+                    .forEach(item -> quantities.merge(item.productId(), item.count(), Long::sum));
+            reservations.release(quantities);
+        }
+        paymentTaskDao.deleteTasks(taskIds);
+        return new Batch(taskIds.size(), cancelled);
+    }
+
+    private record Batch(int tasks, List<Long> cancelledOrderIds) {
+    }
+}
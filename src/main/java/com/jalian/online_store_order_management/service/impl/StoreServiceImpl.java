@@ -2,6 +2,8 @@ package com.jalian.online_store_order_management.service.impl;
 
 import com.jalian.online_store_order_management.annotation.NotNull;
 import com.jalian.online_store_order_management.annotation.Valid;
+import com.jalian.online_store_order_management.config.CatalogCache;
+import com.jalian.online_store_order_management.config.CatalogCacheConfig;
 import com.jalian.online_store_order_management.dao.StoreDao;
 import com.jalian.online_store_order_management.dao.UserDao;
 import com.jalian.online_store_order_management.domain.Store;
@@ -12,20 +14,37 @@ import com.jalian.online_store_order_management.exception.ConstraintViolationExc
 import com.jalian.online_store_order_management.exception.EntityNotFoundException;
 import com.jalian.online_store_order_management.service.StoreService;
 import com.jalian.online_store_order_management.service.UserService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class StoreServiceImpl implements StoreService {
 
     private final StoreDao storeDao;
     private final UserService userService;
+    private final CatalogCache<Long, Long> storeCache;
+    private final Set<Membership> knownMemberships = ConcurrentHashMap.newKeySet();
 
-    public StoreServiceImpl(StoreDao storeDao, UserService userService) {
+    private int membershipCacheMaxSize = 100_000;
+
+    public StoreServiceImpl(StoreDao storeDao, UserService userService,
+                            @Qualifier(CatalogCacheConfig.STORE_CACHE) CatalogCache<Long, Long> storeCache) {
         this.storeDao = storeDao;
         this.userService = userService;
+        this.storeCache = storeCache;
+    }
+
+    @Value("${store.membership-cache.max-size:100000}")
+    public void setMembershipCacheMaxSize(int membershipCacheMaxSize) {
+        this.membershipCacheMaxSize = membershipCacheMaxSize;
     }
 
     @Override
@@ -42,44 +61,86 @@ public class StoreServiceImpl implements StoreService {
     @Transactional(readOnly = true)
     @Valid
     public boolean existStore(@NotNull Long storeId) {
-        return storeDao.findByIdSafe(storeId).isPresent();
+        return knownStoreId(storeId) != null;
     }
 
     @Override
     @Transactional(readOnly = true)
     @Valid
     public Store findStore(@NotNull Long storeId) {
-        return findStoreInternal(storeId);
+        if (knownStoreId(storeId) == null) {
+            throw storeNotFound(storeId);
+        }
+        return storeDao.getReferenceById(storeId);
     }
 
-    private Store findStoreInternal(Long storeId) {
-        var store = storeDao.findByIdSafe(storeId);
-        if (store.isEmpty()) {
-            throw new EntityNotFoundException(Store.class.getSimpleName(), "id", storeId.toString());
-        }
-        return store.get();
+    /**
+     * Returns the id of a store if it exists. Only the ids of existing stores are cached, never the entities, so
+     * every caller gets a reference bound to its own persistence context.
+     */
+    private Long knownStoreId(Long storeId) {
+        return storeCache.get(storeId, id -> storeDao.existsById(id) ? id : null);
+    }
+
+    private EntityNotFoundException storeNotFound(Long storeId) {
+        return new EntityNotFoundException(Store.class.getSimpleName(), "id", storeId.toString());
     }
 
     @Override
     @Transactional(readOnly = true)
     public boolean belongToStore(Long storeId, Long userId) {
-        var store = findStoreInternal(storeId);
-        if (store.getUsers() == null || store.getUsers().isEmpty()) {
-            return false;
+        var membership = new Membership(storeId, userId);
+        if (knownMemberships.contains(membership)) {
+            return true;
+        }
+        if (storeDao.existsMember(storeId, userId)) {
+            remember(membership);
+            return true;
+        }
+        if (knownStoreId(storeId) == null) {
+            throw storeNotFound(storeId);
         }
-        var user = userService.findUserEntityById(userId);
-        return store.getUsers().contains(user);
+        return false;
     }
 
     @Override
     @Transactional
     public List<UserFetchDto> addUserToStore(AddUserToStoreDto addUserToStoreDto) {
-        var store = findStoreInternal(addUserToStoreDto.storeId());
+        var store = storeDao.findByIdSafe(addUserToStoreDto.storeId())
+                .orElseThrow(() -> storeNotFound(addUserToStoreDto.storeId()));
         var user = userService.findUserEntityById(addUserToStoreDto.userId());
-        var storeUsers = store.getUsers();
-        storeUsers.add(user);
-        store.setUsers(storeUsers);
-        storeDao.save(store);
+        if (!storeDao.existsMember(addUserToStoreDto.storeId(), addUserToStoreDto.userId())) {
+            store.getUsers().add(user);
+            storeDao.save(store);
+        }
+        rememberAfterCommit(new Membership(addUserToStoreDto.storeId(), addUserToStoreDto.userId()));
         return UserFetchDto.of(store.getUsers());
     }
+
+    private void rememberAfterCommit(Membership membership) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            remember(membership);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remember(membership);
+            }
+        });
+    }
+
+    /**
+     * Caches a membership known to exist. Memberships are never removed by the application, so cached entries
+     * cannot become stale; the cache is simply dropped when it grows past its maximum size.
+     */
+    private void remember(Membership membership) {
+        if (knownMemberships.size() >= membershipCacheMaxSize) {
+            knownMemberships.clear();
+        }
+        knownMemberships.add(membership);
+    }
+
+    private record Membership(Long storeId, Long userId) {
+    }
 }
@@ -1,15 +1,20 @@
 package com.jalian.online_store_order_management.service.impl;
 
+import com.jalian.online_store_order_management.config.OrderMetrics;
 import com.jalian.online_store_order_management.constant.OrderStatus;
 import com.jalian.online_store_order_management.domain.Item;
 import com.jalian.online_store_order_management.domain.Order;
 import com.jalian.online_store_order_management.domain.User;
+import com.jalian.online_store_order_management.event.OrderCompletedEvent;
 import com.jalian.online_store_order_management.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 
@@ -17,10 +22,16 @@ import java.util.List;
  * The SyncPayServiceImpl class provides a synchronous implementation of the payment service.
  * <p>
  * It extends {@link AbstractPayService} to leverage common payment functionality and processes payments
- * within a mandatory transaction. Upon successful payment, the order status is updated to {@link OrderStatus#FINISHED}.
+ * within a mandatory transaction. The inventory reserved by the order is committed first, then the user is debited.
+ * Upon successful payment, the order status is updated to {@link OrderStatus#FINISHED}.
  * In case of any exceptions during the payment process, the order status is set to {@link OrderStatus#FAILED},
  * and the exception is propagated.
  * </p>
+ * <p>
+ * Final statuses are counted through {@link OrderMetrics}; a finished order is only counted, and its
+ * {@link OrderCompletedEvent} published, once the surrounding transaction commits, so orders rolled back after
+ * their payment are not reported as finished.
+ * </p>
  *
  * @author amirhosein jalian
  */
@@ -29,20 +40,34 @@ public non-sealed class SyncPayServiceImpl extends AbstractPayService {
 
     private static final Logger log = LoggerFactory.getLogger(SyncPayServiceImpl.class);
 
+    private final InventoryReservations reservations;
+    private final OrderMetrics orderMetrics;
+    private final ApplicationEventPublisher eventPublisher;
+
     /**
      * Constructs a new SyncPayServiceImpl with the specified {@link UserService}.
      *
-     * @param userService the service used for user operations and balance updates.
+     * @param userService    the service used for user operations and balance updates.
+     * @param reservations   the ledger whose reservations are committed by the payment.
+     * @param orderMetrics   the metrics the final order statuses are counted in.
+     * @param eventPublisher the publisher of the {@link OrderCompletedEvent} of every committed payment.
      */
-    public SyncPayServiceImpl(UserService userService) {
+    public SyncPayServiceImpl(UserService userService,
+                              InventoryReservations reservations,
+                              OrderMetrics orderMetrics,
+                              ApplicationEventPublisher eventPublisher) {
         super(userService);
+        this.reservations = reservations;
+        this.orderMetrics = orderMetrics;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
      * Processes the payment synchronously for a given order.
      * <p>
      * The payment is executed within a transaction marked with {@link Propagation#MANDATORY}. This method logs
-     * the payment process, invokes the common payment operation defined in the superclass, and updates the order status
+     * the payment process, commits the inventory reserved by the items, invokes the common payment operation defined
+     * in the superclass, and updates the order status
      * accordingly. If an exception occurs during the payment, the order status is set to {@link OrderStatus#FAILED},
      * the exception is logged, and rethrown.
      * </p>
@@ -57,13 +82,34 @@ public non-sealed class SyncPayServiceImpl extends AbstractPayService {
     public void pay(User user, Order order, List<Item> items) {
         try {
             log.info("Paying user {} with order {} and items {}", user, order, items);
+            reservations.commit(items);
             super.pay(user, order, items);
             order.setOrderStatus(OrderStatus.FINISHED);
+            completeOnCommit(order);
             log.info("Payment done");
         } catch (Exception e) {
             order.setOrderStatus(OrderStatus.FAILED);
+            orderMetrics.orderCompleted(OrderStatus.FAILED);
             log.error(e.getMessage(), e);
             throw e;
         }
     }
+
+    private void completeOnCommit(Order order) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            complete(order);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                complete(order);
+            }
+        });
+    }
+
+    private void complete(Order order) {
+        orderMetrics.orderCompleted(OrderStatus.FINISHED);
+        eventPublisher.publishEvent(new OrderCompletedEvent(order.getId(), OrderStatus.FINISHED));
+    }
 }
@@ -1,7 +1,6 @@
 package com.jalian.online_store_order_management.service.impl;
 
 import com.jalian.online_store_order_management.annotation.*;
-import com.jalian.online_store_order_management.constant.BalanceOperation;
 import com.jalian.online_store_order_management.dao.UserDao;
 import com.jalian.online_store_order_management.domain.User;
 import com.jalian.online_store_order_management.dto.UpdateBalanceDto;
@@ -11,9 +10,13 @@ import com.jalian.online_store_order_management.exception.DuplicateUsername;
 import com.jalian.online_store_order_management.exception.EntityNotFoundException;
 import com.jalian.online_store_order_management.exception.IllegalBalanceException;
 import com.jalian.online_store_order_management.service.UserService;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Service
 public class UserServiceImpl implements UserService {
 
@@ -62,23 +65,61 @@ public class UserServiceImpl implements UserService {
         return findByIdInternal(id);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public User findUserEntityReadOnly(Long id) throws EntityNotFoundException {
+        return userDao.findByIdReadOnly(id)
+                .orElseThrow(() -> new EntityNotFoundException(User.class.getSimpleName(), "id", id.toString()));
+    }
+
     @Override
     @Transactional
     public UserFetchDto updateBalance(UpdateBalanceDto updateBalanceDto) {
-        var optionalUser = userDao.findUserByIdForUpdate(updateBalanceDto.userId());
-        if (optionalUser.isEmpty()) {
-            throw new EntityNotFoundException(User.class.getSimpleName(), "id", updateBalanceDto.userId().toString());
+        var userId = updateBalanceDto.userId();
+        switch (updateBalanceDto.operation()) {
+            case PLUS -> creditBalance(userId, updateBalanceDto.amount());
+            case MINUS -> debitBalance(userId, updateBalanceDto.amount());
         }
-        var user = optionalUser.get();
-        if (updateBalanceDto.operation() == BalanceOperation.MINUS) {
-            if (user.getBalance() - updateBalanceDto.amount() < 0.0) {
-                throw new IllegalBalanceException();
+        return userDao.findFetchDtoById(userId)
+                .orElseThrow(() -> new EntityNotFoundException(User.class.getSimpleName(), "id", userId.toString()));
+    }
+
+    @Override
+    @Transactional
+    public void debitBalance(Long userId, long amount) {
+        if (userDao.debitBalance(userId, amount) == 0) {
+            if (!userDao.existsById(userId)) {
+                throw new EntityNotFoundException(User.class.getSimpleName(), "id", userId.toString());
             }
+            throw new IllegalBalanceException();
         }
-        switch (updateBalanceDto.operation()) {
-            case PLUS -> user.setBalance(user.getBalance() + updateBalanceDto.amount());
-            case MINUS -> user.setBalance(user.getBalance() - updateBalanceDto.amount());
+    }
+
+    @Override
+    @Transactional
+    public void creditBalance(Long userId, long amount) {
+        if (userDao.creditBalance(userId, amount) == 0) {
+            throw new EntityNotFoundException(User.class.getSimpleName(), "id", userId.toString());
+        }
+    }
+
+    @Override
+    @Transactional
+    public List<Boolean> debitAll(Long userId, List<Long> amounts) {
+        var balance = userDao.findBalanceById(userId)
+                .orElseThrow(() -> new EntityNotFoundException(User.class.getSimpleName(), "id", userId.toString()));
+        var debited = new ArrayList<Boolean>(amounts.size());
+        var sum = 0L;
+        for (var amount : amounts) {
+            var allowed = balance - sum >= amount;
+            if (allowed) {
+                sum += amount;
+            }
+            debited.add(allowed);
+        }
+        if (sum > 0 && userDao.debitBalance(userId, sum) == 0) {
+            throw new ConcurrencyFailureException("Balance of user " + userId + " changed while it was debited");
         }
-        return UserFetchDto.of(userDao.save(user));
+        return debited;
     }
 }
@@ -0,0 +1,218 @@
+package com.jalian.online_store_order_management.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalian.online_store_order_management.dto.ProductDto;
+import com.jalian.online_store_order_management.exception.ValidationException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * The Feed interface iterates over the rows of a large upload while it is being read.
+ * <p>
+ * Only the current row is held in memory, whatever the size of the upload. A row that cannot be read throws a
+ * {@link ValidationException} from {@link #hasNext()} or {@link #next()}, after which the feed must not be read any
+ * further; the bulk operations of the services report it as the last failed row.
+ * </p>
+ *
+ * @param <T> the type of the rows.
+ * @author amirhosein jalian
+ */
+public interface Feed<T> extends Iterator<T>, Closeable {
+
+    /**
+     * Reads a feed of JSON rows, given either as a JSON array or as newline-delimited JSON.
+     *
+     * @param objectMapper the mapper the rows are read with.
+     * @param type         the type of the rows.
+     * @param in           the stream holding the feed; it is closed with the feed.
+     * @param <T>          the type of the rows.
+     * @return the feed.
+     * @throws IOException if the stream cannot be read.
+     */
+    static <T> Feed<T> json(ObjectMapper objectMapper, Class<T> type, InputStream in) throws IOException {
+        MappingIterator<T> rows = objectMapper.readerFor(type).readValues(in);
+        return new Feed<>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return rows.hasNextValue();
+                } catch (IOException e) {
+                    throw malformedRow(e);
+                }
+            }
+
+            @Override
+            public T next() {
+                try {
+                    return rows.nextValue();
+                } catch (IOException e) {
+                    throw malformedRow(e);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                rows.close();
+            }
+        };
+    }
+
+    /**
+     * Reads a UTF-8 CSV feed of {@link ProductDto} rows.
+     * <p>
+     * The first record is a header naming the {@code name}, {@code description}, {@code price} and {@code storeId}
+     * columns, in any order; the description may be left out. Fields may be quoted, with {@code ""} standing for a
+     * quote and line breaks allowed inside quotes.
+     * </p>
+     *
+     * @param in the stream holding the feed; it is closed with the feed.
+     * @return the feed.
+     */
+    static Feed<ProductDto> productCsv(InputStream in) {
+        return new ProductCsvFeed(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+    }
+
+    private static ValidationException malformedRow(IOException e) {
+        var message = e instanceof JsonProcessingException json ? json.getOriginalMessage() : e.getMessage();
+        return new ValidationException("Malformed row: " + message);
+    }
+
+    /**
+     * The CSV reader behind {@link #productCsv(InputStream)}.
+     */
+    final class ProductCsvFeed implements Feed<ProductDto> {
+
+        private final BufferedReader reader;
+        private Map<String, Integer> columns;
+        private List<String> record;
+
+        private ProductCsvFeed(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (record == null) {
+                if (columns == null) {
+                    columns = header(readRecord());
+                }
+                record = readRecord();
+            }
+            return record != null;
+        }
+
+        @Override
+        public ProductDto next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            var fields = record;
+            record = null;
+            if (fields.size() != columns.size()) {
+                throw new ValidationException("Malformed row: expected " + columns.size() + " fields but found "
+                        + fields.size());
+            }
+            return new ProductDto(
+                    fields.get(columns.get("name")),
+                    columns.containsKey("description") ? fields.get(columns.get("description")) : null,
+                    number(fields.get(columns.get("price")), "price"),
+                    number(fields.get(columns.get("storeId")), "storeId")
+            );
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+
+        private static Map<String, Integer> header(List<String> fields) {
+            if (fields == null) {
+                return Map.of();
+            }
+            var columns = new HashMap<String, Integer>();
+            for (int i = 0; i < fields.size(); i++) {
+                columns.put(fields.get(i).strip(), i);
+            }
+            for (var required : List.of("name", "price", "storeId")) {
+                if (!columns.containsKey(required)) {
+                    throw new ValidationException("Malformed header: missing column " + required);
+                }
+            }
+            return columns;
+        }
+
+        private static long number(String field, String column) {
+            try {
+                return Long.parseLong(field.strip());
+            } catch (NumberFormatException e) {
+                throw new ValidationException("Malformed row: " + column + " is not a number: " + field);
+            }
+        }
+
+        /**
+         * Reads the fields of the next record, skipping blank lines, or returns {@code null} at the end of the feed.
+         */
+        private List<String> readRecord() {
+            try {
+                var fields = new ArrayList<String>();
+                var field = new StringBuilder();
+                var quoted = false;
+                var empty = true;
+                int c;
+                while ((c = reader.read()) != -1) {
+                    if (quoted) {
+                        if (c != '"') {
+                            field.append((char) c);
+                        } else {
+                            reader.mark(1);
+                            if (reader.read() == '"') {
+                                field.append('"');
+                            } else {
+                                reader.reset();
+                                quoted = false;
+                            }
+                        }
+                    } else if (c == '"') {
+                        quoted = true;
+                        empty = false;
+                    } else if (c == ',') {
+                        fields.add(field.toString());
+                        field.setLength(0);
+                        empty = false;
+                    } else if (c == '\n') {
+                        if (!empty || !field.isEmpty()) {
+                            fields.add(field.toString());
+                            return fields;
+                        }
+                    } else if (c != '\r') {
+                        field.append((char) c);
+                    }
+                }
+                if (quoted) {
+                    throw new ValidationException("Malformed row: unterminated quoted field");
+                }
+                if (empty && field.isEmpty()) {
+                    return null;
+                }
+                fields.add(field.toString());
+                return fields;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
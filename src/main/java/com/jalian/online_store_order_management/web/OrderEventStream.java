@@ -0,0 +1,133 @@
+package com.jalian.online_store_order_management.web;
+
+import com.jalian.online_store_order_management.constant.OrderStatus;
+import com.jalian.online_store_order_management.dto.OrderStatusDto;
+import com.jalian.online_store_order_management.event.OrderCompletedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * The OrderEventStream class pushes the final status of orders to clients over server-sent events.
+ * <p>
+ * A client subscribes to one order and receives a single {@code status} event holding an {@link OrderStatusDto}
+ * once the order is {@code FINISHED}, {@code CANCELLED} or {@code FAILED}, after which the stream is completed.
+ * If the order is already final when the client subscribes, the event is sent right away. Subscriptions are
+ * kept in memory until they complete or time out after {@code order.events.timeout-ms} milliseconds.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@Component
+public class OrderEventStream {
+
+    /**
+     * The name of the event carrying the final status of an order.
+     */
+    public static final String STATUS_EVENT = "status";
+
+    private static final Logger log = LoggerFactory.getLogger(OrderEventStream.class);
+
+    private final Map<Long, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    private long timeoutMillis = 60_000;
+
+    @Value("${order.events.timeout-ms:60000}")
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Subscribes to the final status of an order.
+     * <p>
+     * The subscription is registered before the current status is checked, so a completion happening in between
+     * is not missed; each subscriber still receives the final status only once.
+     * </p>
+     *
+     * @param orderId       the unique identifier of the order.
+     * @param currentStatus reads the current status of the order; any exception it throws cancels the
+     *                      subscription and is rethrown.
+     * @return the emitter streaming the final status of the order.
+     */
+    public SseEmitter subscribe(Long orderId, Supplier<OrderStatus> currentStatus) {
+        var subscription = new Subscription(new SseEmitter(timeoutMillis), new AtomicBoolean());
+        subscriptions.compute(orderId, (id, subscribers) -> {
+            var result = subscribers != null ? subscribers : ConcurrentHashMap.<Subscription>newKeySet();
+            result.add(subscription);
+            return result;
+        });
+        var emitter = subscription.emitter();
+        emitter.onCompletion(() -> unsubscribe(orderId, subscription));
+        emitter.onTimeout(() -> unsubscribe(orderId, subscription));
+        emitter.onError(e -> unsubscribe(orderId, subscription));
+        OrderStatus status;
+        try {
+            status = currentStatus.get();
+        } catch (RuntimeException e) {
+            unsubscribe(orderId, subscription);
+            throw e;
+        }
+        if (status.isFinal()) {
+            unsubscribe(orderId, subscription);
+            send(subscription, new OrderStatusDto(orderId, status));
+        }
+        return emitter;
+    }
+
+    /**
+     * Pushes the final status of an order to its subscribers and completes their streams.
+     *
+     * @param event the event describing the completed order.
+     */
+    @EventListener
+    public void onOrderCompleted(OrderCompletedEvent event) {
+        var subscribers = subscriptions.remove(event.orderId());
+        if (subscribers == null) {
+            return;
+        }
+        var status = new OrderStatusDto(event.orderId(), event.status());
+        subscribers.forEach(subscription -> send(subscription, status));
+    }
+
+    /**
+     * Returns the number of orders that currently have subscribers.
+     *
+     * @return the number of subscribed orders.
+     */
+    public int subscribedOrders() {
+        return subscriptions.size();
+    }
+
+    private void send(Subscription subscription, OrderStatusDto status) {
+        if (!subscription.sent().compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            subscription.emitter().send(SseEmitter.event().name(STATUS_EVENT).data(status));
+            subscription.emitter().complete();
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Could not push the status of order {}: {}", status.orderId(), e.getMessage());
+            subscription.emitter().completeWithError(e);
+        }
+    }
+
+    private void unsubscribe(Long orderId, Subscription subscription) {
+        subscriptions.computeIfPresent(orderId, (id, subscribers) -> {
+            subscribers.remove(subscription);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    private record Subscription(SseEmitter emitter, AtomicBoolean sent) {
+    }
+}
@@ -0,0 +1,94 @@
+package com.jalian.online_store_order_management.integration.benchmark;
+
+import com.jalian.online_store_order_management.OnlineStoreOrderManagementApplication;
+import com.jalian.online_store_order_management.constant.BalanceOperation;
+import com.jalian.online_store_order_management.dto.*;
+import com.jalian.online_store_order_management.service.OrderService;
+import com.jalian.online_store_order_management.service.ProductService;
+import com.jalian.online_store_order_management.service.StoreService;
+import com.jalian.online_store_order_management.service.UserService;
+import com.jalian.online_store_order_management.service.impl.SyncPayServiceImpl;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The AddOrderBenchmark class measures {@code OrderServiceImpl.addOrder} end to end against the in-memory H2
+ * database, with synchronous payment.
+ * <p>
+ * The application context is started once per fork without a web server. A store, a member with enough balance
+ * and enough stocked products for the whole run are created up front, and every invocation places one order of
+ * 1 or 10 items in its own transaction.
+ * </p>
+ * <p>
+ * Run it with {@code mvn -Pjmh -DskipTests verify -Djmh.include=AddOrderBenchmark}.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AddOrderBenchmark {
+
+    @Param({"1", "10"})
+    private int itemsPerOrder;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private SyncPayServiceImpl syncPayService;
+    private AddOrderDto order;
+
+    /**
+     * Starts the application and prepares the order placed by every invocation.
+     *
+     * @throws Exception if the benchmark user cannot be registered.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(OnlineStoreOrderManagementApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.root=WARN", "logging.level.com.jalian=WARN", "spring.jpa.show-sql=false")
+                .run();
+        orderService = context.getBean(OrderService.class);
+        syncPayService = context.getBean(SyncPayServiceImpl.class);
+
+        var userService = context.getBean(UserService.class);
+        var storeService = context.getBean(StoreService.class);
+        var productService = context.getBean(ProductService.class);
+        var storeId = storeService.addStore(new AddStoreDto("Benchmark Store " + UUID.randomUUID()));
+        var userId = userService.registerUser(new UserRegisterDto(
+                "benchmark", "user", "benchmark@example.com", "password", "benchmark-" + UUID.randomUUID()
+        ));
+        storeService.addUserToStore(new AddUserToStoreDto(userId, storeId));
+        userService.updateBalance(new UpdateBalanceDto(userId, Long.MAX_VALUE / 2, BalanceOperation.PLUS));
+        var items = new ArrayList<ItemDto>(itemsPerOrder);
+        for (int i = 0; i < itemsPerOrder; i++) {
+            var productId = productService.addProduct(new ProductDto("Product " + i, "Benchmark product", 1L, storeId));
+            productService.chargeProduct(new ProductOperationDto(productId, Long.MAX_VALUE / 2));
+            items.add(new ItemDto(productId, 1));
+        }
+        order = new AddOrderDto(userId, storeId, items);
+    }
+
+    /**
+     * Stops the application after the run.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Long addOrder() {
+        return orderService.addOrder(order, syncPayService);
+    }
+}
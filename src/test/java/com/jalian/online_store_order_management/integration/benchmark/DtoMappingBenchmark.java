@@ -0,0 +1,80 @@
+package com.jalian.online_store_order_management.integration.benchmark;
+
+import com.jalian.online_store_order_management.constant.OrderStatus;
+import com.jalian.online_store_order_management.domain.Item;
+import com.jalian.online_store_order_management.domain.Order;
+import com.jalian.online_store_order_management.domain.Product;
+import com.jalian.online_store_order_management.domain.Store;
+import com.jalian.online_store_order_management.domain.User;
+import com.jalian.online_store_order_management.dto.ItemFetchDto;
+import com.jalian.online_store_order_management.dto.OrderFetchDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The DtoMappingBenchmark class measures the mapping of orders and items to their fetch DTOs.
+ * <p>
+ * Besides the mapping itself, it measures reading the mapped items by index, which is how callers iterating with
+ * {@code get(i)} consume the list returned by {@link ItemFetchDto#of(List)}.
+ * </p>
+ * <p>
+ * Run it with {@code mvn -Pjmh -DskipTests verify -Djmh.include=DtoMappingBenchmark}.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoMappingBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int itemsPerOrder;
+
+    private Order order;
+    private List<Item> items;
+
+    /**
+     * Builds an in-memory order with the benchmarked number of items.
+     */
+    @Setup
+    public void setUp() {
+        var user = new User("benchmark", "password", "benchmark", "benchmark@example.com", "user");
+        user.setId(1L);
+        var store = new Store("Benchmark Store");
+        order = new Order(OrderStatus.FINISHED, user, store);
+        order.setId(1L);
+        items = new ArrayList<>(itemsPerOrder);
+        for (int i = 0; i < itemsPerOrder; i++) {
+            var product = new Product(store, 100L, "Benchmark product", "Product " + i);
+            product.setId((long) i);
+            items.add(new Item(null, product, order, 1L, 1_000L, product.getPrice()));
+        }
+    }
+
+    @Benchmark
+    public OrderFetchDto orderFetchDto() {
+        return OrderFetchDto.of(order, items);
+    }
+
+    @Benchmark
+    public List<ItemFetchDto> itemFetchDtos() {
+        return ItemFetchDto.of(items);
+    }
+
+    @Benchmark
+    public long itemFetchDtosIndexedRead() {
+        var dtos = ItemFetchDto.of(items);
+        long total = 0L;
+        for (int i = 0; i < dtos.size(); i++) {
+            total += dtos.get(i).price();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,94 @@
+package com.jalian.online_store_order_management.integration.benchmark;
+
+import com.jalian.online_store_order_management.annotation.*;
+import com.jalian.online_store_order_management.exception.ValidationException;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.reflect.MethodSignature;
+
+import java.lang.annotation.Annotation;
+
+/**
+ * The LegacyValidatorAspect class is a copy of the validator advice as it was before validation plans were
+ * introduced, kept as the baseline of {@link ValidatorAspectBenchmark}.
+ * <p>
+ * On every call it reflects the parameter annotations and names and recompiles {@code @Pattern} expressions.
+ * It is not a Spring bean and is only applied through proxies built by the benchmark.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@Aspect
+public class LegacyValidatorAspect {
+
+    /**
+     * Validates the parameters of a {@code @Valid} method the way the former advice did.
+     *
+     * @param joinPoint the join point representing the method execution.
+     */
+    @Before("@annotation(com.jalian.online_store_order_management.annotation.Valid)")
+    public void validateMethodParameters(JoinPoint joinPoint) {
+        Object[] args = joinPoint.getArgs();
+        MethodSignature methodSignature = (MethodSignature) joinPoint.getSignature();
+        Annotation[][] parameterAnnotations = methodSignature.getMethod().getParameterAnnotations();
+        for (int i = 0; i < args.length; i++) {
+            for (Annotation annotation : parameterAnnotations[i]) {
+                handleFull(annotation, args[i], methodSignature.getParameterNames()[i]);
+                if (annotation instanceof NotNull notNull) {
+                    handleNotNull(notNull, args[i], methodSignature.getParameterNames()[i]);
+                }
+                if (annotation instanceof NotEmpty notEmpty) {
+                    handleNotEmpty(notEmpty, args[i], methodSignature.getParameterNames()[i]);
+                }
+                if (annotation instanceof NotBlank notBlank) {
+                    handleNotBlank(notBlank, args[i], methodSignature.getParameterNames()[i]);
+                }
+                if (annotation instanceof Pattern pattern) {
+                    handlePattern(pattern, args[i], methodSignature.getParameterNames()[i]);
+                }
+            }
+        }
+    }
+
+    private void handleFull(Annotation annotation, Object arg, String param) {
+        if (annotation instanceof Full) {
+            if (arg == null) {
+                throw new ValidationException(param + " cannot be null");
+            }
+            if ("".equals(String.valueOf(arg))) {
+                throw new ValidationException(param + " cannot be empty");
+            }
+            if (" ".equals(String.valueOf(arg))) {
+                throw new ValidationException(param + " cannot be blank");
+            }
+        }
+    }
+
+    private void handleNotNull(NotNull notNull, Object arg, String param) {
+        if (arg == null) {
+            throw new ValidationException(notNull.message().isEmpty() ? param + " cannot be null" : notNull.message());
+        }
+    }
+
+    private void handleNotEmpty(NotEmpty notEmpty, Object arg, String param) {
+        if ("".equals(String.valueOf(arg))) {
+            throw new ValidationException(notEmpty.message().isEmpty() ? param + " cannot be empty" : notEmpty.message());
+        }
+    }
+
+    private void handleNotBlank(NotBlank notBlank, Object arg, String param) {
+        if (" ".equals(String.valueOf(arg))) {
+            throw new ValidationException(notBlank.message().isEmpty() ? param + " cannot be blank" : notBlank.message());
+        }
+    }
+
+    private void handlePattern(Pattern pattern, Object arg, String param) {
+        if (arg != null && !String.valueOf(arg).matches(pattern.regex())) {
+            throw new ValidationException(pattern.message().isEmpty() ? param + " does not have valid pattern" : pattern.message());
+        }
+        if (arg == null) {
+            throw new ValidationException(param + " cannot be null");
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.jalian.online_store_order_management.integration.benchmark;
+
+import com.jalian.online_store_order_management.constant.BalanceOperation;
+import com.jalian.online_store_order_management.dto.*;
+import com.jalian.online_store_order_management.service.OrderService;
+import com.jalian.online_store_order_management.service.ProductService;
+import com.jalian.online_store_order_management.service.StoreService;
+import com.jalian.online_store_order_management.service.UserService;
+import com.jalian.online_store_order_management.service.impl.SyncPayServiceImpl;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The OrderInsertBenchmarkTest class measures how many rows per second are inserted when placing orders
+ * of 1, 10 and 100 items.
+ * <p>
+ * Every basket size is measured twice in the same application context: once with JDBC batching disabled for the
+ * session (a batch size of {@code 1}, which is how the former {@code IDENTITY} identifiers behaved, as Hibernate
+ * had to insert each row on its own to learn its identifier) and once with the configured batch size, which the
+ * pooled sequence identifiers make possible.
+ * </p>
+ * <p>
+ * The benchmark is skipped during regular builds. Run it with
+ * {@code mvn test -Dtest=OrderInsertBenchmarkTest -Dbenchmark=true}; the results are written to the log.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class OrderInsertBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderInsertBenchmarkTest.class);
+
+    private static final int[] ITEMS_PER_ORDER = {1, 10, 100};
+    private static final int ITEMS_PER_RUN = 2_000;
+    private static final int WARMUP_ORDERS = 20;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private SyncPayServiceImpl syncPayService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private StoreService storeService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Places orders of every basket size with and without JDBC batching and logs the insert rates.
+     */
+    @Test
+    public void benchmarkOrderInserts() {
+        log.info(String.format("%-16s %-22s %-22s", "items per order", "unbatched rows/s", "batched rows/s"));
+        for (var itemsPerOrder : ITEMS_PER_ORDER) {
+            var order = prepareOrder(itemsPerOrder);
+            var unbatched = insertRate(order, 1);
+            var batched = insertRate(order, null);
+            log.info(String.format("%-16d %-22.0f %-22.0f", itemsPerOrder, unbatched, batched));
+            assertThat(unbatched).isPositive();
+            assertThat(batched).isPositive();
+        }
+    }
+
+    /**
+     * Places a fixed number of item rows worth of orders and returns the achieved insert rate.
+     *
+     * @param order     the order to place repeatedly.
+     * @param batchSize the JDBC batch size for the session, or {@code null} to use the configured one.
+     * @return the number of inserted rows (orders and items) per second.
+     */
+    private double insertRate(AddOrderDto order, Integer batchSize) {
+        var template = new TransactionTemplate(transactionManager);
+        var orders = Math.max(1, ITEMS_PER_RUN / order.items().size());
+        for (int i = 0; i < WARMUP_ORDERS; i++) {
+            placeOrder(template, order, batchSize);
+        }
+        var start = System.nanoTime();
+        for (int i = 0; i < orders; i++) {
+            placeOrder(template, order, batchSize);
+        }
+        var seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        return orders * (order.items().size() + 1) / seconds;
+    }
+
+    private void placeOrder(TransactionTemplate template, AddOrderDto order, Integer batchSize) {
+        template.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            orderService.addOrder(order, syncPayService);
+        });
+    }
+
+    /**
+     * Creates a store, a member with enough balance and enough stocked products for the benchmark runs.
+     *
+     * @param itemsPerOrder the number of distinct products in the order.
+     * @return the order to place.
+     */
+    private AddOrderDto prepareOrder(int itemsPerOrder) {
+        var storeId = storeService.addStore(new AddStoreDto("Benchmark Store " + UUID.randomUUID()));
+        long userId;
+        try {
+            userId = userService.registerUser(new UserRegisterDto(
+                    "benchmark", "user", "benchmark@example.com", "password", "benchmark-" + UUID.randomUUID()
+            ));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        storeService.addUserToStore(new AddUserToStoreDto(userId, storeId));
+        userService.updateBalance(new UpdateBalanceDto(userId, 1_000_000_000L, BalanceOperation.PLUS));
+        var items = new ArrayList<ItemDto>(itemsPerOrder);
+        for (int i = 0; i < itemsPerOrder; i++) {
+            var productId = productService.addProduct(new ProductDto("Product " + i, "Benchmark product", 1L, storeId));
+            productService.chargeProduct(new ProductOperationDto(productId, 1_000_000L));
+            items.add(new ItemDto(productId, 1));
+        }
+        return new AddOrderDto(userId, storeId, items);
+    }
+}
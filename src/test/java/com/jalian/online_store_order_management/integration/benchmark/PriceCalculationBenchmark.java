@@ -0,0 +1,88 @@
+package com.jalian.online_store_order_management.integration.benchmark;
+
+import com.jalian.online_store_order_management.config.OrderMetrics;
+import com.jalian.online_store_order_management.constant.OrderStatus;
+import com.jalian.online_store_order_management.domain.Item;
+import com.jalian.online_store_order_management.domain.Order;
+import com.jalian.online_store_order_management.domain.Product;
+import com.jalian.online_store_order_management.domain.Store;
+import com.jalian.online_store_order_management.domain.User;
+import com.jalian.online_store_order_management.service.PayService;
+import com.jalian.online_store_order_management.service.ProductService;
+import com.jalian.online_store_order_management.service.UserService;
+import com.jalian.online_store_order_management.service.impl.HotProductInventory;
+import com.jalian.online_store_order_management.service.impl.InventoryReservations;
+import com.jalian.online_store_order_management.service.impl.SyncPayServiceImpl;
+import ch.qos.logback.classic.Level;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The PriceCalculationBenchmark class measures {@code AbstractPayService.calculatePrice} for baskets of
+ * 1, 10 and 100 items.
+ * <p>
+ * The price is calculated through {@link PayService#pay} of {@link SyncPayServiceImpl}, with a user service whose
+ * debit does nothing, so the benchmark covers the price calculation and the payment dispatch only. Logging is
+ * raised to {@code WARN} so that the payment log lines are not measured.
+ * </p>
+ * <p>
+ * Run it with {@code mvn -Pjmh -DskipTests verify -Djmh.include=PriceCalculationBenchmark}.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriceCalculationBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int itemsPerOrder;
+
+    private PayService payService;
+    private User user;
+    private Order order;
+    private List<Item> items;
+
+    /**
+     * Builds an in-memory order with the benchmarked number of items.
+     */
+    @Setup
+    public void setUp() {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        var userService = (UserService) Proxy.newProxyInstance(UserService.class.getClassLoader(),
+                new Class<?>[]{UserService.class}, (proxy, method, args) -> null);
+        var productService = (ProductService) Proxy.newProxyInstance(ProductService.class.getClassLoader(),
+                new Class<?>[]{ProductService.class}, (proxy, method, args) -> null);
+        payService = new SyncPayServiceImpl(userService, new InventoryReservations(null, null, productService,
+                        new HotProductInventory(null, null, 1)),
+                new OrderMetrics(new SimpleMeterRegistry()),
+                event -> {
+                });
+        user = new User("benchmark", "password");
+        user.setId(1L);
+        var store = new Store("Benchmark Store");
+        order = new Order(OrderStatus.INITIALIZED, user, store);
+        items = new ArrayList<>(itemsPerOrder);
+        for (int i = 0; i < itemsPerOrder; i++) {
+            var product = new Product(store, 100L + i, "Benchmark product", "Product " + i);
+            product.setId((long) i);
+            items.add(new Item(null, product, order, 1L + i % 3, 1_000L, product.getPrice()));
+        }
+    }
+
+    @Benchmark
+    public void pay() {
+        payService.pay(user, order, items);
+    }
+}
@@ -0,0 +1,47 @@
+package com.jalian.online_store_order_management.integration.benchmark;
+
+import com.jalian.online_store_order_management.constant.ProductOperationStrategy;
+import com.jalian.online_store_order_management.domain.Product;
+import com.jalian.online_store_order_management.domain.Store;
+import com.jalian.online_store_order_management.factory.ProductInventoryOperatorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ProductInventoryOperatorBenchmark class measures resolving an inventory operator through
+ * {@link ProductInventoryOperatorFactory} and applying it to an in-memory product, for every
+ * {@link ProductOperationStrategy}.
+ * <p>
+ * Run it with {@code mvn -Pjmh -DskipTests verify -Djmh.include=ProductInventoryOperatorBenchmark}.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductInventoryOperatorBenchmark {
+
+    @Param({"PLUS", "MINUS", "CONDITIONAL_MINUS"})
+    private ProductOperationStrategy strategy;
+
+    private Product product;
+
+    /**
+     * Creates a product with enough inventory to be decreased for the whole run.
+     */
+    @Setup
+    public void setUp() {
+        product = new Product(new Store("Benchmark Store"), 100L, "Benchmark product", "Product");
+        product.setInventory(Long.MAX_VALUE / 2);
+    }
+
+    @Benchmark
+    public Product doOperation() {
+        return ProductInventoryOperatorFactory.getInstance(strategy).doOperation(product, 1L);
+    }
+}
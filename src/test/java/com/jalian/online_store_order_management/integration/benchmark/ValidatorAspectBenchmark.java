@@ -0,0 +1,135 @@
+package com.jalian.online_store_order_management.integration.benchmark;
+
+import com.jalian.online_store_order_management.aspect.ValidatorAspect;
+import com.jalian.online_store_order_management.config.CatalogCache;
+import com.jalian.online_store_order_management.config.CatalogCacheConfig;
+import com.jalian.online_store_order_management.dao.ProductDao;
+import com.jalian.online_store_order_management.dao.UserDao;
+import com.jalian.online_store_order_management.domain.Product;
+import com.jalian.online_store_order_management.domain.Store;
+import com.jalian.online_store_order_management.domain.User;
+import com.jalian.online_store_order_management.dto.ProductFetchDto;
+import com.jalian.online_store_order_management.dto.UserFetchDto;
+import com.jalian.online_store_order_management.service.ProductService;
+import com.jalian.online_store_order_management.service.UserService;
+import com.jalian.online_store_order_management.service.impl.ProductServiceImpl;
+import com.jalian.online_store_order_management.service.impl.UserServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ValidatorAspectBenchmark class compares the cost of the former validator advice with the advice
+ * backed by precompiled validation plans.
+ * <p>
+ * {@code UserService.findUserById} and {@code ProductService.getProductById} are called through class-based
+ * proxies, the way Spring applies the aspect, with DAOs stubbed in memory so that only the proxy, the advice and
+ * the DTO mapping or the product cache lookup are measured. Each method is measured without advice, with {@link LegacyValidatorAspect} and
+ * with {@link ValidatorAspect}.
+ * </p>
+ * <p>
+ * Run it with {@code mvn -Pjmh -DskipTests verify -Djmh.include=ValidatorAspectBenchmark}.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidatorAspectBenchmark {
+
+    private static final Long USER_ID = 1L;
+    private static final Long PRODUCT_ID = 1L;
+
+    private UserService unadvisedUserService;
+    private UserService legacyUserService;
+    private UserService plannedUserService;
+
+    private ProductService unadvisedProductService;
+    private ProductService legacyProductService;
+    private ProductService plannedProductService;
+
+    /**
+     * Builds the services over in-memory DAOs and proxies them with each variant of the advice.
+     */
+    @Setup
+    public void setUp() {
+        var user = new User("benchmark", "password", "benchmark", "benchmark@example.com", "user");
+        user.setId(USER_ID);
+        var product = new Product(new Store("Benchmark Store"), 100L, "Benchmark product", "Product");
+        product.setId(PRODUCT_ID);
+
+        var userService = new UserServiceImpl(stubDao(UserDao.class, "findUserById", Optional.of(user)));
+        var productService = new ProductServiceImpl(null,
+                stubDao(ProductDao.class, "findFetchDtoById", Optional.of(ProductFetchDto.of(product))),
+                new CatalogCache<>(CatalogCacheConfig.PRODUCT_CACHE, 100, Duration.ofMinutes(1), new SimpleMeterRegistry()),
+                null, null);
+
+        unadvisedUserService = advise(userService, null);
+        legacyUserService = advise(userService, new LegacyValidatorAspect());
+        plannedUserService = advise(userService, new ValidatorAspect());
+        unadvisedProductService = advise(productService, null);
+        legacyProductService = advise(productService, new LegacyValidatorAspect());
+        plannedProductService = advise(productService, new ValidatorAspect());
+    }
+
+    @Benchmark
+    public UserFetchDto findUserById_unadvised() {
+        return unadvisedUserService.findUserById(USER_ID);
+    }
+
+    @Benchmark
+    public UserFetchDto findUserById_legacyAdvice() {
+        return legacyUserService.findUserById(USER_ID);
+    }
+
+    @Benchmark
+    public UserFetchDto findUserById_plannedAdvice() {
+        return plannedUserService.findUserById(USER_ID);
+    }
+
+    @Benchmark
+    public ProductFetchDto getProductById_unadvised() {
+        return unadvisedProductService.getProductById(PRODUCT_ID);
+    }
+
+    @Benchmark
+    public ProductFetchDto getProductById_legacyAdvice() {
+        return legacyProductService.getProductById(PRODUCT_ID);
+    }
+
+    @Benchmark
+    public ProductFetchDto getProductById_plannedAdvice() {
+        return plannedProductService.getProductById(PRODUCT_ID);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T advise(T target, Object aspect) {
+        var factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        if (aspect != null) {
+            factory.addAspect(aspect);
+        }
+        return (T) factory.getProxy();
+    }
+
+    private static <T> T stubDao(Class<T> type, String methodName, Object result) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getName().equals(methodName)) {
+                return result;
+            }
+            if (method.getDeclaringClass() == Object.class) {
+                return method.getName().equals("hashCode") ? System.identityHashCode(proxy) : type.getSimpleName();
+            }
+            throw new UnsupportedOperationException(method.getName());
+        }));
+    }
+}
@@ -0,0 +1,96 @@
+package com.jalian.online_store_order_management.integration.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LatencyStats class records the latencies and response statuses of one endpoint during a load test.
+ * <p>
+ * Latencies are kept in microseconds in an HDR histogram with three significant digits, so that high percentiles
+ * are reported accurately regardless of the number of requests. Responses with a status of {@code 400} or above,
+ * and requests that failed without a response, are counted as errors.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+public final class LatencyStats {
+
+    /**
+     * The status recorded for requests that failed without a response.
+     */
+    public static final int NO_RESPONSE = -1;
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final Histogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * Records a completed request.
+     *
+     * @param latencyNanos the time from the intended start of the request to its completion.
+     * @param status       the response status, or {@link #NO_RESPONSE}.
+     */
+    public void record(long latencyNanos, int status) {
+        histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS));
+        statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        if (status == NO_RESPONSE || status >= 400) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Returns the number of recorded requests.
+     *
+     * @return the request count.
+     */
+    public long count() {
+        return histogram.getTotalCount();
+    }
+
+    /**
+     * Returns the number of failed requests.
+     *
+     * @return the error count.
+     */
+    public long errors() {
+        return errors.sum();
+    }
+
+    /**
+     * Returns the latency at the given percentile.
+     *
+     * @param percentile the percentile, between {@code 0} and {@code 100}.
+     * @return the latency in milliseconds.
+     */
+    public double percentileMillis(double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1_000.0;
+    }
+
+    /**
+     * Returns the highest recorded latency.
+     *
+     * @return the latency in milliseconds.
+     */
+    public double maxMillis() {
+        return histogram.getMaxValue() / 1_000.0;
+    }
+
+    /**
+     * Returns the number of responses per status, in ascending status order.
+     *
+     * @return the status counts.
+     */
+    public Map<Integer, Long> statuses() {
+        var result = new TreeMap<Integer, Long>();
+        statuses.forEach((status, count) -> result.put(status, count.sum()));
+        return result;
+    }
+}
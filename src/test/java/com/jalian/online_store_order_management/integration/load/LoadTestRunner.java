@@ -0,0 +1,379 @@
+package com.jalian.online_store_order_management.integration.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.jalian.online_store_order_management.OnlineStoreOrderManagementApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The LoadTestRunner class is an end-to-end HTTP load generator for the application, driven by the requests of
+ * {@code online-store.postman_collection.json}.
+ * <p>
+ * It starts the application on a random port and, for every virtual user, replays the setup flow of the collection
+ * ({@code register user}, {@code update balance}, {@code add store}, {@code add user to store}, {@code add product}
+ * and {@code charge product}) with fresh names and enough funds and stock for the whole run. It then generates load
+ * in one of two modes:
+ * <ul>
+ *   <li>{@code closed}: every virtual user runs on its own virtual thread and replays the requests of
+ *   {@code load.flow} back to back, so the offered load adapts to the response times.</li>
+ *   <li>{@code open}: the request named by {@code load.target} is issued at each fixed arrival rate of
+ *   {@code load.rates} in turn, independently of the responses. Latency is measured from the intended start of each
+ *   request, so queueing delay is not hidden when the application falls behind; the rate at which latency grows
+ *   without bound or throughput stops following the offered rate is the saturation point.</li>
+ * </ul>
+ * For every stage the throughput, the error count, the p50, p99, p99.9 and maximum latency and the response
+ * statuses are printed per request.
+ * </p>
+ * <p>
+ * Run it with {@code mvn -Pload -DskipTests verify}, for example
+ * {@code mvn -Pload -DskipTests verify -Dload.mode=open -Dload.rates=100,200,400,800}. The settings are the
+ * {@code load.*} properties of the {@code load} profile.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+public final class LoadTestRunner implements AutoCloseable {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final long FUNDS = 1_000_000_000_000L;
+    private static final long STOCK = 1_000_000_000L;
+
+    private final Settings settings;
+    private final PostmanCollection collection;
+    private final ObjectMapper objectMapper;
+    private final URI baseUri;
+    private final ExecutorService httpExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpClient httpClient;
+
+    private volatile Map<String, LatencyStats> stats = new ConcurrentHashMap<>();
+
+    LoadTestRunner(Settings settings, PostmanCollection collection, ObjectMapper objectMapper, URI baseUri) {
+        this.settings = settings;
+        this.collection = collection;
+        this.objectMapper = objectMapper;
+        this.baseUri = baseUri;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(REQUEST_TIMEOUT)
+                .executor(httpExecutor)
+                .build();
+    }
+
+    /**
+     * Starts the application on a random port and runs the load test against it.
+     *
+     * @param args the application arguments.
+     * @throws Exception if the collection cannot be read or the load test fails.
+     */
+    public static void main(String[] args) throws Exception {
+        var settings = Settings.fromSystemProperties();
+        try (var context = new SpringApplicationBuilder(OnlineStoreOrderManagementApplication.class)
+                .properties("server.port=0", "logging.level.root=WARN", "logging.level.com.jalian=WARN")
+                .run(args)) {
+            var environment = context.getEnvironment();
+            var baseUri = URI.create("http://localhost:" + environment.getProperty("local.server.port")
+                    + environment.getProperty("server.servlet.context-path", ""));
+            var objectMapper = context.getBean(ObjectMapper.class);
+            var collection = PostmanCollection.load(settings.collection(), objectMapper);
+            try (var runner = new LoadTestRunner(settings, collection, objectMapper, baseUri)) {
+                runner.run();
+            }
+        }
+    }
+
+    /**
+     * Creates the virtual users and runs the configured stages, printing a report after each one.
+     *
+     * @throws InterruptedException if the runner is interrupted.
+     */
+    void run() throws InterruptedException {
+        settings.flow().forEach(collection::request);
+        collection.request(settings.target());
+
+        var stage = newStage();
+        var fixtures = new Fixture[settings.users()];
+        for (int i = 0; i < fixtures.length; i++) {
+            fixtures[i] = createFixture();
+        }
+        report("setup of " + fixtures.length + " virtual users", stage);
+
+        if (settings.mode() == Mode.CLOSED) {
+            newStage();
+            runClosedLoop(fixtures, settings.warmup());
+            stage = newStage();
+            runClosedLoop(fixtures, settings.duration());
+            report("closed loop with " + fixtures.length + " virtual users", stage);
+            return;
+        }
+        newStage();
+        runOpenLoop(fixtures, settings.rates().getFirst(), settings.warmup());
+        for (var rate : settings.rates()) {
+            stage = newStage();
+            runOpenLoop(fixtures, rate, settings.duration());
+            report("open loop at " + rate + " requests/s", stage);
+        }
+    }
+
+    private Fixture createFixture() {
+        var fixture = new Fixture("load-" + UUID.randomUUID());
+        fixture.userId = require(send("register user", fixture,
+                Map.of("username", fixture.username, "email", fixture.username + "@example.com")));
+        require(send("update balance", fixture, Map.of("amount", FUNDS, "operation", "PLUS")));
+        fixture.storeId = require(send("add store", fixture, Map.of("name", fixture.username)));
+        require(send("add user to store", fixture, Map.of()));
+        fixture.productId = require(send("add product", fixture, Map.of()));
+        require(send("charge product", fixture, Map.of("amount", STOCK)));
+        return fixture;
+    }
+
+    private void runClosedLoop(Fixture[] fixtures, Duration duration) {
+        var end = System.nanoTime() + duration.toNanos();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var fixture : fixtures) {
+                executor.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        for (var name : settings.flow()) {
+                            send(name, fixture, Map.of());
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    private void runOpenLoop(Fixture[] fixtures, int rate, Duration duration) {
+        var interval = 1_000_000_000.0 / rate;
+        var arrivals = (long) (duration.toNanos() / interval);
+        var start = System.nanoTime();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long n = 0; n < arrivals; n++) {
+                var intendedStart = start + (long) (n * interval);
+                for (var delay = intendedStart - System.nanoTime(); delay > 0; delay = intendedStart - System.nanoTime()) {
+                    LockSupport.parkNanos(delay);
+                }
+                var fixture = fixtures[(int) (n % fixtures.length)];
+                executor.submit(() -> send(settings.target(), fixture, Map.of(), intendedStart));
+            }
+        }
+    }
+
+    private Response send(String name, Fixture fixture, Map<String, Object> overrides) {
+        return send(name, fixture, overrides, System.nanoTime());
+    }
+
+    /**
+     * Sends a request of the collection bound to a virtual user and records its latency from the intended start.
+     */
+    private Response send(String name, Fixture fixture, Map<String, Object> overrides, long intendedStart) {
+        var template = collection.request(name);
+        var body = bind(template.body().deepCopy(), fixture);
+        if (body instanceof ObjectNode object) {
+            overrides.forEach((field, value) -> {
+                if (value instanceof Long number) {
+                    object.put(field, number);
+                } else {
+                    object.put(field, String.valueOf(value));
+                }
+            });
+        }
+        var request = HttpRequest.newBuilder(URI.create(baseUri + bindPath(template.path(), fixture)))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .method(template.method(), body.isNull()
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+        var status = LatencyStats.NO_RESPONSE;
+        String responseBody = null;
+        try {
+            var response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            status = response.statusCode();
+            responseBody = response.body();
+        } catch (IOException e) {
+            responseBody = e.toString();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stats.computeIfAbsent(name, n -> new LatencyStats()).record(System.nanoTime() - intendedStart, status);
+        }
+        var response = new Response(name, status, responseBody, result(responseBody));
+        if (response.succeeded() && template.path().startsWith("/orders/add/") && response.result().isNumber()) {
+            fixture.lastOrderId = response.result().asLong();
+        }
+        return response;
+    }
+
+    private JsonNode result(String responseBody) {
+        if (responseBody == null || responseBody.isEmpty()) {
+            return MissingNode.getInstance();
+        }
+        try {
+            return objectMapper.readTree(responseBody).path("result");
+        } catch (IOException e) {
+            return MissingNode.getInstance();
+        }
+    }
+
+    /**
+     * Replaces the example identifiers of a request body with those of the virtual user, at any depth.
+     */
+    private static JsonNode bind(JsonNode node, Fixture fixture) {
+        if (node instanceof ObjectNode object) {
+            for (var field : List.copyOf(object.properties())) {
+                var id = switch (field.getKey()) {
+                    case "userId" -> fixture.userId;
+                    case "storeId" -> fixture.storeId;
+                    case "productId" -> fixture.productId;
+                    default -> null;
+                };
+                if (id != null) {
+                    object.put(field.getKey(), id);
+                } else {
+                    bind(field.getValue(), fixture);
+                }
+            }
+        } else if (node.isArray()) {
+            node.forEach(element -> bind(element, fixture));
+        }
+        return node;
+    }
+
+    /**
+     * Replaces the example identifier in the path of a request with that of the virtual user.
+     */
+    private static String bindPath(String path, Fixture fixture) {
+        if (path.startsWith("/users/id/")) {
+            return "/users/id/" + fixture.userId;
+        }
+        if (path.startsWith("/users/username/")) {
+            return "/users/username/" + fixture.username;
+        }
+        if (path.startsWith("/products/find/")) {
+            return "/products/find/" + fixture.productId;
+        }
+        if (path.startsWith("/orders/find/")) {
+            return "/orders/find/" + fixture.lastOrderId;
+        }
+        return path;
+    }
+
+    private static long require(Response response) {
+        if (!response.succeeded()) {
+            throw new IllegalStateException("Setup request '" + response.name() + "' failed with status "
+                    + response.status() + ": " + response.body());
+        }
+        return response.result().asLong();
+    }
+
+    private Stage newStage() {
+        var stageStats = new ConcurrentHashMap<String, LatencyStats>();
+        stats = stageStats;
+        return new Stage(stageStats, System.nanoTime());
+    }
+
+    private static void report(String title, Stage stage) {
+        var seconds = (System.nanoTime() - stage.startNanos()) / 1_000_000_000.0;
+        System.out.printf("%n%s, %.1f s%n", title, seconds);
+        System.out.printf("%-20s %9s %8s %13s %9s %9s %9s %9s  %s%n",
+                "request", "count", "errors", "throughput/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "statuses");
+        stage.stats().entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> {
+                    var stats = entry.getValue();
+                    System.out.printf("%-20s %9d %8d %13.1f %9.2f %9.2f %9.2f %9.2f  %s%n",
+                            entry.getKey(), stats.count(), stats.errors(), stats.count() / seconds,
+                            stats.percentileMillis(50), stats.percentileMillis(99), stats.percentileMillis(99.9),
+                            stats.maxMillis(), stats.statuses());
+                });
+    }
+
+    @Override
+    public void close() {
+        httpClient.close();
+        httpExecutor.close();
+    }
+
+    /**
+     * The identifiers created for one virtual user.
+     */
+    private static final class Fixture {
+
+        private final String username;
+        private Long userId;
+        private Long storeId;
+        private Long productId;
+        private volatile long lastOrderId;
+
+        private Fixture(String username) {
+            this.username = username;
+        }
+    }
+
+    private record Response(String name, int status, String body, JsonNode result) {
+
+        boolean succeeded() {
+            return status >= 200 && status < 300;
+        }
+    }
+
+    private record Stage(Map<String, LatencyStats> stats, long startNanos) {
+    }
+
+    /**
+     * The load generation mode.
+     */
+    enum Mode {
+        CLOSED, OPEN
+    }
+
+    /**
+     * The settings of a load test, read from {@code load.*} system properties.
+     *
+     * @param mode       the load generation mode ({@code load.mode}, {@code closed} or {@code open}).
+     * @param users      the number of virtual users ({@code load.users}).
+     * @param warmup     the discarded warm-up before measuring ({@code load.warmup-seconds}).
+     * @param duration   the length of every measured stage ({@code load.duration-seconds}).
+     * @param flow       the requests replayed by every virtual user in closed mode ({@code load.flow}).
+     * @param target     the request issued in open mode ({@code load.target}).
+     * @param rates      the arrival rates, in requests per second, of the open mode stages ({@code load.rates}).
+     * @param collection the Postman collection file ({@code load.collection}).
+     */
+    record Settings(Mode mode, int users, Duration warmup, Duration duration, List<String> flow, String target,
+                    List<Integer> rates, Path collection) {
+
+        static Settings fromSystemProperties() {
+            return new Settings(
+                    Mode.valueOf(System.getProperty("load.mode", "closed").toUpperCase()),
+                    Integer.getInteger("load.users", 32),
+                    Duration.ofSeconds(Long.getLong("load.warmup-seconds", 5)),
+                    Duration.ofSeconds(Long.getLong("load.duration-seconds", 30)),
+                    split(System.getProperty("load.flow", "add order sync,add order async,find product")),
+                    System.getProperty("load.target", "add order sync"),
+                    split(System.getProperty("load.rates", "50,100,200,400")).stream().map(Integer::valueOf).toList(),
+                    Path.of(System.getProperty("load.collection", "online-store.postman_collection.json"))
+            );
+        }
+
+        private static List<String> split(String value) {
+            return Arrays.stream(value.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.jalian.online_store_order_management.integration.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * The PostmanCollection class reads the requests of {@code online-store.postman_collection.json} so that the load
+ * test replays the same API flows as the collection.
+ * <p>
+ * Every request is turned into a {@link RequestTemplate} holding its method, its path relative to the
+ * {@code {{base-path}}} variable and its JSON body. Requests are looked up by their name in the collection, for
+ * example {@code "add order sync"}.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+public final class PostmanCollection {
+
+    private static final String BASE_PATH_VARIABLE = "{{base-path}}";
+
+    private final Map<String, RequestTemplate> requests;
+
+    private PostmanCollection(Map<String, RequestTemplate> requests) {
+        this.requests = requests;
+    }
+
+    /**
+     * Reads a Postman collection file.
+     *
+     * @param file         the collection file.
+     * @param objectMapper the mapper used to parse the collection and the request bodies.
+     * @return the requests of the collection.
+     * @throws IOException if the file cannot be read or is not valid JSON.
+     */
+    public static PostmanCollection load(Path file, ObjectMapper objectMapper) throws IOException {
+        var requests = new LinkedHashMap<String, RequestTemplate>();
+        collect(objectMapper.readTree(file.toFile()).path("item"), objectMapper, requests);
+        return new PostmanCollection(requests);
+    }
+
+    private static void collect(JsonNode items, ObjectMapper objectMapper, Map<String, RequestTemplate> requests)
+            throws IOException {
+        for (var item : items) {
+            if (item.has("item")) {
+                collect(item.get("item"), objectMapper, requests);
+                continue;
+            }
+            var request = item.get("request");
+            var path = new StringBuilder();
+            for (var segment : request.path("url").path("path")) {
+                if (!BASE_PATH_VARIABLE.equals(segment.asText())) {
+                    path.append('/').append(segment.asText());
+                }
+            }
+            var raw = request.path("body").path("raw").asText("");
+            var body = raw.isBlank() ? NullNode.getInstance() : objectMapper.readTree(raw);
+            var name = item.get("name").asText();
+            requests.put(name, new RequestTemplate(name, request.get("method").asText(), path.toString(), body));
+        }
+    }
+
+    /**
+     * Returns the request with the given name.
+     *
+     * @param name the name of the request in the collection.
+     * @return the request template.
+     * @throws NoSuchElementException if the collection has no request with that name.
+     */
+    public RequestTemplate request(String name) {
+        var request = requests.get(name);
+        if (request == null) {
+            throw new NoSuchElementException("No request named '" + name + "' in the collection, known requests: "
+                    + requests.keySet());
+        }
+        return request;
+    }
+
+    /**
+     * A request of the collection.
+     *
+     * @param name   the name of the request.
+     * @param method the HTTP method.
+     * @param path   the path relative to the application context path, with the example values of the collection.
+     * @param body   the example JSON body, or a {@link NullNode} if the request has none.
+     */
+    public record RequestTemplate(String name, String method, String path, JsonNode body) {
+    }
+}
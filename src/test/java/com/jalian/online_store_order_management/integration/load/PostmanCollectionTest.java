@@ -0,0 +1,55 @@
+package com.jalian.online_store_order_management.integration.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests that the Postman collection of the project can be read by the load test and still describes the flows it
+ * replays, so that renaming or reshaping a request in the collection fails the build instead of the load test.
+ *
+ * @author amirhosein jalian
+ */
+public class PostmanCollectionTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Tests that every request used by the load test is present with its method, path and body.
+     */
+    @Test
+    void load_readsTheRequestsReplayedByTheLoadTest() throws IOException {
+        var collection = PostmanCollection.load(Path.of("online-store.postman_collection.json"), objectMapper);
+
+        var register = collection.request("register user");
+        assertThat(register.method()).isEqualTo("POST");
+        assertThat(register.path()).isEqualTo("/users/register");
+        assertThat(register.body().has("username")).isTrue();
+
+        var order = collection.request("add order sync");
+        assertThat(order.path()).isEqualTo("/orders/add/sync");
+        assertThat(order.body().path("items").get(0).has("productId")).isTrue();
+
+        for (var name : new String[]{"update balance", "add store", "add user to store", "add product",
+                "charge product", "add order async", "find product"}) {
+            assertThat(collection.request(name).path()).startsWith("/");
+        }
+        assertThat(collection.request("find product").body().isNull()).isTrue();
+    }
+
+    /**
+     * Tests that an unknown request name is rejected with the known names in the message.
+     */
+    @Test
+    void request_unknownName_throwsException() throws IOException {
+        var collection = PostmanCollection.load(Path.of("online-store.postman_collection.json"), objectMapper);
+        var ex = assertThrows(NoSuchElementException.class, () -> collection.request("missing"));
+        assertThat(ex.getMessage()).contains("add order sync");
+    }
+}
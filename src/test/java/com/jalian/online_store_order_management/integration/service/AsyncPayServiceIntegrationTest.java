@@ -1,112 +1,300 @@
 package com.jalian.online_store_order_management.integration.service;
 
+import com.jalian.online_store_order_management.config.PayExecutorConfig;
 import com.jalian.online_store_order_management.constant.OrderStatus;
-import com.jalian.online_store_order_management.dao.OrderDao;
-import com.jalian.online_store_order_management.domain.Item;
-import com.jalian.online_store_order_management.domain.Order;
-import com.jalian.online_store_order_management.domain.Product;
+import com.jalian.online_store_order_management.constant.PaymentTaskStatus;
+import com.jalian.online_store_order_management.dao.PaymentTaskDao;
+import com.jalian.online_store_order_management.dao.ProductDao;
+import com.jalian.online_store_order_management.dao.UserDao;
+import com.jalian.online_store_order_management.domain.PaymentTask;
 import com.jalian.online_store_order_management.domain.User;
-import com.jalian.online_store_order_management.dto.UpdateBalanceDto;
-import com.jalian.online_store_order_management.service.UserService;
+import com.jalian.online_store_order_management.dto.AddOrderDto;
+import com.jalian.online_store_order_management.dto.AddStoreDto;
+import com.jalian.online_store_order_management.dto.AddUserToStoreDto;
+import com.jalian.online_store_order_management.dto.ItemDto;
+import com.jalian.online_store_order_management.dto.ProductDto;
+import com.jalian.online_store_order_management.dto.ProductOperationDto;
+import com.jalian.online_store_order_management.service.OrderService;
+import com.jalian.online_store_order_management.service.ProductService;
+import com.jalian.online_store_order_management.service.StoreService;
 import com.jalian.online_store_order_management.service.impl.ASyncPayServiceImpl;
+import com.jalian.online_store_order_management.service.impl.BalanceDebitSerializer;
+import com.jalian.online_store_order_management.service.impl.InventoryReservations;
+import com.jalian.online_store_order_management.service.impl.PaymentOutboxPoller;
+import com.jalian.online_store_order_management.service.impl.ReservationSweeper;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.UUID;
 
-import static org.awaitility.Awaitility.await;
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.when;
+import static org.awaitility.Awaitility.await;
 
 /**
- * The AsyncPayServiceIntegrationTest class verifies the asynchronous behavior of the ASyncPayServiceImpl.
+ * The AsyncPayServiceIntegrationTest class verifies the payment outbox used by the ASyncPayServiceImpl.
  * <p>
- * It uses a combination of Spring Boot's testing support and Awaitility to ensure that the payment operation
- * executes in a separate thread from the test's main thread.
+ * It places orders through the asynchronous pay service against the real database and uses Awaitility to wait
+ * until the {@link PaymentOutboxPoller} has claimed their payment tasks and run the payments. It also checks that
+ * the inventory of an order stays reserved until its payment commits it, that a failed or expired payment
+ * releases the reservation without writing the inventory, that the claims of a previous run are released at
+ * startup, and that a payment interrupted after its debit never debits the user twice.
  * </p>
  *
- * This integration test mocks the dependencies of ASyncPayServiceImpl to isolate and validate its asynchronous execution.
- *
  * @author amirhosein jalian
  */
 @SpringBootTest
 public class AsyncPayServiceIntegrationTest {
 
-    @MockBean
-    private UserService userService;
-
-    @MockBean
-    private OrderDao orderDao;
+    @Autowired
+    private OrderService orderService;
 
     @Autowired
     private ASyncPayServiceImpl asyncPayService;
 
-    private User user;
-    private Product product1;
-    private Product product2;
-    private Item item1;
-    private Item item2;
+    @Autowired
+    private PaymentOutboxPoller paymentOutboxPoller;
+
+    @Autowired
+    private PaymentTaskDao paymentTaskDao;
+
+    @Autowired
+    @Qualifier(PayExecutorConfig.PAY_EXECUTOR)
+    private ThreadPoolTaskExecutor payExecutor;
 
+    @Autowired
+    private StoreService storeService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private ProductDao productDao;
+
+    @Autowired
+    private InventoryReservations reservations;
+
+    @Autowired
+    private ReservationSweeper reservationSweeper;
+
+    @Autowired
+    private BalanceDebitSerializer balanceDebitSerializer;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long userId;
+    private Long productId;
+    private AddOrderDto order;
+
+    /**
+     * Creates a store with one member and one stocked product.
+     */
     @BeforeEach
     void setUp() {
-        user = new User();
-        user.setId(1L);
+        var suffix = UUID.randomUUID().toString();
+        var storeId = storeService.addStore(new AddStoreDto("Outbox Store " + suffix));
+        var user = new User();
+        user.setFirstName("Jalian");
+        user.setLastName("Outbox");
+        user.setEmail(suffix + "@gmail.com");
+        user.setPassword("password");
+        user.setUsername(suffix);
+        user.setBalance(1_000L);
+        userId = userDao.save(user).getId();
+        storeService.addUserToStore(new AddUserToStoreDto(userId, storeId));
 
-        product1 = new Product();
-        product1.setId(101L);
-        product1.setPrice(10.0);
+        productId = productService.addProduct(new ProductDto("Outbox Product", "Description", 10L, storeId));
+        productService.chargeProduct(new ProductOperationDto(productId, 5L));
+        order = new AddOrderDto(userId, storeId, List.of(new ItemDto(productId, 2L)));
+    }
 
-        product2 = new Product();
-        product2.setId(102L);
-        product2.setPrice(5.0);
+    /**
+     * Tests that an asynchronous order is paid by the poller and that its payment task is deleted afterwards.
+     */
+    @Test
+    void testOrderIsPaidFromOutbox() {
+        var orderId = orderService.addOrder(order, asyncPayService);
 
-        item1 = new Item();
-        item1.setCount(2);
-        item1.setProduct(product1);
+        await().atMost(Duration.ofSeconds(10))
+                .until(() -> orderService.findOrderStatus(orderId).status() == OrderStatus.FINISHED);
+        assertThat(taskOf(orderId)).isNull();
+        assertThat(userDao.findById(userId).orElseThrow().getBalance()).isEqualTo(980L);
+        assertThat(productDao.findById(productId).orElseThrow().getInventory()).isEqualTo(3L);
+        await().atMost(Duration.ofSeconds(10)).until(() -> reservations.reserved(productId) == 0);
+    }
 
-        item2 = new Item();
-        item2.setCount(3);
-        item2.setProduct(product2);
+    /**
+     * Tests that an order is reserved rather than discharged while its payment is awaited, and that a failed
+     * payment releases the reservation without writing the product.
+     */
+    @Test
+    void testFailedPaymentReleasesReservationWithoutInventoryWrites() {
+        var user = userDao.findById(userId).orElseThrow();
+        user.setBalance(10L);
+        userDao.save(user);
+        var version = productDao.findById(productId).orElseThrow().getVersion();
+
+        Long orderId = transactionTemplate.execute(status -> {
+            var id = orderService.addOrder(order, asyncPayService);
+            assertThat(reservations.reserved(productId)).isEqualTo(2L);
+            return id;
+        });
+
+        await().atMost(Duration.ofSeconds(10))
+                .until(() -> orderService.findOrderStatus(orderId).status() == OrderStatus.FAILED);
+        await().atMost(Duration.ofSeconds(10)).until(() -> reservations.reserved(productId) == 0);
+        var product = productDao.findById(productId).orElseThrow();
+        assertThat(product.getInventory()).isEqualTo(5L);
+        assertThat(product.getVersion()).isEqualTo(version);
+        assertThat(taskOf(orderId)).isNull();
+    }
+
+    /**
+     * Tests that an order whose payment task stayed pending for longer than the reservation TTL is cancelled by
+     * the sweeper and that its reservation is released.
+     * <p>
+     * The order is placed, backdated and swept in one transaction, so the poller never sees its task.
+     * </p>
+     */
+    @Test
+    void testExpiredReservationIsSwept() {
+        Long orderId = transactionTemplate.execute(status -> {
+            var id = orderService.addOrder(order, asyncPayService);
+            entityManager.createNativeQuery("update payment_tasks set created_at = :createdAt where order_id = :orderId")
+                    .setParameter("createdAt", LocalDateTime.now().minusDays(1))
+                    .setParameter("orderId", id)
+                    .executeUpdate();
+            reservationSweeper.sweep();
+            return id;
+        });
+
+        assertThat(orderService.findOrderStatus(orderId).status()).isEqualTo(OrderStatus.CANCELLED);
+        assertThat(taskOf(orderId)).isNull();
+        assertThat(reservations.reserved(productId)).isZero();
+        assertThat(productDao.findById(productId).orElseThrow().getInventory()).isEqualTo(5L);
+        assertThat(userDao.findById(userId).orElseThrow().getBalance()).isEqualTo(1_000L);
     }
 
     /**
-     * Tests that the asynchronous payment execution occurs in a separate thread.
+     * Tests that a task claimed longer ago than the lease, as if its payment had been interrupted by a restart,
+     * is released by the stale task recovery and then paid.
      * <p>
-     * The test verifies that the call to pay() is executed asynchronously by comparing the thread
-     * name of the payment execution against the main test thread. Awaitility is used to wait until the
-     * asynchronous execution completes.
+     * The order and its claimed task are committed in one transaction, so the poller never sees the task pending
+     * before the recovery releases it.
      * </p>
      */
     @Test
-    void testAsyncExecution() {
-        AtomicReference<String> asyncThreadName = new AtomicReference<>();
+    void testStaleClaimIsReleasedAndPaid() {
+        Long orderId = transactionTemplate.execute(status -> {
+            var id = orderService.addOrder(order, asyncPayService);
+            taskOf(id).claim(LocalDateTime.now().minusDays(1));
+            return id;
+        });
+
+        paymentOutboxPoller.poll();
+        assertThat(orderService.findOrderStatus(orderId).status()).isEqualTo(OrderStatus.AWAITING_PAYMENT);
+        PaymentTaskStatus taskStatus = transactionTemplate.execute(status -> taskOf(orderId).getStatus());
+        assertThat(taskStatus).isEqualTo(PaymentTaskStatus.CLAIMED);
+
+        paymentOutboxPoller.recoverStaleTasks();
+
+        await().atMost(Duration.ofSeconds(10))
+                .until(() -> orderService.findOrderStatus(orderId).status() == OrderStatus.FINISHED);
+        assertThat(taskOf(orderId)).isNull();
+        assertThat(userDao.findById(userId).orElseThrow().getBalance()).isEqualTo(980L);
+    }
 
-        when(userService.updateBalance(any(UpdateBalanceDto.class))).thenAnswer(invocation -> {
-            asyncThreadName.set(Thread.currentThread().getName());
-            return null;
+    /**
+     * Tests that a task claimed shortly before a restart is released as soon as the restarted node is ready, even
+     * though its claim is far younger than the lease, and then paid.
+     * <p>
+     * The restart is simulated by a poller created after the claim. The periodic recovery of the running poller
+     * must leave the claim alone, since it is within the lease.
+     * </p>
+     */
+    @Test
+    void testClaimOfPreviousRunIsReleasedAtStartup() {
+        Long orderId = transactionTemplate.execute(status -> {
+            var id = orderService.addOrder(order, asyncPayService);
+            taskOf(id).claim(LocalDateTime.now().minusSeconds(1));
+            return id;
         });
 
-        when(orderDao.save(any(Order.class))).thenAnswer(invocation -> {
-            Order o = invocation.getArgument(0);
-            if (o.getId() == null) {
-                o.setId(1L);
-            }
-            return o;
+        paymentOutboxPoller.recoverStaleTasks();
+        PaymentTaskStatus taskStatus = transactionTemplate.execute(status -> taskOf(orderId).getStatus());
+        assertThat(taskStatus).isEqualTo(PaymentTaskStatus.CLAIMED);
+        assertThat(orderService.findOrderStatus(orderId).status()).isEqualTo(OrderStatus.AWAITING_PAYMENT);
+
+        new PaymentOutboxPoller(paymentTaskDao, asyncPayService, payExecutor, transactionTemplate)
+                .recoverInterruptedTasks();
+
+        await().atMost(Duration.ofSeconds(10))
+                .until(() -> orderService.findOrderStatus(orderId).status() == OrderStatus.FINISHED);
+        assertThat(taskOf(orderId)).isNull();
+        assertThat(userDao.findById(userId).orElseThrow().getBalance()).isEqualTo(980L);
+    }
+
+    /**
+     * Tests that a payment interrupted right after its debit committed, as if the application had been killed
+     * before completing the order, debits the user exactly once.
+     * <p>
+     * The order and its claimed task are committed in one transaction, so the poller never runs the first
+     * delivery. The debit of that delivery is applied by hand and the delivery stops there, leaving the task
+     * claimed. The stale claim is then released and the task is swept as expired in one transaction: the paid order
+     * must neither be cancelled nor lose its task. The poller finally delivers the task again.
+     * </p>
+     */
+    @Test
+    void testPaymentInterruptedAfterDebitIsDebitedOnce() {
+        Long orderId = transactionTemplate.execute(status -> {
+            var id = orderService.addOrder(order, asyncPayService);
+            taskOf(id).claim(LocalDateTime.now().minusDays(1));
+            return id;
         });
+        var taskId = taskOf(orderId).getId();
+
+        assertThat(balanceDebitSerializer.debit(userId, orderId, taskId, 20L)).isTrue();
+        assertThat(orderService.findOrderStatus(orderId).status()).isEqualTo(OrderStatus.PAID);
+        assertThat(userDao.findById(userId).orElseThrow().getBalance()).isEqualTo(980L);
 
-        Order order = new Order();
-        order.setOrderStatus(OrderStatus.INITIALIZED);
+        transactionTemplate.executeWithoutResult(status -> {
+            paymentOutboxPoller.recoverStaleTasks();
+            entityManager.createNativeQuery("update payment_tasks set created_at = :createdAt where id = :taskId")
+                    .setParameter("createdAt", LocalDateTime.now().minusDays(1))
+                    .setParameter("taskId", taskId)
+                    .executeUpdate();
+            reservationSweeper.sweep();
+            assertThat(orderService.findOrderStatus(orderId).status()).isEqualTo(OrderStatus.PAID);
+            assertThat(taskOf(orderId)).isNotNull();
+        });
 
-        String testThreadName = Thread.currentThread().getName();
-        asyncPayService.pay(user, order, List.of(item1, item2));
+        await().atMost(Duration.ofSeconds(10))
+                .until(() -> orderService.findOrderStatus(orderId).status() == OrderStatus.FINISHED);
+        assertThat(taskOf(orderId)).isNull();
+        assertThat(userDao.findById(userId).orElseThrow().getBalance()).isEqualTo(980L);
+        assertThat(productDao.findById(productId).orElseThrow().getInventory()).isEqualTo(3L);
+        await().atMost(Duration.ofSeconds(10)).until(() -> reservations.reserved(productId) == 0);
+    }
 
-        await().atMost(Duration.ofSeconds(5)).until(() -> asyncThreadName.get() != null);
-        assertThat(asyncThreadName.get()).isNotEqualTo(testThreadName);
+    private PaymentTask taskOf(Long orderId) {
+        return paymentTaskDao.findAll().stream()
+                .filter(task -> task.getOrder().getId().equals(orderId))
+                .findFirst()
+                .orElse(null);
     }
 }
@@ -0,0 +1,71 @@
+package com.jalian.online_store_order_management.integration.service;
+
+import com.jalian.online_store_order_management.OnlineStoreOrderManagementApplication;
+import com.jalian.online_store_order_management.dto.AddStoreDto;
+import com.jalian.online_store_order_management.dto.HotProductDto;
+import com.jalian.online_store_order_management.dto.ProductDto;
+import com.jalian.online_store_order_management.dto.ProductOperationDto;
+import com.jalian.online_store_order_management.service.ProductService;
+import com.jalian.online_store_order_management.service.StoreService;
+import com.jalian.online_store_order_management.service.impl.HotProductInventory;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The HotProductShutdownTest class verifies that the discharges of a hot product survive a graceful shutdown.
+ * <p>
+ * The application is started with a write back interval far longer than the test, so the counters of the hot
+ * product are only written back by the shutdown. It runs against an in-memory database of its own that outlives the
+ * application, so the inventory can be read once the context is closed.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+public class HotProductShutdownTest {
+
+    private static final String URL = "jdbc:h2:mem:hot_shutdown_db;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=50000";
+
+    /**
+     * Discharges a hot product without any write back, closes the application, and asserts that the inventory of
+     * the product holds the remaining total of its counters.
+     *
+     * @throws SQLException if the inventory cannot be read.
+     */
+    @Test
+    public void testGracefulShutdownWritesBackRemainingTotal() throws SQLException {
+        Long productId;
+        try (var context = new SpringApplicationBuilder(OnlineStoreOrderManagementApplication.class)
+                .run("--spring.datasource.url=" + URL,
+                        "--server.port=0",
+                        "--product.hot.flush-interval-ms=3600000")) {
+            var storeService = context.getBean(StoreService.class);
+            var productService = context.getBean(ProductService.class);
+            var hotInventory = context.getBean(HotProductInventory.class);
+            var storeId = storeService.addStore(new AddStoreDto("Shutdown Store"));
+            productId = productService.addProduct(new ProductDto("Hot Product", "Description", 10L, storeId));
+            productService.chargeProduct(new ProductOperationDto(productId, 100L));
+            productService.setHot(new HotProductDto(productId, true));
+            hotInventory.discharge(productId, 30L);
+            hotInventory.discharge(productId, 12L);
+            assertThat(inventoryOf(productId)).isEqualTo(100L);
+        }
+
+        assertThat(inventoryOf(productId)).isEqualTo(58L);
+    }
+
+    private static long inventoryOf(Long productId) throws SQLException {
+        try (var connection = DriverManager.getConnection(URL, "sa", "password");
+             var statement = connection.prepareStatement("select inventory from product where id = ?")) {
+            statement.setLong(1, productId);
+            try (var result = statement.executeQuery()) {
+                assertThat(result.next()).isTrue();
+                return result.getLong(1);
+            }
+        }
+    }
+}
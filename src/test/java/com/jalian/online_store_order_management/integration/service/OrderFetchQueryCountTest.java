@@ -0,0 +1,154 @@
+package com.jalian.online_store_order_management.integration.service;
+
+import com.jalian.online_store_order_management.constant.OrderStatus;
+import com.jalian.online_store_order_management.dao.UserDao;
+import com.jalian.online_store_order_management.domain.User;
+import com.jalian.online_store_order_management.dto.AddOrderDto;
+import com.jalian.online_store_order_management.dto.AddStoreDto;
+import com.jalian.online_store_order_management.dto.AddUserToStoreDto;
+import com.jalian.online_store_order_management.dto.ItemDto;
+import com.jalian.online_store_order_management.dto.ItemFetchDto;
+import com.jalian.online_store_order_management.dto.OrderFetchDto;
+import com.jalian.online_store_order_management.dto.ProductDto;
+import com.jalian.online_store_order_management.dto.ProductOperationDto;
+import com.jalian.online_store_order_management.service.OrderService;
+import com.jalian.online_store_order_management.service.ProductService;
+import com.jalian.online_store_order_management.service.StoreService;
+import com.jalian.online_store_order_management.service.impl.SyncPayServiceImpl;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The OrderFetchQueryCountTest class verifies how many statements fetching the details of an order executes.
+ * <p>
+ * Every statement Hibernate prepares goes through {@link StatementCounter}, which records the statements of the
+ * test thread only, so the background pollers do not disturb the count. The details of an order must be read with
+ * exactly two statements whatever the number of its items, and no entity may end up in the persistence context.
+ * </p>
+ * <p>
+ * The inspector needs an application context of its own, which runs against its own in-memory database so that
+ * recreating the schema does not pull the tables from under the contexts shared by the other tests.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:order_fetch_db;LOCK_TIMEOUT=50000",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+                "com.jalian.online_store_order_management.integration.service.OrderFetchQueryCountTest$StatementCounter"
+})
+public class OrderFetchQueryCountTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private SyncPayServiceImpl syncPayService;
+
+    @Autowired
+    private StoreService storeService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Places an order with the given number of items and fetches its details, asserting that they are complete,
+     * that exactly two statements are executed and that no entity or collection is loaded.
+     *
+     * @param itemCount the number of items of the order.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10})
+    public void testFindOrderByIdExecutesTwoStatements(int itemCount) {
+        var storeName = "Fetch Store " + UUID.randomUUID();
+        var storeId = storeService.addStore(new AddStoreDto(storeName));
+        var suffix = UUID.randomUUID().toString();
+        var user = new User();
+        user.setFirstName("Jalian");
+        user.setLastName("Fetch");
+        user.setEmail(suffix + "@gmail.com");
+        user.setPassword("password");
+        user.setUsername(suffix);
+        user.setBalance(10_000L);
+        var userId = userDao.save(user).getId();
+        storeService.addUserToStore(new AddUserToStoreDto(userId, storeId));
+        var items = new ArrayList<ItemDto>();
+        for (int i = 0; i < itemCount; i++) {
+            var productId = productService.addProduct(new ProductDto("Product " + i, "Description", 10L, storeId));
+            productService.chargeProduct(new ProductOperationDto(productId, 5L));
+            items.add(new ItemDto(productId, 2L));
+        }
+        var orderId = orderService.addOrder(new AddOrderDto(userId, storeId, items), syncPayService);
+
+        var statements = new ArrayList<String>();
+        OrderFetchDto order = transactionTemplate.execute(status -> {
+            StatementCounter.start(statements);
+            try {
+                var fetched = orderService.findOrderById(orderId);
+                var persistenceContext = entityManager.unwrap(Session.class).getStatistics();
+                assertThat(persistenceContext.getEntityCount()).isZero();
+                assertThat(persistenceContext.getCollectionCount()).isZero();
+                return fetched;
+            } finally {
+                StatementCounter.stop();
+            }
+        });
+
+        assertThat(statements).as("statements executed: %s", statements).hasSize(2);
+        assertThat(order.orderId()).isEqualTo(orderId);
+        assertThat(order.status()).isEqualTo(OrderStatus.FINISHED);
+        assertThat(order.owner().id()).isEqualTo(userId.toString());
+        assertThat(order.owner().username()).isEqualTo(suffix);
+        assertThat(order.store().name()).isEqualTo(storeName);
+        assertThat(order.items()).hasSize(itemCount);
+        assertThat(order.items()).extracting(ItemFetchDto::count).containsOnly(2L);
+        assertThat(order.items()).extracting(ItemFetchDto::price).containsOnly(10L);
+    }
+
+    /**
+     * The StatementCounter class records the statements prepared on the thread that started it.
+     */
+    public static class StatementCounter implements StatementInspector {
+
+        private static final ThreadLocal<List<String>> STATEMENTS = new ThreadLocal<>();
+
+        static void start(List<String> statements) {
+            STATEMENTS.set(statements);
+        }
+
+        static void stop() {
+            STATEMENTS.remove();
+        }
+
+        @Override
+        public String inspect(String sql) {
+            var statements = STATEMENTS.get();
+            if (statements != null) {
+                statements.add(sql);
+            }
+            return sql;
+        }
+    }
+}
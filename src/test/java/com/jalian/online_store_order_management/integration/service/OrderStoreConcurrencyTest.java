@@ -0,0 +1,141 @@
+package com.jalian.online_store_order_management.integration.service;
+
+import com.jalian.online_store_order_management.dao.StoreDao;
+import com.jalian.online_store_order_management.dao.UserDao;
+import com.jalian.online_store_order_management.domain.User;
+import com.jalian.online_store_order_management.dto.AddOrderDto;
+import com.jalian.online_store_order_management.dto.AddStoreDto;
+import com.jalian.online_store_order_management.dto.AddUserToStoreDto;
+import com.jalian.online_store_order_management.dto.ItemDto;
+import com.jalian.online_store_order_management.dto.ProductDto;
+import com.jalian.online_store_order_management.dto.ProductOperationDto;
+import com.jalian.online_store_order_management.service.OrderService;
+import com.jalian.online_store_order_management.service.ProductService;
+import com.jalian.online_store_order_management.service.StoreService;
+import com.jalian.online_store_order_management.service.impl.SyncPayServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The OrderStoreConcurrencyTest class verifies that orders placed concurrently against the same store do not
+ * conflict on the store row.
+ * <p>
+ * Every order runs in its own transaction and looks the store up. Each order uses its own user and product, so
+ * the store is the only row the transactions share. Orders must all succeed on the first attempt and the store
+ * version must stay unchanged, which would not hold if the order path locked the store with a forced version
+ * increment.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@SpringBootTest
+public class OrderStoreConcurrencyTest {
+
+    private static final int ORDER_COUNT = 50;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private SyncPayServiceImpl syncPayService;
+
+    @Autowired
+    private StoreService storeService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private StoreDao storeDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Long storeId;
+    private final List<AddOrderDto> orders = new ArrayList<>();
+
+    /**
+     * Creates a store with one member and one stocked product per order.
+     */
+    @BeforeEach
+    public void setup() {
+        storeId = storeService.addStore(new AddStoreDto("Order Store " + UUID.randomUUID()));
+        orders.clear();
+        for (int i = 0; i < ORDER_COUNT; i++) {
+            var suffix = UUID.randomUUID().toString();
+            var user = new User();
+            user.setFirstName("Jalian");
+            user.setLastName("Order");
+            user.setEmail(suffix + "@gmail.com");
+            user.setPassword("password");
+            user.setUsername(suffix);
+            user.setBalance(1_000L);
+            var userId = userDao.save(user).getId();
+            storeService.addUserToStore(new AddUserToStoreDto(userId, storeId));
+
+            var productId = productService.addProduct(new ProductDto("Product " + i, "Description", 10L, storeId));
+            productService.chargeProduct(new ProductOperationDto(productId, 5L));
+            orders.add(new AddOrderDto(userId, storeId, List.of(new ItemDto(productId, 1L))));
+        }
+    }
+
+    /**
+     * Places all orders concurrently on virtual threads and asserts that none of them fails and that the store
+     * version is not changed by the order path. The finished orders, the order phases and the connection
+     * waits must show up in the metrics.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    @Test
+    public void testConcurrentOrdersOnSameStoreDoNotConflict() throws InterruptedException {
+        var versionBefore = storeDao.findById(storeId).orElseThrow().getVersion();
+        var finishedBefore = meterRegistry.get("orders").tag("status", "FINISHED").counter().count();
+        var paymentsBefore = meterRegistry.get("order.add").tag("phase", "payment").timer().count();
+        var start = new CountDownLatch(1);
+        var succeeded = new AtomicInteger();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var order : orders) {
+                executor.submit(() -> {
+                    try {
+                        start.await();
+                        orderService.addOrder(order, syncPayService);
+                        succeeded.incrementAndGet();
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+        }
+
+        assertTrue(failures.isEmpty(), "Concurrent orders on one store failed: " + failures);
+        assertEquals(ORDER_COUNT, succeeded.get());
+        assertEquals(versionBefore, storeDao.findById(storeId).orElseThrow().getVersion(),
+                "Placing orders must not bump the store version.");
+        assertEquals(finishedBefore + ORDER_COUNT,
+                meterRegistry.get("orders").tag("status", "FINISHED").counter().count());
+        assertEquals(paymentsBefore + ORDER_COUNT,
+                meterRegistry.get("order.add").tag("phase", "payment").timer().count());
+        assertTrue(meterRegistry.get("hikaricp.connections.acquire").timer().count() > 0);
+    }
+}
@@ -1,13 +1,17 @@
 package com.jalian.online_store_order_management.integration.service;
 
 import com.jalian.online_store_order_management.dao.ProductDao;
+import com.jalian.online_store_order_management.domain.Item;
 import com.jalian.online_store_order_management.domain.Product;
 import com.jalian.online_store_order_management.dto.AddStoreDto;
+import com.jalian.online_store_order_management.dto.HotProductDto;
 import com.jalian.online_store_order_management.dto.ProductDto;
 import com.jalian.online_store_order_management.dto.ProductOperationDto;
 import com.jalian.online_store_order_management.exception.ValidationException;
 import com.jalian.online_store_order_management.service.ProductService;
 import com.jalian.online_store_order_management.service.StoreService;
+import com.jalian.online_store_order_management.service.impl.HotProductInventory;
+import com.jalian.online_store_order_management.service.impl.InventoryReservations;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -15,6 +19,7 @@ import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -29,8 +34,10 @@ import static org.junit.jupiter.api.Assertions.*;
  * <ul>
  *   <li>Concurrent product charging.</li>
  *   <li>Concurrent product discharging.</li>
+ *   <li>Concurrent discharging of a hot product through its in-memory counters.</li>
  *   <li>Concurrent mixed product operations (charging and discharging) with task shuffling.</li>
  *   <li>Concurrent illegal discharge attempts that should throw exceptions.</li>
+ *   <li>Product reads while a discharge holds the product row.</li>
  * </ul>
  * The tests use virtual threads (via Executors.newVirtualThreadPerTaskExecutor())
  * and Spring's transaction management to simulate concurrent access.
@@ -53,6 +60,12 @@ public class ProductServiceConcurrencyTest {
     @Autowired
     private PlatformTransactionManager transactionManager;
 
+    @Autowired
+    private InventoryReservations reservations;
+
+    @Autowired
+    private HotProductInventory hotInventory;
+
     private Long storeId;
     private Long productId;
 
@@ -68,7 +81,7 @@ public class ProductServiceConcurrencyTest {
     @BeforeEach
     public void setup() {
         storeId = storeService.addStore(new AddStoreDto("Test Store " + UUID.randomUUID()));
-        var productDto = new ProductDto("Test Product", "Test Description", 100.0, storeId);
+        var productDto = new ProductDto("Test Product", "Test Description", 100L, storeId);
         productId = productService.addProduct(productDto);
 
         // Set the product's inventory to the initial value.
@@ -164,6 +177,57 @@ public class ProductServiceConcurrencyTest {
         assertEquals(expectedInventory, product.getInventory(), "Concurrent discharge failed.");
     }
 
+    /**
+     * Tests concurrent discharging of a hot product.
+     * <p>
+     * The product is flagged as hot and discharged by many virtual threads, each committing an order's reservation
+     * in its own transaction, so the discharges go through the striped counters instead of the product row. A charge
+     * made through the row meanwhile must be reconciled, not overwritten, and once the product is switched off the
+     * row holds the final inventory.
+     * </p>
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    @Test
+    public void testConcurrentHotProductDischarge() throws InterruptedException {
+        setProductInventory(highInventory);
+        productService.setHot(new HotProductDto(productId, true));
+        assertTrue(hotInventory.isHot(productId));
+
+        int threadCount = 50;
+        long dischargeAmount = 5L;
+        long chargeAmount = 10L;
+        long expectedInventory = highInventory - threadCount * dischargeAmount + chargeAmount;
+
+        var product = new Product();
+        product.setId(productId);
+        var item = new Item();
+        item.setProduct(product);
+        item.setCount(dischargeAmount);
+        var template = new TransactionTemplate(transactionManager);
+        var latch = new CountDownLatch(threadCount);
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < threadCount; i++) {
+                executor.submit(() -> {
+                    try {
+                        template.executeWithoutResult(status -> reservations.commit(List.of(item)));
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+            }
+            productService.chargeProduct(new ProductOperationDto(productId, chargeAmount));
+            latch.await();
+        }
+
+        hotInventory.flush();
+        assertEquals(expectedInventory, fetchProductInTransaction().getInventory(), "Hot product flush failed.");
+        productService.setHot(new HotProductDto(productId, false));
+        assertFalse(hotInventory.isHot(productId));
+        assertEquals(expectedInventory, fetchProductInTransaction().getInventory(), "Concurrent hot discharge failed.");
+    }
+
     /**
      * Tests concurrent mixed operations (both charging and discharging) on a product's inventory.
      * <p>
@@ -296,4 +360,44 @@ public class ProductServiceConcurrencyTest {
         return new TransactionTemplate(transactionManager)
                 .execute(status -> productDao.findByIdSafe(productId).orElseThrow());
     }
+
+    /**
+     * Tests that reading a product does not wait for a discharge that is still holding the product row.
+     * <p>
+     * A discharge runs in a transaction that is kept open while the product is read from another thread. The read
+     * must return within a few seconds, well below the lock timeout, and see the last committed inventory. Once
+     * the discharge commits, the cached product is invalidated and the next read sees the new inventory.
+     * </p>
+     *
+     * @throws Exception if the thread is interrupted or one of the tasks fails.
+     */
+    @Test
+    public void testProductReadDoesNotWaitForDischarge() throws Exception {
+        productService.chargeProduct(new ProductOperationDto(productId, 10L));
+        var discharged = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var discharge = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                productService.dischargeProduct(new ProductOperationDto(productId, 4L));
+                discharged.countDown();
+                try {
+                    release.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(discharged.await(10, TimeUnit.SECONDS));
+
+            try {
+                var product = executor.submit(() -> productService.getProductById(productId)).get(5, TimeUnit.SECONDS);
+                assertEquals(10L, product.inventory());
+            } finally {
+                release.countDown();
+            }
+            discharge.get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(6L, productService.getProductById(productId).inventory());
+    }
 }
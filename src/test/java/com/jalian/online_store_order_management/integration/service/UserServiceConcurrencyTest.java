@@ -79,8 +79,8 @@ public class UserServiceConcurrencyTest {
     @Test
     public void testUpdateBalanceConcurrency() throws InterruptedException {
         int threadCount = 100;
-        double delta = 10;
-        double expectedBalance = initialBalance + (threadCount * delta);
+        long delta = 10;
+        long expectedBalance = initialBalance + (threadCount * delta);
         var latch = new CountDownLatch(threadCount);
 
         try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
@@ -117,9 +117,9 @@ public class UserServiceConcurrencyTest {
         int depositThreads = 50;
         int withdrawalThreads = 50;
         int totalThreads = depositThreads + withdrawalThreads;
-        double depositDelta = 10;
-        double withdrawalDelta = 5;
-        double expectedBalance = initialBalance + (depositThreads * depositDelta) - (withdrawalThreads * withdrawalDelta);
+        long depositDelta = 10;
+        long withdrawalDelta = 5;
+        long expectedBalance = initialBalance + (depositThreads * depositDelta) - (withdrawalThreads * withdrawalDelta);
         var latch = new CountDownLatch(totalThreads);
 
         try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
@@ -171,7 +171,7 @@ public class UserServiceConcurrencyTest {
     @Test
     public void testUpdateBalanceIllegalWithdrawal() throws InterruptedException {
         int threadCount = 20;
-        double withdrawalAmount = 100;
+        long withdrawalAmount = 100;
         var latch = new CountDownLatch(threadCount);
 
         try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
@@ -219,8 +219,8 @@ public class UserServiceConcurrencyTest {
      */
     private void testUpdateBalanceConcurrencyIteration() throws InterruptedException {
         int threadCount = 100;
-        double delta = 10;
-        double expectedBalance = initialBalance + (threadCount * delta);
+        long delta = 10;
+        long expectedBalance = initialBalance + (threadCount * delta);
         var latch = new CountDownLatch(threadCount);
 
         try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
@@ -0,0 +1,127 @@
+package com.jalian.online_store_order_management.unit.aspect;
+
+import com.jalian.online_store_order_management.annotation.*;
+import com.jalian.online_store_order_management.aspect.ValidatorAspect;
+import com.jalian.online_store_order_management.exception.ValidationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for the {@link ValidatorAspect} class.
+ * <p>
+ * The aspect is applied to a small annotated target through a class-based proxy, the same way Spring applies it
+ * to the services. The tests check the messages of every supported annotation and that a cached validation plan
+ * keeps validating each call on its own arguments.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+public class ValidatorAspectTest {
+
+    private Target target;
+
+    /**
+     * Creates a proxy of the annotated target advised by the validator aspect before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        var factory = new AspectJProxyFactory(new Target());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new ValidatorAspect());
+        target = factory.getProxy();
+    }
+
+    /**
+     * Tests that {@code @Full} rejects null, empty and blank arguments with the parameter name in the message.
+     */
+    @Test
+    void full_rejectsNullEmptyAndBlank() {
+        assertThat(assertThrows(ValidationException.class, () -> target.full(null)).getMessage())
+                .isEqualTo("username cannot be null");
+        assertThat(assertThrows(ValidationException.class, () -> target.full("")).getMessage())
+                .isEqualTo("username cannot be empty");
+        assertThat(assertThrows(ValidationException.class, () -> target.full(" ")).getMessage())
+                .isEqualTo("username cannot be blank");
+        assertThat(target.full("john")).isEqualTo("john");
+    }
+
+    /**
+     * Tests that {@code @NotNull} uses the custom message when one is declared and the default one otherwise.
+     */
+    @Test
+    void notNull_usesCustomOrDefaultMessage() {
+        assertThat(assertThrows(ValidationException.class, () -> target.notNull(null, 1L)).getMessage())
+                .isEqualTo("id is required");
+        assertThat(assertThrows(ValidationException.class, () -> target.notNull(1L, null)).getMessage())
+                .isEqualTo("other cannot be null");
+        assertDoesNotThrow(() -> target.notNull(1L, 2L));
+    }
+
+    /**
+     * Tests that {@code @NotEmpty} and {@code @NotBlank} reject the empty string and a single blank space.
+     */
+    @Test
+    void notEmptyAndNotBlank_rejectEmptyAndBlank() {
+        assertThat(assertThrows(ValidationException.class, () -> target.notEmptyNotBlank("")).getMessage())
+                .isEqualTo("name cannot be empty");
+        assertThat(assertThrows(ValidationException.class, () -> target.notEmptyNotBlank(" ")).getMessage())
+                .isEqualTo("name cannot be blank");
+        assertDoesNotThrow(() -> target.notEmptyNotBlank("name"));
+    }
+
+    /**
+     * Tests that {@code @Pattern} rejects null and non-matching arguments and accepts matching ones, across
+     * repeated calls served by the same cached plan.
+     */
+    @Test
+    void pattern_matchesPrecompiledRegex() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(assertThrows(ValidationException.class, () -> target.pattern("abc")).getMessage())
+                    .isEqualTo("code must be digits");
+            assertThat(assertThrows(ValidationException.class, () -> target.pattern(null)).getMessage())
+                    .isEqualTo("code cannot be null");
+            assertThat(target.pattern("123")).isEqualTo("123");
+        }
+    }
+
+    /**
+     * Tests that a {@code @Valid} method without constraint annotations is not validated.
+     */
+    @Test
+    void unannotatedParameters_areNotValidated() {
+        assertDoesNotThrow(() -> target.unconstrained(null));
+    }
+
+    /**
+     * An annotated target covering every constraint supported by the validator aspect.
+     */
+    public static class Target {
+
+        @Valid
+        public String full(@Full String username) {
+            return username;
+        }
+
+        @Valid
+        public void notNull(@NotNull(message = "id is required") Long id, @NotNull Long other) {
+        }
+
+        @Valid
+        public void notEmptyNotBlank(@NotEmpty @NotBlank String name) {
+        }
+
+        @Valid
+        public String pattern(@Pattern(regex = "\\d+", message = "code must be digits") String code) {
+            return code;
+        }
+
+        @Valid
+        public void unconstrained(String value) {
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.jalian.online_store_order_management.unit.config;
+
+import com.jalian.online_store_order_management.config.CatalogCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the {@link CatalogCache} class.
+ * <p>
+ * This class tests that values are served from the cache until they expire or are invalidated, that missing keys
+ * and loads racing with an invalidation are not cached, that invalidations inside a transaction wait for the
+ * commit, and that hits, misses and evictions are published as meters.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+public class CatalogCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    /**
+     * Tests that a loaded value is served from the cache and that hits and misses are counted.
+     */
+    @Test
+    void get_cachesLoadedValue() {
+        var cache = cache(10, Duration.ofMinutes(1));
+
+        assertThat(cache.get(1L, this::load)).isEqualTo("value-1");
+        assertThat(cache.get(1L, this::load)).isEqualTo("value-1");
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(meter("cache.gets", "hit")).isEqualTo(1);
+        assertThat(meter("cache.gets", "miss")).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.size").tag("cache", "test").gauge().value()).isEqualTo(1);
+    }
+
+    /**
+     * Tests that a key whose loader returns {@code null} is not cached.
+     */
+    @Test
+    void get_doesNotCacheMissingKeys() {
+        var cache = cache(10, Duration.ofMinutes(1));
+
+        assertThat(cache.get(1L, key -> null)).isNull();
+
+        assertThat(cache.size()).isZero();
+    }
+
+    /**
+     * Tests that expired entries are loaded again and counted as evictions.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting for the entry to expire.
+     */
+    @Test
+    void get_reloadsExpiredValue() throws InterruptedException {
+        var cache = cache(10, Duration.ofMillis(1));
+
+        cache.get(1L, this::load);
+        Thread.sleep(5);
+        cache.get(1L, this::load);
+
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(meterRegistry.get("cache.evictions").tag("cache", "test").counter().count()).isEqualTo(1);
+    }
+
+    /**
+     * Tests that the cache is dropped once it reaches its maximum size.
+     */
+    @Test
+    void get_dropsCacheWhenFull() {
+        var cache = cache(2, Duration.ofMinutes(1));
+
+        cache.get(1L, this::load);
+        cache.get(2L, this::load);
+        cache.get(3L, this::load);
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.evictions").tag("cache", "test").counter().count()).isEqualTo(2);
+    }
+
+    /**
+     * Tests that a value loaded while its key is invalidated is returned but not cached, since it may be the
+     * value from before the change.
+     */
+    @Test
+    void get_doesNotCacheLoadRacingWithInvalidation() {
+        var cache = cache(10, Duration.ofMinutes(1));
+
+        var value = cache.get(1L, key -> {
+            cache.invalidate(key);
+            return load(key);
+        });
+
+        assertThat(value).isEqualTo("value-1");
+        assertThat(cache.size()).isZero();
+    }
+
+    /**
+     * Tests that an invalidation requested inside a transaction only runs once the transaction has committed.
+     */
+    @Test
+    void invalidateAfterCommit_waitsForCommit() {
+        var cache = cache(10, Duration.ofMinutes(1));
+        cache.get(1L, this::load);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidateAfterCommit(1L);
+            assertThat(cache.size()).isEqualTo(1);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(cache.size()).isZero();
+        assertThat(meterRegistry.get("cache.invalidations").tag("cache", "test").counter().count()).isEqualTo(1);
+    }
+
+    private CatalogCache<Long, String> cache(int maxSize, Duration ttl) {
+        return new CatalogCache<>("test", maxSize, ttl, meterRegistry);
+    }
+
+    private String load(Long key) {
+        loads.incrementAndGet();
+        return "value-" + key;
+    }
+
+    private double meter(String name, String result) {
+        return meterRegistry.get(name).tags("cache", "test", "result", result).counter().count();
+    }
+}
@@ -0,0 +1,83 @@
+package com.jalian.online_store_order_management.unit.config;
+
+import com.jalian.online_store_order_management.config.OrderMetrics;
+import com.jalian.online_store_order_management.config.OrderMetrics.Phase;
+import com.jalian.online_store_order_management.constant.OrderStatus;
+import com.jalian.online_store_order_management.domain.Product;
+import com.jalian.online_store_order_management.domain.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import org.hibernate.StaleObjectStateException;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the {@link OrderMetrics} class.
+ * <p>
+ * This class tests that lock failures are counted by the entity they happened on, that other failures are
+ * ignored, and that order statuses, payment attempts and order phases are recorded in their meters.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+public class OrderMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OrderMetrics orderMetrics = new OrderMetrics(meterRegistry);
+
+    /**
+     * Tests that lock failures are tagged with the entity named by the exception or by one of its causes.
+     */
+    @Test
+    void lockFailure_isTaggedByEntity() {
+        orderMetrics.lockFailure(new ObjectOptimisticLockingFailureException(User.class, 1L), "api");
+        orderMetrics.lockFailure(new OptimisticLockException(
+                new StaleObjectStateException(Product.class.getName(), 2L)), "payment");
+        orderMetrics.lockFailure(new CannotAcquireLockException("timeout"), "payment");
+
+        assertThat(lockCount("User", "api")).isEqualTo(1);
+        assertThat(lockCount("Product", "payment")).isEqualTo(1);
+        assertThat(lockCount(OrderMetrics.UNKNOWN_ENTITY, "payment")).isEqualTo(1);
+    }
+
+    /**
+     * Tests that failures which are not lock failures are not counted.
+     */
+    @Test
+    void lockFailure_ignoresOtherFailures() {
+        orderMetrics.lockFailure(new IllegalStateException("not a lock"), "payment");
+        orderMetrics.lockFailure(null, "payment");
+
+        assertThat(meterRegistry.find("lock.exceptions").counter()).isNull();
+    }
+
+    /**
+     * Tests that final statuses, payment attempts and order phases are recorded.
+     */
+    @Test
+    void outcomesAndPhases_areRecorded() {
+        orderMetrics.orderCompleted(OrderStatus.FINISHED);
+        orderMetrics.orderCompleted(OrderStatus.FINISHED);
+        orderMetrics.orderCompleted(OrderStatus.FAILED);
+        orderMetrics.paymentAttempts(3, OrderStatus.FINISHED);
+        orderMetrics.stopPhase(orderMetrics.startPhase(), Phase.VALIDATION);
+
+        assertThat(meterRegistry.get("orders").tag("status", "FINISHED").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("orders").tag("status", "FAILED").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("orders").tag("status", "CANCELLED").counter().count()).isZero();
+        assertThat(meterRegistry.get("pay.attempts").tag("status", "FINISHED").summary().max()).isEqualTo(3);
+        var validation = meterRegistry.get("order.add").tag("phase", "validation").timer();
+        assertThat(validation.count()).isEqualTo(1);
+        assertThat(validation.totalTime(TimeUnit.NANOSECONDS)).isPositive();
+        assertThat(meterRegistry.get("order.add").tag("phase", "payment").timer().count()).isZero();
+    }
+
+    private double lockCount(String entity, String source) {
+        return meterRegistry.get("lock.exceptions").tags("entity", entity, "source", source).counter().count();
+    }
+}
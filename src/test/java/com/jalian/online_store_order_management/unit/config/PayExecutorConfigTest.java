@@ -0,0 +1,93 @@
+package com.jalian.online_store_order_management.unit.config;
+
+import com.jalian.online_store_order_management.config.PayExecutorConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for the {@link PayExecutorConfig} class.
+ * <p>
+ * This class tests that the payment executor rejects work once its workers and queue are full,
+ * and that it publishes its queue depth, active workers and rejections as meters.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+public class PayExecutorConfigTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ThreadPoolTaskExecutor executor;
+
+    /**
+     * Creates a payment executor with one worker and a queue of one before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        executor = new PayExecutorConfig().payExecutor(1, 1, 1, false, meterRegistry);
+        executor.initialize();
+    }
+
+    /**
+     * Releases the blocked tasks and shuts the executor down after each test.
+     */
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    /**
+     * Tests that a payment submitted to a saturated executor is rejected and counted.
+     */
+    @Test
+    void payExecutor_saturated_rejectsAndCounts() throws InterruptedException {
+        var started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            await();
+        });
+        started.await();
+        executor.execute(this::await);
+
+        assertThrows(TaskRejectedException.class, () -> executor.execute(this::await));
+        assertThat(meterRegistry.get("pay.executor.rejected").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("pay.executor.queue.depth").gauge().value()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("pay.executor.active").gauge().value()).isEqualTo(1.0);
+    }
+
+    /**
+     * Tests that the executor runs payments on virtual threads when configured to.
+     */
+    @Test
+    void payExecutor_virtualThreads_runsOnVirtualThread() throws InterruptedException {
+        var virtualExecutor = new PayExecutorConfig().payExecutor(1, 1, 1, true, new SimpleMeterRegistry());
+        virtualExecutor.initialize();
+        var done = new CountDownLatch(1);
+        var virtual = new boolean[1];
+        virtualExecutor.execute(() -> {
+            virtual[0] = Thread.currentThread().isVirtual();
+            done.countDown();
+        });
+        done.await();
+        virtualExecutor.shutdown();
+        assertThat(virtual[0]).isTrue();
+    }
+
+    private void await() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -65,7 +65,7 @@ public class ItemDaoTest {
     public void setup() {
         store = storeDao.save(new Store("Store " + UUID.randomUUID()));
         user = userDao.save(new User("user" + UUID.randomUUID(), "pass"));
-        product = productDao.save(new Product(store, 100.0, "Prod Desc", "Prod Name"));
+        product = productDao.save(new Product(store, 100L, "Prod Desc", "Prod Name"));
         order = orderDao.save(new Order(OrderStatus.INITIALIZED, user, store));
         item = new Item(new ItemKey(order.getId(), product.getId()), product, order, 5, product.getInventory(), product.getPrice());
     }
@@ -89,10 +89,10 @@ public class ItemDaoTest {
     public void testUpdateItem() {
         var savedItem = itemDao.save(item);
         savedItem.setCount(10);
-        savedItem.setPrice(80.0);
+        savedItem.setPrice(80L);
         var updated = itemDao.save(savedItem);
         assertThat(updated.getCount()).isEqualTo(10);
-        assertThat(updated.getPrice()).isEqualTo(80.0);
+        assertThat(updated.getPrice()).isEqualTo(80L);
     }
 
     @Test
@@ -106,7 +106,7 @@ public class ItemDaoTest {
     @Test
     public void testFindAll() {
         itemDao.save(item);
-        var product2  = productDao.save(new Product(store, 100.0, "Prod Desc", "Prod Name"));
+        var product2  = productDao.save(new Product(store, 100L, "Prod Desc", "Prod Name"));
         itemDao.save(new Item(new ItemKey(order.getId(), product2.getId()), product2, order, 7, product.getInventory(), product.getPrice()));
         var allItems = itemDao.findAll();
         assertThat(allItems.size()).isGreaterThanOrEqualTo(2);
@@ -0,0 +1,100 @@
+package com.jalian.online_store_order_management.unit.dao;
+
+import com.jalian.online_store_order_management.constant.OrderStatus;
+import com.jalian.online_store_order_management.dao.OrderDao;
+import com.jalian.online_store_order_management.dao.StoreDao;
+import com.jalian.online_store_order_management.dao.UserDao;
+import com.jalian.online_store_order_management.domain.Order;
+import com.jalian.online_store_order_management.domain.Store;
+import com.jalian.online_store_order_management.domain.User;
+import com.jalian.online_store_order_management.dto.OrderSummaryDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The OrderDaoTest class contains unit tests for the order history queries of the {@link OrderDao} repository.
+ * <p>
+ * These tests validate that the orders of a user or a store are listed newest first below the given cursor, and
+ * that the queries seek into the {@code (user_id, id)} and {@code (store_id, id)} indexes.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@DataJpaTest
+public class OrderDaoTest {
+
+    @Autowired
+    private OrderDao orderDao;
+
+    @Autowired
+    private StoreDao storeDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Store store;
+    private User user;
+    private final List<Long> userOrderIds = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        store = storeDao.save(new Store("Store " + UUID.randomUUID()));
+        var otherStore = storeDao.save(new Store("Store " + UUID.randomUUID()));
+        user = userDao.save(new User("user" + UUID.randomUUID(), "pass"));
+        var otherUser = userDao.save(new User("user" + UUID.randomUUID(), "pass"));
+        for (int i = 0; i < 5; i++) {
+            userOrderIds.add(orderDao.save(new Order(OrderStatus.FINISHED, user, i % 2 == 0 ? store : otherStore)).getId());
+            orderDao.save(new Order(OrderStatus.INITIALIZED, otherUser, otherStore));
+        }
+        orderDao.flush();
+    }
+
+    @Test
+    public void testFindUserOrdersBefore_pagesNewestFirst() {
+        var firstPage = orderDao.findUserOrdersBefore(user.getId(), Long.MAX_VALUE, Limit.of(3));
+        var secondPage = orderDao.findUserOrdersBefore(user.getId(), firstPage.getLast().orderId(), Limit.of(3));
+
+        assertThat(firstPage).extracting(OrderSummaryDto::orderId)
+                .containsExactly(userOrderIds.get(4), userOrderIds.get(3), userOrderIds.get(2));
+        assertThat(secondPage).extracting(OrderSummaryDto::orderId)
+                .containsExactly(userOrderIds.get(1), userOrderIds.get(0));
+        assertThat(firstPage.getFirst().userId()).isEqualTo(user.getId());
+        assertThat(firstPage.getFirst().status()).isEqualTo(OrderStatus.FINISHED);
+        assertThat(firstPage.getFirst().createdAt()).isNotNull();
+    }
+
+    @Test
+    public void testFindStoreOrdersBefore_listsOnlyTheStore() {
+        var orders = orderDao.findStoreOrdersBefore(store.getId(), userOrderIds.get(4), Limit.of(10));
+
+        assertThat(orders).extracting(OrderSummaryDto::orderId)
+                .containsExactly(userOrderIds.get(2), userOrderIds.get(0));
+        assertThat(orders).extracting(OrderSummaryDto::storeId).containsOnly(store.getId());
+    }
+
+    @Test
+    public void testHistoryQueries_seekIntoIndexes() {
+        var userPlan = explain("select id from orders where user_id = ? and id < ? order by id desc limit 20");
+        var storePlan = explain("select id from orders where store_id = ? and id < ? order by id desc limit 20");
+
+        assertThat(userPlan).containsIgnoringCase("IDX_ORDERS_USER_ID");
+        assertThat(storePlan).containsIgnoringCase("IDX_ORDERS_STORE_ID");
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.queryForObject("explain " + sql, String.class, user.getId(), Long.MAX_VALUE);
+    }
+}
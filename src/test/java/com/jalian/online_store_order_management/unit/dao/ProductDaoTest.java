@@ -4,6 +4,8 @@ import com.jalian.online_store_order_management.dao.ProductDao;
 import com.jalian.online_store_order_management.dao.StoreDao;
 import com.jalian.online_store_order_management.domain.Product;
 import com.jalian.online_store_order_management.domain.Store;
+import com.jalian.online_store_order_management.dto.ProductInventoryDto;
+import com.jalian.online_store_order_management.dto.ProductOperationDto;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
@@ -19,7 +21,8 @@ import static org.assertj.core.api.Assertions.assertThat;
  * The ProductDaoTest class provides unit tests for the {@link ProductDao} repository.
  * <p>
  * It extends {@link BaseDomainRepositoryTest} to reuse common CRUD test cases. In addition, it
- * tests the custom method {@code findByIdSafe} to ensure it behaves as expected when a product exists or does not exist.
+ * tests the custom method {@code findByIdSafe} to ensure it behaves as expected when a product exists or does not exist,
+ * and the inventory updates applied by the database.
  * </p>
  *
  * @author amirhosein jalian
@@ -61,6 +64,49 @@ public class ProductDaoTest extends BaseDomainRepositoryTest<Product, Long, Prod
         assertThat(foundProduct).isNotPresent();
     }
 
+    /**
+     * Tests that {@code dischargeInventory} decreases the inventory when enough of it is available.
+     */
+    @Test
+    public void testDischargeInventory_whenEnoughInventory_updatesRow() {
+        instanceToTest.setInventory(10);
+        var savedProduct = repository.saveAndFlush(instanceToTest);
+        var updatedRows = repository.dischargeInventory(savedProduct.getId(), 4);
+        assertThat(updatedRows).isEqualTo(1);
+        assertThat(repository.findFetchDtoById(savedProduct.getId()))
+                .hasValueSatisfying(product -> assertThat(product.inventory()).isEqualTo(6));
+    }
+
+    /**
+     * Tests that {@code dischargeInventory} leaves the row untouched when not enough inventory is available.
+     */
+    @Test
+    public void testDischargeInventory_whenNotEnoughInventory_updatesNothing() {
+        instanceToTest.setInventory(3);
+        var savedProduct = repository.saveAndFlush(instanceToTest);
+        var updatedRows = repository.dischargeInventory(savedProduct.getId(), 4);
+        assertThat(updatedRows).isZero();
+        assertThat(repository.findFetchDtoById(savedProduct.getId()))
+                .hasValueSatisfying(product -> assertThat(product.inventory()).isEqualTo(3));
+    }
+
+    /**
+     * Tests that {@code addInventories} charges every existing product in one batch and reports the missing ones.
+     */
+    @Test
+    public void testAddInventories_chargesExistingProducts() {
+        var saved = repository.saveAllAndFlush(findAllEntities());
+        var counts = repository.addInventories(List.of(
+                new ProductOperationDto(saved.get(0).getId(), 5),
+                new ProductOperationDto(999L, 5),
+                new ProductOperationDto(saved.get(0).getId(), 2),
+                new ProductOperationDto(saved.get(1).getId(), 3)));
+        assertThat(counts).containsExactly(1, 0, 1, 1);
+        assertThat(repository.findInventoriesByIds(List.of(saved.get(0).getId(), saved.get(1).getId())))
+                .extracting(ProductInventoryDto::inventory)
+                .containsExactlyInAnyOrder(7L, 3L);
+    }
+
     /**
      * Initializes the instance of the product to be tested.
      */
@@ -70,7 +116,7 @@ public class ProductDaoTest extends BaseDomainRepositoryTest<Product, Long, Prod
         instanceToTest = new Product();
         instanceToTest.setName("Test Product");
         instanceToTest.setDescription("Test Description");
-        instanceToTest.setPrice(99.99);
+        instanceToTest.setPrice(9999L);
         instanceToTest.setStore(store);
     }
 
@@ -110,19 +156,19 @@ public class ProductDaoTest extends BaseDomainRepositoryTest<Product, Long, Prod
         var productOne = new Product();
         productOne.setName("Test Product");
         productOne.setDescription("Test Description");
-        productOne.setPrice(99.99);
+        productOne.setPrice(9999L);
         productOne.setStore(store);
 
         var productTwo = new Product();
         productTwo.setName("Test Product");
         productTwo.setDescription("Test Description");
-        productTwo.setPrice(99.99);
+        productTwo.setPrice(9999L);
         productTwo.setStore(store);
 
         var productThree = new Product();
         productThree.setName("Test Product");
         productThree.setDescription("Test Description");
-        productThree.setPrice(99.99);
+        productThree.setPrice(9999L);
         productThree.setStore(store);
 
         return List.of(productOne, productTwo, productThree);
@@ -1,7 +1,9 @@
 package com.jalian.online_store_order_management.unit.dao;
 
 import com.jalian.online_store_order_management.dao.StoreDao;
+import com.jalian.online_store_order_management.dao.UserDao;
 import com.jalian.online_store_order_management.domain.Store;
+import com.jalian.online_store_order_management.domain.User;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
@@ -18,7 +20,8 @@ import static org.assertj.core.api.Assertions.assertThat;
  * The StoreDaoTest class provides unit tests for the {@link StoreDao} repository.
  * <p>
  * It extends the {@link BaseDomainRepositoryTest} to leverage common CRUD test cases, and it includes
- * additional tests for custom query methods such as {@code findByIdSafe} and {@code findByNameSafe}.
+ * additional tests for custom query methods such as {@code findByIdSafe}, {@code findByNameSafe} and
+ * {@code existsMember}.
  * </p>
  *
  * @author amirhosein jalian
@@ -36,6 +39,9 @@ public class StoreDaoTest extends BaseDomainRepositoryTest<Store, Long, StoreDao
         super(repository);
     }
 
+    @Autowired
+    private UserDao userDao;
+
     /**
      * Initializes the {@code instanceToTest} with a new {@link Store} instance and an empty list of users.
      */
@@ -62,6 +68,22 @@ public class StoreDaoTest extends BaseDomainRepositoryTest<Store, Long, StoreDao
         assertThat(foundStore.get().getName()).isEqualTo("Store A");
     }
 
+    /**
+     * Tests that {@code existsMember} answers whether a user is a member of a store.
+     */
+    @Test
+    public void testExistsMember_returnsMembership() {
+        var member = userDao.save(new User("member_" + UUID.randomUUID(), "password"));
+        var stranger = userDao.save(new User("stranger_" + UUID.randomUUID(), "password"));
+        var store = new Store("Store M");
+        store.setUsers(new ArrayList<>(List.of(member)));
+        var savedStore = repository.saveAndFlush(store);
+
+        assertThat(repository.existsMember(savedStore.getId(), member.getId())).isTrue();
+        assertThat(repository.existsMember(savedStore.getId(), stranger.getId())).isFalse();
+        assertThat(repository.existsMember(-1L, member.getId())).isFalse();
+    }
+
     /**
      * Tests that {@code findByIdSafe} returns an empty Optional when the store does not exist.
      */
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 
 import java.util.List;
 import java.util.UUID;
@@ -17,8 +18,8 @@ import static org.assertj.core.api.Assertions.assertThat;
  * The UserDaoTest class provides unit tests for the {@link UserDao} repository.
  * <p>
  * It extends the {@link BaseDomainRepositoryTest} to reuse common CRUD test cases, and it includes
- * additional tests for custom query methods such as {@code findByUsername}, {@code findUserById}, and
- * {@code findUserByIdForUpdate}.
+ * additional tests for custom query methods such as {@code findByUsername}, {@code findUserById},
+ * and the conditional balance update statements.
  * </p>
  *
  * @author amirhosein jalian
@@ -27,6 +28,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 public class UserDaoTest extends BaseDomainRepositoryTest<User, Long, UserDao> {
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     /**
      * Constructor for UserDaoTest.
      *
@@ -105,20 +109,71 @@ public class UserDaoTest extends BaseDomainRepositoryTest<User, Long, UserDao> {
     }
 
     /**
-     * Tests the {@code findUserByIdForUpdate} method when the user exists.
-     * <p>
-     * It verifies that the user can be found for update.
-     * </p>
+     * Tests that {@code findBalanceById} reads the balance of an existing user and nothing for a missing one.
      */
     @Test
-    public void testFindUserByIdForUpdate_whenUserExists_returnsUserForUpdate() {
-        var user = new User("user3", "password");
-        var savedUser = repository.save(user);
+    public void testFindBalanceById_readsBalance() {
+        var user = new User("user10", "password");
+        user.setBalance(70L);
+        var savedUser = repository.saveAndFlush(user);
 
-        var foundUser = repository.findUserByIdForUpdate(savedUser.getId());
+        assertThat(repository.findBalanceById(savedUser.getId())).hasValue(70L);
+        assertThat(repository.findBalanceById(-1L)).isEmpty();
+    }
 
-        assertThat(foundUser).isPresent();
-        assertThat(foundUser.get().getId()).isEqualTo(savedUser.getId());
+    /**
+     * Tests that {@code debitBalance} decreases the balance and bumps the version when the balance covers the debit.
+     */
+    @Test
+    public void testDebitBalance_whenBalanceCovers_updatesRow() {
+        var user = new User("user7", "password");
+        user.setBalance(100L);
+        var savedUser = repository.saveAndFlush(user);
+        var version = savedUser.getVersion();
+
+        var updatedRows = repository.debitBalance(savedUser.getId(), 40L);
+
+        assertThat(updatedRows).isEqualTo(1);
+        assertThat(repository.findFetchDtoById(savedUser.getId()))
+                .hasValueSatisfying(fetched -> assertThat(fetched.balance()).isEqualTo(60L));
+        entityManager.clear();
+        assertThat(repository.findById(savedUser.getId()))
+                .hasValueSatisfying(reloaded -> assertThat(reloaded.getVersion()).isEqualTo(version + 1));
+    }
+
+    /**
+     * Tests that {@code debitBalance} leaves the row untouched when the balance does not cover the debit.
+     */
+    @Test
+    public void testDebitBalance_whenBalanceDoesNotCover_updatesNothing() {
+        var user = new User("user8", "password");
+        user.setBalance(30L);
+        var savedUser = repository.saveAndFlush(user);
+
+        var updatedRows = repository.debitBalance(savedUser.getId(), 40L);
+
+        assertThat(updatedRows).isZero();
+        assertThat(repository.findFetchDtoById(savedUser.getId()))
+                .hasValueSatisfying(fetched -> assertThat(fetched.balance()).isEqualTo(30L));
+    }
+
+    /**
+     * Tests that {@code creditBalance} increases the balance of an existing user.
+     */
+    @Test
+    public void testCreditBalance_whenUserExists_updatesRow() {
+        var user = new User("user9", "password");
+        user.setBalance(30L);
+        var savedUser = repository.saveAndFlush(user);
+
+        assertThat(repository.creditBalance(savedUser.getId(), 20L)).isEqualTo(1);
+        assertThat(repository.creditBalance(-1L, 20L)).isZero();
+        assertThat(repository.findFetchDtoById(savedUser.getId()))
+                .hasValueSatisfying(fetched -> {
+                    assertThat(fetched.balance()).isEqualTo(50L);
+                    assertThat(fetched.id()).isEqualTo(savedUser.getId().toString());
+                    assertThat(fetched.username()).isEqualTo("user9");
+                });
     }
 
     /**
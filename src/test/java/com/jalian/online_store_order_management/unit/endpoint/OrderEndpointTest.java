@@ -1,9 +1,15 @@
 package com.jalian.online_store_order_management.unit.endpoint;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalian.online_store_order_management.config.OrderMetrics;
 import com.jalian.online_store_order_management.constant.OrderStatus;
 import com.jalian.online_store_order_management.dto.AddOrderDto;
 import com.jalian.online_store_order_management.dto.OrderFetchDto;
+import com.jalian.online_store_order_management.dto.OrderPageDto;
+import com.jalian.online_store_order_management.dto.OrderResultDto;
+import com.jalian.online_store_order_management.dto.OrderStatusDto;
+import com.jalian.online_store_order_management.dto.OrderSummaryDto;
+import com.jalian.online_store_order_management.event.OrderCompletedEvent;
 import com.jalian.online_store_order_management.exception.EntityNotFoundException;
 import com.jalian.online_store_order_management.exception.ValidationException;
 import com.jalian.online_store_order_management.endpoint.OrderEndpoint;
@@ -12,12 +18,15 @@ import com.jalian.online_store_order_management.service.PayService;
 import com.jalian.online_store_order_management.service.impl.ASyncPayServiceImpl;
 import com.jalian.online_store_order_management.service.impl.SyncPayServiceImpl;
 import com.jalian.online_store_order_management.web.BaseResponse;
+import com.jalian.online_store_order_management.web.OrderEventStream;
 import com.jalian.online_store_order_management.exception.handler.GlobalExceptionHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
@@ -27,8 +36,10 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -38,7 +49,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * Unit tests for the {@link OrderEndpoint} class.
  * <p>
  * This class tests various endpoint scenarios such as adding orders synchronously and asynchronously,
- * fetching orders by ID, and handling validation and exception cases.
+ * fetching orders or their status by ID, streaming the final status of an order, and handling validation and
+ * exception cases.
  * </p>
  *
  * @author amirhosein jalian
@@ -59,6 +71,8 @@ public class OrderEndpointTest {
     private SyncPayServiceImpl syncPayService;
     @Mock
     private ASyncPayServiceImpl asyncPayService;
+    @Spy
+    private OrderEventStream orderEventStream = new OrderEventStream();
 
     /**
      * Initializes the mock MVC and sets up the OrderEndpoint before each test.
@@ -66,7 +80,7 @@ public class OrderEndpointTest {
     @BeforeEach
     void setUp() {
         mockMvc = MockMvcBuilders.standaloneSetup(orderEndpoint)
-                .setControllerAdvice(new GlobalExceptionHandler())
+                .setControllerAdvice(new GlobalExceptionHandler(new OrderMetrics(new SimpleMeterRegistry())))
                 .build();
     }
 
@@ -152,4 +166,131 @@ public class OrderEndpointTest {
                 .andExpect(jsonPath("$.message", containsString("Validation failed")))
                 .andExpect(jsonPath("$.timestamp", notNullValue()));
     }
+
+    /**
+     * Tests submitting a batch of orders and checking the per-order results.
+     */
+    @Test
+    void addOrders_batch_success() throws Exception {
+        var dtos = List.of(new AddOrderDto(1L, 1L, List.of()), new AddOrderDto(2L, 1L, List.of()));
+        when(orderService.addOrders(anyList(), any(PayService.class))).thenReturn(List.of(
+                OrderResultDto.success(100L),
+                OrderResultDto.failure("User does not belong to store: 1")
+        ));
+
+        mockMvc.perform(post("/orders/add/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dtos)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result", hasSize(2)))
+                .andExpect(jsonPath("$.result[0].orderId", is(100)))
+                .andExpect(jsonPath("$.result[1].error", is("User does not belong to store: 1")))
+                .andExpect(jsonPath("$.message", is("Order batch processed")));
+    }
+
+    /**
+     * Tests fetching only the status of an order.
+     */
+    @Test
+    void findOrderStatus_success() throws Exception {
+        when(orderService.findOrderStatus(100L)).thenReturn(new OrderStatusDto(100L, OrderStatus.AWAITING_PAYMENT));
+
+        mockMvc.perform(get("/orders/status/100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.orderId", is(100)))
+                .andExpect(jsonPath("$.result.status", is("AWAITING_PAYMENT")))
+                .andExpect(jsonPath("$.message", is("Order status fetched successfully")));
+    }
+
+    /**
+     * Tests that subscribing to an order that is already final sends its status right away.
+     */
+    @Test
+    void streamOrderEvents_finalOrder_sendsStatusRightAway() throws Exception {
+        when(orderService.findOrderStatus(100L)).thenReturn(new OrderStatusDto(100L, OrderStatus.FINISHED));
+
+        var result = mockMvc.perform(get("/orders/100/events"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertThat(result.getResponse().getContentAsString())
+                .contains("event:status")
+                .contains("\"status\":\"FINISHED\"");
+        assertThat(orderEventStream.subscribedOrders()).isZero();
+    }
+
+    /**
+     * Tests that a subscriber of a pending order receives its final status once the order completes.
+     */
+    @Test
+    void streamOrderEvents_pendingOrder_sendsStatusOnCompletion() throws Exception {
+        when(orderService.findOrderStatus(100L)).thenReturn(new OrderStatusDto(100L, OrderStatus.INITIALIZED));
+
+        var result = mockMvc.perform(get("/orders/100/events"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertThat(result.getResponse().getContentAsString()).doesNotContain("event:status");
+        assertThat(orderEventStream.subscribedOrders()).isEqualTo(1);
+
+        orderEventStream.onOrderCompleted(new OrderCompletedEvent(100L, OrderStatus.FAILED));
+
+        assertThat(result.getResponse().getContentAsString())
+                .contains("event:status")
+                .contains("\"status\":\"FAILED\"");
+        assertThat(orderEventStream.subscribedOrders()).isZero();
+    }
+
+    /**
+     * Tests listing a page of a user's orders with a cursor.
+     */
+    @Test
+    void findUserOrders_success() throws Exception {
+        when(orderService.findUserOrders(1L, 50L, 2)).thenReturn(new OrderPageDto(List.of(
+                new OrderSummaryDto(40L, 1L, 2L, OrderStatus.FINISHED, null),
+                new OrderSummaryDto(30L, 1L, 2L, OrderStatus.CANCELLED, null)), 30L));
+
+        mockMvc.perform(get("/orders/user/1").param("before", "50").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.orders[0].orderId", is(40)))
+                .andExpect(jsonPath("$.result.orders[1].status", is("CANCELLED")))
+                .andExpect(jsonPath("$.result.nextBefore", is(30)))
+                .andExpect(jsonPath("$.message", is("Orders fetched successfully")));
+    }
+
+    /**
+     * Tests listing the first page of a store's orders with the default page size.
+     */
+    @Test
+    void findStoreOrders_firstPage() throws Exception {
+        when(orderService.findStoreOrders(2L, null, null)).thenReturn(new OrderPageDto(List.of(), null));
+
+        mockMvc.perform(get("/orders/store/2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.orders", hasSize(0)))
+                .andExpect(jsonPath("$.result.nextBefore", nullValue()));
+    }
+
+    /**
+     * Tests that an invalid page size is rejected.
+     */
+    @Test
+    void findStoreOrders_invalidSize() throws Exception {
+        when(orderService.findStoreOrders(2L, null, 0))
+                .thenThrow(new ValidationException("Page size must be between 1 and 100"));
+
+        mockMvc.perform(get("/orders/store/2").param("size", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Tests that subscribing to a missing order is rejected and leaves no subscription behind.
+     */
+    @Test
+    void streamOrderEvents_notFound() throws Exception {
+        when(orderService.findOrderStatus(100L)).thenThrow(new EntityNotFoundException("Order", "id", "100"));
+
+        mockMvc.perform(get("/orders/100/events"))
+                .andExpect(status().isNotFound());
+        assertThat(orderEventStream.subscribedOrders()).isZero();
+    }
 }
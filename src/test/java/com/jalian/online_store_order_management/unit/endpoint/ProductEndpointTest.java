@@ -1,26 +1,41 @@
 package com.jalian.online_store_order_management.unit.endpoint;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalian.online_store_order_management.config.OrderMetrics;
+import com.jalian.online_store_order_management.dto.BulkChargeFailureDto;
+import com.jalian.online_store_order_management.dto.BulkChargeResultDto;
+import com.jalian.online_store_order_management.dto.HotProductDto;
 import com.jalian.online_store_order_management.dto.ProductDto;
 import com.jalian.online_store_order_management.dto.ProductFetchDto;
+import com.jalian.online_store_order_management.dto.ProductImportResultDto;
 import com.jalian.online_store_order_management.dto.ProductOperationDto;
 import com.jalian.online_store_order_management.endpoint.ProductEndpoint;
 import com.jalian.online_store_order_management.exception.handler.GlobalExceptionHandler;
 import com.jalian.online_store_order_management.exception.EntityNotFoundException;
 import com.jalian.online_store_order_management.exception.ValidationException;
 import com.jalian.online_store_order_management.service.ProductService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -31,7 +46,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * Unit tests for the {@link ProductEndpoint} class.
  * <p>
  * This class tests various endpoint scenarios for product-related operations such as adding a product,
- * fetching product details, charging a product, and handling validation and exception cases.
+ * importing products from CSV and JSON feeds, fetching product details, charging a product, charging products from a streamed feed, flagging a product as hot, and handling validation and exception
+ * cases.
  * </p>
  *
  * @author amirhosein jalian
@@ -40,7 +56,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 public class ProductEndpointTest {
 
     private MockMvc mockMvc;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
 
     @InjectMocks
     private ProductEndpoint productEndpoint;
@@ -54,7 +71,7 @@ public class ProductEndpointTest {
     @BeforeEach
     void setUp() {
         mockMvc = MockMvcBuilders.standaloneSetup(productEndpoint)
-                .setControllerAdvice(new GlobalExceptionHandler())
+                .setControllerAdvice(new GlobalExceptionHandler(new OrderMetrics(new SimpleMeterRegistry())))
                 .build();
     }
 
@@ -63,7 +80,7 @@ public class ProductEndpointTest {
      */
     @Test
     void addProduct_success() throws Exception {
-        var dto = new ProductDto("Product A", "Description A", 100.0, 10L);
+        var dto = new ProductDto("Product A", "Description A", 100L, 10L);
         when(productService.addProduct(any(ProductDto.class))).thenReturn(1L);
 
         mockMvc.perform(post("/products/add")
@@ -80,7 +97,7 @@ public class ProductEndpointTest {
      */
     @Test
     void addProduct_exception() throws Exception {
-        var dto = new ProductDto("Product A", "Description A", 100.0, 10L);
+        var dto = new ProductDto("Product A", "Description A", 100L, 10L);
         when(productService.addProduct(any(ProductDto.class)))
                 .thenThrow(new ValidationException("Invalid product data"));
 
@@ -98,7 +115,7 @@ public class ProductEndpointTest {
      */
     @Test
     void fetchProduct_success() throws Exception {
-        var fetchDto = new ProductFetchDto(1L, "Product A", "Description A", 100.0, 50, "Test Store");
+        var fetchDto = new ProductFetchDto(1L, "Product A", "Description A", 100L, 50, "Test Store");
         when(productService.getProductById(1L)).thenReturn(fetchDto);
 
         mockMvc.perform(get("/products/find/1"))
@@ -106,7 +123,7 @@ public class ProductEndpointTest {
                 .andExpect(jsonPath("$.result.id", is(1)))
                 .andExpect(jsonPath("$.result.name", is("Product A")))
                 .andExpect(jsonPath("$.result.description", is("Description A")))
-                .andExpect(jsonPath("$.result.price", is(100.0)))
+                .andExpect(jsonPath("$.result.price", is(100)))
                 .andExpect(jsonPath("$.result.inventory", is(50)))
                 .andExpect(jsonPath("$.result.storeName", is("Test Store")))
                 .andExpect(jsonPath("$.message", is("Product found successfully")))
@@ -134,7 +151,7 @@ public class ProductEndpointTest {
     @Test
     void chargeProduct_success() throws Exception {
         var opDto = new ProductOperationDto(1L, 5);
-        var fetchDto = new ProductFetchDto(1L, "Product A", "Description A", 100.0, 45, "Test Store");
+        var fetchDto = new ProductFetchDto(1L, "Product A", "Description A", 100L, 45, "Test Store");
         when(productService.chargeProduct(any(ProductOperationDto.class))).thenReturn(fetchDto);
 
         mockMvc.perform(put("/products/charge")
@@ -165,4 +182,169 @@ public class ProductEndpointTest {
                 .andExpect(jsonPath("$.message", containsString("Operation failed")))
                 .andExpect(jsonPath("$.timestamp", notNullValue()));
     }
+
+    /**
+     * Tests flagging a product as hot and checking the response.
+     */
+    @Test
+    void setHot_success() throws Exception {
+        var dto = new HotProductDto(1L, true);
+
+        mockMvc.perform(put("/products/hot")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message", is("Product updated successfully")))
+                .andExpect(jsonPath("$.timestamp", notNullValue()));
+        verify(productService).setHot(dto);
+    }
+
+    /**
+     * Tests flagging a product that does not exist.
+     */
+    @Test
+    void setHot_notFound() throws Exception {
+        var dto = new HotProductDto(1L, true);
+        doThrow(new EntityNotFoundException("Product with id 1 does not exist")).when(productService).setHot(dto);
+
+        mockMvc.perform(put("/products/hot")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message", containsString("does not exist")));
+    }
+
+    /**
+     * Tests that a bulk charge reads the rows of a JSON array.
+     */
+    @Test
+    void chargeProducts_jsonArray() throws Exception {
+        var rows = captureBulkRows();
+
+        mockMvc.perform(put("/products/charge/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"productId\":2,\"amount\":5},{\"productId\":1,\"amount\":3}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.rows", is(2)))
+                .andExpect(jsonPath("$.message", is("Bulk charge processed")));
+        assertThat(rows).containsExactly(new ProductOperationDto(2L, 5), new ProductOperationDto(1L, 3));
+    }
+
+    /**
+     * Tests that a bulk charge reads the rows of a newline-delimited JSON feed.
+     */
+    @Test
+    void chargeProducts_ndjson() throws Exception {
+        var rows = captureBulkRows();
+
+        mockMvc.perform(put("/products/charge/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"productId\":2,\"amount\":5}\n{\"productId\":1,\"amount\":3}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.rows", is(2)));
+        assertThat(rows).containsExactly(new ProductOperationDto(2L, 5), new ProductOperationDto(1L, 3));
+    }
+
+    /**
+     * Tests that a malformed row surfaces from the feed as a {@link ValidationException} after the rows before it.
+     */
+    @Test
+    void chargeProducts_malformedRow() throws Exception {
+        var rows = new ArrayList<ProductOperationDto>();
+        doAnswer(invocation -> {
+            Iterator<ProductOperationDto> feed = invocation.getArgument(0);
+            try {
+                feed.forEachRemaining(rows::add);
+            } catch (ValidationException e) {
+                return new BulkChargeResultDto(rows.size(), rows.size(), 1,
+                        List.of(new BulkChargeFailureDto(rows.size() + 1, null, e.getMessage())));
+            }
+            return new BulkChargeResultDto(rows.size(), rows.size(), 0, List.of());
+        }).when(productService).chargeProducts(any());
+
+        mockMvc.perform(put("/products/charge/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"productId\":1,\"amount\":3}\n{\"productId\":\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.failed", is(1)))
+                .andExpect(jsonPath("$.result.failures[0].row", is(2)))
+                .andExpect(jsonPath("$.result.failures[0].error", startsWith("Malformed row")));
+        assertThat(rows).containsExactly(new ProductOperationDto(1L, 3));
+    }
+
+    /**
+     * Tests that an import reads the rows of a CSV feed, with quoted fields and columns in any order.
+     */
+    @Test
+    void importProducts_csv() throws Exception {
+        var rows = captureImportRows();
+
+        mockMvc.perform(post("/products/import")
+                        .contentType("text/csv")
+                        .content("storeId,name,price,description\r\n"
+                                + "1,Product A,100,\"Big, \"\"red\"\"\nbox\"\r\n"
+                                + "\r\n"
+                                + "2,Product B,50,\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.imported", is(2)))
+                .andExpect(jsonPath("$.message", is("Product import processed")));
+        assertThat(rows).containsExactly(
+                new ProductDto("Product A", "Big, \"red\"\nbox", 100L, 1L),
+                new ProductDto("Product B", "", 50L, 2L));
+    }
+
+    /**
+     * Tests that an import reads the rows of a newline-delimited JSON feed.
+     */
+    @Test
+    void importProducts_ndjson() throws Exception {
+        var rows = captureImportRows();
+        var first = new ProductDto("Product A", "A", 100L, 1L);
+        var second = new ProductDto("Product B", "B", 50L, 2L);
+
+        mockMvc.perform(post("/products/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(objectMapper.writeValueAsString(first) + "\n" + objectMapper.writeValueAsString(second)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result.rows", is(2)));
+        assertThat(rows).containsExactly(first, second);
+    }
+
+    /**
+     * Tests that a CSV feed without the required columns is rejected.
+     */
+    @Test
+    void importProducts_csvMissingColumn() throws Exception {
+        doAnswer(invocation -> {
+            Iterator<ProductDto> feed = invocation.getArgument(0);
+            feed.hasNext();
+            return null;
+        }).when(productService).importProducts(any());
+
+        mockMvc.perform(post("/products/import")
+                        .contentType("text/csv")
+                        .content("name,description\nProduct A,A\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("missing column price")));
+    }
+
+    private List<ProductDto> captureImportRows() {
+        var rows = new ArrayList<ProductDto>();
+        doAnswer(invocation -> {
+            Iterator<ProductDto> feed = invocation.getArgument(0);
+            feed.forEachRemaining(rows::add);
+            return new ProductImportResultDto(rows.size(), rows.size(), 0, List.of());
+        }).when(productService).importProducts(any());
+        return rows;
+    }
+
+    private List<ProductOperationDto> captureBulkRows() {
+        var rows = new ArrayList<ProductOperationDto>();
+        doAnswer(invocation -> {
+            Iterator<ProductOperationDto> feed = invocation.getArgument(0);
+            feed.forEachRemaining(rows::add);
+            return new BulkChargeResultDto(rows.size(), rows.size(), 0, List.of());
+        }).when(productService).chargeProducts(any());
+        return rows;
+    }
 }
@@ -1,6 +1,7 @@
 package com.jalian.online_store_order_management.unit.endpoint;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalian.online_store_order_management.config.OrderMetrics;
 import com.jalian.online_store_order_management.dto.AddStoreDto;
 import com.jalian.online_store_order_management.dto.AddUserToStoreDto;
 import com.jalian.online_store_order_management.dto.UserFetchDto;
@@ -9,6 +10,7 @@ import com.jalian.online_store_order_management.exception.ConstraintViolationExc
 import com.jalian.online_store_order_management.exception.EntityNotFoundException;
 import com.jalian.online_store_order_management.exception.handler.GlobalExceptionHandler;
 import com.jalian.online_store_order_management.service.StoreService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -55,7 +57,7 @@ public class StoreEndpointTest {
     @BeforeEach
     void setUp() {
         mockMvc = MockMvcBuilders.standaloneSetup(storeEndpoint)
-                .setControllerAdvice(new GlobalExceptionHandler())
+                .setControllerAdvice(new GlobalExceptionHandler(new OrderMetrics(new SimpleMeterRegistry())))
                 .build();
     }
 
@@ -102,7 +104,7 @@ public class StoreEndpointTest {
      */
     @Test
     void addUserToStore_success() throws Exception {
-        var userList = List.of(new UserFetchDto("John", "Doe", "john@example.com", "1", "john", 100.0));
+        var userList = List.of(new UserFetchDto("John", "Doe", "john@example.com", "1", "john", 100L));
         var dto = new AddUserToStoreDto(1L, 1L);
         when(storeService.addUserToStore(any(AddUserToStoreDto.class))).thenReturn(userList);
 
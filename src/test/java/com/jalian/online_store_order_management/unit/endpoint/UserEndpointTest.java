@@ -1,6 +1,7 @@
 package com.jalian.online_store_order_management.unit.endpoint;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalian.online_store_order_management.config.OrderMetrics;
 import com.jalian.online_store_order_management.dto.UserFetchDto;
 import com.jalian.online_store_order_management.dto.UserRegisterDto;
 import com.jalian.online_store_order_management.endpoint.UserEndpoint;
@@ -8,6 +9,7 @@ import com.jalian.online_store_order_management.exception.DuplicateUsername;
 import com.jalian.online_store_order_management.exception.EntityNotFoundException;
 import com.jalian.online_store_order_management.exception.handler.GlobalExceptionHandler;
 import com.jalian.online_store_order_management.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -52,7 +54,7 @@ public class UserEndpointTest {
     @BeforeEach
     void setUp() {
         mockMvc = MockMvcBuilders.standaloneSetup(userEndpoint)
-                .setControllerAdvice(new GlobalExceptionHandler())
+                .setControllerAdvice(new GlobalExceptionHandler(new OrderMetrics(new SimpleMeterRegistry())))
                 .build();
     }
 
@@ -94,7 +96,7 @@ public class UserEndpointTest {
      */
     @Test
     void findUserByUsername_success() throws Exception {
-        UserFetchDto fetchDto = new UserFetchDto("John", "Doe", "john@example.com", "1", "john", 100.0);
+        UserFetchDto fetchDto = new UserFetchDto("John", "Doe", "john@example.com", "1", "john", 100L);
         when(userService.findUser("john")).thenReturn(fetchDto);
 
         mockMvc.perform(get("/users/username/john"))
@@ -104,7 +106,7 @@ public class UserEndpointTest {
                 .andExpect(jsonPath("$.result.lastName", is("Doe")))
                 .andExpect(jsonPath("$.result.email", is("john@example.com")))
                 .andExpect(jsonPath("$.result.id", is("1")))
-                .andExpect(jsonPath("$.result.balance", is(100.0)))
+                .andExpect(jsonPath("$.result.balance", is(100)))
                 .andExpect(jsonPath("$.message", is("User fetched successfully")))
                 .andExpect(jsonPath("$.timestamp", notNullValue()));
     }
@@ -127,7 +129,7 @@ public class UserEndpointTest {
      */
     @Test
     void findUserById_success() throws Exception {
-        UserFetchDto fetchDto = new UserFetchDto("John", "Doe", "john@example.com", "1", "john", 100.0);
+        UserFetchDto fetchDto = new UserFetchDto("John", "Doe", "john@example.com", "1", "john", 100L);
         when(userService.findUserById(1L)).thenReturn(fetchDto);
 
         mockMvc.perform(get("/users/id/1"))
@@ -0,0 +1,277 @@
+package com.jalian.online_store_order_management.unit.service;
+
+import com.jalian.online_store_order_management.constant.OrderStatus;
+import com.jalian.online_store_order_management.dao.OrderDao;
+import com.jalian.online_store_order_management.dao.PaymentTaskDao;
+import com.jalian.online_store_order_management.exception.EntityNotFoundException;
+import com.jalian.online_store_order_management.exception.IllegalBalanceException;
+import com.jalian.online_store_order_management.exception.PaymentStoppedException;
+import com.jalian.online_store_order_management.service.UserService;
+import com.jalian.online_store_order_management.service.impl.BalanceDebitSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link BalanceDebitSerializer} class.
+ * <p>
+ * This class tests that debits are applied through the user service, that debits of the same user
+ * piling up behind a running update are coalesced into one update, and that rejected or failed debits
+ * are reported to their callers. It also tests that a debited order is marked as paid, and that an order that
+ * is paid already or no longer awaits its payment is not debited. Finally, it tests that stopping the serializer,
+ * an error in a worker or a debit not applied in time never leave a caller waiting for good.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@ExtendWith(MockitoExtension.class)
+public class BalanceDebitSerializerTest {
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private OrderDao orderDao;
+
+    @Mock
+    private PaymentTaskDao paymentTaskDao;
+
+    private BalanceDebitSerializer serializer;
+
+    /**
+     * Starts a serializer with a single worker before each test. Every payment task exists and every order
+     * awaits its payment unless a test says otherwise.
+     */
+    @BeforeEach
+    void setUp() {
+        lenient().when(paymentTaskDao.lockTask(anyLong())).thenReturn(1);
+        lenient().when(orderDao.findStatusById(anyLong())).thenReturn(Optional.of(OrderStatus.AWAITING_PAYMENT));
+        serializer = new BalanceDebitSerializer(userService, orderDao, paymentTaskDao,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), 1, 64);
+        serializer.start();
+    }
+
+    /**
+     * Stops the serializer after each test.
+     */
+    @AfterEach
+    void tearDown() {
+        serializer.stop();
+    }
+
+    /**
+     * Tests that a single debit is applied through the user service and marks its order as paid.
+     */
+    @Test
+    void debit_success() {
+        when(userService.debitAll(1L, List.of(10L))).thenReturn(List.of(true));
+        assertThat(serializer.debit(1L, 100L, 7L, 10L)).isTrue();
+        verify(orderDao).changeStatus(100L, OrderStatus.AWAITING_PAYMENT, OrderStatus.PAID);
+    }
+
+    /**
+     * Tests that the debit of an order that has been paid already, by a delivery of its task that was interrupted
+     * afterwards, reports the order as paid without debiting the user again.
+     */
+    @Test
+    void debit_orderAlreadyPaid_notDebitedAgain() {
+        when(orderDao.findStatusById(100L)).thenReturn(Optional.of(OrderStatus.PAID));
+        assertThat(serializer.debit(1L, 100L, 7L, 10L)).isTrue();
+        verify(userService, never()).debitAll(anyLong(), anyList());
+        verify(orderDao, never()).changeStatus(anyLong(), any(), any());
+    }
+
+    /**
+     * Tests that the debit of an order whose task has been deleted, or that is no longer awaiting its payment,
+     * reports the order as settled without debiting the user.
+     */
+    @Test
+    void debit_orderSettled_notDebited() {
+        when(paymentTaskDao.lockTask(7L)).thenReturn(0);
+        when(orderDao.findStatusById(101L)).thenReturn(Optional.of(OrderStatus.CANCELLED));
+        assertThat(serializer.debit(1L, 100L, 7L, 10L)).isFalse();
+        assertThat(serializer.debit(1L, 101L, 8L, 10L)).isFalse();
+        verify(userService, never()).debitAll(anyLong(), anyList());
+    }
+
+    /**
+     * Tests that a debit the balance cannot cover is reported as an illegal balance.
+     */
+    @Test
+    void debit_notEnoughBalance_throwsException() {
+        when(userService.debitAll(1L, List.of(10L))).thenReturn(List.of(false));
+        assertThrows(IllegalBalanceException.class, () -> serializer.debit(1L, 100L, 7L, 10L));
+        verify(orderDao, never()).changeStatus(anyLong(), any(), any());
+    }
+
+    /**
+     * Tests that a failure of the update is reported to the caller.
+     */
+    @Test
+    void debit_userNotFound_throwsException() {
+        when(userService.debitAll(1L, List.of(10L)))
+                .thenThrow(new EntityNotFoundException("User", "id", "1"));
+        assertThrows(EntityNotFoundException.class, () -> serializer.debit(1L, 100L, 7L, 10L));
+    }
+
+    /**
+     * Tests that debits of the same user waiting behind a running update are applied in one update.
+     */
+    @Test
+    void debit_concurrentDebits_areCoalesced() {
+        var firstStarted = new CountDownLatch(1);
+        var releaseFirst = new CountDownLatch(1);
+        var calls = Collections.synchronizedList(new ArrayList<List<Long>>());
+        when(userService.debitAll(eq(1L), anyList())).thenAnswer(invocation -> {
+            List<Long> amounts = invocation.getArgument(1);
+            calls.add(amounts);
+            if (calls.size() == 1) {
+                firstStarted.countDown();
+                releaseFirst.await();
+                return List.of(true);
+            }
+            return amounts.stream().map(amount -> amount < 100L).toList();
+        });
+
+        try (var callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            var first = CompletableFuture.runAsync(() -> serializer.debit(1L, 101L, 1L, 1L), callers);
+            await().atMost(Duration.ofSeconds(5)).until(() -> firstStarted.getCount() == 0);
+            var second = CompletableFuture.runAsync(() -> serializer.debit(1L, 102L, 2L, 2L), callers);
+            var third = CompletableFuture.runAsync(() -> serializer.debit(1L, 103L, 3L, 3L), callers);
+            var rejected = CompletableFuture.runAsync(() -> serializer.debit(1L, 104L, 4L, 500L), callers);
+            await().atMost(Duration.ofSeconds(5)).until(() -> serializer.pendingDebits() == 3);
+            releaseFirst.countDown();
+
+            CompletableFuture.allOf(first, second, third).join();
+            await().atMost(Duration.ofSeconds(5)).until(rejected::isDone);
+            assertThat(rejected).isCompletedExceptionally();
+        }
+        assertThat(calls).hasSize(2);
+        assertThat(calls.get(1)).containsExactlyInAnyOrder(2L, 3L, 500L);
+    }
+
+    /**
+     * Tests that two deliveries of the same payment task coalesced into one batch debit the user only once and
+     * share the outcome.
+     */
+    @Test
+    void debit_sameOrderTwiceInBatch_debitedOnce() {
+        var firstStarted = new CountDownLatch(1);
+        var releaseFirst = new CountDownLatch(1);
+        var calls = Collections.synchronizedList(new ArrayList<List<Long>>());
+        when(userService.debitAll(eq(1L), anyList())).thenAnswer(invocation -> {
+            List<Long> amounts = invocation.getArgument(1);
+            calls.add(amounts);
+            if (calls.size() == 1) {
+                firstStarted.countDown();
+                releaseFirst.await();
+            }
+            return amounts.stream().map(amount -> true).toList();
+        });
+
+        try (var callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            var first = CompletableFuture.runAsync(() -> serializer.debit(1L, 101L, 1L, 1L), callers);
+            await().atMost(Duration.ofSeconds(5)).until(() -> firstStarted.getCount() == 0);
+            var second = CompletableFuture.supplyAsync(() -> serializer.debit(1L, 102L, 2L, 2L), callers);
+            var redelivered = CompletableFuture.supplyAsync(() -> serializer.debit(1L, 102L, 2L, 2L), callers);
+            await().atMost(Duration.ofSeconds(5)).until(() -> serializer.pendingDebits() == 2);
+            releaseFirst.countDown();
+
+            first.join();
+            assertThat(second.join()).isTrue();
+            assertThat(redelivered.join()).isTrue();
+        }
+        assertThat(calls).hasSize(2);
+        assertThat(calls.get(1)).containsExactly(2L);
+        verify(orderDao).changeStatus(102L, OrderStatus.AWAITING_PAYMENT, OrderStatus.PAID);
+    }
+
+    /**
+     * Tests that stopping the serializer while a debit is queued behind a running update fails the queued debit,
+     * as well as the running one whose worker is interrupted, and refuses the debits posted afterwards, so no
+     * payment thread is left waiting.
+     */
+    @Test
+    void stop_whileDebitQueued_failsPendingDebits() {
+        var firstStarted = new CountDownLatch(1);
+        when(userService.debitAll(eq(1L), anyList())).thenAnswer(invocation -> {
+            firstStarted.countDown();
+            new CountDownLatch(1).await();
+            return List.of(true);
+        });
+
+        try (var callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            var running = CompletableFuture.supplyAsync(() -> serializer.debit(1L, 101L, 1L, 1L), callers);
+            await().atMost(Duration.ofSeconds(5)).until(() -> firstStarted.getCount() == 0);
+            var queued = CompletableFuture.supplyAsync(() -> serializer.debit(1L, 102L, 2L, 2L), callers);
+            await().atMost(Duration.ofSeconds(5)).until(() -> serializer.pendingDebits() == 1);
+
+            serializer.stop();
+
+            await().atMost(Duration.ofSeconds(5)).until(() -> queued.isDone() && running.isDone());
+            assertThat(queued).failsWithin(Duration.ZERO).withThrowableOfType(ExecutionException.class)
+                    .withCauseInstanceOf(PaymentStoppedException.class);
+            assertThat(running).isCompletedExceptionally();
+        }
+        assertThrows(PaymentStoppedException.class, () -> serializer.debit(1L, 103L, 3L, 3L));
+        assertThat(serializer.pendingDebits()).isZero();
+    }
+
+    /**
+     * Tests that an error thrown while applying a batch only fails that batch, and that the worker goes on applying
+     * the next debits.
+     */
+    @Test
+    void debit_errorInWorker_workerKeepsRunning() {
+        when(userService.debitAll(1L, List.of(10L)))
+                .thenThrow(new StackOverflowError())
+                .thenReturn(List.of(true));
+        assertThrows(ConcurrencyFailureException.class, () -> serializer.debit(1L, 100L, 7L, 10L));
+        assertThat(serializer.debit(1L, 100L, 7L, 10L)).isTrue();
+    }
+
+    /**
+     * Tests that a caller stops waiting for a debit that is not applied in time and gets a retryable failure.
+     */
+    @Test
+    void debit_notAppliedInTime_throwsConcurrencyFailure() {
+        var release = new CountDownLatch(1);
+        when(userService.debitAll(1L, List.of(10L))).thenAnswer(invocation -> {
+            release.await();
+            return List.of(true);
+        });
+        serializer.setDebitTimeoutMillis(100);
+
+        assertThrows(ConcurrencyFailureException.class, () -> serializer.debit(1L, 100L, 7L, 10L));
+        release.countDown();
+    }
+}
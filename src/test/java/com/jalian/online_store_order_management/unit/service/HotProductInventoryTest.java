@@ -0,0 +1,212 @@
+package com.jalian.online_store_order_management.unit.service;
+
+import com.jalian.online_store_order_management.dao.ProductDao;
+import com.jalian.online_store_order_management.dto.ProductInventoryDto;
+import com.jalian.online_store_order_management.exception.LackOfProductException;
+import com.jalian.online_store_order_management.service.impl.HotProductInventory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link HotProductInventory} class.
+ * <p>
+ * This class tests that concurrent discharges of a hot product never take more than its inventory, that a discharge
+ * too large for any single stripe is served by rebalancing them, that a rolled back discharge is given back, that the
+ * total is written back with the row version and that changes made by other writers are reconciled while stale
+ * rows are ignored, that shutting down writes the remaining total back, and that switching a product off writes its
+ * last total back.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@ExtendWith(MockitoExtension.class)
+public class HotProductInventoryTest {
+
+    private static final Long PRODUCT_ID = 1L;
+
+    @Mock
+    private ProductDao productDao;
+
+    private HotProductInventory hotInventory;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    /**
+     * Tests that a product that is not hot is left to its row.
+     */
+    @Test
+    void discharge_notHot_returnsFalse() {
+        hotInventory(4, 100L);
+
+        assertThat(hotInventory.discharge(2L, 1L)).isFalse();
+        assertThat(hotInventory.available(2L)).isEmpty();
+    }
+
+    /**
+     * Tests that concurrent discharges take exactly the inventory of the product and are refused afterwards.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    @Test
+    void discharge_concurrent_neverOversells() throws InterruptedException {
+        hotInventory(8, 1_000L);
+        var threads = 16;
+        var discharged = new AtomicLong();
+        var refused = new AtomicLong();
+        var latch = new CountDownLatch(threads);
+
+        try (var executor = Executors.newFixedThreadPool(threads)) {
+            for (int i = 0; i < threads; i++) {
+                executor.submit(() -> {
+                    try {
+                        for (int j = 0; j < 100; j++) {
+                            try {
+                                hotInventory.discharge(PRODUCT_ID, 1L);
+                                discharged.incrementAndGet();
+                            } catch (LackOfProductException e) {
+                                refused.incrementAndGet();
+                            }
+                        }
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+            }
+            latch.await();
+        }
+
+        assertThat(discharged.get()).isEqualTo(1_000L);
+        assertThat(refused.get()).isEqualTo(600L);
+        assertThat(hotInventory.available(PRODUCT_ID)).hasValue(0L);
+    }
+
+    /**
+     * Tests that an amount larger than any stripe is taken from all of them.
+     */
+    @Test
+    void discharge_largerThanStripe_rebalances() {
+        hotInventory(4, 10L);
+
+        assertThat(hotInventory.discharge(PRODUCT_ID, 10L)).isTrue();
+
+        assertThat(hotInventory.available(PRODUCT_ID)).hasValue(0L);
+        assertThrows(LackOfProductException.class, () -> hotInventory.discharge(PRODUCT_ID, 1L));
+    }
+
+    /**
+     * Tests that a discharge made in a transaction is given back when the transaction rolls back.
+     */
+    @Test
+    void discharge_rolledBack_restored() {
+        hotInventory(4, 10L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        hotInventory.discharge(PRODUCT_ID, 3L);
+        assertThat(hotInventory.available(PRODUCT_ID)).hasValue(7L);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(hotInventory.available(PRODUCT_ID)).hasValue(10L);
+    }
+
+    /**
+     * Tests that the total is written back with the version of the row, and that a charge made through the row
+     * afterwards is added to the counters instead of being overwritten.
+     */
+    @Test
+    void flush_writesTotalAndReconcilesOtherWriters() {
+        hotInventory(4, 100L);
+        hotInventory.discharge(PRODUCT_ID, 30L);
+        when(productDao.findInventoriesByIds(anyCollection()))
+                .thenReturn(List.of(new ProductInventoryDto(PRODUCT_ID, 100L, 0L)))
+                .thenReturn(List.of(new ProductInventoryDto(PRODUCT_ID, 80L, 2L)));
+        when(productDao.writeInventory(PRODUCT_ID, 70L, 0L)).thenReturn(1);
+
+        hotInventory.flush();
+        hotInventory.flush();
+
+        verify(productDao).writeInventory(PRODUCT_ID, 70L, 0L);
+        verify(productDao, times(1)).writeInventory(anyLong(), anyLong(), anyLong());
+        assertThat(hotInventory.available(PRODUCT_ID)).hasValue(80L);
+    }
+
+    /**
+     * Tests that a row read before the last write, as by a flush that waited for another one, is not taken for a
+     * change made by another writer.
+     */
+    @Test
+    void flush_staleRow_ignored() {
+        hotInventory(4, 100L);
+        hotInventory.discharge(PRODUCT_ID, 30L);
+        when(productDao.findInventoriesByIds(anyCollection()))
+                .thenReturn(List.of(new ProductInventoryDto(PRODUCT_ID, 100L, 0L)));
+        when(productDao.writeInventory(PRODUCT_ID, 70L, 0L)).thenReturn(1);
+
+        hotInventory.flush();
+        hotInventory.flush();
+
+        verify(productDao, times(1)).writeInventory(anyLong(), anyLong(), anyLong());
+        assertThat(hotInventory.available(PRODUCT_ID)).hasValue(70L);
+    }
+
+    /**
+     * Tests that shutting down writes back the total of the counters discharged since the last write.
+     */
+    @Test
+    void flushOnShutdown_writesRemainingTotal() {
+        hotInventory(4, 100L);
+        hotInventory.discharge(PRODUCT_ID, 25L);
+        when(productDao.findInventoriesByIds(anyCollection()))
+                .thenReturn(List.of(new ProductInventoryDto(PRODUCT_ID, 100L, 0L)));
+        when(productDao.writeInventory(PRODUCT_ID, 75L, 0L)).thenReturn(1);
+
+        hotInventory.flushOnShutdown();
+
+        verify(productDao).writeInventory(PRODUCT_ID, 75L, 0L);
+    }
+
+    /**
+     * Tests that switching a product off writes its last total back and leaves later discharges to its row.
+     */
+    @Test
+    void setHot_off_writesTotalBack() {
+        hotInventory(4, 100L);
+        hotInventory.discharge(PRODUCT_ID, 40L);
+        when(productDao.findInventoriesByIds(List.of(PRODUCT_ID)))
+                .thenReturn(List.of(new ProductInventoryDto(PRODUCT_ID, 100L, 0L)));
+        when(productDao.writeInventory(PRODUCT_ID, 60L, 0L)).thenReturn(1);
+
+        hotInventory.setHotAfterCommit(PRODUCT_ID, false);
+
+        assertThat(hotInventory.isHot(PRODUCT_ID)).isFalse();
+        assertThat(hotInventory.discharge(PRODUCT_ID, 1L)).isFalse();
+    }
+
+    private void hotInventory(int stripes, long inventory) {
+        when(productDao.findHotInventories()).thenReturn(List.of(new ProductInventoryDto(PRODUCT_ID, inventory, 0L)));
+        hotInventory = new HotProductInventory(productDao, mock(PlatformTransactionManager.class), stripes);
+        hotInventory.load();
+    }
+}
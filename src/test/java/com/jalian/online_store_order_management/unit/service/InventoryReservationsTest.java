@@ -0,0 +1,264 @@
+package com.jalian.online_store_order_management.unit.service;
+
+import com.jalian.online_store_order_management.dao.ItemDao;
+import com.jalian.online_store_order_management.dao.ProductDao;
+import com.jalian.online_store_order_management.domain.Item;
+import com.jalian.online_store_order_management.domain.Product;
+import com.jalian.online_store_order_management.dto.ItemDto;
+import com.jalian.online_store_order_management.dto.ProductInventoryDto;
+import com.jalian.online_store_order_management.dto.ProductOperationDto;
+import com.jalian.online_store_order_management.exception.EntityNotFoundException;
+import com.jalian.online_store_order_management.exception.LackOfProductException;
+import com.jalian.online_store_order_management.service.ProductService;
+import com.jalian.online_store_order_management.service.impl.HotProductInventory;
+import com.jalian.online_store_order_management.service.impl.InventoryReservations;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link InventoryReservations} class.
+ * <p>
+ * This class tests that reservations are checked against the committed inventory minus what is already reserved, that a
+ * failed or rolled back reservation leaves nothing reserved, that a release racing with a reservation makes it read the
+ * inventory again, a bounded number of times before it reads it holding off the releases, that committing discharges
+ * the inventory before releasing the reservation, that hot products are checked against and discharged through their
+ * counters, and that the ledger is rebuilt from the orders awaiting their payment.
+ * </p>
+ *
+ * @author amirhosein jalian
+ */
+@ExtendWith(MockitoExtension.class)
+public class InventoryReservationsTest {
+
+    @Mock
+    private ProductDao productDao;
+
+    @Mock
+    private ItemDao itemDao;
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private HotProductInventory hotInventory;
+
+    @InjectMocks
+    private InventoryReservations reservations;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    /**
+     * Tests that a reservation is refused once the inventory is reserved by other orders.
+     */
+    @Test
+    void reserve_rejectsOversell() {
+        stubInventory(1L, 5L);
+
+        reservations.reserve(List.of(new ItemDto(1L, 3L)));
+
+        assertThrows(LackOfProductException.class, () -> reservations.reserve(List.of(new ItemDto(1L, 3L))));
+        assertThat(reservations.reserved(1L)).isEqualTo(3);
+        verifyNoInteractions(productService);
+    }
+
+    /**
+     * Tests that a reservation failing on one product does not keep the other products reserved.
+     */
+    @Test
+    void reserve_allOrNothing() {
+        when(productDao.findInventoriesByIds(anyCollection()))
+                .thenReturn(List.of(new ProductInventoryDto(1L, 5L, 0L), new ProductInventoryDto(2L, 1L, 0L)));
+
+        assertThrows(LackOfProductException.class,
+                () -> reservations.reserve(List.of(new ItemDto(1L, 2L), new ItemDto(2L, 2L))));
+
+        assertThat(reservations.reserved(1L)).isZero();
+        assertThat(reservations.reserved(2L)).isZero();
+    }
+
+    /**
+     * Tests that reserving a product that does not exist throws an {@link EntityNotFoundException}.
+     */
+    @Test
+    void reserve_missingProduct_throwsException() {
+        when(productDao.findInventoriesByIds(anyCollection())).thenReturn(List.of());
+
+        var ex = assertThrows(EntityNotFoundException.class, () -> reservations.reserve(List.of(new ItemDto(9L, 1L))));
+
+        assertThat(ex.getMessage()).contains("Product with id 9 does not exist");
+    }
+
+    /**
+     * Tests that a reservation made in a transaction is released when the transaction rolls back.
+     */
+    @Test
+    void reserve_releasedOnRollback() {
+        stubInventory(1L, 5L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        reservations.reserve(List.of(new ItemDto(1L, 4L)));
+        assertThat(reservations.reserved(1L)).isEqualTo(4);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(reservations.reserved(1L)).isZero();
+    }
+
+    /**
+     * Tests that a reservation whose inventory was read before a concurrent commit released its reservation
+     * reads the inventory again instead of trusting the stale inventory.
+     */
+    @Test
+    void reserve_rereadsInventoryAfterConcurrentRelease() {
+        stubInventory(1L, 5L);
+        reservations.reserve(List.of(new ItemDto(1L, 3L)));
+        when(productDao.findInventoriesByIds(anyCollection()))
+                .thenAnswer(invocation -> {
+                    // Another order commits its 3 units: the inventory drops to 2, then its reservation is released.
+                    reservations.release(Map.of(1L, 3L));
+                    return List.of(new ProductInventoryDto(1L, 5L, 0L));
+                })
+                .thenReturn(List.of(new ProductInventoryDto(1L, 2L, 0L)));
+
+        assertThrows(LackOfProductException.class, () -> reservations.reserve(List.of(new ItemDto(1L, 3L))));
+
+        verify(productDao, times(3)).findInventoriesByIds(anyCollection());
+        assertThat(reservations.reserved(1L)).isZero();
+    }
+
+    /**
+     * Tests that a reservation racing with a release on every read stops rereading after a bounded number of
+     * attempts and reads the inventory once more under the ledger's monitor.
+     */
+    @Test
+    void reserve_endlessReleases_fallsBackToExclusiveRead() throws InterruptedException {
+        stubInventory(1L, 5L);
+        reservations.reserve(List.of(new ItemDto(1L, 3L)));
+        var releasers = new ArrayList<Thread>();
+        var blockedReleases = new AtomicInteger();
+        when(productDao.findInventoriesByIds(anyCollection())).thenAnswer(invocation -> {
+            // Another order releases its reservation of the product while every read is in flight.
+            var releaser = new Thread(() -> reservations.release(Map.of(1L, 0L)));
+            releasers.add(releaser);
+            releaser.start();
+            releaser.join(200);
+            if (releaser.isAlive()) {
+                blockedReleases.incrementAndGet();
+            }
+            return List.of(new ProductInventoryDto(1L, 5L, 0L));
+        });
+
+        reservations.reserve(List.of(new ItemDto(1L, 2L)));
+        for (var releaser : releasers) {
+            releaser.join();
+        }
+
+        verify(productDao, times(5)).findInventoriesByIds(anyCollection());
+        assertThat(blockedReleases).hasValue(1);
+        assertThat(reservations.reserved(1L)).isEqualTo(5);
+    }
+
+    /**
+     * Tests that committing discharges the products in ascending ID order and keeps them reserved until the
+     * transaction has committed.
+     */
+    @Test
+    void commit_dischargesThenReleasesAfterCommit() {
+        when(productDao.findInventoriesByIds(anyCollection()))
+                .thenReturn(List.of(new ProductInventoryDto(1L, 5L, 0L), new ProductInventoryDto(2L, 5L, 0L)));
+        reservations.reserve(List.of(new ItemDto(2L, 1L), new ItemDto(1L, 2L)));
+        TransactionSynchronizationManager.initSynchronization();
+
+        reservations.commit(List.of(item(2L, 1L), item(1L, 2L)));
+
+        var inOrder = inOrder(productService);
+        inOrder.verify(productService).dischargeProduct(new ProductOperationDto(1L, 2L));
+        inOrder.verify(productService).dischargeProduct(new ProductOperationDto(2L, 1L));
+        assertThat(reservations.reserved(1L)).isEqualTo(2);
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(reservations.reserved(1L)).isZero();
+        assertThat(reservations.reserved(2L)).isZero();
+    }
+
+    /**
+     * Tests that a hot product is reserved against its counters rather than its row, which lags behind them, and
+     * committed through them.
+     */
+    @Test
+    void hotProduct_usesCounters() {
+        stubInventory(1L, 5L);
+        when(hotInventory.available(1L)).thenReturn(OptionalLong.of(2L));
+        when(hotInventory.discharge(1L, 2L)).thenReturn(true);
+
+        assertThrows(LackOfProductException.class, () -> reservations.reserve(List.of(new ItemDto(1L, 3L))));
+        reservations.reserve(List.of(new ItemDto(1L, 2L)));
+        reservations.commit(List.of(item(1L, 2L)));
+
+        verify(hotInventory).discharge(1L, 2L);
+        verifyNoInteractions(productService);
+    }
+
+    /**
+     * Tests that releasing a reservation does not touch the inventory.
+     */
+    @Test
+    void release_doesNotDischarge() {
+        stubInventory(1L, 5L);
+        reservations.reserve(List.of(new ItemDto(1L, 2L)));
+
+        reservations.release(List.of(item(1L, 2L)));
+
+        assertThat(reservations.reserved(1L)).isZero();
+        verifyNoInteractions(productService);
+    }
+
+    /**
+     * Tests that the ledger is rebuilt from the orders awaiting their payment.
+     */
+    @Test
+    void load_restoresAwaitingReservations() {
+        when(itemDao.sumReservedQuantities()).thenReturn(List.of(new ItemDto(1L, 4L)));
+        stubInventory(1L, 5L);
+
+        reservations.load();
+
+        assertThat(reservations.reserved(1L)).isEqualTo(4);
+        assertThrows(LackOfProductException.class, () -> reservations.reserve(List.of(new ItemDto(1L, 2L))));
+    }
+
+    private void stubInventory(Long productId, long inventory) {
+        when(productDao.findInventoriesByIds(anyCollection()))
+                .thenReturn(List.of(new ProductInventoryDto(productId, inventory, 0L)));
+    }
+
+    private static Item item(Long productId, long count) {
+        var product = new Product();
+        product.setId(productId);
+        var item = new Item();
+        item.setProduct(product);
+        item.setCount(count);
+        return item;
+    }
+}
@@ -7,8 +7,8 @@ import com.jalian.online_store_order_management.domain.Product;
 import com.jalian.online_store_order_management.domain.Store;
 import com.jalian.online_store_order_management.domain.key.ItemKey;
 import com.jalian.online_store_order_management.dto.ItemDto;
-import com.jalian.online_store_order_management.dto.ProductOperationDto;
 import com.jalian.online_store_order_management.service.ProductService;
+import com.jalian.online_store_order_management.service.impl.InventoryReservations;
 import com.jalian.online_store_order_management.service.impl.ItemServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -18,8 +18,10 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
@@ -27,7 +29,8 @@ import static org.mockito.Mockito.*;
  * Unit tests for the {@link ItemServiceImpl} class.
  * <p>
  * This class tests the methods related to saving and retrieving items,
- * ensuring proper interaction with the product and item DAO layers.
+ * ensuring proper interaction with the product and item DAO layers and that the inventory of saved items is
+ * reserved rather than discharged.
  * </p>
  *
  * @author amirhosein jalian
@@ -41,6 +44,9 @@ public class ItemServiceTest {
     @Mock
     private ProductService productService;
 
+    @Mock
+    private InventoryReservations reservations;
+
     @InjectMocks
     private ItemServiceImpl itemService;
 
@@ -58,7 +64,7 @@ public class ItemServiceTest {
         order.setId(100L);
         store = new Store("Test Store");
         store.setId(1L);
-        product = new Product(store, 100.0, "Description A", "Product A");
+        product = new Product(store, 100L, "Description A", "Product A");
         product.setId(10L);
         product.setInventory(50);
         itemDto = new ItemDto(10L, 5);
@@ -69,16 +75,16 @@ public class ItemServiceTest {
      */
     @Test
     void saveItems_success() {
-        when(productService.findProductById(10L)).thenReturn(product);
-        when(productService.dischargeProduct(any(ProductOperationDto.class))).thenReturn(null);
-        when(itemDao.save(any(Item.class))).thenAnswer(invocation -> invocation.getArgument(0, Item.class));
+        when(productService.findProductsByIds(List.of(10L))).thenReturn(Map.of(10L, product));
+        when(itemDao.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
 
         List<Item> savedItems = itemService.saveItems(List.of(itemDto), order);
 
-        verify(productService).findProductById(10L);
-        verify(productService).dischargeProduct(argThat(dto ->
-                dto.productId().equals(10L) && dto.amount() == 5));
-        verify(itemDao).save(any(Item.class));
+        verify(productService).findProductsByIds(List.of(10L));
+        verify(reservations).reserve(List.of(itemDto));
+        verify(productService, never()).dischargeProduct(any());
+        verify(itemDao).saveAll(argThat(items -> ((List<Item>) items).size() == 1));
+        verify(itemDao, never()).save(any(Item.class));
 
         assertThat(savedItems).hasSize(1);
         Item savedItem = savedItems.get(0);
@@ -98,8 +104,8 @@ public class ItemServiceTest {
     void saveItems_emptyList_returnsEmptyList() {
         List<Item> savedItems = itemService.saveItems(new ArrayList<>(), order);
         assertThat(savedItems).isEmpty();
-        verify(productService, never()).findProductById(any());
-        verify(productService, never()).dischargeProduct(any());
+        verify(productService, never()).findProductsByIds(any());
+        verifyNoInteractions(reservations);
         verify(itemDao, never()).save(any());
     }
 
@@ -109,23 +115,24 @@ public class ItemServiceTest {
     @Test
     void saveItems_multipleItems_success() {
         var product1 = product;
-        var product2 = new Product(store, 200.0, "Description B", "Product B");
+        var product2 = new Product(store, 200L, "Description B", "Product B");
         product2.setId(20L);
         product2.setInventory(100);
         var itemDto1 = new ItemDto(10L, 3);
         var itemDto2 = new ItemDto(20L, 7);
 
-        when(productService.findProductById(10L)).thenReturn(product1);
-        when(productService.findProductById(20L)).thenReturn(product2);
-        when(productService.dischargeProduct(any(ProductOperationDto.class))).thenReturn(null);
-        when(itemDao.save(any(Item.class))).thenAnswer(invocation -> invocation.getArgument(0, Item.class));
+        when(itemDao.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
 
-        var savedItems = itemService.saveItems(List.of(itemDto1, itemDto2), order);
+        var savedItems = itemService.saveItems(
+                List.of(itemDto1, itemDto2), order, Map.of(10L, product1, 20L, product2)
+        );
 
-        verify(productService).findProductById(10L);
-        verify(productService).findProductById(20L);
-        verify(productService, times(2)).dischargeProduct(any(ProductOperationDto.class));
-        verify(itemDao, times(2)).save(any(Item.class));
+        verify(productService, never()).findProductById(any());
+        verify(productService, never()).findProductsByIds(any());
+        verify(reservations).reserve(List.of(itemDto1, itemDto2));
+        verify(productService, never()).dischargeProduct(any());
+        verify(itemDao).saveAll(argThat(items -> ((List<Item>) items).size() == 2));
+        verify(itemDao, never()).save(any(Item.class));
 
         assertThat(savedItems).hasSize(2);
         var savedItem1 = savedItems.get(0);
@@ -1,11 +1,15 @@
 package com.jalian.online_store_order_management.unit.service;
 
+import com.jalian.online_store_order_management.config.OrderMetrics;
 import com.jalian.online_store_order_management.constant.OrderStatus;
 import com.jalian.online_store_order_management.dao.OrderDao;
 import com.jalian.online_store_order_management.domain.*;
 import com.jalian.online_store_order_management.dto.AddOrderDto;
 import com.jalian.online_store_order_management.dto.ItemDto;
+import com.jalian.online_store_order_management.dto.ItemFetchDto;
 import com.jalian.online_store_order_management.dto.OrderFetchDto;
+import com.jalian.online_store_order_management.dto.OrderResultDto;
+import com.jalian.online_store_order_management.dto.OrderSummaryDto;
 import com.jalian.online_store_order_management.exception.EntityNotFoundException;
 import com.jalian.online_store_order_management.exception.ValidationException;
 import com.jalian.online_store_order_management.service.ItemService;
@@ -14,22 +18,29 @@ import com.jalian.online_store_order_management.service.ProductService;
 import com.jalian.online_store_order_management.service.StoreService;
 import com.jalian.online_store_order_management.service.UserService;
 import com.jalian.online_store_order_management.service.impl.OrderServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -58,6 +69,10 @@ public class OrderServiceTest {
     private ItemService itemService;
     @Mock
     private PayService payService;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Spy
+    private OrderMetrics orderMetrics = new OrderMetrics(new SimpleMeterRegistry());
     @InjectMocks
     private OrderServiceImpl orderService;
 
@@ -65,6 +80,7 @@ public class OrderServiceTest {
     private User user;
     private Store store;
     private ItemDto itemDto;
+    private Product product;
 
     /**
      * Sets up necessary test data before each test.
@@ -76,6 +92,8 @@ public class OrderServiceTest {
         store = new Store("Test Store");
         store.setId(1L);
         itemDto = new ItemDto(10L, 3);
+        product = new Product(store, 100L, "Description", "Product");
+        product.setId(10L);
         addOrderDto = new AddOrderDto(1L, 1L, List.of(itemDto));
         when(orderDao.save(any(Order.class))).thenAnswer(invocation -> {
             Order o = invocation.getArgument(0);
@@ -84,6 +102,10 @@ public class OrderServiceTest {
             }
             return o;
         });
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            TransactionCallback<?> callback = invocation.getArgument(0);
+            return callback.doInTransaction(null);
+        });
     }
 
     /**
@@ -92,10 +114,10 @@ public class OrderServiceTest {
     @Test
     void addOrder_success() {
         when(storeService.belongToStore(eq(1L), eq(1L))).thenReturn(true);
-        when(productService.belongsToStore(eq(10L), eq(1L))).thenReturn(true);
-        when(userService.findUserEntityById(eq(1L))).thenReturn(user);
+        when(productService.findProductsByIds(eq(List.of(10L)))).thenReturn(Map.of(10L, product));
+        when(userService.findUserEntityReadOnly(eq(1L))).thenReturn(user);
         when(storeService.findStore(eq(1L))).thenReturn(store);
-        when(itemService.saveItems(anyList(), any(Order.class))).thenReturn(List.of());
+        when(itemService.saveItems(anyList(), any(Order.class), anyMap())).thenReturn(List.of());
         doNothing().when(payService).pay(any(User.class), any(Order.class), any());
 
         var orderId = orderService.addOrder(addOrderDto, payService);
@@ -106,6 +128,8 @@ public class OrderServiceTest {
         var finalOrder = savedOrders.get(savedOrders.size() - 1);
         assertThat(finalOrder.getOrderStatus()).isEqualTo(OrderStatus.INITIALIZED);
         verify(payService).pay(eq(user), any(Order.class), any());
+        verify(productService, never()).belongsToStore(any(), any());
+        verify(itemService).saveItems(anyList(), any(Order.class), eq(Map.of(10L, product)));
     }
 
     /**
@@ -126,43 +150,98 @@ public class OrderServiceTest {
      */
     @Test
     void addOrder_productNotBelong_throwsException() {
+        var otherStore = new Store("Other Store");
+        otherStore.setId(2L);
+        var otherProduct = new Product(otherStore, 100L, "Other Description", "Other Product");
+        otherProduct.setId(10L);
         when(storeService.belongToStore(eq(1L), eq(1L))).thenReturn(true);
-        when(productService.belongsToStore(eq(10L), eq(1L))).thenReturn(false);
+        when(productService.findProductsByIds(eq(List.of(10L)))).thenReturn(Map.of(10L, otherProduct));
         var ex = assertThrows(ValidationException.class,
                 () -> orderService.addOrder(addOrderDto, payService));
         assertThat(ex.getMessage()).contains("Product does not belong to store: 10");
-        verify(productService).belongsToStore(eq(10L), eq(1L));
+        verify(productService).findProductsByIds(eq(List.of(10L)));
+        verifyNoInteractions(itemService, payService);
     }
 
     /**
-     * Tests the successful retrieval of an order by its ID.
+     * Tests that a batch shares lookups between its orders and returns one result per order.
      */
     @Test
-    void findOrderById_success() {
-        var orderObj = new Order(OrderStatus.FINISHED, user, store);
-        orderObj.setId(100L);
-        var fakeProduct = new Product(store, 100.0, "Fake Product", "Fake Description");
-        fakeProduct.setId(20L);
+    void addOrders_success_sharesLookups() {
+        when(storeService.belongToStore(eq(1L), eq(1L))).thenReturn(true);
+        when(productService.findProductsByIds(eq(List.of(10L)))).thenReturn(Map.of(10L, product));
+        when(userService.findUserEntityReadOnly(eq(1L))).thenReturn(user);
+        when(storeService.findStore(eq(1L))).thenReturn(store);
+        when(itemService.saveItems(anyList(), any(Order.class), anyMap())).thenReturn(List.of());
+
+        var results = orderService.addOrders(List.of(addOrderDto, addOrderDto, addOrderDto), payService);
+
+        assertThat(results).containsExactly(
+                OrderResultDto.success(100L), OrderResultDto.success(100L), OrderResultDto.success(100L));
+        verify(transactionTemplate, times(1)).execute(any());
+        verify(storeService, times(1)).belongToStore(eq(1L), eq(1L));
+        verify(productService, times(1)).findProductsByIds(anyList());
+        verify(userService, times(1)).findUserEntityReadOnly(eq(1L));
+        verify(payService, times(3)).pay(eq(user), any(Order.class), any());
+    }
+
+    /**
+     * Tests that a failing order in a batch does not prevent the other orders from being placed.
+     */
+    @Test
+    void addOrders_failingOrder_isIsolated() {
+        var strangerDto = new AddOrderDto(2L, 1L, List.of(itemDto));
+        when(storeService.belongToStore(eq(1L), eq(1L))).thenReturn(true);
+        when(storeService.belongToStore(eq(1L), eq(2L))).thenReturn(false);
+        when(productService.findProductsByIds(eq(List.of(10L)))).thenReturn(Map.of(10L, product));
+        when(userService.findUserEntityReadOnly(eq(1L))).thenReturn(user);
+        when(storeService.findStore(eq(1L))).thenReturn(store);
+        when(itemService.saveItems(anyList(), any(Order.class), anyMap())).thenReturn(List.of());
+
+        var results = orderService.addOrders(List.of(addOrderDto, strangerDto, addOrderDto), payService);
 
-        var item = mock(Item.class);
-        when(item.getProduct()).thenReturn(fakeProduct);
-        when(item.getCount()).thenReturn(3L);
-        when(item.getPrice()).thenReturn(100.0);
+        assertThat(results).containsExactly(
+                OrderResultDto.success(100L),
+                OrderResultDto.failure("User does not belong to store: 1"),
+                OrderResultDto.success(100L));
+        verify(transactionTemplate, times(4)).execute(any());
+    }
 
-        var items = List.of(item);
+    /**
+     * Tests that a batch larger than the configured maximum is rejected.
+     */
+    @Test
+    void addOrders_tooLarge_throwsException() {
+        orderService.setBatchMaxSize(2);
+        var ex = assertThrows(ValidationException.class,
+                () -> orderService.addOrders(List.of(addOrderDto, addOrderDto, addOrderDto), payService));
+        assertThat(ex.getMessage()).contains("cannot contain more than 2");
+        verifyNoInteractions(transactionTemplate);
+    }
 
-        when(orderDao.findById(100L)).thenReturn(java.util.Optional.of(orderObj));
-        when(itemService.getProductsByOrderId(100L)).thenReturn(items);
+    /**
+     * Tests the successful retrieval of an order by its ID from the order and item projections, without loading
+     * the order or its items.
+     */
+    @Test
+    void findOrderById_success() {
+        var order = new OrderFetchDto(100L, "Amirhosein", "Jalian", "jalian@gmail.com", 1L, "jalian", 500L,
+                "Fake Store", OrderStatus.FINISHED);
+        var item = new ItemFetchDto(20L, "Fake Product", "Fake Description", 3L, 100L);
+
+        when(orderDao.findFetchDtoById(100L)).thenReturn(java.util.Optional.of(order));
+        when(itemService.getItemFetchDtosByOrderId(100L)).thenReturn(List.of(item));
 
         OrderFetchDto orderFetchDto = orderService.findOrderById(100L);
 
         assertThat(orderFetchDto.orderId()).isEqualTo(100L);
         assertThat(orderFetchDto.status()).isEqualTo(OrderStatus.FINISHED);
-        assertThat(orderFetchDto.items()).isNotEmpty();
-        var firstItem = orderFetchDto.items().get(0);
-        assertThat(firstItem.productId()).isEqualTo(20L);
-        assertThat(firstItem.count()).isEqualTo(3L);
-        assertThat(firstItem.price()).isEqualTo(100.0);
+        assertThat(orderFetchDto.owner().id()).isEqualTo("1");
+        assertThat(orderFetchDto.owner().username()).isEqualTo("jalian");
+        assertThat(orderFetchDto.store().name()).isEqualTo("Fake Store");
+        assertThat(orderFetchDto.items()).containsExactly(item);
+        verify(orderDao, never()).findById(any());
+        verify(itemService, never()).getProductsByOrderId(any());
     }
 
     /**
@@ -170,8 +249,76 @@ public class OrderServiceTest {
      */
     @Test
     void findOrderById_notFound_throwsException() {
-        when(orderDao.findById(100L)).thenReturn(java.util.Optional.empty());
+        when(orderDao.findFetchDtoById(100L)).thenReturn(java.util.Optional.empty());
         var ex = assertThrows(EntityNotFoundException.class, () -> orderService.findOrderById(100L));
         assertThat(ex.getMessage()).contains("Order");
+        verifyNoInteractions(itemService);
+    }
+
+    /**
+     * Tests that the order status is read from the status projection without loading the order or its items.
+     */
+    @Test
+    void findOrderStatus_success() {
+        when(orderDao.findStatusById(100L)).thenReturn(java.util.Optional.of(OrderStatus.AWAITING_PAYMENT));
+
+        var status = orderService.findOrderStatus(100L);
+
+        assertThat(status.orderId()).isEqualTo(100L);
+        assertThat(status.status()).isEqualTo(OrderStatus.AWAITING_PAYMENT);
+        verify(orderDao, never()).findById(any());
+        verifyNoInteractions(itemService);
+    }
+
+    /**
+     * Tests the scenario where the status of a missing order is requested.
+     */
+    @Test
+    void findOrderStatus_notFound_throwsException() {
+        when(orderDao.findStatusById(100L)).thenReturn(java.util.Optional.empty());
+        var ex = assertThrows(EntityNotFoundException.class, () -> orderService.findOrderStatus(100L));
+        assertThat(ex.getMessage()).contains("Order");
+    }
+
+    /**
+     * Tests that a page of a user's orders reads one order more than the page size to tell whether another page
+     * follows, and returns the last order of the page as its cursor.
+     */
+    @Test
+    void findUserOrders_fullPage_returnsCursor() {
+        when(orderDao.findUserOrdersBefore(1L, Long.MAX_VALUE, Limit.of(3)))
+                .thenReturn(List.of(summary(30L), summary(20L), summary(10L)));
+
+        var page = orderService.findUserOrders(1L, null, 2);
+
+        assertThat(page.orders()).extracting(OrderSummaryDto::orderId).containsExactly(30L, 20L);
+        assertThat(page.nextBefore()).isEqualTo(20L);
+    }
+
+    /**
+     * Tests that the last page of a store's orders has no cursor and that the default page size applies.
+     */
+    @Test
+    void findStoreOrders_lastPage_hasNoCursor() {
+        when(orderDao.findStoreOrdersBefore(2L, 20L, Limit.of(21))).thenReturn(List.of(summary(10L)));
+
+        var page = orderService.findStoreOrders(2L, 20L, null);
+
+        assertThat(page.orders()).extracting(OrderSummaryDto::orderId).containsExactly(10L);
+        assertThat(page.nextBefore()).isNull();
+    }
+
+    /**
+     * Tests that a page size above the maximum is rejected without querying the orders.
+     */
+    @Test
+    void findUserOrders_pageTooLarge_throwsException() {
+        var ex = assertThrows(ValidationException.class, () -> orderService.findUserOrders(1L, null, 101));
+        assertThat(ex.getMessage()).contains("between 1 and 100");
+        verifyNoInteractions(orderDao);
+    }
+
+    private static OrderSummaryDto summary(Long orderId) {
+        return new OrderSummaryDto(orderId, 1L, 2L, OrderStatus.FINISHED, null);
     }
 }
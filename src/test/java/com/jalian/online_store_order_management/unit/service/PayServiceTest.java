@@ -1,34 +1,46 @@
 package com.jalian.online_store_order_management.unit.service;
 
-import com.jalian.online_store_order_management.constant.BalanceOperation;
 import com.jalian.online_store_order_management.constant.OrderStatus;
+import com.jalian.online_store_order_management.constant.PaymentTaskStatus;
 import com.jalian.online_store_order_management.dao.OrderDao;
+import com.jalian.online_store_order_management.dao.PaymentTaskDao;
 import com.jalian.online_store_order_management.domain.Item;
 import com.jalian.online_store_order_management.domain.Order;
+import com.jalian.online_store_order_management.domain.PaymentTask;
 import com.jalian.online_store_order_management.domain.Product;
 import com.jalian.online_store_order_management.domain.User;
-import com.jalian.online_store_order_management.dto.UpdateBalanceDto;
-import com.jalian.online_store_order_management.service.ProductService;
+import com.jalian.online_store_order_management.config.OrderMetrics;
+import com.jalian.online_store_order_management.config.PayRetryConfig;
+import com.jalian.online_store_order_management.event.OrderCompletedEvent;
+import com.jalian.online_store_order_management.exception.IllegalBalanceException;
+import com.jalian.online_store_order_management.exception.LackOfProductException;
+import com.jalian.online_store_order_management.exception.PaymentStoppedException;
+import com.jalian.online_store_order_management.service.ItemService;
 import com.jalian.online_store_order_management.service.UserService;
 import com.jalian.online_store_order_management.service.impl.ASyncPayServiceImpl;
+import com.jalian.online_store_order_management.service.impl.BalanceDebitSerializer;
+import com.jalian.online_store_order_management.service.impl.InventoryReservations;
 import com.jalian.online_store_order_management.service.impl.RecoveryPay;
 import com.jalian.online_store_order_management.service.impl.SyncPayServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.ArgumentMatcher;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import java.time.Duration;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Optional;
 
-import static org.awaitility.Awaitility.await;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 /**
@@ -37,10 +49,20 @@ import static org.mockito.Mockito.*;
  * <p>
  * The tests verify that:
  * <ul>
- *   <li>The sync pay service correctly invokes the updateBalance operation.</li>
- *   <li>The async pay service calls the updateBalance operation in an asynchronous context.</li>
- *   <li>The async pay service retries on temporary failures and eventually sets the order status to FINISHED.</li>
+ *   <li>The sync pay service commits the reserved inventory and debits the user with the conditional debit
+ *   operation.</li>
+ *   <li>The async pay service only writes a payment task when an order is placed.</li>
+ *   <li>The async pay service debits the user through the balance debit serializer when it processes a task,
+ *   and deletes the task once the payment is done or recovered.</li>
+ *   <li>The async pay service commits the reserved inventory of a paid order and only releases it when the
+ *   payment is recovered.</li>
+ *   <li>A failure while completing a paid order is retried without debiting the user again.</li>
+ *   <li>A task delivered again for an order that is already paid completes the order without a debit.</li>
+ *   <li>The async pay service retries on lock failures and eventually sets the order status to FINISHED.</li>
  *   <li>The async pay service sets the order status to FAILED after repeated failures.</li>
+ *   <li>The async pay service does not retry an illegal balance and recovers right away.</li>
+ *   <li>Payment attempts, retried lock failures and final order statuses are recorded as metrics.</li>
+ *   <li>An order completed event is published with the final status of every payment.</li>
  * </ul>
  * </p>
  *
@@ -50,7 +72,7 @@ import static org.mockito.Mockito.*;
 public class PayServiceTest {
 
     @Mock
-    private ProductService productService;
+    private InventoryReservations reservations;
 
     @Mock
     private UserService userService;
@@ -61,12 +83,32 @@ public class PayServiceTest {
     @Mock
     private OrderDao orderDao;
 
+    @Mock
+    private BalanceDebitSerializer balanceDebitSerializer;
+
+    @Mock
+    private PaymentTaskDao paymentTaskDao;
+
+    @Mock
+    private ItemService itemService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private OrderMetrics orderMetrics = new OrderMetrics(meterRegistry);
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private SyncPayServiceImpl syncPayService;
 
     @InjectMocks
     private ASyncPayServiceImpl asyncPayService;
 
+    private static final Long TASK_ID = 7L;
+    private static final Long ORDER_ID = 100L;
+
     private User user;
     private Product product1;
     private Product product2;
@@ -75,18 +117,20 @@ public class PayServiceTest {
 
     @BeforeEach
     void setUp() {
-        asyncPayService = new ASyncPayServiceImpl(userService, orderDao, productService);
+        asyncPayService = new ASyncPayServiceImpl(userService, orderDao, paymentTaskDao, itemService, reservations,
+                new PayRetryConfig().payRetryTemplate(7, 10, 2.0, 50), balanceDebitSerializer,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), orderMetrics, eventPublisher);
         asyncPayService.setRecoveryPay(recoveryPay);
         user = new User();
         user.setId(1L);
 
         product1 = new Product();
         product1.setId(101L);
-        product1.setPrice(10.0);
+        product1.setPrice(10L);
 
         product2 = new Product();
         product2.setId(102L);
-        product2.setPrice(5.0);
+        product2.setPrice(5L);
 
         item1 = new Item();
         item1.setCount(2);
@@ -99,111 +143,255 @@ public class PayServiceTest {
 
     @Test
     void testSyncPayService_pay() {
-        double totalPrice = (2 * 10.0) + (3 * 5.0);
-        when(userService.updateBalance(argThat(
-                new UpdateBalanceMatcher(user.getId(), totalPrice, BalanceOperation.MINUS)))
-        ).thenReturn(null);
+        long totalPrice = (2 * 10L) + (3 * 5L);
         Order order = new Order();
         syncPayService.pay(user, order, List.of(item1, item2));
-        verify(userService).updateBalance(argThat(
-                new UpdateBalanceMatcher(user.getId(), totalPrice, BalanceOperation.MINUS))
-        );
+        verify(reservations).commit(List.of(item1, item2));
+        verify(userService).debitBalance(user.getId(), totalPrice);
+        verify(userService, never()).updateBalance(any());
+        assertThat(order.getOrderStatus()).isEqualTo(OrderStatus.FINISHED);
+        assertThat(meterRegistry.get("orders").tag("status", "FINISHED").counter().count()).isEqualTo(1);
+        verify(eventPublisher).publishEvent(new OrderCompletedEvent(order.getId(), OrderStatus.FINISHED));
     }
 
     @Test
-    void testASyncPayService_pay() {
-        double totalPrice = (2 * 10.0) + (3 * 5.0);
-        when(userService.updateBalance(argThat(
-                new UpdateBalanceMatcher(user.getId(), totalPrice, BalanceOperation.MINUS)))
-        ).thenReturn(null);
+    void testSyncPayService_priceOverflow_throwsException() {
+        product1.setPrice(Long.MAX_VALUE);
         Order order = new Order();
-        order.setOrderStatus(OrderStatus.FINISHED);
-        when(orderDao.save(any(Order.class))).thenReturn(order);
-        asyncPayService.pay(user, new Order(), List.of(item1, item2));
-        verify(userService).updateBalance(argThat(
-                new UpdateBalanceMatcher(user.getId(), totalPrice, BalanceOperation.MINUS))
-        );
+        assertThrows(ArithmeticException.class, () -> syncPayService.pay(user, order, List.of(item1, item2)));
+        assertThat(order.getOrderStatus()).isEqualTo(OrderStatus.FAILED);
+        assertThat(meterRegistry.get("orders").tag("status", "FAILED").counter().count()).isEqualTo(1);
+        verifyNoInteractions(userService);
     }
 
     @Test
-    void testASyncPayService_retrySuccess() {
-        double totalPrice = (2 * 10.0) + (3 * 5.0);
-        when(userService.updateBalance(argThat(
-                new UpdateBalanceMatcher(user.getId(), totalPrice, BalanceOperation.MINUS)))
-        )
-                .thenThrow(new RuntimeException("Temporary failure"))
-                .thenThrow(new RuntimeException("Temporary failure"))
-                .thenReturn(null);
+    void testASyncPayService_pay_writesPaymentTaskOnly() {
         Order order = new Order();
         order.setOrderStatus(OrderStatus.INITIALIZED);
-        when(orderDao.save(any(Order.class))).thenAnswer(invocation -> {
-            Order o = invocation.getArgument(0);
-            if (o.getId() == null) {
-                o.setId(100L);
-            }
-            return o;
-        });
+
         asyncPayService.pay(user, order, List.of(item1, item2));
-        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
-                verify(userService, times(3)).updateBalance(argThat(
-                        new UpdateBalanceMatcher(user.getId(), totalPrice, BalanceOperation.MINUS)))
-        );
-        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
-                assertThat(order.getOrderStatus()).isEqualTo(OrderStatus.FINISHED)
-        );
+
+        var task = ArgumentCaptor.forClass(PaymentTask.class);
+        verify(paymentTaskDao).save(task.capture());
+        assertThat(task.getValue().getOrder()).isSameAs(order);
+        assertThat(task.getValue().getStatus()).isEqualTo(PaymentTaskStatus.PENDING);
+        assertThat(order.getOrderStatus()).isEqualTo(OrderStatus.AWAITING_PAYMENT);
+        verifyNoInteractions(balanceDebitSerializer, userService, eventPublisher);
+    }
+
+    @Test
+    void testASyncPayService_processTask() {
+        long totalPrice = (2 * 10L) + (3 * 5L);
+        var order = awaitingOrder();
+
+        asyncPayService.processTask(TASK_ID, order.getId());
+
+        verify(balanceDebitSerializer).debit(user.getId(), ORDER_ID, TASK_ID, totalPrice);
+        verify(reservations).commit(List.of(item1, item2));
+        verify(orderDao).changeStatus(ORDER_ID, OrderStatus.PAID, OrderStatus.FINISHED);
+        verify(paymentTaskDao).deleteTask(TASK_ID);
+        verify(orderDao, never()).save(any());
+        verifyNoInteractions(userService);
+        verify(eventPublisher).publishEvent(new OrderCompletedEvent(ORDER_ID, OrderStatus.FINISHED));
+    }
+
+    @Test
+    void testASyncPayService_completionFailure_retriedWithoutDebitingAgain() {
+        long totalPrice = (2 * 10L) + (3 * 5L);
+        var order = awaitingOrder();
+        when(orderDao.changeStatus(ORDER_ID, OrderStatus.PAID, OrderStatus.FINISHED))
+                .thenThrow(new PessimisticLockingFailureException("Temporary failure"))
+                .thenReturn(1);
+
+        asyncPayService.processTask(TASK_ID, order.getId());
+
+        verify(balanceDebitSerializer, times(1)).debit(user.getId(), ORDER_ID, TASK_ID, totalPrice);
+        verify(reservations, times(1)).commit(List.of(item1, item2));
+        verify(paymentTaskDao).deleteTask(TASK_ID);
+        assertThat(meterRegistry.get("orders").tag("status", "FINISHED").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testASyncPayService_processTask_paidOrder_completedWithoutDebit() {
+        var order = awaitingOrder();
+        order.setOrderStatus(OrderStatus.PAID);
+
+        asyncPayService.processTask(TASK_ID, order.getId());
+
+        verifyNoInteractions(balanceDebitSerializer, userService);
+        verify(reservations).commit(List.of(item1, item2));
+        verify(orderDao).changeStatus(ORDER_ID, OrderStatus.PAID, OrderStatus.FINISHED);
+        verify(paymentTaskDao).deleteTask(TASK_ID);
+        verify(eventPublisher).publishEvent(new OrderCompletedEvent(ORDER_ID, OrderStatus.FINISHED));
+    }
+
+    @Test
+    void testASyncPayService_inventoryLackAfterDebit_refundsAndFailsOrder() {
+        long totalPrice = (2 * 10L) + (3 * 5L);
+        var order = awaitingOrder();
+        doThrow(new LackOfProductException()).when(reservations).commit(List.of(item1, item2));
+        when(orderDao.changeStatus(ORDER_ID, OrderStatus.PAID, OrderStatus.FAILED)).thenReturn(1);
+
+        asyncPayService.processTask(TASK_ID, order.getId());
+
+        verify(balanceDebitSerializer, times(1)).debit(user.getId(), ORDER_ID, TASK_ID, totalPrice);
+        verify(userService).creditBalance(user.getId(), totalPrice);
+        verify(reservations).release(List.of(item1, item2));
+        verify(paymentTaskDao).deleteTask(TASK_ID);
+        assertThat(meterRegistry.get("orders").tag("status", "FAILED").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("orders").tag("status", "FINISHED").counter().count()).isZero();
+        verify(eventPublisher).publishEvent(new OrderCompletedEvent(ORDER_ID, OrderStatus.FAILED));
+        verify(eventPublisher, never()).publishEvent(new OrderCompletedEvent(ORDER_ID, OrderStatus.FINISHED));
+    }
+
+    @Test
+    void testASyncPayService_inventoryLackAfterCompletedConcurrently_notRefunded() {
+        var order = awaitingOrder();
+        doThrow(new LackOfProductException()).when(reservations).commit(List.of(item1, item2));
+        when(orderDao.changeStatus(ORDER_ID, OrderStatus.PAID, OrderStatus.FAILED)).thenReturn(0);
+
+        asyncPayService.processTask(TASK_ID, order.getId());
+
+        verify(userService, never()).creditBalance(anyLong(), anyLong());
+        verify(reservations, never()).release(anyList());
+        verify(paymentTaskDao, never()).deleteTask(TASK_ID);
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testASyncPayService_processTask_completedConcurrently_nothingCommitted() {
+        var order = awaitingOrder();
+        order.setOrderStatus(OrderStatus.PAID);
+        when(paymentTaskDao.lockTask(TASK_ID)).thenReturn(0);
+
+        asyncPayService.processTask(TASK_ID, order.getId());
+
+        verify(reservations, never()).commit(anyList());
+        verify(orderDao, never()).changeStatus(anyLong(), any(), any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testASyncPayService_processTask_noLongerAwaitingPayment_dropsTask() {
+        long totalPrice = (2 * 10L) + (3 * 5L);
+        var order = awaitingOrder();
+        when(balanceDebitSerializer.debit(user.getId(), ORDER_ID, TASK_ID, totalPrice)).thenReturn(false);
+
+        asyncPayService.processTask(TASK_ID, order.getId());
+
+        verify(paymentTaskDao).deleteTask(TASK_ID);
+        verify(reservations, never()).commit(anyList());
+        verifyNoInteractions(recoveryPay, eventPublisher);
+    }
+
+    @Test
+    void testASyncPayService_paymentsStopped_releasesTask() {
+        var order = awaitingOrder();
+        when(balanceDebitSerializer.debit(anyLong(), anyLong(), anyLong(), anyLong()))
+                .thenThrow(new PaymentStoppedException());
+
+        asyncPayService.processTask(TASK_ID, order.getId());
+
+        verify(balanceDebitSerializer, times(1)).debit(anyLong(), anyLong(), anyLong(), anyLong());
+        verify(paymentTaskDao).release(TASK_ID);
+        verify(paymentTaskDao, never()).deleteTask(anyLong());
+        verify(reservations, never()).commit(anyList());
+        verifyNoInteractions(recoveryPay, eventPublisher);
+    }
+
+    @Test
+    void testASyncPayService_processTask_finalOrder_onlyDeletesTask() {
+        var order = awaitingOrder();
+        order.setOrderStatus(OrderStatus.FINISHED);
+
+        asyncPayService.processTask(TASK_ID, order.getId());
+
+        verify(paymentTaskDao).deleteTask(TASK_ID);
+        verifyNoInteractions(balanceDebitSerializer, itemService, eventPublisher);
+        verify(orderDao, never()).changeStatus(anyLong(), any(), any());
+    }
+
+    @Test
+    void testASyncPayService_retrySuccess() {
+        long totalPrice = (2 * 10L) + (3 * 5L);
+        var order = awaitingOrder();
+        when(balanceDebitSerializer.debit(user.getId(), ORDER_ID, TASK_ID, totalPrice))
+                .thenThrow(new PessimisticLockingFailureException("Temporary failure"))
+                .thenThrow(new PessimisticLockingFailureException("Temporary failure"))
+                .thenReturn(true);
+
+        asyncPayService.processTask(TASK_ID, order.getId());
+
+        verify(balanceDebitSerializer, times(3)).debit(user.getId(), ORDER_ID, TASK_ID, totalPrice);
+        verify(orderDao).changeStatus(ORDER_ID, OrderStatus.PAID, OrderStatus.FINISHED);
+        verify(paymentTaskDao).deleteTask(TASK_ID);
+        var attempts = meterRegistry.get("pay.attempts").tag("status", "FINISHED").summary();
+        assertThat(attempts.count()).isEqualTo(1);
+        assertThat(attempts.totalAmount()).isEqualTo(3);
+        assertThat(meterRegistry.get("lock.exceptions").tags("entity", OrderMetrics.UNKNOWN_ENTITY, "source", "payment")
+                .counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("orders").tag("status", "FINISHED").counter().count()).isEqualTo(1);
+        verify(eventPublisher).publishEvent(new OrderCompletedEvent(ORDER_ID, OrderStatus.FINISHED));
     }
 
     @Test
     void testASyncPayService_retryFailure() {
-        double totalPrice = (2 * 10.0) + (3 * 5.0);
-        when(userService.updateBalance(argThat(
-                new UpdateBalanceMatcher(user.getId(), totalPrice, BalanceOperation.MINUS)))
-        )
+        long totalPrice = (2 * 10L) + (3 * 5L);
+        var order = awaitingOrder();
+        when(balanceDebitSerializer.debit(user.getId(), ORDER_ID, TASK_ID, totalPrice))
                 .thenThrow(new RuntimeException("Permanent failure"));
-        Order order = new Order();
-        order.setOrderStatus(OrderStatus.INITIALIZED);
-        when(orderDao.save(any(Order.class))).thenAnswer(invocation -> {
-            Order o = invocation.getArgument(0);
-            if (o.getId() == null) {
-                o.setId(100L);
-            }
-            return o;
-        });
-
-        // Stub recoveryPay to update the order status to FAILED
-        doAnswer(invocation -> {
-            Order o = invocation.getArgument(0);
-            o.setOrderStatus(OrderStatus.FAILED);
-            orderDao.save(o);
-            return null;
-        }).when(recoveryPay).recoverPayment(any(Order.class), anyList(), any(OrderDao.class), any(ProductService.class));
+        when(recoveryPay.recoverPayment(any(Order.class), anyList(), any(OrderDao.class),
+                any(InventoryReservations.class))).thenReturn(true);
 
-        asyncPayService.pay(user, order, List.of(item1, item2));
-        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
-                assertThat(order.getOrderStatus()).isEqualTo(OrderStatus.FAILED)
-        );
-    }
-
-    /**
-     * Custom ArgumentMatcher to validate UpdateBalanceDto parameters.
-     */
-    private static class UpdateBalanceMatcher implements ArgumentMatcher<UpdateBalanceDto> {
-        private final Long expectedUserId;
-        private final double expectedAmount;
-        private final BalanceOperation expectedOperation;
-
-        UpdateBalanceMatcher(Long expectedUserId, double expectedAmount, BalanceOperation expectedOperation) {
-            this.expectedUserId = expectedUserId;
-            this.expectedAmount = expectedAmount;
-            this.expectedOperation = expectedOperation;
-        }
-
-        @Override
-        public boolean matches(UpdateBalanceDto dto) {
-            return dto != null &&
-                    dto.userId().equals(expectedUserId) &&
-                    Double.compare(dto.amount(), expectedAmount) == 0 &&
-                    dto.operation() == expectedOperation;
-        }
-    }
-}
\ No newline at end of file
+        asyncPayService.processTask(TASK_ID, order.getId());
+
+        verify(recoveryPay).recoverPayment(eq(order), anyList(), any(OrderDao.class), eq(reservations));
+        verify(paymentTaskDao).deleteTask(TASK_ID);
+        verify(reservations, never()).commit(anyList());
+        verify(eventPublisher).publishEvent(new OrderCompletedEvent(ORDER_ID, OrderStatus.FAILED));
+    }
+
+    @Test
+    void testASyncPayService_recoveryOfSettledOrder_publishesNothing() {
+        var order = awaitingOrder();
+        when(balanceDebitSerializer.debit(anyLong(), anyLong(), anyLong(), anyLong()))
+                .thenThrow(new IllegalBalanceException());
+
+        asyncPayService.processTask(TASK_ID, order.getId());
+
+        verify(recoveryPay).recoverPayment(eq(order), anyList(), any(OrderDao.class), eq(reservations));
+        verify(paymentTaskDao).deleteTask(TASK_ID);
+        assertThat(meterRegistry.get("orders").tag("status", "FAILED").counter().count()).isZero();
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testASyncPayService_illegalBalance_failsFast() {
+        var order = awaitingOrder();
+        when(balanceDebitSerializer.debit(anyLong(), anyLong(), anyLong(), anyLong()))
+                .thenThrow(new IllegalBalanceException());
+        when(recoveryPay.recoverPayment(any(Order.class), anyList(), any(OrderDao.class),
+                any(InventoryReservations.class))).thenReturn(true);
+
+        asyncPayService.processTask(TASK_ID, order.getId());
+
+        verify(balanceDebitSerializer, times(1)).debit(anyLong(), anyLong(), anyLong(), anyLong());
+        verify(recoveryPay).recoverPayment(eq(order), anyList(), any(OrderDao.class), eq(reservations));
+        verify(paymentTaskDao).deleteTask(TASK_ID);
+        assertThat(meterRegistry.get("pay.attempts").tag("status", "FAILED").summary().totalAmount()).isEqualTo(1);
+        assertThat(meterRegistry.get("orders").tag("status", "FAILED").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.find("lock.exceptions").counter()).isNull();
+        verify(eventPublisher).publishEvent(new OrderCompletedEvent(ORDER_ID, OrderStatus.FAILED));
+    }
+
+    private Order awaitingOrder() {
+        var order = new Order(OrderStatus.AWAITING_PAYMENT, user, null);
+        order.setId(ORDER_ID);
+        when(orderDao.findById(ORDER_ID)).thenReturn(Optional.of(order));
+        lenient().when(itemService.getProductsByOrderId(ORDER_ID)).thenReturn(List.of(item1, item2));
+        lenient().when(balanceDebitSerializer.debit(anyLong(), anyLong(), anyLong(), anyLong())).thenReturn(true);
+        lenient().when(paymentTaskDao.lockTask(TASK_ID)).thenReturn(1);
+        lenient().when(orderDao.changeStatus(ORDER_ID, OrderStatus.PAID, OrderStatus.FINISHED)).thenReturn(1);
+        return order;
+    }
+}
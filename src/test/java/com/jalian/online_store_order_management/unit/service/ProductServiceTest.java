@@ -2,29 +2,53 @@ package com.jalian.online_store_order_management.unit.service;
 
 import com.jalian.online_store_order_management.constant.BalanceOperation;
 import com.jalian.online_store_order_management.constant.OrderStatus;
+import com.jalian.online_store_order_management.config.CatalogCache;
+import com.jalian.online_store_order_management.config.CatalogCacheConfig;
+import com.jalian.online_store_order_management.constant.ProductOperationStrategy;
 import com.jalian.online_store_order_management.dao.ProductDao;
 import com.jalian.online_store_order_management.domain.Product;
 import com.jalian.online_store_order_management.domain.Store;
+import com.jalian.online_store_order_management.dto.BulkChargeFailureDto;
+import com.jalian.online_store_order_management.dto.HotProductDto;
 import com.jalian.online_store_order_management.dto.ProductDto;
+import com.jalian.online_store_order_management.dto.ProductFetchDto;
+import com.jalian.online_store_order_management.dto.ProductImportFailureDto;
 import com.jalian.online_store_order_management.dto.ProductOperationDto;
 import com.jalian.online_store_order_management.exception.EntityNotFoundException;
+import com.jalian.online_store_order_management.exception.LackOfProductException;
 import com.jalian.online_store_order_management.exception.ValidationException;
 import com.jalian.online_store_order_management.service.StoreService;
+import com.jalian.online_store_order_management.service.impl.HotProductInventory;
 import com.jalian.online_store_order_management.service.impl.ProductServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 /**
  * Unit test class for testing the {@link ProductServiceImpl} class.
@@ -40,6 +64,18 @@ public class ProductServiceTest {
     @Mock
     private StoreService storeService;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private CatalogCache<Long, ProductFetchDto> productCache =
+            new CatalogCache<>(CatalogCacheConfig.PRODUCT_CACHE, 100, Duration.ofMinutes(1), meterRegistry);
+
+    @Mock
+    private HotProductInventory hotInventory;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     @InjectMocks
     private ProductServiceImpl productService;
 
@@ -55,8 +91,8 @@ public class ProductServiceTest {
     void setUp() {
         store = new Store("Test Store");
         store.setId(1L);
-        productDto = new ProductDto("Product A", "Description A", 100.0, 1L);
-        product = new Product(store, 100.0, "Description A", "Product A");
+        productDto = new ProductDto("Product A", "Description A", 100L, 1L);
+        product = new Product(store, 100L, "Description A", "Product A");
         product.setId(1L);
     }
 
@@ -98,7 +134,7 @@ public class ProductServiceTest {
      */
     @Test
     void addProduct_emptyName_throwsException() {
-        var dto = new ProductDto("", "Desc", 50.0, 1L);
+        var dto = new ProductDto("", "Desc", 50L, 1L);
         when(storeService.existStore(1L)).thenReturn(true);
         var ex = assertThrows(ValidationException.class, () -> productService.addProduct(dto));
         assertThat(ex.getMessage()).contains("Product name cannot be empty");
@@ -110,7 +146,7 @@ public class ProductServiceTest {
      */
     @Test
     void addProduct_negativePrice_throwsException() {
-        var dto = new ProductDto("Product B", "Desc", -10.0, 1L);
+        var dto = new ProductDto("Product B", "Desc", -10L, 1L);
         when(storeService.existStore(1L)).thenReturn(true);
         var ex = assertThrows(ValidationException.class, () -> productService.addProduct(dto));
         assertThat(ex.getMessage()).contains("Product price cannot be a negative number");
@@ -118,36 +154,124 @@ public class ProductServiceTest {
 
     /**
      * Test case for retrieving a product by its ID successfully.
-     * Verifies that the correct product is returned and the correct interactions with the DAO occur.
+     * Verifies that the product is read with the lock-free projection query and that the second read is served
+     * from the product cache.
      */
     @Test
     void getProductById_success() {
-        when(productDao.findByIdSafe(1L)).thenReturn(Optional.of(product));
+        when(productDao.findFetchDtoById(1L)).thenReturn(Optional.of(ProductFetchDto.of(product)));
         var result = productService.getProductById(1L);
         assertThat(result.id()).isEqualTo(1L);
         assertThat(result.name()).isEqualTo("Product A");
         assertThat(result.storeName()).isEqualTo("Test Store");
-        verify(productDao).findByIdSafe(1L);
+        assertThat(productService.getProductById(1L)).isEqualTo(result);
+        verify(productDao, times(1)).findFetchDtoById(1L);
+        verify(productDao, never()).findByIdSafe(any());
+        assertThat(cacheGets("hit")).isEqualTo(1);
+        assertThat(cacheGets("miss")).isEqualTo(1);
     }
 
     /**
      * Test case for retrieving a product by its ID when the product is not found.
-     * Verifies that an {@link EntityNotFoundException} is thrown when the product does not exist in the database.
+     * Verifies that an {@link EntityNotFoundException} is thrown and that the missing product is not cached.
      */
     @Test
     void getProductById_notFound_throwsException() {
-        when(productDao.findByIdSafe(2L)).thenReturn(Optional.empty());
+        when(productDao.findFetchDtoById(2L)).thenReturn(Optional.empty());
         var ex = assertThrows(EntityNotFoundException.class, () -> productService.getProductById(2L));
         assertThat(ex.getMessage()).contains("Product with id 2 does not exist");
-        verify(productDao).findByIdSafe(2L);
+        assertThrows(EntityNotFoundException.class, () -> productService.getProductById(2L));
+        verify(productDao, times(2)).findFetchDtoById(2L);
+        assertThat(productCache.size()).isZero();
+    }
+
+    /**
+     * Test case for retrieving a hot product.
+     * Verifies that the inventory is read from the counters of the product, which include the discharges not written
+     * back to its row yet, while the rest of the product is still served from the product cache.
+     */
+    @Test
+    void getProductById_hotProduct_readsInventoryFromCounters() {
+        product.setInventory(10);
+        when(productDao.findFetchDtoById(1L)).thenReturn(Optional.of(ProductFetchDto.of(product)));
+        when(hotInventory.available(1L)).thenReturn(OptionalLong.of(10), OptionalLong.of(7));
+        assertThat(productService.getProductById(1L).inventory()).isEqualTo(10);
+        var result = productService.getProductById(1L);
+        assertThat(result.inventory()).isEqualTo(7);
+        assertThat(result.name()).isEqualTo("Product A");
+        verify(productDao, times(1)).findFetchDtoById(1L);
+    }
+
+    /**
+     * Test case for reading a product after its inventory was charged.
+     * Verifies that charging a product invalidates its cached entry, so the next read sees the new inventory.
+     */
+    @Test
+    void chargeProduct_invalidatesCachedProduct() {
+        product.setInventory(10);
+        when(productDao.findFetchDtoById(1L)).thenReturn(Optional.of(ProductFetchDto.of(product)));
+        assertThat(productService.getProductById(1L).inventory()).isEqualTo(10);
+        when(productDao.findByIdSafe(1L)).thenReturn(Optional.of(product));
+        when(productDao.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0, Product.class));
+        productService.chargeProduct(new ProductOperationDto(1L, 5));
+        when(productDao.findFetchDtoById(1L)).thenReturn(Optional.of(ProductFetchDto.of(product)));
+        assertThat(productService.getProductById(1L).inventory()).isEqualTo(15);
+        verify(productCache).invalidateAfterCommit(1L);
+        verify(productDao, times(2)).findFetchDtoById(1L);
     }
 
     /**
      * Test case for discharging a product (decreasing its inventory).
-     * Verifies that the inventory is updated correctly and the correct interactions with the DAO occur.
+     * Verifies that the inventory is decreased by a single conditional update and the fresh product view is returned.
      */
     @Test
     void dischargeProduct_success() {
+        var dto = new ProductOperationDto(1L, 3);
+        when(productDao.dischargeInventory(1L, 3)).thenReturn(1);
+        when(productDao.findFetchDtoById(1L)).thenReturn(
+                Optional.of(new ProductFetchDto(1L, "Product A", "Description A", 100L, 7, "Test Store"))
+        );
+        var result = productService.dischargeProduct(dto);
+        assertThat(result.inventory()).isEqualTo(7);
+        verify(productDao).dischargeInventory(1L, 3);
+        verify(productDao, never()).findByIdSafe(any());
+        verify(productDao, never()).save(any(Product.class));
+        verify(productCache).invalidateAfterCommit(1L);
+    }
+
+    /**
+     * Test case for discharging a product when there is not enough inventory.
+     * Verifies that a {@link LackOfProductException} is thrown when the conditional update affects no row.
+     */
+    @Test
+    void dischargeProduct_notEnoughInventory_throwsException() {
+        var dto = new ProductOperationDto(1L, 30);
+        when(productDao.dischargeInventory(1L, 30)).thenReturn(0);
+        when(productDao.existsById(1L)).thenReturn(true);
+        assertThrows(LackOfProductException.class, () -> productService.dischargeProduct(dto));
+        verify(productDao, never()).findFetchDtoById(any());
+    }
+
+    /**
+     * Test case for discharging a product that does not exist.
+     * Verifies that an {@link EntityNotFoundException} is thrown when the conditional update affects no row.
+     */
+    @Test
+    void dischargeProduct_notFound_throwsException() {
+        var dto = new ProductOperationDto(2L, 3);
+        when(productDao.dischargeInventory(2L, 3)).thenReturn(0);
+        when(productDao.existsById(2L)).thenReturn(false);
+        var ex = assertThrows(EntityNotFoundException.class, () -> productService.dischargeProduct(dto));
+        assertThat(ex.getMessage()).contains("Product with id 2 does not exist");
+    }
+
+    /**
+     * Test case for discharging a product with the in-memory {@code MINUS} strategy.
+     * Verifies that the product is loaded, updated and saved when that strategy is selected.
+     */
+    @Test
+    void dischargeProduct_minusStrategy_success() {
+        productService.setDischargeStrategy(ProductOperationStrategy.MINUS);
         product.setInventory(10);
         var dto = new ProductOperationDto(1L, 3);
         when(productDao.findByIdSafe(1L)).thenReturn(Optional.of(product));
@@ -180,11 +304,12 @@ public class ProductServiceTest {
      */
     @Test
     void belongsToStore_true() {
-        when(productDao.findByIdSafe(1L)).thenReturn(Optional.of(product));
+        when(productDao.findStoreIdById(1L)).thenReturn(Optional.of(1L));
         when(storeService.findStore(1L)).thenReturn(store);
         var result = productService.belongsToStore(1L, 1L);
         assertThat(result).isTrue();
-        verify(productDao).findByIdSafe(1L);
+        verify(productDao).findStoreIdById(1L);
+        verify(productDao, never()).findByIdSafe(any());
         verify(storeService).findStore(1L);
     }
 
@@ -196,11 +321,213 @@ public class ProductServiceTest {
     void belongsToStore_false() {
         var otherStore = new Store("Other Store");
         otherStore.setId(2L);
-        when(productDao.findByIdSafe(1L)).thenReturn(Optional.of(product));
+        when(productDao.findStoreIdById(1L)).thenReturn(Optional.of(1L));
         when(storeService.findStore(2L)).thenReturn(otherStore);
         var result = productService.belongsToStore(1L, 2L);
         assertThat(result).isFalse();
-        verify(productDao).findByIdSafe(1L);
+        verify(productDao).findStoreIdById(1L);
         verify(storeService).findStore(2L);
     }
+
+    /**
+     * Test case for verifying if a product that does not exist belongs to a store.
+     * Verifies that an {@link EntityNotFoundException} is thrown without looking the store up.
+     */
+    @Test
+    void belongsToStore_productNotFound_throwsException() {
+        when(productDao.findStoreIdById(2L)).thenReturn(Optional.empty());
+        var ex = assertThrows(EntityNotFoundException.class, () -> productService.belongsToStore(2L, 1L));
+        assertThat(ex.getMessage()).contains("Product with id 2 does not exist");
+        verifyNoInteractions(storeService);
+    }
+
+    /**
+     * Test case for loading a basket of products at once.
+     * Verifies that all products are fetched with a single query, without locking them, and returned keyed by
+     * their ids.
+     */
+    @Test
+    void findProductsByIds_success() {
+        var otherProduct = new Product(store, 50L, "Description B", "Product B");
+        otherProduct.setId(2L);
+        when(productDao.findAllById(List.of(1L, 2L))).thenReturn(List.of(product, otherProduct));
+        var result = productService.findProductsByIds(List.of(1L, 2L));
+        assertThat(result).containsEntry(1L, product).containsEntry(2L, otherProduct);
+        verify(productDao).findAllById(List.of(1L, 2L));
+        verify(productDao, never()).findByIdSafe(any());
+    }
+
+    /**
+     * Test case for loading a basket of products when one of them does not exist.
+     * Verifies that an {@link EntityNotFoundException} naming the missing product is thrown.
+     */
+    @Test
+    void findProductsByIds_missingProduct_throwsException() {
+        when(productDao.findAllById(List.of(1L, 3L))).thenReturn(List.of(product));
+        var ex = assertThrows(EntityNotFoundException.class, () -> productService.findProductsByIds(List.of(1L, 3L)));
+        assertThat(ex.getMessage()).contains("Product with id 3 does not exist");
+    }
+
+    /**
+     * Test case for flagging a product as hot.
+     * Verifies that the flag is written, that the counters are switched on once it is committed, and that the cached
+     * product is invalidated, since its inventory is read from elsewhere from then on.
+     */
+    @Test
+    void setHot_success() {
+        when(productDao.updateHot(1L, true)).thenReturn(1);
+        productService.setHot(new HotProductDto(1L, true));
+        verify(hotInventory).setHotAfterCommit(1L, true);
+        verify(productCache).invalidateAfterCommit(1L);
+    }
+
+    /**
+     * Test case for flagging a product that does not exist.
+     * Verifies that an {@link EntityNotFoundException} is thrown and no counters are switched.
+     */
+    @Test
+    void setHot_notFound_throwsException() {
+        when(productDao.updateHot(2L, true)).thenReturn(0);
+        var ex = assertThrows(EntityNotFoundException.class, () -> productService.setHot(new HotProductDto(2L, true)));
+        assertThat(ex.getMessage()).contains("Product with id 2 does not exist");
+        verifyNoInteractions(hotInventory);
+    }
+
+    /**
+     * Test case for importing a catalog of products.
+     * Verifies that the rows are saved in chunks, that each store is resolved to a reference once per chunk inside
+     * the chunk transaction, and that invalid rows and unknown stores are reported without failing their chunk.
+     */
+    @Test
+    void importProducts_savesChunksAndResolvesStoresOnce() {
+        productService.setImportChunkSize(3);
+        when(storeService.existStore(1L)).thenReturn(true);
+        when(storeService.existStore(7L)).thenReturn(false);
+        when(storeService.findStore(1L)).thenReturn(store);
+        var chunks = new ArrayList<List<Product>>();
+        when(productDao.saveAll(anyList())).thenAnswer(invocation -> {
+            chunks.add(List.copyOf(invocation.<List<Product>>getArgument(0)));
+            return invocation.getArgument(0);
+        });
+        var feed = List.of(
+                new ProductDto("A", "a", 10, 1L),
+                new ProductDto("", "b", 10, 1L),
+                new ProductDto("C", "c", 10, 7L),
+                new ProductDto("D", "d", 10, 1L),
+                new ProductDto("E", "e", -1, 1L),
+                new ProductDto("F", "f", 10, 7L));
+
+        var result = productService.importProducts(feed.iterator());
+
+        assertThat(chunks).hasSize(1);
+        assertThat(chunks.getFirst()).extracting(Product::getName).containsExactly("A", "D");
+        assertThat(chunks.getFirst()).extracting(Product::getStore).containsOnly(store);
+        assertThat(result.rows()).isEqualTo(6);
+        assertThat(result.imported()).isEqualTo(2);
+        assertThat(result.failures()).containsExactly(
+                new ProductImportFailureDto(2, "", "Product name cannot be empty"),
+                new ProductImportFailureDto(3, "C", "Store does not exist"),
+                new ProductImportFailureDto(5, "E", "Product price cannot be a negative number"),
+                new ProductImportFailureDto(6, "F", "Store does not exist"));
+        verify(storeService, times(1)).existStore(1L);
+        verify(storeService, times(2)).existStore(7L);
+        verify(storeService, times(1)).findStore(1L);
+        verify(storeService, never()).findStore(7L);
+    }
+
+    /**
+     * Test case for charging many products from a feed.
+     * Verifies that the feed is applied in chunks sorted by product id, that invalid rows and missing products are
+     * reported without failing their chunk, and that cached products are invalidated.
+     */
+    @Test
+    void chargeProducts_appliesSortedChunks() {
+        productService.setBulkChunkSize(2);
+        var batches = new ArrayList<List<ProductOperationDto>>();
+        when(productDao.addInventories(anyList())).thenAnswer(invocation -> {
+            List<ProductOperationDto> operations = invocation.getArgument(0);
+            batches.add(operations);
+            return operations.stream().mapToInt(operation -> operation.productId() == 9L ? 0 : 1).toArray();
+        });
+        var feed = List.of(
+                new ProductOperationDto(3L, 5),
+                new ProductOperationDto(1L, 2),
+                new ProductOperationDto(2L, -1),
+                new ProductOperationDto(9L, 4),
+                new ProductOperationDto(4L, 1));
+
+        var result = productService.chargeProducts(feed.iterator());
+
+        assertThat(batches).containsExactly(
+                List.of(new ProductOperationDto(1L, 2), new ProductOperationDto(3L, 5)),
+                List.of(new ProductOperationDto(4L, 1), new ProductOperationDto(9L, 4)));
+        assertThat(result.rows()).isEqualTo(5);
+        assertThat(result.charged()).isEqualTo(3);
+        assertThat(result.failed()).isEqualTo(2);
+        assertThat(result.failures()).containsExactly(
+                new BulkChargeFailureDto(3, 2L, "Charge amount must be a positive number"),
+                new BulkChargeFailureDto(4, 9L, "Product with id 9 does not exist"));
+        verify(productCache).invalidateAfterCommit(1L);
+        verify(productCache).invalidateAfterCommit(4L);
+    }
+
+    /**
+     * Test case for a chunk of a bulk charge whose transaction fails.
+     * Verifies that its rows are reported as failed and that the following chunks are still applied.
+     */
+    @Test
+    void chargeProducts_failedChunk_reportsItsRows() {
+        productService.setBulkChunkSize(2);
+        when(productDao.addInventories(anyList()))
+                .thenThrow(new PessimisticLockingFailureException("locked"))
+                .thenReturn(new int[]{1});
+        var feed = List.of(
+                new ProductOperationDto(1L, 1),
+                new ProductOperationDto(2L, 1),
+                new ProductOperationDto(3L, 1));
+
+        var result = productService.chargeProducts(feed.iterator());
+
+        assertThat(result.charged()).isEqualTo(1);
+        assertThat(result.failures()).containsExactly(
+                new BulkChargeFailureDto(1, 1L, "Data is locked"),
+                new BulkChargeFailureDto(2, 2L, "Data is locked"));
+    }
+
+    /**
+     * Test case for a feed whose row cannot be read.
+     * Verifies that the rows read before it are applied and the unreadable row is reported as the last failure.
+     */
+    @Test
+    void chargeProducts_malformedRow_stopsFeed() {
+        when(productDao.addInventories(anyList())).thenReturn(new int[]{1});
+        var feed = new Iterator<ProductOperationDto>() {
+            private int read;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public ProductOperationDto next() {
+                if (read++ == 0) {
+                    return new ProductOperationDto(1L, 1);
+                }
+                throw new ValidationException("Malformed row: unexpected end-of-input");
+            }
+        };
+
+        var result = productService.chargeProducts(feed);
+
+        assertThat(result.rows()).isEqualTo(1);
+        assertThat(result.charged()).isEqualTo(1);
+        assertThat(result.failures()).containsExactly(
+                new BulkChargeFailureDto(2, null, "Malformed row: unexpected end-of-input"));
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets").tags("cache", CatalogCacheConfig.PRODUCT_CACHE, "result", result)
+                .counter().count();
+    }
 }
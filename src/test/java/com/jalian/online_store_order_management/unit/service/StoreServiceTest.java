@@ -1,5 +1,7 @@
 package com.jalian.online_store_order_management.unit.service;
 
+import com.jalian.online_store_order_management.config.CatalogCache;
+import com.jalian.online_store_order_management.config.CatalogCacheConfig;
 import com.jalian.online_store_order_management.dao.StoreDao;
 import com.jalian.online_store_order_management.domain.Store;
 import com.jalian.online_store_order_management.domain.User;
@@ -10,13 +12,16 @@ import com.jalian.online_store_order_management.exception.ConstraintViolationExc
 import com.jalian.online_store_order_management.exception.EntityNotFoundException;
 import com.jalian.online_store_order_management.service.impl.StoreServiceImpl;
 import com.jalian.online_store_order_management.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Optional;
 import java.util.List;
@@ -45,6 +50,10 @@ public class StoreServiceTest {
     @Mock
     private UserService userService;
 
+    @Spy
+    private CatalogCache<Long, Long> storeCache =
+            new CatalogCache<>(CatalogCacheConfig.STORE_CACHE, 100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
     @InjectMocks
     private StoreServiceImpl storeService;
 
@@ -103,15 +112,17 @@ public class StoreServiceTest {
     /**
      * Test case for checking if a store exists by its ID.
      * <p>
-     * Verifies that the method returns true when the store is found.
+     * Verifies that the method returns true when the store is found, without locking the store, and that the
+     * store is answered from the store cache afterwards.
      * </p>
      */
     @Test
     void existStore_returnsTrue() {
-        when(storeDao.findByIdSafe(1L)).thenReturn(Optional.of(store));
-        var exists = storeService.existStore(1L);
-        assertThat(exists).isTrue();
-        verify(storeDao).findByIdSafe(1L);
+        when(storeDao.existsById(1L)).thenReturn(true);
+        assertThat(storeService.existStore(1L)).isTrue();
+        assertThat(storeService.existStore(1L)).isTrue();
+        verify(storeDao, times(1)).existsById(1L);
+        verify(storeDao, never()).findByIdSafe(any());
     }
 
     /**
@@ -122,24 +133,31 @@ public class StoreServiceTest {
      */
     @Test
     void existStore_returnsFalse() {
-        when(storeDao.findByIdSafe(2L)).thenReturn(Optional.empty());
+        when(storeDao.existsById(2L)).thenReturn(false);
         var exists = storeService.existStore(2L);
         assertThat(exists).isFalse();
-        verify(storeDao).findByIdSafe(2L);
+        verify(storeDao).existsById(2L);
+        assertThat(storeCache.size()).isZero();
     }
 
     /**
      * Test case for retrieving a store by its ID.
      * <p>
-     * Verifies that the correct store is returned when the store is found.
+     * Verifies that a reference to the store is returned when the store exists, that the second lookup checks the
+     * existence of the store from the store cache, and that every lookup asks for a fresh reference instead of
+     * sharing a cached entity.
      * </p>
      */
     @Test
     void findStore_success() {
-        when(storeDao.findByIdSafe(1L)).thenReturn(Optional.of(store));
+        when(storeDao.existsById(1L)).thenReturn(true);
+        when(storeDao.getReferenceById(1L)).thenReturn(store);
         var result = storeService.findStore(1L);
         assertThat(result.getId()).isEqualTo(1L);
-        verify(storeDao).findByIdSafe(1L);
+        assertThat(storeService.findStore(1L)).isSameAs(result);
+        verify(storeDao, times(1)).existsById(1L);
+        verify(storeDao, times(2)).getReferenceById(1L);
+        verify(storeDao, never()).findByIdSafe(any());
     }
 
     /**
@@ -150,61 +168,57 @@ public class StoreServiceTest {
      */
     @Test
     void findStore_notFound_throwsException() {
-        when(storeDao.findByIdSafe(2L)).thenReturn(Optional.empty());
+        when(storeDao.existsById(2L)).thenReturn(false);
         var ex = assertThrows(EntityNotFoundException.class, () -> storeService.findStore(2L));
         assertThat(ex.getMessage()).contains("Store");
-        verify(storeDao).findByIdSafe(2L);
+        verify(storeDao).existsById(2L);
+        verify(storeDao, never()).getReferenceById(any());
     }
 
     /**
-     * Test case for checking if a user belongs to a store when the store has no users.
+     * Test case for checking if a user belongs to a store when the user is not a member.
      * <p>
-     * Verifies that the method returns false when there are no users in the store.
+     * Verifies that the method returns false, answering from the membership query without loading the store
+     * or the user.
      * </p>
      */
     @Test
-    void belongToStore_emptyUsers_returnsFalse() {
-        when(storeDao.findByIdSafe(1L)).thenReturn(Optional.of(store));
+    void belongToStore_userNotInStore_returnsFalse() {
+        when(storeDao.existsMember(1L, 1L)).thenReturn(false);
+        when(storeDao.existsById(1L)).thenReturn(true);
         var result = storeService.belongToStore(1L, 1L);
         assertThat(result).isFalse();
-        verify(storeDao).findByIdSafe(1L);
-        verify(userService, never()).findUserEntityById(any());
+        verify(storeDao, never()).findByIdSafe(any());
+        verifyNoInteractions(userService);
     }
 
     /**
-     * Test case for checking if a user belongs to a store when the user is not in the store.
+     * Test case for checking if a user belongs to a store that does not exist.
      * <p>
-     * Verifies that the method returns false when the user is not found in the store's list of users.
+     * Verifies that an {@link EntityNotFoundException} is thrown.
      * </p>
      */
     @Test
-    void belongToStore_userNotInStore_returnsFalse() {
-        store.getUsers().add(new User("other", "pass", "Other", "other@example.com", "User"));
-        when(storeDao.findByIdSafe(1L)).thenReturn(Optional.of(store));
-        var otherUser = new User("john", "pass", "John", "john@example.com", "Doe");
-        when(userService.findUserEntityById(1L)).thenReturn(otherUser);
-        var result = storeService.belongToStore(1L, 1L);
-        assertThat(result).isFalse();
-        verify(storeDao).findByIdSafe(1L);
-        verify(userService).findUserEntityById(1L);
+    void belongToStore_storeNotFound_throwsException() {
+        when(storeDao.existsMember(1L, 1L)).thenReturn(false);
+        when(storeDao.existsById(1L)).thenReturn(false);
+        assertThrows(EntityNotFoundException.class, () -> storeService.belongToStore(1L, 1L));
     }
 
     /**
-     * Test case for checking if a user belongs to a store when the user is in the store.
+     * Test case for checking if a user belongs to a store when the user is a member.
      * <p>
-     * Verifies that the method returns true when the user is in the store's list of users.
+     * Verifies that the method returns true and that a known membership is answered from the cache afterwards.
      * </p>
      */
     @Test
-    void belongToStore_userInStore_returnsTrue() {
-        var userInStore = new User("john", "pass", "John", "john@example.com", "Doe");
-        store.getUsers().add(userInStore);
-        when(storeDao.findByIdSafe(1L)).thenReturn(Optional.of(store));
-        when(userService.findUserEntityById(1L)).thenReturn(userInStore);
-        var result = storeService.belongToStore(1L, 1L);
-        assertThat(result).isTrue();
-        verify(storeDao).findByIdSafe(1L);
-        verify(userService).findUserEntityById(1L);
+    void belongToStore_userInStore_returnsTrueAndCaches() {
+        when(storeDao.existsMember(1L, 1L)).thenReturn(true);
+        assertThat(storeService.belongToStore(1L, 1L)).isTrue();
+        assertThat(storeService.belongToStore(1L, 1L)).isTrue();
+        verify(storeDao, times(1)).existsMember(1L, 1L);
+        verify(storeDao, never()).findByIdSafe(any());
+        verifyNoInteractions(userService);
     }
 
     /**
@@ -241,43 +255,37 @@ public class StoreServiceTest {
         // Assert that the returned list contains the added user.
         assertThat(userFetchDtos).isNotEmpty();
         assertThat(userFetchDtos.get(0).username()).isEqualTo("john");
+
+        // The new membership is answered from the cache.
+        assertThat(storeService.belongToStore(1L, 1L)).isTrue();
+        verify(storeDao, times(1)).existsMember(1L, 1L);
+
+        // Only store ids are cached, and adding a member does not change whether the store exists.
+        verify(storeCache, never()).invalidateAfterCommit(any());
     }
 
     /**
      * Test case for adding a user to a store when the user is already in the store.
      * <p>
-     * This test verifies that if a user is already present in the store's user list, the method
-     * will add the user again (based on the current implementation) and return a list containing duplicate entries.
-     * If duplicate prevention is desired, the implementation should be updated.
+     * This test verifies that a user who is already a member is not added a second time, since the
+     * {@code store_user} join table has a unique {@code (store_id, user_id)} constraint.
      * </p>
      */
     @Test
-    void addUserToStore_duplicateUser_returnsDuplicate() {
-        // Prepare a user and add it to the store.
+    void addUserToStore_duplicateUser_isNotAddedTwice() {
         var userToAdd = new User("john", "pass", "John", "john@example.com", "Doe");
         userToAdd.setId(1L);
         store.setUsers(new ArrayList<>());
         store.getUsers().add(userToAdd);
 
-        // Set up mocks.
         when(storeDao.findByIdSafe(1L)).thenReturn(Optional.of(store));
         when(userService.findUserEntityById(1L)).thenReturn(userToAdd);
-        when(storeDao.save(any(Store.class))).thenAnswer(invocation -> invocation.getArgument(0, Store.class));
+        when(storeDao.existsMember(1L, 1L)).thenReturn(true);
 
-        // Create the DTO.
-        var addUserToStoreDto = new com.jalian.online_store_order_management.dto.AddUserToStoreDto(1L, 1L);
-
-        // Call the method.
-        List<UserFetchDto> userFetchDtos = storeService.addUserToStore(addUserToStoreDto);
-
-        // Verify interactions.
-        verify(storeDao).findByIdSafe(1L);
-        verify(userService).findUserEntityById(1L);
-        verify(storeDao).save(any(Store.class));
+        List<UserFetchDto> userFetchDtos = storeService.addUserToStore(new AddUserToStoreDto(1L, 1L));
 
-        // Assert that the returned list contains the user twice (since duplicate checking is not implemented).
-        assertThat(userFetchDtos).hasSize(2);
+        verify(storeDao, never()).save(any(Store.class));
+        assertThat(userFetchDtos).hasSize(1);
         assertThat(userFetchDtos.get(0).username()).isEqualTo("john");
-        assertThat(userFetchDtos.get(1).username()).isEqualTo("john");
     }
 }
@@ -4,6 +4,7 @@ import com.jalian.online_store_order_management.constant.BalanceOperation;
 import com.jalian.online_store_order_management.dao.UserDao;
 import com.jalian.online_store_order_management.domain.User;
 import com.jalian.online_store_order_management.dto.UpdateBalanceDto;
+import com.jalian.online_store_order_management.dto.UserFetchDto;
 import com.jalian.online_store_order_management.dto.UserRegisterDto;
 import com.jalian.online_store_order_management.exception.DuplicateUsername;
 import com.jalian.online_store_order_management.exception.EntityNotFoundException;
@@ -15,7 +16,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.ConcurrencyFailureException;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -126,51 +129,73 @@ public class UserServiceTest {
         verify(userDao).findUserById(2L);
     }
 
+    /**
+     * Test case for finding a user entity without locking it.
+     * Verifies that the lock-free query is used instead of the optimistic one.
+     */
+    @Test
+    void findUserEntityReadOnly_success() {
+        when(userDao.findByIdReadOnly(1L)).thenReturn(Optional.of(user));
+        var result = userService.findUserEntityReadOnly(1L);
+        assertThat(result).isSameAs(user);
+        verify(userDao, never()).findUserById(any());
+    }
+
+    /**
+     * Test case for finding a user entity without locking it when the user does not exist.
+     * Verifies that an {@link EntityNotFoundException} is thrown.
+     */
+    @Test
+    void findUserEntityReadOnly_notFound() {
+        when(userDao.findByIdReadOnly(2L)).thenReturn(Optional.empty());
+        var ex = assertThrows(EntityNotFoundException.class, () -> userService.findUserEntityReadOnly(2L));
+        assertThat(ex.getMessage()).contains("User");
+    }
+
     /**
      * Test case for updating a user's balance with a positive amount.
-     * Verifies that the user's balance is updated correctly.
+     * Verifies that the balance is credited with a single statement and the fresh view is returned.
      */
     @Test
     void updateBalance_plus_success() {
-        user.setBalance(100.0);
-        var updateBalanceDto = new UpdateBalanceDto(1L, 50.0, BalanceOperation.PLUS);
-        when(userDao.findUserByIdForUpdate(1L)).thenReturn(Optional.of(user));
-        when(userDao.save(any(User.class))).thenReturn(user);
+        var updateBalanceDto = new UpdateBalanceDto(1L, 50L, BalanceOperation.PLUS);
+        when(userDao.creditBalance(1L, 50L)).thenReturn(1);
+        when(userDao.findFetchDtoById(1L)).thenReturn(Optional.of(fetchDto(150L)));
         var result = userService.updateBalance(updateBalanceDto);
-        assertThat(result.balance()).isEqualTo(150.0);
-        verify(userDao).findUserByIdForUpdate(1L);
-        verify(userDao).save(any(User.class));
+        assertThat(result.balance()).isEqualTo(150L);
+        verify(userDao).creditBalance(1L, 50L);
+        verify(userDao, never()).save(any(User.class));
     }
 
     /**
      * Test case for updating a user's balance with a negative amount.
-     * Verifies that the user's balance is updated correctly.
+     * Verifies that the balance is debited with a single conditional statement and the fresh view is returned.
      */
     @Test
     void updateBalance_minus_success() {
-        user.setBalance(100.0);
-        var updateBalanceDto = new UpdateBalanceDto(1L, 50.0, BalanceOperation.MINUS);
-        when(userDao.findUserByIdForUpdate(1L)).thenReturn(Optional.of(user));
-        when(userDao.save(any(User.class))).thenReturn(user);
+        var updateBalanceDto = new UpdateBalanceDto(1L, 50L, BalanceOperation.MINUS);
+        when(userDao.debitBalance(1L, 50L)).thenReturn(1);
+        when(userDao.findFetchDtoById(1L)).thenReturn(Optional.of(fetchDto(50L)));
         var result = userService.updateBalance(updateBalanceDto);
-        assertThat(result.balance()).isEqualTo(50.0);
-        verify(userDao).findUserByIdForUpdate(1L);
-        verify(userDao).save(any(User.class));
+        assertThat(result.balance()).isEqualTo(50L);
+        verify(userDao).debitBalance(1L, 50L);
+        verify(userDao, never()).save(any(User.class));
     }
 
     /**
      * Test case for updating a user's balance with insufficient funds.
-     * Verifies that an {@link IllegalBalanceException} is thrown when the balance is insufficient for withdrawal.
+     * Verifies that an {@link IllegalBalanceException} is thrown when the conditional debit updates no row
+     * of an existing user.
      */
     @Test
     void updateBalance_minus_insufficientFunds() {
-        user.setBalance(30.0);
-        var updateBalanceDto = new UpdateBalanceDto(1L, 50.0, BalanceOperation.MINUS);
-        when(userDao.findUserByIdForUpdate(1L)).thenReturn(Optional.of(user));
+        var updateBalanceDto = new UpdateBalanceDto(1L, 50L, BalanceOperation.MINUS);
+        when(userDao.debitBalance(1L, 50L)).thenReturn(0);
+        when(userDao.existsById(1L)).thenReturn(true);
         var ex = assertThrows(IllegalBalanceException.class, () -> userService.updateBalance(updateBalanceDto));
         assertThat(ex).isInstanceOf(IllegalBalanceException.class);
-        verify(userDao).findUserByIdForUpdate(1L);
-        verify(userDao, never()).save(any(User.class));
+        verify(userDao).debitBalance(1L, 50L);
+        verify(userDao, never()).findFetchDtoById(any());
     }
 
     /**
@@ -179,10 +204,76 @@ public class UserServiceTest {
      */
     @Test
     void updateBalance_userNotFound() {
-        var updateBalanceDto = new UpdateBalanceDto(2L, 50.0, BalanceOperation.PLUS);
-        when(userDao.findUserByIdForUpdate(2L)).thenReturn(Optional.empty());
+        var updateBalanceDto = new UpdateBalanceDto(2L, 50L, BalanceOperation.PLUS);
+        when(userDao.creditBalance(2L, 50L)).thenReturn(0);
         var ex = assertThrows(EntityNotFoundException.class, () -> userService.updateBalance(updateBalanceDto));
         assertThat(ex.getMessage()).contains("User");
-        verify(userDao).findUserByIdForUpdate(2L);
+        verify(userDao).creditBalance(2L, 50L);
+    }
+
+    /**
+     * Test case for debiting a user that does not exist.
+     * Verifies that an {@link EntityNotFoundException} rather than an {@link IllegalBalanceException} is thrown.
+     */
+    @Test
+    void debitBalance_userNotFound() {
+        when(userDao.debitBalance(2L, 50L)).thenReturn(0);
+        when(userDao.existsById(2L)).thenReturn(false);
+        assertThrows(EntityNotFoundException.class, () -> userService.debitBalance(2L, 50L));
+    }
+
+    /**
+     * Test case for applying several debits in one update.
+     * Verifies that debits are checked in order against the balance read once, that a debit the balance
+     * cannot cover is skipped, and that the sum of the accepted debits is applied with one conditional update
+     * without loading or saving the user.
+     */
+    @Test
+    void debitAll_skipsDebitsBalanceCannotCover() {
+        when(userDao.findBalanceById(1L)).thenReturn(Optional.of(100L));
+        when(userDao.debitBalance(1L, 90L)).thenReturn(1);
+        var debited = userService.debitAll(1L, List.of(40L, 70L, 50L));
+        assertThat(debited).containsExactly(true, false, true);
+        verify(userDao, times(1)).debitBalance(1L, 90L);
+        verify(userDao, never()).save(any(User.class));
+    }
+
+    /**
+     * Test case for applying debits none of which the balance covers.
+     * Verifies that no update is issued.
+     */
+    @Test
+    void debitAll_nothingCovered_noUpdate() {
+        when(userDao.findBalanceById(1L)).thenReturn(Optional.of(10L));
+        var debited = userService.debitAll(1L, List.of(40L, 70L));
+        assertThat(debited).containsExactly(false, false);
+        verify(userDao, never()).debitBalance(anyLong(), anyLong());
+    }
+
+    /**
+     * Test case for applying debits while the balance drops concurrently.
+     * Verifies that a retryable {@link ConcurrencyFailureException} is thrown when the conditional update does not
+     * match any more.
+     */
+    @Test
+    void debitAll_balanceChanged_throwsConcurrencyFailure() {
+        when(userDao.findBalanceById(1L)).thenReturn(Optional.of(100L));
+        when(userDao.debitBalance(1L, 40L)).thenReturn(0);
+        assertThrows(ConcurrencyFailureException.class, () -> userService.debitAll(1L, List.of(40L)));
+    }
+
+    /**
+     * Test case for applying debits when the user is not found.
+     * Verifies that an {@link EntityNotFoundException} is thrown when the user is not found.
+     */
+    @Test
+    void debitAll_userNotFound() {
+        when(userDao.findBalanceById(2L)).thenReturn(Optional.empty());
+        assertThrows(EntityNotFoundException.class, () -> userService.debitAll(2L, List.of(10L)));
+        verify(userDao, never()).debitBalance(anyLong(), anyLong());
+    }
+
+    private UserFetchDto fetchDto(long balance) {
+        return new UserFetchDto("John", "Doe", "john@example.com", "1", "john", balance);
     }
 }